@@ -0,0 +1,67 @@
+package net.coderodde.fun.console.benchmark;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import net.coderodde.fun.console.ColorfulConsole;
+import net.coderodde.fun.console.ConsoleCanvas;
+
+/**
+ * This class creates the consoles and holds the text shared by the
+ * benchmarks.
+ * 
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 17, 2026)
+ */
+final class BenchmarkConsoles {
+    
+    /**
+     * The width of the benchmarked consoles in characters.
+     */
+    static final int CONSOLE_WIDTH = 80;
+    
+    /**
+     * The height of the benchmarked consoles in characters.
+     */
+    static final int CONSOLE_HEIGHT = 24;
+    
+    /**
+     * The width and the height of the benchmarked canvases in characters.
+     */
+    static final int CANVAS_SIZE = 20_000;
+    
+    /**
+     * The line printed by the string printing benchmarks.
+     */
+    static final String LINE =
+            "The quick brown fox jumps over the lazy dog 0123456789 " +
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZ\n";
+    
+    /**
+     * A line of typical colored log output.
+     */
+    static final String ANSI_LINE =
+            "\u001b[32m2026-10-17 12:00:00 \u001b[1mINFO\u001b[0m " +
+            "worker-7 processed request \u001b[38;5;208mid=4711\u001b[0m\n";
+    
+    private BenchmarkConsoles() {}
+    
+    static ColorfulConsole newConsole() {
+        ColorfulConsole console =
+                new ColorfulConsole(CONSOLE_WIDTH, CONSOLE_HEIGHT);
+        console.setForeground(Color.LIGHT_GRAY);
+        return console;
+    }
+    
+    /**
+     * Creates a huge canvas showing its top-left corner in a viewport of the
+     * preferred size.
+     * 
+     * @return the canvas.
+     */
+    static ConsoleCanvas newCanvas() {
+        ConsoleCanvas canvas = new ConsoleCanvas(CANVAS_SIZE, CANVAS_SIZE);
+        Dimension viewport = canvas.getPreferredScrollableViewportSize();
+        canvas.setSize(viewport);
+        return canvas;
+    }
+}
@@ -0,0 +1,34 @@
+package net.coderodde.fun.console.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * This class implements the entry point of the benchmark jar. It runs JMH
+ * with the given command line options and always attaches the GC profiler,
+ * so that the allocation rate is reported next to each score:
+ * <pre>
+ * mvn -B package
+ * java -jar jmh/target/benchmarks.jar [JMH options] [benchmark regexp]
+ * </pre>
+ * The benchmarks fork with <code>-Djava.awt.headless=true</code>, so they
+ * run on machines without a display.
+ * 
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 17, 2026)
+ */
+public final class BenchmarkMain {
+    
+    private BenchmarkMain() {}
+    
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
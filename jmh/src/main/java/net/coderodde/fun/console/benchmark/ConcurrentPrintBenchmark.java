@@ -0,0 +1,111 @@
+package net.coderodde.fun.console.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import net.coderodde.fun.console.ColorfulConsole;
+import net.coderodde.fun.console.ConsoleWindow;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * This class benchmarks printing into a console by as many threads as there
+ * are processors, all into the same console and each into its own window of
+ * a shared console.
+ * 
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 17, 2026)
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@Threads(Threads.MAX)
+public class ConcurrentPrintBenchmark {
+    
+    /**
+     * The maximum number of windows, two rows each.
+     */
+    private static final int MAXIMUM_WINDOWS = 256;
+    
+    /**
+     * The console shared by all the threads.
+     */
+    @State(Scope.Benchmark)
+    public static class SharedConsole {
+        
+        /**
+         * The shared console.
+         */
+        ColorfulConsole console;
+        
+        /**
+         * The number of windows created in the console.
+         */
+        final AtomicInteger windowCount = new AtomicInteger();
+        
+        @Setup
+        public void setUp() {
+            console = new ColorfulConsole(BenchmarkConsoles.CONSOLE_WIDTH,
+                                          MAXIMUM_WINDOWS * 2);
+        }
+    }
+    
+    /**
+     * The window of a thread in the shared console.
+     */
+    @State(Scope.Thread)
+    public static class WindowState {
+        
+        /**
+         * The window of the thread.
+         */
+        ConsoleWindow window;
+        
+        /**
+         * The sequence number of the next operation of the thread.
+         */
+        long count;
+        
+        @Setup
+        public void setUp(SharedConsole shared) {
+            int row = shared.windowCount.getAndIncrement() % MAXIMUM_WINDOWS;
+            window = shared.console.createWindow(
+                    0,
+                    row * 2,
+                    BenchmarkConsoles.CONSOLE_WIDTH,
+                    2);
+        }
+    }
+    
+    /**
+     * The number of operations run by a thread.
+     */
+    @State(Scope.Thread)
+    public static class Counter {
+        
+        /**
+         * The sequence number of the next operation of the thread.
+         */
+        long count;
+    }
+    
+    @Benchmark
+    public void printCharShared(SharedConsole shared, Counter state) {
+        shared.console.print((char)('a' + (state.count++ & 15)));
+    }
+    
+    @Benchmark
+    public void printCharWindowed(WindowState state) {
+        state.window.print((char)('a' + (state.count++ & 15)));
+    }
+}
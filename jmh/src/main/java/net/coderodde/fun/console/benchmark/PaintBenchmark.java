@@ -0,0 +1,176 @@
+package net.coderodde.fun.console.benchmark;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+import net.coderodde.fun.console.ColorfulConsole;
+import net.coderodde.fun.console.ConsoleCanvas;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * This class benchmarks painting frames headlessly into the graphics context
+ * of a {@link BufferedImage}. Each operation changes a few tiles and paints
+ * a frame, clipped to the changed tiles for the sparse frames and covering
+ * the whole console for the full ones.
+ * 
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 17, 2026)
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class PaintBenchmark {
+    
+    /**
+     * A console filled with text and an image to paint it into.
+     */
+    @State(Scope.Thread)
+    public static class ConsoleState {
+        
+        /**
+         * The painted console.
+         */
+        ColorfulConsole console;
+        
+        /**
+         * The image the console is painted into.
+         */
+        BufferedImage image;
+        
+        /**
+         * The graphics context of the image.
+         */
+        Graphics2D g;
+        
+        /**
+         * The width of a tile in pixels.
+         */
+        int tileWidth;
+        
+        /**
+         * The height of a tile in pixels.
+         */
+        int tileHeight;
+        
+        /**
+         * The sequence number of the next operation.
+         */
+        long count;
+        
+        @Setup
+        public void setUp() {
+            console = BenchmarkConsoles.newConsole();
+            image = new BufferedImage(console.getSize().width,
+                                      console.getSize().height,
+                                      BufferedImage.TYPE_INT_RGB);
+            g = image.createGraphics();
+            tileWidth = image.getWidth() / BenchmarkConsoles.CONSOLE_WIDTH;
+            tileHeight = image.getHeight() / BenchmarkConsoles.CONSOLE_HEIGHT;
+            
+            for (int y = 0; y < BenchmarkConsoles.CONSOLE_HEIGHT; y++) {
+                console.write(0,
+                              y,
+                              BenchmarkConsoles.LINE.trim(),
+                              Color.WHITE,
+                              Color.BLUE,
+                              y % 2 == 0);
+            }
+        }
+        
+        @TearDown
+        public void tearDown() {
+            g.dispose();
+        }
+        
+        /**
+         * Changes ten tiles of the next row.
+         * 
+         * @return the changed row.
+         */
+        int changeRow() {
+            int y = (int)(count++ % BenchmarkConsoles.CONSOLE_HEIGHT);
+            console.write(0, y, "0123456789", Color.YELLOW, Color.BLACK,
+                          false);
+            return y;
+        }
+    }
+    
+    /**
+     * A huge canvas filled with text in its visible corner.
+     */
+    @State(Scope.Thread)
+    public static class CanvasState {
+        
+        /**
+         * The painted canvas.
+         */
+        ConsoleCanvas canvas;
+        
+        /**
+         * The size of the viewport of the canvas.
+         */
+        Dimension viewport;
+        
+        /**
+         * The graphics context of the image the canvas is painted into.
+         */
+        Graphics2D g;
+        
+        @Setup
+        public void setUp() {
+            canvas = BenchmarkConsoles.newCanvas();
+            viewport = canvas.getPreferredScrollableViewportSize();
+            BufferedImage image = new BufferedImage(viewport.width,
+                                                    viewport.height,
+                                                    BufferedImage.TYPE_INT_RGB);
+            g = image.createGraphics();
+            
+            for (int y = 0; y < BenchmarkConsoles.CONSOLE_HEIGHT; y++) {
+                canvas.write(0, y, BenchmarkConsoles.LINE.trim(),
+                             Color.WHITE, Color.BLUE, false);
+            }
+        }
+        
+        @TearDown
+        public void tearDown() {
+            g.dispose();
+        }
+    }
+    
+    @Benchmark
+    public void paintSparse(ConsoleState state) {
+        int y = state.changeRow();
+        state.g.setClip(0,
+                        y * state.tileHeight,
+                        10 * state.tileWidth,
+                        state.tileHeight);
+        state.console.paintComponent(state.g);
+    }
+    
+    @Benchmark
+    public void paintFull(ConsoleState state) {
+        state.changeRow();
+        state.g.setClip(0, 0, state.image.getWidth(), state.image.getHeight());
+        state.console.paintComponent(state.g);
+    }
+    
+    @Benchmark
+    public void canvasPaintViewport(CanvasState state) {
+        state.g.setClip(0, 0, state.viewport.width, state.viewport.height);
+        state.canvas.paintComponent(state.g);
+    }
+}
@@ -0,0 +1,253 @@
+package net.coderodde.fun.console.benchmark;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import net.coderodde.fun.console.AnsiOutputStream;
+import net.coderodde.fun.console.ColorfulConsole;
+import net.coderodde.fun.console.ConsoleIngest;
+import net.coderodde.fun.console.ConsoleMirror;
+import net.coderodde.fun.console.ConsoleMirrorViewer;
+import net.coderodde.fun.console.OverflowPolicy;
+import net.coderodde.fun.console.SessionRecorder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * This class benchmarks printing into a console by a single thread, plain
+ * and through the ANSI adapter, the ingest, a session recorder and a mirror.
+ * 
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 17, 2026)
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class PrintBenchmark {
+    
+    /**
+     * A console and the number of operations run on it.
+     */
+    @State(Scope.Thread)
+    public static class ConsoleState {
+        
+        /**
+         * The benchmarked console.
+         */
+        ColorfulConsole console;
+        
+        /**
+         * The sequence number of the next operation.
+         */
+        long count;
+        
+        @Setup
+        public void setUp() {
+            console = BenchmarkConsoles.newConsole();
+        }
+        
+        char nextCharacter() {
+            return (char)('a' + (count++ & 15));
+        }
+    }
+    
+    /**
+     * A console being recorded into a session.
+     */
+    @State(Scope.Thread)
+    public static class RecordedState extends ConsoleState {
+        
+        /**
+         * Records the console.
+         */
+        SessionRecorder recorder;
+        
+        /**
+         * Attaches the recorder. Runs after the setup of the console.
+         */
+        @Setup
+        public void setUpRecorder() throws IOException {
+            recorder = new SessionRecorder(console.getModel(),
+                                           OutputStream.nullOutputStream());
+        }
+        
+        @TearDown
+        public void tearDown() throws IOException {
+            recorder.close();
+        }
+    }
+    
+    /**
+     * A console mirrored to four viewers over the loopback interface.
+     */
+    @State(Scope.Thread)
+    public static class MirroredState extends ConsoleState {
+        
+        /**
+         * The number of viewers.
+         */
+        private static final int VIEWERS = 4;
+        
+        /**
+         * Mirrors the console.
+         */
+        ConsoleMirror mirror;
+        
+        /**
+         * The viewers of the mirror.
+         */
+        final ConsoleMirrorViewer[] viewers = new ConsoleMirrorViewer[VIEWERS];
+        
+        /**
+         * Starts the mirror and connects the viewers. Runs after the setup of
+         * the console.
+         */
+        @Setup
+        public void setUpMirror() throws IOException {
+            mirror = new ConsoleMirror(console, 0);
+            
+            for (int i = 0; i < VIEWERS; i++) {
+                viewers[i] = new ConsoleMirrorViewer(
+                        BenchmarkConsoles.newConsole(),
+                        mirror.getPort());
+            }
+        }
+        
+        @TearDown
+        public void tearDown() throws IOException {
+            mirror.close();
+            
+            for (ConsoleMirrorViewer viewer : viewers) {
+                viewer.close();
+            }
+        }
+    }
+    
+    /**
+     * A console fed through an ingest that never blocks.
+     */
+    @State(Scope.Thread)
+    public static class IngestState {
+        
+        /**
+         * The benchmarked ingest.
+         */
+        ConsoleIngest ingest;
+        
+        @Setup
+        public void setUp() {
+            ingest = new ConsoleIngest(BenchmarkConsoles.newConsole(),
+                                       1024,
+                                       OverflowPolicy.DROP);
+        }
+        
+        @TearDown
+        public void tearDown() {
+            ingest.close();
+        }
+    }
+    
+    /**
+     * A console fed through the ANSI adapter.
+     */
+    @State(Scope.Thread)
+    public static class AnsiState {
+        
+        /**
+         * The benchmarked adapter.
+         */
+        AnsiOutputStream out;
+        
+        /**
+         * The encoded line of colored log output.
+         */
+        final byte[] line =
+                BenchmarkConsoles.ANSI_LINE.getBytes(StandardCharsets.UTF_8);
+        
+        @Setup
+        public void setUp() {
+            out = new AnsiOutputStream(BenchmarkConsoles.newConsole());
+        }
+    }
+    
+    @Benchmark
+    public void printChar(ConsoleState state) {
+        state.console.print(state.nextCharacter());
+    }
+    
+    /**
+     * Prints double-width CJK characters one at a time, which takes the
+     * non-ASCII path of {@link ColorfulConsole#print(char)}.
+     * 
+     * @param state the console.
+     */
+    @Benchmark
+    public void printWideChar(ConsoleState state) {
+        state.console.print((char)('\u4e00' + (state.count++ & 15)));
+    }
+    
+    @Benchmark
+    public void printString(ConsoleState state) {
+        state.console.print(BenchmarkConsoles.LINE);
+    }
+    
+    @Benchmark
+    public void setCursorPosition(ConsoleState state) {
+        long i = state.count++;
+        state.console.setConsoleCursorPosition(
+                (int)(i % BenchmarkConsoles.CONSOLE_WIDTH),
+                (int)((i / BenchmarkConsoles.CONSOLE_WIDTH) %
+                      BenchmarkConsoles.CONSOLE_HEIGHT));
+    }
+    
+    /**
+     * The same as {@link #printChar(ConsoleState)} with a session recorder
+     * attached.
+     * 
+     * @param state the recorded console.
+     */
+    @Benchmark
+    public void printCharRecorded(RecordedState state) {
+        state.console.print(state.nextCharacter());
+    }
+    
+    /**
+     * The same as {@link #printChar(ConsoleState)} with four viewers
+     * mirroring the console.
+     * 
+     * @param state the mirrored console.
+     */
+    @Benchmark
+    public void printCharMirrored(MirroredState state) {
+        state.console.print(state.nextCharacter());
+    }
+    
+    /**
+     * The same as {@link #printString(ConsoleState)} through an ingest; the
+     * difference is the cost of the flow control.
+     * 
+     * @param state the ingest.
+     * @throws InterruptedException never, since the ingest drops.
+     */
+    @Benchmark
+    public void ingestPrint(IngestState state) throws InterruptedException {
+        state.ingest.print(BenchmarkConsoles.LINE);
+    }
+    
+    @Benchmark
+    public void ansiLine(AnsiState state) throws IOException {
+        state.out.write(state.line, 0, state.line.length);
+    }
+}
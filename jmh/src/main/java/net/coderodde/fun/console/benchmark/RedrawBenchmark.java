@@ -0,0 +1,139 @@
+package net.coderodde.fun.console.benchmark;
+
+import java.awt.Color;
+import java.util.concurrent.TimeUnit;
+import net.coderodde.fun.console.ColorfulConsole;
+import net.coderodde.fun.console.ConsoleCanvas;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * This class benchmarks programs redrawing whole screens of which little
+ * changes, and writing into a huge canvas far outside of its visible part.
+ * 
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 17, 2026)
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class RedrawBenchmark {
+    
+    /**
+     * A console and the number of operations run on it.
+     */
+    @State(Scope.Thread)
+    public static class ConsoleState {
+        
+        /**
+         * The redrawn console.
+         */
+        ColorfulConsole console;
+        
+        /**
+         * The text of each row.
+         */
+        final String row = BenchmarkConsoles.LINE.trim();
+        
+        /**
+         * The sequence number of the next operation.
+         */
+        long count;
+        
+        @Setup
+        public void setUp() {
+            console = BenchmarkConsoles.newConsole();
+        }
+        
+        /**
+         * Writes every row and then a single changed cell.
+         */
+        void redraw() {
+            for (int y = 0; y < BenchmarkConsoles.CONSOLE_HEIGHT; y++) {
+                console.write(0, y, row, Color.WHITE, Color.BLUE, false);
+            }
+            
+            long i = count++;
+            console.write((int)(i % BenchmarkConsoles.CONSOLE_WIDTH),
+                          (int)(i % BenchmarkConsoles.CONSOLE_HEIGHT),
+                          "*",
+                          Color.WHITE,
+                          Color.BLUE,
+                          false);
+        }
+    }
+    
+    /**
+     * A huge canvas and the number of operations run on it.
+     */
+    @State(Scope.Thread)
+    public static class CanvasState {
+        
+        /**
+         * The canvas written into.
+         */
+        ConsoleCanvas canvas;
+        
+        /**
+         * The sequence number of the next operation.
+         */
+        long count;
+        
+        @Setup
+        public void setUp() {
+            canvas = BenchmarkConsoles.newCanvas();
+        }
+    }
+    
+    /**
+     * A full-screen redraw changing a single cell, committed as a frame; only
+     * the changed cell is marked as damaged.
+     * 
+     * @param state the console.
+     */
+    @Benchmark
+    public void frameRedraw(ConsoleState state) {
+        state.console.beginFrame();
+        state.redraw();
+        state.console.commitFrame();
+    }
+    
+    /**
+     * The same as {@link #frameRedraw(ConsoleState)} without the frame; the
+     * writes leaving the cells as they were are suppressed one by one.
+     * 
+     * @param state the console.
+     */
+    @Benchmark
+    public void screenRedraw(ConsoleState state) {
+        state.redraw();
+    }
+    
+    /**
+     * Runs of text written far outside the visible part of a huge canvas; a
+     * band of chunks is allocated once.
+     * 
+     * @param state the canvas.
+     */
+    @Benchmark
+    public void canvasWriteOffscreen(CanvasState state) {
+        long i = state.count++;
+        int size = BenchmarkConsoles.CANVAS_SIZE;
+        state.canvas.write((int)((i * 7919) % (size - 10)),
+                           size / 2 + (int)(i & 63),
+                           "0123456789",
+                           Color.YELLOW,
+                           Color.BLACK,
+                           false);
+    }
+}
@@ -0,0 +1,136 @@
+package net.coderodde.fun.console;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Objects;
+
+/**
+ * This class implements an output stream writing UTF-8 encoded text with 
+ * ANSI/VT100 escape sequences into a {@link ColorfulConsole} or a
+ * {@link ConsoleModel}. It is meant for piping the output of subprocesses or
+ * of {@code System.out} into a console.
+ * The bytes are decoded without allocation and fed to an {@link AnsiParser}; 
+ * the plain text is printed in runs at the end of each write call.
+ * <p>
+ * Malformed UTF-8 input is replaced with the replacement character 
+ * <code>U+FFFD</code>.
+ * 
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 17, 2026)
+ */
+public final class AnsiOutputStream extends OutputStream {
+
+    /**
+     * The character replacing malformed input.
+     */
+    private static final char REPLACEMENT_CHARACTER = '\uFFFD';
+    
+    /**
+     * The escape sequence parser.
+     */
+    private final AnsiParser parser;
+    
+    /**
+     * The code point being decoded.
+     */
+    private int codePoint;
+    
+    /**
+     * The number of continuation bytes still expected.
+     */
+    private int pendingBytes;
+    
+    /**
+     * The smallest code point valid for the current sequence length. Used for
+     * rejecting overlong encodings.
+     */
+    private int minimumCodePoint;
+    
+    public AnsiOutputStream(ColorfulConsole console) {
+        this(Objects.requireNonNull(console, "The input console is null.")
+                    .getModel());
+    }
+    
+    public AnsiOutputStream(ConsoleModel model) {
+        this.parser = new AnsiParser(model);
+    }
+    
+    @Override
+    public synchronized void write(int b) throws IOException {
+        decode((byte) b);
+        parser.flush();
+    }
+    
+    @Override
+    public synchronized void write(byte[] bytes, int offset, int length) 
+            throws IOException {
+        if (offset < 0 || length < 0 || offset + length > bytes.length) {
+            throw new IndexOutOfBoundsException(
+                    "The range [" + offset + ", " + (offset + length) + ") " +
+                    "is out of the array bounds.");
+        }
+        
+        for (int i = offset; i < offset + length; i++) {
+            decode(bytes[i]);
+        }
+        
+        parser.flush();
+    }
+    
+    @Override
+    public synchronized void flush() throws IOException {
+        parser.flush();
+    }
+    
+    private void decode(byte b) {
+        int value = b & 0xff;
+        
+        if (pendingBytes > 0) {
+            if ((value & 0xc0) == 0x80) {
+                codePoint = (codePoint << 6) | (value & 0x3f);
+                
+                if (--pendingBytes == 0) {
+                    emitCodePoint();
+                }
+                
+                return;
+            }
+            
+            // The sequence was cut short:
+            pendingBytes = 0;
+            parser.accept(REPLACEMENT_CHARACTER);
+        }
+        
+        if (value < 0x80) {
+            parser.accept((char) value);
+        } else if ((value & 0xe0) == 0xc0) {
+            startSequence(value & 0x1f, 1, 0x80);
+        } else if ((value & 0xf0) == 0xe0) {
+            startSequence(value & 0x0f, 2, 0x800);
+        } else if ((value & 0xf8) == 0xf0) {
+            startSequence(value & 0x07, 3, 0x10000);
+        } else {
+            parser.accept(REPLACEMENT_CHARACTER);
+        }
+    }
+    
+    private void startSequence(int bits, int continuationBytes, int minimum) {
+        codePoint = bits;
+        pendingBytes = continuationBytes;
+        minimumCodePoint = minimum;
+    }
+    
+    private void emitCodePoint() {
+        if (codePoint < minimumCodePoint 
+                || codePoint > Character.MAX_CODE_POINT
+                || (codePoint >= Character.MIN_SURROGATE 
+                    && codePoint <= Character.MAX_SURROGATE)) {
+            parser.accept(REPLACEMENT_CHARACTER);
+        } else if (codePoint < Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+            parser.accept((char) codePoint);
+        } else {
+            parser.accept(Character.highSurrogate(codePoint));
+            parser.accept(Character.lowSurrogate(codePoint));
+        }
+    }
+}
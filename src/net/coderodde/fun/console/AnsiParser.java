@@ -0,0 +1,636 @@
+package net.coderodde.fun.console;
+
+import java.awt.Color;
+import java.nio.CharBuffer;
+import java.util.Objects;
+
+/**
+ * This class implements a streaming parser of ANSI/VT100 escape sequences
+ * driving a {@link ConsoleModel}. It understands the SGR color, boldness
+ * and blink codes (including the 256-color and the true color forms), the
+ * cursor movement sequences and the erase sequences; other sequences are
+ * consumed and ignored. Plain text is collected into runs that are printed
+ * through the batched write path of the model.
+ * <p>
+ * If the model uses a {@link Palette}, the indexed color codes select the
+ * palette entries directly, so remapping an entry re-colors the text already
+ * printed with it. The true colors are mapped to the nearest entry.
+ * <p>
+ * The parser is a state machine over characters and does not allocate while
+ * parsing, save for the colors of true color sequences. It is not
+ * thread-safe.
+ * 
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 17, 2026)
+ */
+final class AnsiParser {
+
+    /**
+     * The escape character.
+     */
+    private static final char ESCAPE = '\u001b';
+    
+    /**
+     * The bell character, terminating operating system commands.
+     */
+    private static final char BELL = '\u0007';
+    
+    /**
+     * The maximum number of parameters of a control sequence. Extra
+     * parameters are ignored.
+     */
+    private static final int MAXIMUM_PARAMETERS = 16;
+    
+    /**
+     * The maximum length of a plain text run before it is printed.
+     */
+    private static final int RUN_CAPACITY = 1024;
+    
+    /**
+     * The tab stop width.
+     */
+    private static final int TAB_WIDTH = 8;
+    
+    /**
+     * The xterm 256-color palette.
+     */
+    static final Color[] XTERM_COLORS = createXtermColors();
+    
+    /**
+     * Parsing plain text.
+     */
+    private static final int STATE_GROUND = 0;
+    
+    /**
+     * Seen the escape character.
+     */
+    private static final int STATE_ESCAPE = 1;
+    
+    /**
+     * Inside a control sequence introduced by <code>ESC [</code>.
+     */
+    private static final int STATE_CSI = 2;
+    
+    /**
+     * Inside an operating system command introduced by <code>ESC ]</code>.
+     */
+    private static final int STATE_OSC = 3;
+    
+    /**
+     * Seen the escape character inside an operating system command.
+     */
+    private static final int STATE_OSC_ESCAPE = 4;
+    
+    /**
+     * The model of the console being driven.
+     */
+    private final ConsoleModel model;
+    
+    /**
+     * The foreground color restored by <code>SGR 0</code> and
+     * <code>SGR 39</code>.
+     */
+    private final Color defaultForeground;
+    
+    /**
+     * The background color restored by <code>SGR 0</code> and
+     * <code>SGR 49</code>.
+     */
+    private final Color defaultBackground;
+    
+    /**
+     * The foreground palette index restored by <code>SGR 0</code> and
+     * <code>SGR 39</code> if the model uses a palette.
+     */
+    private final int defaultForegroundIndex;
+    
+    /**
+     * The background palette index restored by <code>SGR 0</code> and
+     * <code>SGR 49</code> if the model uses a palette.
+     */
+    private final int defaultBackgroundIndex;
+    
+    /**
+     * Whether the model uses a palette.
+     */
+    private final boolean paletteMode;
+    
+    /**
+     * The pending plain text run.
+     */
+    private final char[] run = new char[RUN_CAPACITY];
+    
+    /**
+     * Views the pending run as a character sequence.
+     */
+    private final CharBuffer runView = CharBuffer.wrap(run);
+    
+    /**
+     * The length of the pending run.
+     */
+    private int runLength;
+    
+    /**
+     * The parameters of the current control sequence.
+     */
+    private final int[] parameters = new int[MAXIMUM_PARAMETERS];
+    
+    /**
+     * The number of parameters of the current control sequence.
+     */
+    private int parameterCount;
+    
+    /**
+     * Whether the current parameter has at least one digit.
+     */
+    private boolean parameterStarted;
+    
+    /**
+     * Whether the current control sequence is a private one, such as
+     * <code>ESC [ ? 25 h</code>.
+     */
+    private boolean privateSequence;
+    
+    /**
+     * The current state of the parser.
+     */
+    private int state = STATE_GROUND;
+    
+    /**
+     * The saved cursor <code>x</code>-coordinate.
+     */
+    private int savedCursorX;
+    
+    /**
+     * The saved cursor <code>y</code>-coordinate.
+     */
+    private int savedCursorY;
+    
+    AnsiParser(ConsoleModel model) {
+        this.model = Objects.requireNonNull(model, 
+                                            "The input console model is null.");
+        this.defaultForeground = model.getForeground();
+        this.defaultBackground = model.getBackground();
+        this.paletteMode = model.getPalette() != null;
+        this.defaultForegroundIndex =
+                paletteMode ? model.getForegroundIndex() : -1;
+        this.defaultBackgroundIndex =
+                paletteMode ? model.getBackgroundIndex() : -1;
+    }
+    
+    /**
+     * Feeds a single character to the parser.
+     * 
+     * @param character the character to parse.
+     */
+    void accept(char character) {
+        switch (state) {
+            case STATE_GROUND:
+                acceptGround(character);
+                break;
+            
+            case STATE_ESCAPE:
+                acceptEscape(character);
+                break;
+            
+            case STATE_CSI:
+                acceptControlSequence(character);
+                break;
+            
+            case STATE_OSC:
+                if (character == BELL) {
+                    state = STATE_GROUND;
+                } else if (character == ESCAPE) {
+                    state = STATE_OSC_ESCAPE;
+                }
+                
+                break;
+            
+            case STATE_OSC_ESCAPE:
+                state = character == '\\' ? STATE_GROUND : STATE_OSC;
+                break;
+        }
+    }
+    
+    /**
+     * Prints the pending plain text run.
+     */
+    void flush() {
+        if (runLength > 0) {
+            model.printCharacters(runView, 0, runLength);
+            runLength = 0;
+        }
+    }
+    
+    private void acceptGround(char character) {
+        if ((character >= ' ' && character != '\u007f')
+                || character == '\n') {
+            run[runLength++] = character;
+            
+            if (runLength == RUN_CAPACITY) {
+                flush();
+            }
+            
+            return;
+        }
+        
+        flush();
+        
+        switch (character) {
+            case ESCAPE:
+                state = STATE_ESCAPE;
+                break;
+            
+            case '\r':
+                moveCursorTo(0, model.getCursorY());
+                break;
+            
+            case '\b':
+                moveCursorTo(model.getCursorX() - 1, model.getCursorY());
+                break;
+            
+            case '\t':
+                moveCursorTo((model.getCursorX() / TAB_WIDTH + 1) *
+                                     TAB_WIDTH,
+                             model.getCursorY());
+                break;
+            
+            default:
+                // Ignore the other control characters.
+        }
+    }
+    
+    private void acceptEscape(char character) {
+        switch (character) {
+            case '[':
+                state = STATE_CSI;
+                parameterCount = 0;
+                parameterStarted = false;
+                privateSequence = false;
+                parameters[0] = 0;
+                break;
+            
+            case ']':
+                state = STATE_OSC;
+                break;
+            
+            case '7':
+                saveCursor();
+                state = STATE_GROUND;
+                break;
+            
+            case '8':
+                restoreCursor();
+                state = STATE_GROUND;
+                break;
+            
+            default:
+                state = STATE_GROUND;
+        }
+    }
+    
+    private void acceptControlSequence(char character) {
+        if (character >= '0' && character <= '9') {
+            if (parameterCount < MAXIMUM_PARAMETERS) {
+                parameters[parameterCount] =
+                        parameters[parameterCount] * 10 + (character - '0');
+                parameterStarted = true;
+            }
+            
+            return;
+        }
+        
+        if (character == ';' || character == ':') {
+            endParameter();
+            return;
+        }
+        
+        if (character == '?' || character == '>' || character == '=') {
+            privateSequence = true;
+            return;
+        }
+        
+        if (character < '@' || character > '~') {
+            // An intermediate byte; ignored.
+            return;
+        }
+        
+        if (parameterStarted || parameterCount > 0) {
+            endParameter();
+        }
+        
+        state = STATE_GROUND;
+        
+        if (!privateSequence) {
+            executeControlSequence(character);
+        }
+    }
+    
+    private void endParameter() {
+        if (parameterCount < MAXIMUM_PARAMETERS) {
+            parameterCount++;
+            
+            if (parameterCount < MAXIMUM_PARAMETERS) {
+                parameters[parameterCount] = 0;
+            }
+        }
+        
+        parameterStarted = false;
+    }
+    
+    private void executeControlSequence(char command) {
+        int x = model.getCursorX();
+        int y = model.getCursorY();
+        
+        switch (command) {
+            case 'm':
+                selectGraphicRendition();
+                break;
+            
+            case 'A':
+                moveCursorTo(x, y - parameter(0, 1));
+                break;
+            
+            case 'B':
+                moveCursorTo(x, y + parameter(0, 1));
+                break;
+            
+            case 'C':
+                moveCursorTo(x + parameter(0, 1), y);
+                break;
+            
+            case 'D':
+                moveCursorTo(x - parameter(0, 1), y);
+                break;
+            
+            case 'E':
+                moveCursorTo(0, y + parameter(0, 1));
+                break;
+            
+            case 'F':
+                moveCursorTo(0, y - parameter(0, 1));
+                break;
+            
+            case 'G':
+                moveCursorTo(parameter(0, 1) - 1, y);
+                break;
+            
+            case 'H':
+            case 'f':
+                moveCursorTo(parameter(1, 1) - 1, parameter(0, 1) - 1);
+                break;
+            
+            case 'J':
+                eraseInDisplay(parameter(0, 0), x, y);
+                break;
+            
+            case 'K':
+                eraseInLine(parameter(0, 0), x, y);
+                break;
+            
+            case 's':
+                saveCursor();
+                break;
+            
+            case 'u':
+                restoreCursor();
+                break;
+            
+            default:
+                // Unsupported sequence; ignored.
+        }
+    }
+    
+    private void selectGraphicRendition() {
+        if (parameterCount == 0) {
+            resetGraphicRendition();
+            return;
+        }
+        
+        for (int i = 0; i < parameterCount; i++) {
+            int code = parameters[i];
+            
+            if (code == 0) {
+                resetGraphicRendition();
+            } else if (code == 1) {
+                model.setBoldText(true);
+            } else if (code == 22) {
+                model.setBoldText(false);
+            } else if (code == 5) {
+                model.setBlinkingText(true);
+            } else if (code == 25) {
+                model.setBlinkingText(false);
+            } else if (code >= 30 && code <= 37) {
+                setIndexedColor(true, code - 30);
+            } else if (code >= 90 && code <= 97) {
+                setIndexedColor(true, code - 90 + 8);
+            } else if (code == 39) {
+                resetForeground();
+            } else if (code >= 40 && code <= 47) {
+                setIndexedColor(false, code - 40);
+            } else if (code >= 100 && code <= 107) {
+                setIndexedColor(false, code - 100 + 8);
+            } else if (code == 49) {
+                resetBackground();
+            } else if (code == 38 || code == 48) {
+                setExtendedColor(code == 38, i);
+                i += extendedColorLength(i);
+            }
+        }
+    }
+    
+    /**
+     * Applies an extended color code starting at the given parameter: either
+     * <code>38;5;n</code> or <code>38;2;r;g;b</code>. Malformed codes are
+     * ignored.
+     * 
+     * @param foreground whether the code sets the foreground color.
+     * @param i          the index of the parameter holding 38 or 48.
+     */
+    private void setExtendedColor(boolean foreground, int i) {
+        if (i + 2 < parameterCount && parameters[i + 1] == 5) {
+            setIndexedColor(foreground, parameters[i + 2] & 0xff);
+        } else if (i + 4 < parameterCount && parameters[i + 1] == 2) {
+            Color color = new Color(parameters[i + 2] & 0xff,
+                                    parameters[i + 3] & 0xff,
+                                    parameters[i + 4] & 0xff);
+            
+            if (foreground) {
+                model.setForeground(color);
+            } else {
+                model.setBackground(color);
+            }
+        }
+    }
+    
+    /**
+     * Sets the foreground or the background color to an entry of the xterm
+     * palette, or of the palette of the model if it has one.
+     * 
+     * @param foreground whether to set the foreground color.
+     * @param index      the index of the palette entry.
+     */
+    private void setIndexedColor(boolean foreground, int index) {
+        if (paletteMode) {
+            if (foreground) {
+                model.setForegroundIndex(index);
+            } else {
+                model.setBackgroundIndex(index);
+            }
+        } else if (foreground) {
+            model.setForeground(XTERM_COLORS[index]);
+        } else {
+            model.setBackground(XTERM_COLORS[index]);
+        }
+    }
+    
+    private void resetForeground() {
+        if (paletteMode) {
+            model.setForegroundIndex(defaultForegroundIndex);
+        } else {
+            model.setForeground(defaultForeground);
+        }
+    }
+    
+    private void resetBackground() {
+        if (paletteMode) {
+            model.setBackgroundIndex(defaultBackgroundIndex);
+        } else {
+            model.setBackground(defaultBackground);
+        }
+    }
+    
+    private int extendedColorLength(int i) {
+        if (i + 1 < parameterCount) {
+            if (parameters[i + 1] == 5) {
+                return 2;
+            }
+            
+            if (parameters[i + 1] == 2) {
+                return 4;
+            }
+        }
+        
+        return 0;
+    }
+    
+    private void resetGraphicRendition() {
+        resetForeground();
+        resetBackground();
+        model.setBoldText(false);
+        model.setBlinkingText(false);
+    }
+    
+    private void eraseInDisplay(int mode, int x, int y) {
+        int width = model.getConsoleWidth();
+        int height = model.getConsoleHeight();
+        
+        switch (mode) {
+            case 0:
+                eraseInLine(0, x, y);
+                erase(0, y + 1, width, height - y - 1);
+                break;
+            
+            case 1:
+                erase(0, 0, width, y);
+                eraseInLine(1, x, y);
+                break;
+            
+            case 2:
+            case 3:
+                erase(0, 0, width, height);
+                break;
+        }
+    }
+    
+    private void eraseInLine(int mode, int x, int y) {
+        int width = model.getConsoleWidth();
+        
+        switch (mode) {
+            case 0:
+                erase(x, y, width - x, 1);
+                break;
+            
+            case 1:
+                erase(0, y, x + 1, 1);
+                break;
+            
+            case 2:
+                erase(0, y, width, 1);
+                break;
+        }
+    }
+    
+    private void erase(int x, int y, int width, int height) {
+        if (width <= 0 || height <= 0) {
+            return;
+        }
+        
+        if (model.getPalette() != null) {
+            // The colors would map back to the first of equal entries:
+            model.fillIndexed(x,
+                              y,
+                              width,
+                              height,
+                              ' ',
+                              model.getForegroundIndex(),
+                              model.getBackgroundIndex(),
+                              false);
+        } else {
+            model.fill(x,
+                       y,
+                       width,
+                       height,
+                       ' ',
+                       model.getForeground(),
+                       model.getBackground(),
+                       false);
+        }
+    }
+    
+    private void saveCursor() {
+        savedCursorX = model.getCursorX();
+        savedCursorY = model.getCursorY();
+    }
+    
+    private void restoreCursor() {
+        moveCursorTo(savedCursorX, savedCursorY);
+    }
+    
+    /**
+     * Moves the cursor, clamping the position to the model.
+     * 
+     * @param x the requested <code>x</code>-coordinate.
+     * @param y the requested <code>y</code>-coordinate.
+     */
+    private void moveCursorTo(int x, int y) {
+        x = Math.max(0, Math.min(x, model.getConsoleWidth() - 1));
+        y = Math.max(0, Math.min(y, model.getConsoleHeight() - 1));
+        model.setConsoleCursorPosition(x, y);
+    }
+    
+    /**
+     * Returns a parameter of the current control sequence.
+     * 
+     * @param index        the index of the parameter.
+     * @param defaultValue the value used for a missing or zero parameter.
+     * @return the parameter value.
+     */
+    private int parameter(int index, int defaultValue) {
+        if (index >= parameterCount || parameters[index] == 0) {
+            return defaultValue;
+        }
+        
+        return parameters[index];
+    }
+    
+    private static Color[] createXtermColors() {
+        Color[] colors = new Color[Palette.SIZE];
+        
+        for (int i = 0; i < colors.length; i++) {
+            colors[i] = new Color(Palette.xtermArgb(i));
+        }
+        
+        return colors;
+    }
+}
@@ -0,0 +1,86 @@
+package net.coderodde.fun.console;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Objects;
+
+/**
+ * This class implements a writer of text with ANSI/VT100 escape sequences 
+ * into a {@link ColorfulConsole} or a {@link ConsoleModel}. The characters 
+ * are fed to an {@link AnsiParser}; the plain text is printed in runs at the 
+ * end of each write call.
+ * 
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 17, 2026)
+ */
+public final class AnsiWriter extends Writer {
+
+    /**
+     * The escape sequence parser.
+     */
+    private final AnsiParser parser;
+    
+    public AnsiWriter(ColorfulConsole console) {
+        this(Objects.requireNonNull(console, "The input console is null.")
+                    .getModel());
+    }
+    
+    public AnsiWriter(ConsoleModel model) {
+        this.parser = new AnsiParser(model);
+    }
+    
+    @Override
+    public void write(int character) throws IOException {
+        synchronized (lock) {
+            parser.accept((char) character);
+            parser.flush();
+        }
+    }
+    
+    @Override
+    public void write(char[] characters, int offset, int length) 
+            throws IOException {
+        if (offset < 0 || length < 0 || offset + length > characters.length) {
+            throw new IndexOutOfBoundsException(
+                    "The range [" + offset + ", " + (offset + length) + ") " +
+                    "is out of the array bounds.");
+        }
+        
+        synchronized (lock) {
+            for (int i = offset; i < offset + length; i++) {
+                parser.accept(characters[i]);
+            }
+            
+            parser.flush();
+        }
+    }
+    
+    @Override
+    public void write(String text, int offset, int length) throws IOException {
+        if (offset < 0 || length < 0 || offset + length > text.length()) {
+            throw new IndexOutOfBoundsException(
+                    "The range [" + offset + ", " + (offset + length) + ") " +
+                    "is out of the string bounds.");
+        }
+        
+        synchronized (lock) {
+            for (int i = offset; i < offset + length; i++) {
+                parser.accept(text.charAt(i));
+            }
+            
+            parser.flush();
+        }
+    }
+    
+    @Override
+    public void flush() throws IOException {
+        synchronized (lock) {
+            parser.flush();
+        }
+    }
+    
+    @Override
+    public void close() throws IOException {
+        flush();
+    }
+}
@@ -0,0 +1,86 @@
+package net.coderodde.fun.console;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import javax.swing.Timer;
+
+/**
+ * This class drives the blinking of the cursors and of the blinking cells of
+ * all the live consoles with a single Swing timer. A console registers itself
+ * when it is added to a displayable container and unregisters when it is
+ * removed; the timer runs only while at least one console is registered.
+ * <p>
+ * The ticks are delivered on the event dispatch thread. Registration is rare,
+ * so the consoles are kept in a copy-on-write list that the ticks iterate
+ * without locking.
+ * 
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 17, 2026)
+ */
+final class BlinkScheduler {
+
+    /**
+     * The blink period in milliseconds.
+     */
+    static final int BLINK_PERIOD = 500;
+    
+    /**
+     * The only instance.
+     */
+    private static final BlinkScheduler INSTANCE = new BlinkScheduler();
+    
+    /**
+     * The registered consoles.
+     */
+    private final List<ColorfulConsole> consoles = new CopyOnWriteArrayList<>();
+    
+    /**
+     * Fires the blink ticks on the event dispatch thread.
+     */
+    private final Timer timer = new Timer(BLINK_PERIOD, new ActionListener() {
+        
+        @Override
+        public void actionPerformed(ActionEvent e) {
+            for (ColorfulConsole console : consoles) {
+                console.blinkTick();
+            }
+        }
+    });
+    
+    private BlinkScheduler() {}
+    
+    
+    static BlinkScheduler getInstance() {
+        return INSTANCE;
+    }
+    
+    /**
+     * Starts blinking the given console.
+     * 
+     * @param console the console to register.
+     */
+    synchronized void register(ColorfulConsole console) {
+        if (!consoles.contains(console)) {
+            consoles.add(console);
+        }
+        
+        if (!timer.isRunning()) {
+            timer.start();
+        }
+    }
+    
+    /**
+     * Stops blinking the given console.
+     * 
+     * @param console the console to unregister.
+     */
+    synchronized void unregister(ColorfulConsole console) {
+        consoles.remove(console);
+        
+        if (consoles.isEmpty()) {
+            timer.stop();
+        }
+    }
+}
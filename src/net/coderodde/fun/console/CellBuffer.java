@@ -0,0 +1,770 @@
+package net.coderodde.fun.console;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * This class implements a packed cell store for the colorful console. Instead
+ * of keeping one object per character tile, the cells are stored as a
+ * structure of primitive arrays: the code points, the packed ARGB foreground
+ * and background colors and the attribute bits. The cell at
+ * <code>(x, y)</code> lives at the index <code>y * width + x</code> in each of
+ * the arrays.
+ * <p>
+ * A buffer created with a {@link Palette} works in the palette mode: instead
+ * of the packed ARGB colors, each cell stores two 8-bit palette indices,
+ * which are resolved only when the cell is read. Such a buffer takes 7 bytes
+ * per cell instead of 13. The ARGB methods keep working in the palette mode
+ * by mapping each color to the nearest palette entry.
+ * <p>
+ * Each row also carries a soft-wrap flag telling whether the text of the row
+ * continues on the next row because it reached the right border. The flags
+ * let a resized console reflow the wrapped lines.
+ * <p>
+ * A double-width character, such as a CJK ideograph or an emoji, takes two
+ * adjacent cells of a row: the left one holds its code point and the right
+ * one holds {@link #WIDE_TAIL}.
+ * 
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 17, 2026)
+ */
+public final class CellBuffer {
+
+    /**
+     * The attribute bit denoting a bold character.
+     */
+    public static final byte ATTRIBUTE_BOLD = 0x1;
+    
+    /**
+     * The attribute bit denoting a blinking cell. During the "on" phase of
+     * the blink, a blinking cell paints the background with the foreground
+     * color and the foreground with the background color.
+     */
+    public static final byte ATTRIBUTE_BLINK = 0x2;
+    
+    /**
+     * The code point stored in the right cell of a double-width character.
+     * It lies past the last Unicode code point, so no character prints as it.
+     */
+    public static final int WIDE_TAIL = Character.MAX_CODE_POINT + 1;
+    
+    /**
+     * The width of this buffer in cells.
+     */
+    private final int width;
+    
+    /**
+     * The height of this buffer in cells.
+     */
+    private final int height;
+    
+    /**
+     * The code points of the cells.
+     */
+    private final int[] codePoints;
+    
+    /**
+     * The packed ARGB foreground colors of the cells, or {@code null} in the
+     * palette mode.
+     */
+    private final int[] foregrounds;
+    
+    /**
+     * The packed ARGB background colors of the cells, or {@code null} in the
+     * palette mode.
+     */
+    private final int[] backgrounds;
+    
+    /**
+     * The palette indices of the foreground colors of the cells, or
+     * {@code null} if this buffer is not in the palette mode.
+     */
+    private final byte[] foregroundIndices;
+    
+    /**
+     * The palette indices of the background colors of the cells, or
+     * {@code null} if this buffer is not in the palette mode.
+     */
+    private final byte[] backgroundIndices;
+    
+    /**
+     * The palette resolving the color indices, or {@code null} if this buffer
+     * is not in the palette mode.
+     */
+    private final Palette palette;
+    
+    /**
+     * The attribute bits of the cells.
+     */
+    private final byte[] attributes;
+    
+    /**
+     * The soft-wrap flags of the rows.
+     */
+    private final boolean[] wrappedRows;
+    
+    /**
+     * Constructs a new cell buffer with all the cells set to the given
+     * character and colors and with no attributes set.
+     * 
+     * @param width      the width of the buffer in cells.
+     * @param height     the height of the buffer in cells.
+     * @param codePoint  the initial code point of each cell.
+     * @param foreground the initial packed ARGB foreground color.
+     * @param background the initial packed ARGB background color.
+     */
+    public CellBuffer(int width,
+                      int height,
+                      int codePoint,
+                      int foreground,
+                      int background) {
+        checkSize(width, height);
+        int size = width * height;
+        this.width = width;
+        this.height = height;
+        this.codePoints = new int[size];
+        this.foregrounds = new int[size];
+        this.backgrounds = new int[size];
+        this.foregroundIndices = null;
+        this.backgroundIndices = null;
+        this.palette = null;
+        this.attributes = new byte[size];
+        this.wrappedRows = new boolean[height];
+        Arrays.fill(codePoints, codePoint);
+        Arrays.fill(foregrounds, foreground);
+        Arrays.fill(backgrounds, background);
+    }
+    
+    /**
+     * Constructs a new cell buffer in the palette mode with all the cells set
+     * to the given character and color indices and with no attributes set.
+     * 
+     * @param width           the width of the buffer in cells.
+     * @param height          the height of the buffer in cells.
+     * @param codePoint       the initial code point of each cell.
+     * @param palette         the palette resolving the color indices.
+     * @param foregroundIndex the initial foreground palette index.
+     * @param backgroundIndex the initial background palette index.
+     */
+    public CellBuffer(int width,
+                      int height,
+                      int codePoint,
+                      Palette palette,
+                      int foregroundIndex,
+                      int backgroundIndex) {
+        checkSize(width, height);
+        int size = width * height;
+        this.width = width;
+        this.height = height;
+        this.codePoints = new int[size];
+        this.foregrounds = null;
+        this.backgrounds = null;
+        this.foregroundIndices = new byte[size];
+        this.backgroundIndices = new byte[size];
+        this.palette = Objects.requireNonNull(palette,
+                                              "The input palette is null.");
+        this.attributes = new byte[size];
+        this.wrappedRows = new boolean[height];
+        Arrays.fill(codePoints, codePoint);
+        Arrays.fill(foregroundIndices, (byte) foregroundIndex);
+        Arrays.fill(backgroundIndices, (byte) backgroundIndex);
+    }
+    
+    /**
+     * Returns the width of this buffer in cells.
+     * 
+     * @return the width of this buffer.
+     */
+    public int getWidth() {
+        return width;
+    }
+    
+    /**
+     * Returns the height of this buffer in cells.
+     * 
+     * @return the height of this buffer.
+     */
+    public int getHeight() {
+        return height;
+    }
+    
+    /**
+     * Returns the index of the cell at <code>(x, y)</code>.
+     * 
+     * @param x the <code>x</code>-coordinate of the cell.
+     * @param y the <code>y</code>-coordinate of the cell.
+     * @return the index of the cell.
+     */
+    public int index(int x, int y) {
+        return y * width + x;
+    }
+    
+    public int getCodePoint(int index) {
+        return codePoints[index];
+    }
+    
+    /**
+     * Returns the packed ARGB foreground color of the cell. In the palette
+     * mode, the color index is resolved through the palette.
+     * 
+     * @param index the index of the cell.
+     * @return the packed ARGB foreground color.
+     */
+    public int getForeground(int index) {
+        return palette == null ?
+                foregrounds[index] :
+                palette.getArgb(foregroundIndices[index] & 0xff);
+    }
+    
+    /**
+     * Returns the packed ARGB background color of the cell. In the palette
+     * mode, the color index is resolved through the palette.
+     * 
+     * @param index the index of the cell.
+     * @return the packed ARGB background color.
+     */
+    public int getBackground(int index) {
+        return palette == null ?
+                backgrounds[index] :
+                palette.getArgb(backgroundIndices[index] & 0xff);
+    }
+    
+    /**
+     * Returns the palette of this buffer.
+     * 
+     * @return the palette, or {@code null} if this buffer is not in the
+     *         palette mode.
+     */
+    public Palette getPalette() {
+        return palette;
+    }
+    
+    public int getForegroundIndex(int index) {
+        checkPaletteMode();
+        return foregroundIndices[index] & 0xff;
+    }
+    
+    public int getBackgroundIndex(int index) {
+        checkPaletteMode();
+        return backgroundIndices[index] & 0xff;
+    }
+    
+    public byte getAttributes(int index) {
+        return attributes[index];
+    }
+    
+    /**
+     * Checks whether all the given attribute bits are set in the cell.
+     * 
+     * @param index     the index of the cell.
+     * @param attribute the attribute bits to check.
+     * @return {@code true} if all the bits are set.
+     */
+    public boolean hasAttribute(int index, byte attribute) {
+        return (attributes[index] & attribute) == attribute;
+    }
+    
+    /**
+     * Checks whether the text of a row continues on the next row.
+     * 
+     * @param y the row to check.
+     * @return {@code true} if the row is soft-wrapped.
+     */
+    public boolean isRowWrapped(int y) {
+        return wrappedRows[y];
+    }
+    
+    /**
+     * Sets whether the text of a row continues on the next row.
+     * 
+     * @param y       the row.
+     * @param wrapped whether the row is soft-wrapped.
+     */
+    public void setRowWrapped(int y, boolean wrapped) {
+        wrappedRows[y] = wrapped;
+    }
+    
+    /**
+     * Writes the entire cell at once.
+     * 
+     * @param index      the index of the cell.
+     * @param codePoint  the code point to store.
+     * @param foreground the packed ARGB foreground color.
+     * @param background the packed ARGB background color.
+     * @param attributes the attribute bits.
+     */
+    public void setCell(int index,
+                        int codePoint,
+                        int foreground,
+                        int background,
+                        byte attributes) {
+        if (palette != null) {
+            setIndexedCell(index,
+                           codePoint,
+                           palette.nearestIndex(foreground),
+                           palette.nearestIndex(background),
+                           attributes);
+            return;
+        }
+        
+        this.codePoints[index] = codePoint;
+        this.foregrounds[index] = foreground;
+        this.backgrounds[index] = background;
+        this.attributes[index] = attributes;
+    }
+    
+    /**
+     * Writes the entire cell at once in the palette mode.
+     * 
+     * @param index           the index of the cell.
+     * @param codePoint       the code point to store.
+     * @param foregroundIndex the foreground palette index.
+     * @param backgroundIndex the background palette index.
+     * @param attributes      the attribute bits.
+     * @throws IllegalStateException if this buffer is not in the palette mode.
+     */
+    public void setIndexedCell(int index,
+                               int codePoint,
+                               int foregroundIndex,
+                               int backgroundIndex,
+                               byte attributes) {
+        checkPaletteMode();
+        this.codePoints[index] = codePoint;
+        this.foregroundIndices[index] = (byte) foregroundIndex;
+        this.backgroundIndices[index] = (byte) backgroundIndex;
+        this.attributes[index] = attributes;
+    }
+    
+    /**
+     * Checks whether a cell already holds the given content. The colors are
+     * given in the representation of this buffer: palette indices in the
+     * palette mode and packed ARGB colors otherwise.
+     * 
+     * @param index      the index of the cell.
+     * @param codePoint  the code point.
+     * @param foreground the foreground color.
+     * @param background the background color.
+     * @param attributes the attribute bits.
+     * @return {@code true} if writing the content would change nothing.
+     */
+    boolean holdsCell(int index,
+                      int codePoint,
+                      int foreground,
+                      int background,
+                      byte attributes) {
+        if (codePoints[index] != codePoint
+                || this.attributes[index] != attributes) {
+            return false;
+        }
+        
+        if (palette == null) {
+            return foregrounds[index] == foreground
+                && backgrounds[index] == background;
+        }
+        
+        return foregroundIndices[index] == (byte) foreground
+            && backgroundIndices[index] == (byte) background;
+    }
+    
+    /**
+     * Checks whether two cells of this buffer hold the same content.
+     * 
+     * @param index      the index of the first cell.
+     * @param otherIndex the index of the second cell.
+     * @return {@code true} if copying either cell over the other would change
+     *         nothing.
+     */
+    boolean holdsSameCell(int index, int otherIndex) {
+        if (codePoints[index] != codePoints[otherIndex]
+                || attributes[index] != attributes[otherIndex]) {
+            return false;
+        }
+        
+        if (palette == null) {
+            return foregrounds[index] == foregrounds[otherIndex]
+                && backgrounds[index] == backgrounds[otherIndex];
+        }
+        
+        return foregroundIndices[index] == foregroundIndices[otherIndex]
+            && backgroundIndices[index] == backgroundIndices[otherIndex];
+    }
+    
+    /**
+     * Replaces the code point of the cell, keeping its colors and attributes.
+     * 
+     * @param index     the index of the cell.
+     * @param codePoint the code point to store.
+     */
+    public void setCodePoint(int index, int codePoint) {
+        codePoints[index] = codePoint;
+    }
+    
+    /**
+     * Sets or clears the given attribute bits of the cell.
+     * 
+     * @param index     the index of the cell.
+     * @param attribute the attribute bits to set or clear.
+     * @param on        if {@code true}, the bits are set; cleared otherwise.
+     */
+    public void setAttribute(int index, byte attribute, boolean on) {
+        if (on) {
+            attributes[index] |= attribute;
+        } else {
+            attributes[index] &= ~attribute;
+        }
+    }
+    
+    /**
+     * Fills a rectangle of cells with the same contents.
+     * 
+     * @param x          the leftmost column of the rectangle.
+     * @param y          the topmost row of the rectangle.
+     * @param width      the width of the rectangle in cells.
+     * @param height     the height of the rectangle in cells.
+     * @param codePoint  the code point to store.
+     * @param foreground the packed ARGB foreground color.
+     * @param background the packed ARGB background color.
+     * @param attributes the attribute bits.
+     */
+    public void fill(int x,
+                     int y,
+                     int width,
+                     int height,
+                     int codePoint,
+                     int foreground,
+                     int background,
+                     byte attributes) {
+        if (palette != null) {
+            fillIndexed(x,
+                        y,
+                        width,
+                        height,
+                        codePoint,
+                        palette.nearestIndex(foreground),
+                        palette.nearestIndex(background),
+                        attributes);
+            return;
+        }
+        
+        for (int row = y; row < y + height; row++) {
+            int fromIndex = index(x, row);
+            int toIndex = fromIndex + width;
+            Arrays.fill(this.codePoints, fromIndex, toIndex, codePoint);
+            Arrays.fill(this.foregrounds, fromIndex, toIndex, foreground);
+            Arrays.fill(this.backgrounds, fromIndex, toIndex, background);
+            Arrays.fill(this.attributes, fromIndex, toIndex, attributes);
+        }
+    }
+    
+    /**
+     * Fills a rectangle of cells with the same contents in the palette mode.
+     * 
+     * @param x               the leftmost column of the rectangle.
+     * @param y               the topmost row of the rectangle.
+     * @param width           the width of the rectangle in cells.
+     * @param height          the height of the rectangle in cells.
+     * @param codePoint       the code point to store.
+     * @param foregroundIndex the foreground palette index.
+     * @param backgroundIndex the background palette index.
+     * @param attributes      the attribute bits.
+     * @throws IllegalStateException if this buffer is not in the palette mode.
+     */
+    public void fillIndexed(int x,
+                            int y,
+                            int width,
+                            int height,
+                            int codePoint,
+                            int foregroundIndex,
+                            int backgroundIndex,
+                            byte attributes) {
+        checkPaletteMode();
+        
+        for (int row = y; row < y + height; row++) {
+            int fromIndex = index(x, row);
+            int toIndex = fromIndex + width;
+            Arrays.fill(this.codePoints, fromIndex, toIndex, codePoint);
+            Arrays.fill(this.foregroundIndices,
+                        fromIndex,
+                        toIndex,
+                        (byte) foregroundIndex);
+            Arrays.fill(this.backgroundIndices,
+                        fromIndex,
+                        toIndex,
+                        (byte) backgroundIndex);
+            Arrays.fill(this.attributes, fromIndex, toIndex, attributes);
+        }
+    }
+    
+    /**
+     * Copies a rectangle of cells from the source buffer into this buffer. The
+     * source may be this buffer, in which case overlapping rectangles are 
+     * copied as if through a temporary buffer. Buffers sharing the mode and
+     * the palette are copied array-wise; otherwise the colors are converted
+     * cell by cell.
+     * 
+     * @param source the source buffer.
+     * @param srcX   the leftmost column of the source rectangle.
+     * @param srcY   the topmost row of the source rectangle.
+     * @param width  the width of the rectangle in cells.
+     * @param height the height of the rectangle in cells.
+     * @param dstX   the leftmost column of the target rectangle.
+     * @param dstY   the topmost row of the target rectangle.
+     */
+    public void copyRectangle(CellBuffer source,
+                              int srcX,
+                              int srcY,
+                              int width,
+                              int height,
+                              int dstX,
+                              int dstY) {
+        if (source == this && srcY < dstY) {
+            // Copy bottom-up so that the source rows are not overwritten 
+            // before they are read:
+            for (int row = height - 1; row >= 0; row--) {
+                copyRow(source, srcX, srcY + row, width, dstX, dstY + row);
+            }
+        } else {
+            for (int row = 0; row < height; row++) {
+                copyRow(source, srcX, srcY + row, width, dstX, dstY + row);
+            }
+        }
+    }
+    
+    /**
+     * Makes this buffer a copy of a buffer of the same size, mode and
+     * palette, soft-wrap flags included.
+     * 
+     * @param source the source buffer.
+     */
+    void copyFrom(CellBuffer source) {
+        int cells = codePoints.length;
+        System.arraycopy(source.codePoints, 0, codePoints, 0, cells);
+        System.arraycopy(source.attributes, 0, attributes, 0, cells);
+        System.arraycopy(source.wrappedRows, 0, wrappedRows, 0, height);
+        
+        if (palette == null) {
+            System.arraycopy(source.foregrounds, 0, foregrounds, 0, cells);
+            System.arraycopy(source.backgrounds, 0, backgrounds, 0, cells);
+        } else {
+            System.arraycopy(source.foregroundIndices, 0,
+                             foregroundIndices, 0, cells);
+            System.arraycopy(source.backgroundIndices, 0,
+                             backgroundIndices, 0, cells);
+        }
+    }
+    
+    /**
+     * Finds the span of a row in which this buffer differs from a buffer of
+     * the same size, mode and palette, comparing the code points, the colors
+     * and the attributes of the cells.
+     * 
+     * @param other the other buffer.
+     * @param y     the row to compare.
+     * @return the leftmost differing column in the high and the rightmost
+     *         one in the low 32 bits, or -1 if the rows are equal.
+     */
+    long findDifference(CellBuffer other, int y) {
+        int rowStart = index(0, y);
+        int rowEnd = rowStart + width;
+        // The mismatch searches are vectorized by the JIT:
+        int first = Math.min(mismatch(codePoints, other.codePoints,
+                                      rowStart, rowEnd),
+                             mismatch(attributes, other.attributes,
+                                      rowStart, rowEnd));
+        
+        if (palette == null) {
+            first = Math.min(first, mismatch(foregrounds, other.foregrounds,
+                                             rowStart, rowEnd));
+            first = Math.min(first, mismatch(backgrounds, other.backgrounds,
+                                             rowStart, rowEnd));
+        } else {
+            first = Math.min(first, mismatch(foregroundIndices,
+                                             other.foregroundIndices,
+                                             rowStart,
+                                             rowEnd));
+            first = Math.min(first, mismatch(backgroundIndices,
+                                             other.backgroundIndices,
+                                             rowStart,
+                                             rowEnd));
+        }
+        
+        if (first == width) {
+            return -1L;
+        }
+        
+        int last = rowEnd - 1;
+        
+        while (isSameCell(other, last)) {
+            last--;
+        }
+        
+        return ((long) first << 32) | (last - rowStart);
+    }
+    
+    /**
+     * Scrolls the whole buffer up by the given number of rows. The rows at the
+     * top are discarded and the rows exposed at the bottom are filled with the
+     * given character and colors. The soft-wrap flags move along with the
+     * rows.
+     * 
+     * @param rows       the number of rows to scroll by.
+     * @param codePoint  the code point of the exposed cells.
+     * @param foreground the packed ARGB foreground color of the exposed cells.
+     * @param background the packed ARGB background color of the exposed cells.
+     */
+    public void scrollUp(int rows, 
+                         int codePoint, 
+                         int foreground, 
+                         int background) {
+        shiftUp(rows);
+        fill(0, 
+             height - rows, 
+             width, 
+             rows, 
+             codePoint, 
+             foreground, 
+             background, 
+             (byte) 0);
+    }
+    
+    /**
+     * Scrolls the whole buffer up by the given number of rows in the palette
+     * mode. The rows exposed at the bottom are filled with the given
+     * character and color indices.
+     * 
+     * @param rows            the number of rows to scroll by.
+     * @param codePoint       the code point of the exposed cells.
+     * @param foregroundIndex the foreground palette index of the exposed
+     *                        cells.
+     * @param backgroundIndex the background palette index of the exposed
+     *                        cells.
+     * @throws IllegalStateException if this buffer is not in the palette mode.
+     */
+    public void scrollUpIndexed(int rows,
+                                int codePoint,
+                                int foregroundIndex,
+                                int backgroundIndex) {
+        checkPaletteMode();
+        shiftUp(rows);
+        fillIndexed(0,
+                    height - rows,
+                    width,
+                    rows,
+                    codePoint,
+                    foregroundIndex,
+                    backgroundIndex,
+                    (byte) 0);
+    }
+    
+    private void shiftUp(int rows) {
+        int shifted = (height - rows) * width;
+        int offset = rows * width;
+        System.arraycopy(codePoints, offset, codePoints, 0, shifted);
+        System.arraycopy(attributes, offset, attributes, 0, shifted);
+        System.arraycopy(wrappedRows, rows, wrappedRows, 0, height - rows);
+        Arrays.fill(wrappedRows, height - rows, height, false);
+        
+        if (palette == null) {
+            System.arraycopy(foregrounds, offset, foregrounds, 0, shifted);
+            System.arraycopy(backgrounds, offset, backgrounds, 0, shifted);
+        } else {
+            System.arraycopy(foregroundIndices, offset,
+                             foregroundIndices, 0, shifted);
+            System.arraycopy(backgroundIndices, offset,
+                             backgroundIndices, 0, shifted);
+        }
+    }
+    
+    private void copyRow(CellBuffer source,
+                         int srcX,
+                         int srcY,
+                         int width,
+                         int dstX,
+                         int dstY) {
+        // System.arraycopy handles overlapping ranges within a row.
+        int srcIndex = source.index(srcX, srcY);
+        int dstIndex = index(dstX, dstY);
+        
+        if (source.palette != palette) {
+            // Different color representations; the source is never this
+            // buffer here, so the cells do not overlap.
+            for (int i = 0; i < width; i++) {
+                setCell(dstIndex + i,
+                        source.codePoints[srcIndex + i],
+                        source.getForeground(srcIndex + i),
+                        source.getBackground(srcIndex + i),
+                        source.attributes[srcIndex + i]);
+            }
+            
+            return;
+        }
+        
+        System.arraycopy(source.codePoints, srcIndex,
+                         codePoints, dstIndex, width);
+        System.arraycopy(source.attributes, srcIndex,
+                         attributes, dstIndex, width);
+        
+        if (palette == null) {
+            System.arraycopy(source.foregrounds, srcIndex,
+                             foregrounds, dstIndex, width);
+            System.arraycopy(source.backgrounds, srcIndex,
+                             backgrounds, dstIndex, width);
+        } else {
+            System.arraycopy(source.foregroundIndices, srcIndex,
+                             foregroundIndices, dstIndex, width);
+            System.arraycopy(source.backgroundIndices, srcIndex,
+                             backgroundIndices, dstIndex, width);
+        }
+    }
+    
+    private boolean isSameCell(CellBuffer other, int index) {
+        if (codePoints[index] != other.codePoints[index]
+                || attributes[index] != other.attributes[index]) {
+            return false;
+        }
+        
+        if (palette == null) {
+            return foregrounds[index] == other.foregrounds[index]
+                && backgrounds[index] == other.backgrounds[index];
+        }
+        
+        return foregroundIndices[index] == other.foregroundIndices[index]
+            && backgroundIndices[index] == other.backgroundIndices[index];
+    }
+    
+    private static int mismatch(int[] a, int[] b, int fromIndex, int toIndex) {
+        int mismatch = Arrays.mismatch(a, fromIndex, toIndex,
+                                       b, fromIndex, toIndex);
+        return mismatch < 0 ? toIndex - fromIndex : mismatch;
+    }
+    
+    private static int mismatch(byte[] a,
+                                byte[] b,
+                                int fromIndex,
+                                int toIndex) {
+        int mismatch = Arrays.mismatch(a, fromIndex, toIndex,
+                                       b, fromIndex, toIndex);
+        return mismatch < 0 ? toIndex - fromIndex : mismatch;
+    }
+    
+    private void checkPaletteMode() {
+        if (palette == null) {
+            throw new IllegalStateException(
+                    "The cell buffer is not in the palette mode.");
+        }
+    }
+    
+    private static void checkSize(int width, int height) {
+        if (width < 1) {
+            throw new IllegalArgumentException(
+                    "The buffer width is too small (" + width + "). Must be " +
+                    "at least 1.");
+        }
+        
+        if (height < 1) {
+            throw new IllegalArgumentException(
+                    "The buffer height is too small (" + height + "). Must " +
+                    "be at least 1.");
+        }
+    }
+}
@@ -0,0 +1,411 @@
+package net.coderodde.fun.console;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+/**
+ * This class rasterizes console cells into a graphics context. It owns the
+ * console fonts, the tile metrics derived from them and the glyph cache used
+ * for painting the tiles.
+ * <p>
+ * A row is painted in runs of consecutive cells sharing their colors and
+ * boldness: one {@code fillRect} for the background of the run and one
+ * {@code drawChars} for its characters. The characters whose advance in the
+ * font differs from the tile width, and those outside of the Basic
+ * Multilingual Plane, would shift the rest of the run, so they are painted
+ * one tile at a time from the glyph cache instead.
+ * <p>
+ * A double-width character is painted from the glyph cache over its own
+ * tile and the tile of its right half. A right half at the left border of
+ * the cells is skipped, as its left half lies in the neighbouring chunk of a
+ * {@link ConsoleCanvas}; for the same reason, a double-width character at
+ * the right border is painted over both tiles. A right half whose left half
+ * was overwritten is painted as a blank.
+ * <p>
+ * The font and the metrics are guarded by the monitor of the rasterizer, so
+ * that the font size may be changed from one thread while another thread is
+ * rasterizing. The glyph cache, including its hit, miss and eviction 
+ * counters, is guarded by its own monitor, which the rasterizer holds while
+ * painting; the consoles sharing a rasterizer of a {@link RenderEngine} 
+ * serialize on both, and other threads synchronize on the cache to read its
+ * counters or to change its capacity.
+ * 
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 17, 2026)
+ */
+final class CellRasterizer {
+
+    /**
+     * The number of characters whose advance is tabulated.
+     */
+    private static final int ADVANCE_TABLE_SIZE = 256;
+    
+    /**
+     * The number of entries in the color cache. Must be a power of two.
+     */
+    private static final int COLOR_CACHE_SIZE = 64;
+    
+
+    /**
+     * The current font.
+     */
+    private Font font;
+    
+    /**
+     * The bold version of the current font.
+     */
+    private Font boldFont;
+    
+    /**
+     * The current width of a character tile in pixels.
+     */
+    private int tileWidth;
+    
+    /**
+     * The current height of a character tile in pixels.
+     */
+    private int tileHeight;
+    
+    /**
+     * The current offset of the character baseline within a tile in pixels.
+     */
+    private int baseline;
+    
+    /**
+     * The metrics of the current font.
+     */
+    private FontMetrics fontMetrics;
+    
+    /**
+     * The metrics of the bold font.
+     */
+    private FontMetrics boldFontMetrics;
+    
+    /**
+     * Whether each of the first {@link #ADVANCE_TABLE_SIZE} characters
+     * advances by exactly the tile width in the current font.
+     */
+    private final boolean[] tileAdvance = new boolean[ADVANCE_TABLE_SIZE];
+    
+    /**
+     * Whether each of the first {@link #ADVANCE_TABLE_SIZE} characters
+     * advances by exactly the tile width in the bold font.
+     */
+    private final boolean[] boldTileAdvance = 
+            new boolean[ADVANCE_TABLE_SIZE];
+    
+    /**
+     * The characters of the run being painted.
+     */
+    private char[] runCharacters = new char[0];
+    
+    /**
+     * The recently used colors, indexed by a hash of their packed ARGB 
+     * values, so that painting a run does not allocate a color object.
+     */
+    private final Color[] colorCache = new Color[COLOR_CACHE_SIZE];
+    
+    /**
+     * The cache of pre-rendered character tiles. Used only while holding its
+     * monitor, nested in the monitor of this rasterizer.
+     */
+    private final GlyphCache glyphCache = new GlyphCache();
+    
+    CellRasterizer(int fontSize) {
+        setFontSize(fontSize);
+    }
+    
+    /**
+     * Switches to a monospaced font of the given size and recomputes the tile
+     * metrics.
+     * 
+     * @param size the font size.
+     */
+    synchronized void setFontSize(int size) {
+        font = new Font(Font.MONOSPACED, Font.PLAIN, size);
+        boldFont = font.deriveFont(Font.BOLD);
+        
+        synchronized (glyphCache) {
+            glyphCache.invalidate();
+        }
+        
+        // Measure with an off-screen context so that no display is needed:
+        BufferedImage scratch =
+                new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = scratch.createGraphics();
+        
+        try {
+            fontMetrics = g.getFontMetrics(font);
+            boldFontMetrics = g.getFontMetrics(boldFont);
+            tileWidth = fontMetrics.charWidth('A');
+            tileHeight = fontMetrics.getAscent() + fontMetrics.getDescent();
+            baseline = fontMetrics.getAscent();
+        } finally {
+            g.dispose();
+        }
+        
+        for (char c = 0; c < ADVANCE_TABLE_SIZE; c++) {
+            tileAdvance[c] = fontMetrics.charWidth(c) == tileWidth;
+            boldTileAdvance[c] = boldFontMetrics.charWidth(c) == tileWidth;
+        }
+    }
+    
+    synchronized int getFontSize() {
+        return font.getSize();
+    }
+    
+    synchronized int getTileWidth() {
+        return tileWidth;
+    }
+    
+    synchronized int getTileHeight() {
+        return tileHeight;
+    }
+    
+    GlyphCache getGlyphCache() {
+        return glyphCache;
+    }
+    
+    /**
+     * Paints a rectangle of cells. The cell <code>(x, y)</code> is painted at
+     * the pixel <code>(x * tileWidth, y * tileHeight)</code>. During the "on"
+     * phase of the blink, the cursor cell and the blinking cells are painted
+     * with inverted colors.
+     * 
+     * @param g           the graphics context.
+     * @param cells       the cells to paint.
+     * @param x           the leftmost column of the rectangle.
+     * @param y           the topmost row of the rectangle.
+     * @param width       the width of the rectangle in cells.
+     * @param height      the height of the rectangle in cells.
+     * @param cursorIndex the cell index of the cursor.
+     * @param blinkPhase  whether the blink is in its "on" phase.
+     */
+    synchronized void paintCells(Graphics g,
+                                 CellBuffer cells,
+                                 int x,
+                                 int y,
+                                 int width,
+                                 int height,
+                                 int cursorIndex,
+                                 boolean blinkPhase) {
+        // The damage marked before a resize may reach past the cells:
+        width = Math.min(width, cells.getWidth() - x);
+        height = Math.min(height, cells.getHeight() - y);
+        
+        if (runCharacters.length < width) {
+            runCharacters = new char[width];
+        }
+        
+        synchronized (glyphCache) {
+            for (int row = y; row < y + height; row++) {
+                paintRow(g, cells, x, x + width, row, cursorIndex, blinkPhase);
+            }
+        }
+    }
+    
+    /**
+     * Paints the cells of a row in runs of a common style.
+     * 
+     * @param g           the graphics context.
+     * @param cells       the cells to paint from.
+     * @param startX      the leftmost column to paint.
+     * @param endX        the column after the rightmost column to paint.
+     * @param y           the row to paint.
+     * @param cursorIndex the cell index of the cursor.
+     * @param blinkPhase  whether the blink is in its "on" phase.
+     */
+    private void paintRow(Graphics g,
+                          CellBuffer cells,
+                          int startX,
+                          int endX,
+                          int y,
+                          int cursorIndex,
+                          boolean blinkPhase) {
+        int rowIndex = cells.index(0, y);
+        int column = startX;
+        
+        if (column > 0 
+                && cells.getCodePoint(rowIndex + column) 
+                        == CellBuffer.WIDE_TAIL) {
+            // Repaint the whole of the double-width character cut in two:
+            column--;
+        }
+        
+        while (column < endX) {
+            int index = rowIndex + column;
+            boolean bold = cells.hasAttribute(index, 
+                                              CellBuffer.ATTRIBUTE_BOLD);
+            
+            if (!hasTileAdvance(cells.getCodePoint(index), bold)) {
+                column += paintCell(g, 
+                                    cells, 
+                                    column, 
+                                    y, 
+                                    cursorIndex, 
+                                    blinkPhase);
+                continue;
+            }
+            
+            boolean inverted = isInverted(cells, 
+                                          index, 
+                                          cursorIndex, 
+                                          blinkPhase);
+            int foreground = cells.getForeground(index);
+            int background = cells.getBackground(index);
+            byte attributes = cells.getAttributes(index);
+            runCharacters[0] = (char) cells.getCodePoint(index);
+            int runEnd = column + 1;
+            
+            for (; runEnd < endX; runEnd++) {
+                int next = rowIndex + runEnd;
+                int codePoint = cells.getCodePoint(next);
+                
+                if (cells.getForeground(next) != foreground
+                        || cells.getBackground(next) != background
+                        || cells.getAttributes(next) != attributes
+                        || isInverted(cells, next, cursorIndex, blinkPhase)
+                                != inverted
+                        || !hasTileAdvance(codePoint, bold)) {
+                    break;
+                }
+                
+                runCharacters[runEnd - column] = (char) codePoint;
+            }
+            
+            if (inverted) {
+                int tmp = foreground;
+                foreground = background;
+                background = tmp;
+            }
+            
+            int pixelX = column * tileWidth;
+            int pixelY = y * tileHeight;
+            int length = runEnd - column;
+            g.setColor(getColor(background));
+            g.fillRect(pixelX, pixelY, length * tileWidth, tileHeight);
+            g.setColor(getColor(foreground));
+            g.setFont(bold ? boldFont : font);
+            g.drawChars(runCharacters, 0, length, pixelX, pixelY + baseline);
+            column = runEnd;
+        }
+    }
+    
+    /**
+     * Checks whether a character may be painted as a part of a run, that is,
+     * whether it is a single-width character of a single UTF-16 unit
+     * advancing by the tile width.
+     * 
+     * @param codePoint the code point of the character.
+     * @param bold      whether the character is bold.
+     * @return {@code true} if the character may be a part of a run.
+     */
+    private boolean hasTileAdvance(int codePoint, boolean bold) {
+        if (codePoint < ADVANCE_TABLE_SIZE) {
+            return codePoint >= 0 && 
+                   (bold ? boldTileAdvance : tileAdvance)[codePoint];
+        }
+        
+        if (codePoint > Character.MAX_VALUE 
+                || Character.isSurrogate((char) codePoint)
+                || CharacterWidth.getWidth(codePoint) != 1) {
+            return false;
+        }
+        
+        FontMetrics metrics = bold ? boldFontMetrics : fontMetrics;
+        return metrics.charWidth((char) codePoint) == tileWidth;
+    }
+    
+    /**
+     * Returns a color object for the given packed ARGB value, reusing a
+     * recently returned one if possible.
+     * 
+     * @param argb the packed ARGB value.
+     * @return the color.
+     */
+    private Color getColor(int argb) {
+        int slot = (argb ^ (argb >>> 11) ^ (argb >>> 19)) 
+                & (COLOR_CACHE_SIZE - 1);
+        Color color = colorCache[slot];
+        
+        if (color == null || color.getRGB() != argb) {
+            color = new Color(argb, true);
+            colorCache[slot] = color;
+        }
+        
+        return color;
+    }
+    
+    private static boolean isInverted(CellBuffer cells,
+                                      int index,
+                                      int cursorIndex,
+                                      boolean blinkPhase) {
+        return blinkPhase 
+                && (index == cursorIndex 
+                    || cells.hasAttribute(index, CellBuffer.ATTRIBUTE_BLINK));
+    }
+    
+    /**
+     * Paints a single cell, or both cells of a double-width character.
+     * 
+     * @param g           the graphics context.
+     * @param cells       the cells to paint from.
+     * @param x           the <code>x</code>-coordinate of the cell.
+     * @param y           the <code>y</code>-coordinate of the cell.
+     * @param cursorIndex the cell index of the cursor.
+     * @param blinkPhase  whether the blink is in its "on" phase.
+     * @return the number of tiles painted over.
+     */
+    private int paintCell(Graphics g,
+                          CellBuffer cells,
+                          int x,
+                          int y,
+                          int cursorIndex,
+                          boolean blinkPhase) {
+        int index = cells.index(x, y);
+        int codePoint = cells.getCodePoint(index);
+        int tiles = 1;
+        
+        if (codePoint == CellBuffer.WIDE_TAIL) {
+            if (x == 0) {
+                return 1;
+            }
+            
+            codePoint = ' ';
+        } else if (CharacterWidth.isWide(codePoint)
+                && (x == cells.getWidth() - 1 
+                    || cells.getCodePoint(index + 1) 
+                            == CellBuffer.WIDE_TAIL)) {
+            tiles = 2;
+        }
+        
+        int foreground = cells.getForeground(index);
+        int background = cells.getBackground(index);
+        
+        if (isInverted(cells, index, cursorIndex, blinkPhase)
+                || (tiles == 2 && index + 1 == cursorIndex && blinkPhase)) {
+            // Invert the foreground and background colors:
+            int tmp = foreground;
+            foreground = background;
+            background = tmp;
+        }
+        
+        boolean bold = cells.hasAttribute(index, CellBuffer.ATTRIBUTE_BOLD);
+        g.drawImage(glyphCache.getGlyph(codePoint,
+                                        bold,
+                                        bold ? boldFont : font,
+                                        foreground,
+                                        background,
+                                        tiles * tileWidth,
+                                        tileHeight,
+                                        baseline),
+                    x * tileWidth,
+                    y * tileHeight,
+                    null);
+        return tiles;
+    }
+}
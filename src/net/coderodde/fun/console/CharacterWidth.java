@@ -0,0 +1,234 @@
+package net.coderodde.fun.console;
+
+import java.text.Normalizer;
+import java.util.Arrays;
+
+/**
+ * This class classifies code points by the number of cells they take in the
+ * console: 0 for the combining marks and the other zero-width characters, 2
+ * for the East Asian wide and fullwidth characters and the emoji, and 1 for
+ * everything else.
+ * <p>
+ * The widths of the Basic Multilingual Plane are precomputed into a table of
+ * 64 KiB, so that classifying a character costs a single array read; the
+ * supplementary planes, whose characters are rare, are searched in a sorted
+ * table of ranges. The printing paths do not call this class for the ASCII
+ * characters at all.
+ * 
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 17, 2026)
+ */
+final class CharacterWidth {
+
+    /**
+     * The code point replacing the unpaired surrogates.
+     */
+    static final int REPLACEMENT_CHARACTER = 0xfffd;
+    
+    /**
+     * The double-width ranges as pairs of the first and the last code point,
+     * sorted by the first code point. Adapted from the East Asian Width
+     * property and the emoji presentation data of Unicode 13.
+     */
+    private static final int[] WIDE_RANGES = {
+        0x1100, 0x115f, 0x231a, 0x231b, 0x2329, 0x232a, 0x23e9, 0x23ec,
+        0x23f0, 0x23f0, 0x23f3, 0x23f3, 0x25fd, 0x25fe, 0x2614, 0x2615,
+        0x2648, 0x2653, 0x267f, 0x267f, 0x2693, 0x2693, 0x26a1, 0x26a1,
+        0x26aa, 0x26ab, 0x26bd, 0x26be, 0x26c4, 0x26c5, 0x26ce, 0x26ce,
+        0x26d4, 0x26d4, 0x26ea, 0x26ea, 0x26f2, 0x26f3, 0x26f5, 0x26f5,
+        0x26fa, 0x26fa, 0x26fd, 0x26fd, 0x2705, 0x2705, 0x270a, 0x270b,
+        0x2728, 0x2728, 0x274c, 0x274c, 0x274e, 0x274e, 0x2753, 0x2755,
+        0x2757, 0x2757, 0x2795, 0x2797, 0x27b0, 0x27b0, 0x27bf, 0x27bf,
+        0x2b1b, 0x2b1c, 0x2b50, 0x2b50, 0x2b55, 0x2b55, 0x2e80, 0x303e,
+        0x3041, 0x33ff, 0x3400, 0x4dbf, 0x4e00, 0x9fff, 0xa000, 0xa4cf,
+        0xa960, 0xa97f, 0xac00, 0xd7a3, 0xf900, 0xfaff, 0xfe10, 0xfe19,
+        0xfe30, 0xfe6f, 0xff00, 0xff60, 0xffe0, 0xffe6,
+        0x16fe0, 0x16fe4, 0x17000, 0x18cff, 0x1b000, 0x1b2ff,
+        0x1f004, 0x1f004, 0x1f0cf, 0x1f0cf, 0x1f18e, 0x1f18e,
+        0x1f191, 0x1f19a, 0x1f200, 0x1f202, 0x1f210, 0x1f23b,
+        0x1f240, 0x1f248, 0x1f250, 0x1f251, 0x1f260, 0x1f265,
+        0x1f300, 0x1f320, 0x1f32d, 0x1f335, 0x1f337, 0x1f37c,
+        0x1f37e, 0x1f393, 0x1f3a0, 0x1f3ca, 0x1f3cf, 0x1f3d3,
+        0x1f3e0, 0x1f3f0, 0x1f3f4, 0x1f3f4, 0x1f3f8, 0x1f43e,
+        0x1f440, 0x1f440, 0x1f442, 0x1f4fc, 0x1f4ff, 0x1f53d,
+        0x1f54b, 0x1f54e, 0x1f550, 0x1f567, 0x1f57a, 0x1f57a,
+        0x1f595, 0x1f596, 0x1f5a4, 0x1f5a4, 0x1f5fb, 0x1f64f,
+        0x1f680, 0x1f6c5, 0x1f6cc, 0x1f6cc, 0x1f6d0, 0x1f6d2,
+        0x1f6d5, 0x1f6d7, 0x1f6eb, 0x1f6ec, 0x1f6f4, 0x1f6fc,
+        0x1f7e0, 0x1f7eb, 0x1f90c, 0x1f93a, 0x1f93c, 0x1f945,
+        0x1f947, 0x1f9ff, 0x1fa70, 0x1faff, 0x20000, 0x2fffd,
+        0x30000, 0x3fffd
+    };
+    
+    /**
+     * The index of the first supplementary range in {@link #WIDE_RANGES}.
+     */
+    private static final int FIRST_SUPPLEMENTARY_RANGE;
+    
+    /**
+     * The widths of the characters of the Basic Multilingual Plane.
+     */
+    private static final byte[] BMP_WIDTHS =
+            new byte[Character.MIN_SUPPLEMENTARY_CODE_POINT];
+    
+    static {
+        Arrays.fill(BMP_WIDTHS, (byte) 1);
+        
+        for (int codePoint = 0x80;
+                codePoint < BMP_WIDTHS.length;
+                codePoint++) {
+            if (isZeroWidth(codePoint)) {
+                BMP_WIDTHS[codePoint] = 0;
+            }
+        }
+        
+        int range = 0;
+        
+        for (; range < WIDE_RANGES.length
+                && WIDE_RANGES[range] < BMP_WIDTHS.length; range += 2) {
+            Arrays.fill(BMP_WIDTHS,
+                        WIDE_RANGES[range],
+                        WIDE_RANGES[range + 1] + 1,
+                        (byte) 2);
+        }
+        
+        FIRST_SUPPLEMENTARY_RANGE = range;
+    }
+    
+    private CharacterWidth() {}
+    
+    /**
+     * Returns the number of cells the given code point takes.
+     * 
+     * @param codePoint the code point to classify.
+     * @return 0, 1 or 2.
+     */
+    static int getWidth(int codePoint) {
+        if (codePoint < BMP_WIDTHS.length) {
+            return codePoint < 0 ? 1 : BMP_WIDTHS[codePoint];
+        }
+        
+        if (codePoint > Character.MAX_CODE_POINT) {
+            return 1;
+        }
+        
+        // Find the last range starting at or before the code point:
+        int low = FIRST_SUPPLEMENTARY_RANGE / 2;
+        int high = WIDE_RANGES.length / 2 - 1;
+        
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            
+            if (WIDE_RANGES[2 * middle] <= codePoint) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        
+        if (high >= FIRST_SUPPLEMENTARY_RANGE / 2
+                && codePoint <= WIDE_RANGES[2 * high + 1]) {
+            return 2;
+        }
+        
+        return isZeroWidth(codePoint) ? 0 : 1;
+    }
+    
+    /**
+     * Checks whether the given code point is a double-width character. The
+     * code points below the first double-width range are rejected without
+     * reading the tables.
+     * 
+     * @param codePoint the code point to check.
+     * @return {@code true} if the code point takes two cells.
+     */
+    static boolean isWide(int codePoint) {
+        return codePoint >= WIDE_RANGES[0] && getWidth(codePoint) == 2;
+    }
+    
+    /**
+     * Returns the code point of the character following the given index of
+     * the text. An unpaired surrogate is returned as the
+     * {@link #REPLACEMENT_CHARACTER}, so that
+     * {@link Character#charCount(int)} of the result advances past the
+     * character in either case.
+     * 
+     * @param text  the text.
+     * @param index the index of the first UTF-16 unit of the character.
+     * @param end   the index past the last UTF-16 unit of the text.
+     * @return the code point.
+     */
+    static int codePointAt(CharSequence text, int index, int end) {
+        char character = text.charAt(index);
+        
+        if (!Character.isSurrogate(character)) {
+            return character;
+        }
+        
+        if (Character.isHighSurrogate(character) && index + 1 < end) {
+            char low = text.charAt(index + 1);
+            
+            if (Character.isLowSurrogate(low)) {
+                return Character.toCodePoint(character, low);
+            }
+        }
+        
+        return REPLACEMENT_CHARACTER;
+    }
+    
+    /**
+     * Pairs a high surrogate held back at the end of a print with the first
+     * UTF-16 unit of the next print. If the unit is no low surrogate, the
+     * held surrogate becomes the {@link #REPLACEMENT_CHARACTER} and the unit
+     * is to be printed on its own after it.
+     * 
+     * @param highSurrogate the held high surrogate.
+     * @param unit          the first unit of the next print.
+     * @return the code point of the pair or the replacement character.
+     */
+    static int pairHeldSurrogate(char highSurrogate, char unit) {
+        return Character.isLowSurrogate(unit) ?
+               Character.toCodePoint(highSurrogate, unit) :
+               REPLACEMENT_CHARACTER;
+    }
+    
+    /**
+     * Combines a base character with a combining mark into a single
+     * precomposed character, such as <code>'e'</code> and the combining
+     * acute accent into <code>'&eacute;'</code>.
+     * 
+     * @param base the code point of the base character.
+     * @param mark the code point of the combining mark.
+     * @return the precomposed code point, or -1 if there is none.
+     */
+    static int compose(int base, int mark) {
+        if (base > Character.MAX_CODE_POINT) {
+            return -1;
+        }
+        
+        String composed = Normalizer.normalize(
+                new StringBuilder(4).appendCodePoint(base)
+                                    .appendCodePoint(mark),
+                Normalizer.Form.NFC);
+        
+        return composed.codePointCount(0, composed.length()) == 1 ?
+               composed.codePointAt(0) :
+               -1;
+    }
+    
+    private static boolean isZeroWidth(int codePoint) {
+        switch (Character.getType(codePoint)) {
+            case Character.NON_SPACING_MARK:
+            case Character.ENCLOSING_MARK:
+                return true;
+            
+            case Character.FORMAT:
+                // The soft hyphen is visible at the end of a line:
+                return codePoint != 0xad;
+            
+            default:
+                // The medial vowels and final consonants of Hangul Jamo:
+                return codePoint >= 0x1160 && codePoint <= 0x11ff;
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package net.coderodde.fun.console;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * This class implements a sparse grid of cells for very large canvases. The
+ * grid is split into square chunks of {@value #CHUNK_SIZE} x
+ * {@value #CHUNK_SIZE} cells, each a {@link CellBuffer} of its own, and a
+ * chunk is allocated only when one of its cells is first written. An
+ * untouched chunk costs a single null reference and reads as blanks of the
+ * default colors.
+ * <p>
+ * The chunks are published with a compare-and-set, so threads may write into
+ * the grid concurrently; as with a {@link CellBuffer}, the writes into the
+ * same cell overwrite each other.
+ * 
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 17, 2026)
+ */
+final class ChunkedCellBuffer {
+
+    /**
+     * The base-2 logarithm of the chunk size.
+     */
+    static final int CHUNK_SHIFT = 6;
+    
+    /**
+     * The width and the height of a chunk in cells.
+     */
+    static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    
+    /**
+     * Masks the coordinate of a cell within its chunk.
+     */
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    
+    /**
+     * The width of the grid in cells.
+     */
+    private final int width;
+    
+    /**
+     * The height of the grid in cells.
+     */
+    private final int height;
+    
+    /**
+     * The number of chunk columns.
+     */
+    private final int chunkColumns;
+    
+    /**
+     * The packed ARGB foreground color of the untouched cells.
+     */
+    private final int blankForeground;
+    
+    /**
+     * The packed ARGB background color of the untouched cells.
+     */
+    private final int blankBackground;
+    
+    /**
+     * The chunks in row-major order, {@code null} until first written.
+     */
+    private final AtomicReferenceArray<CellBuffer> chunks;
+    
+    /**
+     * The number of allocated chunks.
+     */
+    private final AtomicInteger allocatedChunks = new AtomicInteger();
+    
+    /**
+     * Constructs a grid of untouched cells.
+     * 
+     * @param width           the width of the grid in cells.
+     * @param height          the height of the grid in cells.
+     * @param blankForeground the foreground color of the untouched cells.
+     * @param blankBackground the background color of the untouched cells.
+     */
+    ChunkedCellBuffer(int width,
+                      int height,
+                      int blankForeground,
+                      int blankBackground) {
+        this.width = width;
+        this.height = height;
+        this.chunkColumns = (width + CHUNK_MASK) >>> CHUNK_SHIFT;
+        this.blankForeground = blankForeground;
+        this.blankBackground = blankBackground;
+        this.chunks = new AtomicReferenceArray<>(
+                Math.multiplyExact(chunkColumns,
+                                   (height + CHUNK_MASK) >>> CHUNK_SHIFT));
+    }
+    
+    int getWidth() {
+        return width;
+    }
+    
+    int getHeight() {
+        return height;
+    }
+    
+    int getAllocatedChunkCount() {
+        return allocatedChunks.get();
+    }
+    
+    /**
+     * Returns the chunk holding the given chunk coordinates.
+     * 
+     * @param chunkX the column of the chunk.
+     * @param chunkY the row of the chunk.
+     * @return the chunk, or {@code null} if none of its cells was written.
+     */
+    CellBuffer getChunk(int chunkX, int chunkY) {
+        return chunks.get(chunkY * chunkColumns + chunkX);
+    }
+    
+    int getCodePoint(int x, int y) {
+        CellBuffer chunk = getChunk(x >>> CHUNK_SHIFT, y >>> CHUNK_SHIFT);
+        return chunk == null ?
+               ' ' :
+               chunk.getCodePoint(localIndex(chunk, x, y));
+    }
+    
+    /**
+     * Writes a cell, allocating its chunk if needed.
+     * 
+     * @param x          the <code>x</code>-coordinate of the cell.
+     * @param y          the <code>y</code>-coordinate of the cell.
+     * @param codePoint  the code point to store.
+     * @param foreground the packed ARGB foreground color.
+     * @param background the packed ARGB background color.
+     * @param attributes the attribute bits.
+     */
+    void setCell(int x,
+                 int y,
+                 int codePoint,
+                 int foreground,
+                 int background,
+                 byte attributes) {
+        CellBuffer chunk = chunkFor(x >>> CHUNK_SHIFT, y >>> CHUNK_SHIFT);
+        chunk.setCell(localIndex(chunk, x, y),
+                      codePoint,
+                      foreground,
+                      background,
+                      attributes);
+    }
+    
+    /**
+     * Replaces the code point of a cell, keeping its colors and attributes.
+     * 
+     * @param x         the <code>x</code>-coordinate of the cell.
+     * @param y         the <code>y</code>-coordinate of the cell.
+     * @param codePoint the code point to store.
+     */
+    void setCodePoint(int x, int y, int codePoint) {
+        CellBuffer chunk = chunkFor(x >>> CHUNK_SHIFT, y >>> CHUNK_SHIFT);
+        chunk.setCodePoint(localIndex(chunk, x, y), codePoint);
+    }
+    
+    /**
+     * Fills a rectangle of cells chunk by chunk. Filling an untouched chunk
+     * with blanks of the default colors allocates nothing.
+     * 
+     * @param x          the leftmost column of the rectangle.
+     * @param y          the topmost row of the rectangle.
+     * @param width      the width of the rectangle in cells.
+     * @param height     the height of the rectangle in cells.
+     * @param codePoint  the code point to store.
+     * @param foreground the packed ARGB foreground color.
+     * @param background the packed ARGB background color.
+     * @param attributes the attribute bits.
+     */
+    void fill(int x,
+              int y,
+              int width,
+              int height,
+              int codePoint,
+              int foreground,
+              int background,
+              byte attributes) {
+        boolean blank = codePoint == ' '
+                && foreground == blankForeground
+                && background == blankBackground
+                && attributes == 0;
+        
+        for (int top = y; top < y + height; ) {
+            int chunkY = top >>> CHUNK_SHIFT;
+            int bottom = Math.min(y + height, (chunkY + 1) << CHUNK_SHIFT);
+            
+            for (int left = x; left < x + width; ) {
+                int chunkX = left >>> CHUNK_SHIFT;
+                int right = Math.min(x + width, (chunkX + 1) << CHUNK_SHIFT);
+                CellBuffer chunk = blank ?
+                                   getChunk(chunkX, chunkY) :
+                                   chunkFor(chunkX, chunkY);
+                
+                if (chunk != null) {
+                    chunk.fill(left & CHUNK_MASK,
+                               top & CHUNK_MASK,
+                               right - left,
+                               bottom - top,
+                               codePoint,
+                               foreground,
+                               background,
+                               attributes);
+                }
+                
+                left = right;
+            }
+            
+            top = bottom;
+        }
+    }
+    
+    /**
+     * Returns the chunk with the given chunk coordinates, allocating it if
+     * none of its cells was written yet.
+     * 
+     * @param chunkX the column of the chunk.
+     * @param chunkY the row of the chunk.
+     * @return the chunk.
+     */
+    private CellBuffer chunkFor(int chunkX, int chunkY) {
+        int slot = chunkY * chunkColumns + chunkX;
+        CellBuffer chunk = chunks.get(slot);
+        
+        if (chunk != null) {
+            return chunk;
+        }
+        
+        // The chunks at the right and bottom borders may be smaller:
+        chunk = new CellBuffer(
+                Math.min(CHUNK_SIZE, width - (chunkX << CHUNK_SHIFT)),
+                Math.min(CHUNK_SIZE, height - (chunkY << CHUNK_SHIFT)),
+                ' ',
+                blankForeground,
+                blankBackground);
+        
+        if (chunks.compareAndSet(slot, null, chunk)) {
+            allocatedChunks.incrementAndGet();
+            return chunk;
+        }
+        
+        // Another thread won the race.
+        return chunks.get(slot);
+    }
+    
+    private static int localIndex(CellBuffer chunk, int x, int y) {
+        return chunk.index(x & CHUNK_MASK, y & CHUNK_MASK);
+    }
+}
@@ -1,33 +1,33 @@
 package net.coderodde.fun.console;
 
 import java.awt.Color;
+import java.awt.Component;
 import java.awt.Dimension;
-import java.awt.Font;
-import java.awt.FontMetrics;
 import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.KeyboardFocusManager;
 import java.awt.Point;
-import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.awt.Rectangle;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.awt.event.ComponentListener;
+import java.awt.image.BufferedImage;
+import java.util.Objects;
+import java.util.concurrent.locks.LockSupport;
 import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
 
 /**
- * This class implements a simple colorful console.
+ * This class implements a simple colorful console. The state of the console
+ * lives in a {@link ConsoleModel}; this component only schedules the frames
+ * and paints the model on screen. The number of character tiles may follow
+ * the size of the component; see {@link #setAutoResize(boolean)}.
  * 
  * @author Rodion "rodde" Efremov
  * @version 1.6 (Feb 3, 2018)
  */
 public final class ColorfulConsole extends JPanel {
 
-    /**
-     * The minimum width of the console in character tiles.
-     */
-    private static final int MINIMUM_WIDTH = 1;
-    
-    /**
-     * The minimum height of the console in character tiles.
-     */
-    private static final int MINIMUM_HEIGHT = 1;
-    
     /**
      * The default width of the console in characters.
      */
@@ -39,179 +39,334 @@ public final class ColorfulConsole extends JPanel {
     private static final int DEFAULT_HEIGHT = 24;
     
     /**
-     * The default foreground color.
+     * The default font size.
      */
-    private static final Color DEFAULT_FOREGROUND_COLOR = Color.WHITE;
+    private static final int DEFAULT_FONT_SIZE = 12;
     
     /**
-     * The default background color.
+     * The state of this console.
      */
-    private static final Color DEFAULT_BACKGROUND_COLOR = Color.BLACK;
+    private final ConsoleModel model;
     
     /**
-     * The default character width in pixels.
+     * Whether the console is resized to the tiles fitting in this component.
      */
-    private static final int DEFAULT_CHARACTER_WIDTH = 7;
+    private volatile boolean autoResize;
     
     /**
-     * The default character height in pixels.
+     * Rasterizes the character tiles. Shared with the consoles of the same 
+     * font size while this console is registered with a render engine.
      */
-    private static final int DEFAULT_CHARACTER_HEIGHT = 15;
+    private volatile CellRasterizer rasterizer = 
+            new CellRasterizer(DEFAULT_FONT_SIZE);
     
     /**
-     * The default blink duration in milliseconds.
+     * The render engine painting the frames of this console, or {@code null}
+     * if the console paints its frames by itself.
      */
-    private static final int DEFAULT_BLINK_DURATION = 500;
+    private volatile RenderEngine renderEngine;
     
     /**
-     * The initial value of the <code>x</code>-coordinate of the tile cursor.
+     * The current rendering mode.
      */
-    private static final int INITIAL_CURSOR_X = 0;
+    private volatile RenderingMode renderingMode = RenderingMode.DIRECT;
     
     /**
-     * The initial value of the <code>y</code>-coordinate of the tile cursor.
+     * The render thread. Is {@code null} unless the rendering mode is 
+     * {@link RenderingMode#BACK_BUFFER}.
      */
-    private static final int INITIAL_CURSOR_Y = 0;
+    private volatile RenderThread renderThread;
     
     /**
-     * The width of the colorful console in characters.
+     * The persistent back buffer holding the rasterized tiles in the 
+     * {@link RenderingMode#BACK_BUFFER} mode.
      */
-    private final int width;
+    private volatile BufferedImage backBuffer;
     
     /**
-     * The height of the colorful console in characters.
+     * The number of rows the back buffer must be shifted up by before 
+     * rasterizing the next frame. Guarded by the scroll lock of the model.
      */
-    private final int height;
+    private int pendingScrollRows;
     
     /**
-     * The current font.
+     * The dirty region of the model.
      */
-    private Font font;
+    private final DirtyRegion dirtyRegion;
     
     /**
-     * The current bold font settings.
+     * The number of tiles drained in the current frame on the event dispatch 
+     * thread.
      */
-    private boolean boldFontOn;
+    private int frameTileCount;
     
     /**
-     * The <code>x</code>-coordinate of the cursor in character tiles.
+     * Used for fetching the clip bounds without allocation.
      */
-    private final AtomicInteger cursorX = new AtomicInteger(INITIAL_CURSOR_X);
+    private final Rectangle clipBounds = new Rectangle();
     
     /**
-     * The <code>y</code>-coordinate of the cursor in character tiles.
+     * Requests a repaint of each rectangle of damaged tiles.
      */
-    private final AtomicInteger cursorY = new AtomicInteger(INITIAL_CURSOR_Y);
-    
-    /**
-     * Set to {@code true} whenever there is a need to recalculate the panel
-     * dimensions. Set to {@code true} by default so that the very first paint
-     * request sets correctly the character width and height in pixels.
-     */
-    private boolean recalculatePanelDimension = true;
-    
-    /**
-     * A flag for rendering the entire console upon creation. Is then set to 
-     * {@code false} and the console redraws only updated character tiles.
-     */
-    private boolean initializeGraphics = true;
+    private final DirtyRegion.RectangleVisitor repaintVisitor = 
+            new DirtyRegion.RectangleVisitor() {
+        
+        @Override
+        public void visit(int x, int y, int width, int height) {
+            frameTileCount += width * height;
+            repaintTiles(x, y, width, height);
+        }
+    };
     
     /**
-     * The character tile matrix.
+     * Drains the dirty region on the event dispatch thread.
      */
-    private final CharacterTile[][] characterTiles;
+    private final Runnable repaintTask = new Runnable() {
+        
+        @Override
+        public void run() {
+            if (renderThread != null) {
+                // The render thread took over the dirty region.
+                return;
+            }
+            
+            renderScheduler.frameStarted();
+            metrics.damageDrained();
+            frameTileCount = 0;
+            dirtyRegion.drain(repaintVisitor);
+            renderScheduler.frameRendered(frameTileCount);
+        }
+    };
     
     /**
-     * The current width of a character tile in pixels.
+     * Hands a frame over to the render thread or to the event dispatch thread.
      */
-    private int characterTileWidth = DEFAULT_CHARACTER_WIDTH;
+    private final Runnable frameTask = new Runnable() {
+        
+        @Override
+        public void run() {
+            RenderThread currentRenderThread = renderThread;
+            
+            if (currentRenderThread != null) {
+                currentRenderThread.wakeUp();
+            } else {
+                SwingUtilities.invokeLater(repaintTask);
+            }
+        }
+    };
     
     /**
-     * The current height of a character tile in pixels.
+     * Decides when the frames are painted.
      */
-    private int characterTileHeight = DEFAULT_CHARACTER_HEIGHT;
-    
+    private final RenderScheduler renderScheduler = 
+            new RenderScheduler(frameTask);
     
     /**
-     * Used for drawing text.
+     * The runtime metrics of this console.
      */
-    private final char[] characterArray = new char[1];
+    private final ColorfulConsoleMetrics metrics;
     
     /**
-     * The blink duration in milliseconds.
+     * The keyboard input of this console.
      */
-    private volatile int blinkDuration = DEFAULT_BLINK_DURATION;
+    private final ConsoleInput input;
     
     /**
-     * The blinked thread.
+     * Schedules the frames for the damage of the model and decides how the 
+     * back buffer follows the scrolling.
      */
-    private final CursorBlinkThread cursorBlinkThread;
+    private final ConsoleModel.Listener modelListener = 
+            new ConsoleModel.Listener() {
+        
+        @Override
+        public void damaged() {
+            requestRepaint();
+        }
+        
+        @Override
+        public void scrolled(int rows) {
+            CellBuffer cells = model.getCellBuffer();
+            int width = cells.getWidth();
+            int height = cells.getHeight();
+            
+            if (renderingMode == RenderingMode.BACK_BUFFER) {
+                dirtyRegion.scrollUp(rows);
+                dirtyRegion.markRectangle(0, height - rows, width, rows);
+                pendingScrollRows = Math.min(height, pendingScrollRows + rows);
+                int cursorY = model.getCursorY();
+                
+                if (model.isBlinkPhaseOn() && cursorY >= rows) {
+                    // The pixels of the inverted cursor move up along with 
+                    // the rows, so restore them:
+                    dirtyRegion.mark(model.getCursorX(), cursorY - rows);
+                }
+            } else {
+                dirtyRegion.markRectangle(0, 0, width, height);
+            }
+        }
+        
+        @Override
+        public void resized() {
+            CellBuffer cells = model.getCellBuffer();
+            // The back buffer is reallocated for the new size anyway:
+            pendingScrollRows = 0;
+            dirtyRegion.markRectangle(0,
+                                      0,
+                                      cells.getWidth(),
+                                      cells.getHeight());
+            revalidate();
+            repaint();
+        }
+    };
     
     /**
-     * The queue of the coordinates at which to update the tiles.
+     * Resizes the console to the tiles fitting in this component while the
+     * automatic resizing is on.
      */
-    private final ConcurrentLinkedQueue<Point> repaintRequestQueue = 
-            new ConcurrentLinkedQueue<>();
+    private final ComponentListener resizeListener = new ComponentAdapter() {
+        
+        @Override
+        public void componentResized(ComponentEvent event) {
+            if (autoResize) {
+                fitConsoleSize();
+            }
+        }
+    };
     
     /**
-     * This inner static class implements a single character tile.
+     * This inner class implements the thread rasterizing the damaged tiles 
+     * into the back buffer.
      */
-    private static final class CharacterTile {
+    private final class RenderThread extends Thread {
         
         /**
-         * The character in this tile.
+         * Set to {@code false} when the thread should exit.
          */
-        private volatile char character;
+        private volatile boolean running = true;
         
         /**
-         * The foreground color of this tile.
+         * Set to {@code true} when a frame is dispatched to this thread.
          */
-        private volatile Color foregroundColor;
+        private volatile boolean frameRequested = true;
         
         /**
-         * The background color of this tile.
+         * The number of tiles rasterized in the current frame.
          */
-        private volatile Color backgroundColor;
+        private int frameTileCount;
         
         /**
-         * The boldness of the character of this tile.
+         * The graphics context of the back buffer during a frame.
          */
-        private volatile boolean boldFont;
+        private Graphics2D backBufferGraphics;
         
         /**
-         * If set to {@code true}, this character tile is blinking, or, in other
-         * words, it paints the background with the foreground color and it
-         * paints the foreground with the background color.
+         * The cells of the model during a frame.
          */
-        private volatile boolean isBlinking;
-    }
-    
-    private final class CursorBlinkThread extends Thread {
+        private CellBuffer frameCells;
+        
+        /**
+         * Rasterizes each rectangle of damaged tiles into the back buffer and
+         * requests it to be blitted.
+         */
+        private final DirtyRegion.RectangleVisitor rasterizeVisitor = 
+                new DirtyRegion.RectangleVisitor() {
+            
+            @Override
+            public void visit(int x, int y, int width, int height) {
+                rasterizer.paintCells(backBufferGraphics, 
+                                      frameCells, 
+                                      x, 
+                                      y, 
+                                      width, 
+                                      height,
+                                      model.cursorIndex(),
+                                      model.isBlinkPhaseOn());
+                frameTileCount += width * height;
+                repaintTiles(x, y, width, height);
+            }
+        };
+        
+        RenderThread() {
+            super("ColorfulConsole render thread");
+            setDaemon(true);
+        }
         
         @Override
         public void run() {
-            while (true) {
-                // Invert the foreground and background colors:
-                int x = cursorX.get();
-                int y = cursorY.get();
-                CharacterTile tile = characterTiles[y][x];
-                tile.isBlinking = true;
-                repaintRequestQueue.add(new Point(x, y));
-                repaint();
-                sleep(blinkDuration);
+            while (running) {
+                if (!frameRequested) {
+                    LockSupport.park(this);
+                    continue;
+                }
                 
-                // Now restore the actual colors:
-                tile.isBlinking = false;
-                repaintRequestQueue.add(new Point(x, y));
-                repaint();
-                sleep(blinkDuration);
-            } 
+                frameRequested = false;
+                renderScheduler.frameStarted();
+                metrics.damageDrained();
+                frameTileCount = 0;
+                renderFrame();
+                renderScheduler.frameRendered(frameTileCount);
+            }
         }
         
-        private void sleep(int milliseconds) {
-            try {
-                Thread.sleep(milliseconds);
-            } catch (InterruptedException ex) {}
+        void wakeUp() {
+            frameRequested = true;
+            LockSupport.unpark(this);
+        }
+        
+        void shutdown() {
+            running = false;
+            LockSupport.unpark(this);
+        }
+        
+        private void renderFrame() {
+            synchronized (model.getScrollLock()) {
+                // The cells are not replaced while the scroll lock is held.
+                CellBuffer cells = model.getFrontCellBuffer();
+                int width = cells.getWidth();
+                int height = cells.getHeight();
+                int tileWidth = rasterizer.getTileWidth();
+                int tileHeight = rasterizer.getTileHeight();
+                int imageWidth = width * tileWidth;
+                int imageHeight = height * tileHeight;
+                int scrollRows = pendingScrollRows;
+                BufferedImage image = backBuffer;
+                pendingScrollRows = 0;
+                
+                if (image == null 
+                        || image.getWidth() != imageWidth 
+                        || image.getHeight() != imageHeight) {
+                    image = new BufferedImage(imageWidth, 
+                                              imageHeight, 
+                                              BufferedImage.TYPE_INT_RGB);
+                    dirtyRegion.markRectangle(0, 0, width, height);
+                    backBuffer = image;
+                    scrollRows = 0;
+                }
+                
+                backBufferGraphics = image.createGraphics();
+                frameCells = cells;
+                
+                try {
+                    if (scrollRows > 0 && scrollRows < height) {
+                        // Shift the pixels instead of rasterizing the moved 
+                        // rows again:
+                        backBufferGraphics.copyArea(
+                                0, 
+                                scrollRows * tileHeight, 
+                                imageWidth, 
+                                (height - scrollRows) * tileHeight,
+                                0,
+                                -scrollRows * tileHeight);
+                        repaint();
+                    }
+                    
+                    dirtyRegion.drain(rasterizeVisitor);
+                } finally {
+                    backBufferGraphics.dispose();
+                    backBufferGraphics = null;
+                    frameCells = null;
+                }
+            }
         }
     }
     
@@ -220,18 +375,36 @@ public final class ColorfulConsole extends JPanel {
     }
     
     public ColorfulConsole(int width, int height) {
-        this.font = new Font(Font.MONOSPACED, Font.PLAIN, 12);
-        this.width = checkWidth(width);
-        this.height = checkHeight(height);
-        this.characterTiles = new CharacterTile[height][width];
-        this.setForeground(DEFAULT_FOREGROUND_COLOR);
-        this.setBackground(DEFAULT_BACKGROUND_COLOR);
-        populateCharacterTiles();
+        this(new ConsoleModel(width, height));
+    }
+    
+    /**
+     * Constructs a view over the given model. A model may have at most one 
+     * view.
+     * 
+     * @param model the console model.
+     */
+    public ColorfulConsole(ConsoleModel model) {
+        this.model = Objects.requireNonNull(model, 
+                                            "The input console model is null.");
+        this.dirtyRegion = model.getDirtyRegion();
+        this.metrics = new ColorfulConsoleMetrics(model, renderScheduler);
+        this.input = new ConsoleInput(model);
+        super.setForeground(model.getForeground());
+        super.setBackground(model.getBackground());
+        model.setListener(modelListener);
+        addComponentListener(resizeListener);
         repaint();
-        setSize(width * characterTileWidth,
-                height * characterTileHeight);
-        this.cursorBlinkThread = new CursorBlinkThread();
-        this.cursorBlinkThread.start();   
+        setSize(getSize());
+    }
+    
+    /**
+     * Returns the model holding the state of this console.
+     * 
+     * @return the console model.
+     */
+    public ConsoleModel getModel() {
+        return model;
     }
     
     /**
@@ -240,7 +413,7 @@ public final class ColorfulConsole extends JPanel {
      * @return the width of the console in characters.
      */
     public int getConsoleWidth() {
-        return width;
+        return model.getConsoleWidth();
     }
     
     /**
@@ -249,49 +422,263 @@ public final class ColorfulConsole extends JPanel {
      * @return the height of the console in characters.
      */
     public int getConsoleHeight() {
-        return height;
+        return model.getConsoleHeight();
     }
     
     /**
-     * Prints a single character at the current console cursor.
+     * Resizes the console, keeping the content and the cursor. See
+     * {@link ConsoleModel#setConsoleSize(int, int)}.
      * 
-     * @param character the character to print.
+     * @param width  the new width of the console in characters.
+     * @param height the new height of the console in characters.
      */
-    public void print(char character) {
-        int x = cursorX.get();
-        int y = cursorY.get();
-        characterTiles[y][x].character = character;
-        characterTiles[y][x].foregroundColor = getForeground();
-        characterTiles[y][x].backgroundColor = getBackground();
-        characterTiles[y][x].boldFont = boldFontOn;
-        repaintRequestQueue.add(new Point(x, y));
-        repaint();
+    public void setConsoleSize(int width, int height) {
+        model.setConsoleSize(width, height);
+    }
+    
+    public boolean isAutoResize() {
+        return autoResize;
+    }
+    
+    /**
+     * Sets whether the console is resized to the number of tiles fitting in
+     * this component whenever the component is resized, for example along
+     * with a resizable frame. The preferred size of the component follows
+     * the console either way.
+     * 
+     * @param autoResize whether to resize the console automatically.
+     */
+    public void setAutoResize(boolean autoResize) {
+        this.autoResize = autoResize;
         
-        if (x < getConsoleWidth() - 1) {
-            cursorX.set(x + 1);
-        } else if (y < getConsoleHeight() - 1) {
-            cursorX.set(0);
-            cursorY.set(y + 1);
+        if (autoResize && getWidth() > 0 && getHeight() > 0) {
+            fitConsoleSize();
         }
     }
     
+    /**
+     * Prints a single character at the current console cursor. The newline 
+     * character moves the cursor to the beginning of the next row. If the 
+     * cursor leaves the bottom row, the console scrolls up by one row.
+     * 
+     * @param character the character to print.
+     */
+    public void print(char character) {
+        model.print(character);
+    }
+    
     /**
      * Prints the input text starting from the current console cursor. If the 
      * cursor goes outside the console, it is reset to the leftmost tile of the
-     * next row.
+     * next row, scrolling the console up if the cursor was on the bottom row.
+     * Newline characters move the cursor to the beginning of the next row.
      * 
      * @param text the text to print.
      */
     public void print(String text) {
-        for (int i = 0; i < text.length(); i++) {
-            print(text.charAt(i));
-        }
+        model.print(text);
+    }
+    
+    /**
+     * Prints a range of characters starting from the current console cursor.
+     * Works like {@link #print(java.lang.String)}.
+     * 
+     * @param characters the character array.
+     * @param offset     the index of the first character to print.
+     * @param length     the number of characters to print.
+     */
+    public void print(char[] characters, int offset, int length) {
+        model.print(characters, offset, length);
+    }
+    
+    /**
+     * Creates a window view over a rectangle of this console. See
+     * {@link ConsoleModel#createWindow(int, int, int, int)}.
+     * 
+     * @param x      the leftmost column of the window.
+     * @param y      the topmost row of the window.
+     * @param width  the width of the window in tiles.
+     * @param height the height of the window in tiles.
+     * @return the window.
+     */
+    public ConsoleWindow createWindow(int x, int y, int width, int height) {
+        return model.createWindow(x, y, width, height);
+    }
+    
+    /**
+     * Writes an attributed run of text starting at the tile 
+     * <code>(x, y)</code>. See 
+     * {@link ConsoleModel#write(int, int, String, Color, Color, boolean)}.
+     * 
+     * @param x          the <code>x</code>-coordinate of the first tile.
+     * @param y          the <code>y</code>-coordinate of the first tile.
+     * @param text       the text to write.
+     * @param foreground the foreground color of the run.
+     * @param background the background color of the run.
+     * @param bold       whether the run is bold.
+     */
+    public void write(int x, 
+                      int y, 
+                      String text, 
+                      Color foreground, 
+                      Color background, 
+                      boolean bold) {
+        model.write(x, y, text, foreground, background, bold);
+    }
+    
+    /**
+     * Fills a rectangle of tiles with the same character and attributes.
+     * 
+     * @param x          the leftmost column of the rectangle.
+     * @param y          the topmost row of the rectangle.
+     * @param width      the width of the rectangle in tiles.
+     * @param height     the height of the rectangle in tiles.
+     * @param character  the character to fill with.
+     * @param foreground the foreground color.
+     * @param background the background color.
+     * @param bold       whether the character is bold.
+     */
+    public void fill(int x,
+                     int y,
+                     int width,
+                     int height,
+                     char character,
+                     Color foreground,
+                     Color background,
+                     boolean bold) {
+        model.fill(x, 
+                   y, 
+                   width, 
+                   height, 
+                   character, 
+                   foreground, 
+                   background, 
+                   bold);
+    }
+    
+    /**
+     * Copies a rectangle of tiles to another location of this console. The 
+     * rectangles may overlap, so this may be used for moving content around.
+     * 
+     * @param srcX   the leftmost column of the source rectangle.
+     * @param srcY   the topmost row of the source rectangle.
+     * @param width  the width of the rectangle in tiles.
+     * @param height the height of the rectangle in tiles.
+     * @param dstX   the leftmost column of the target rectangle.
+     * @param dstY   the topmost row of the target rectangle.
+     */
+    public void copyRectangle(int srcX,
+                              int srcY,
+                              int width,
+                              int height,
+                              int dstX,
+                              int dstY) {
+        model.copyRectangle(srcX, srcY, width, height, dstX, dstY);
+    }
+    
+    /**
+     * Copies a rectangle of cells from a caller-supplied cell buffer into this
+     * console.
+     * 
+     * @param source the source cell buffer.
+     * @param srcX   the leftmost column of the source rectangle.
+     * @param srcY   the topmost row of the source rectangle.
+     * @param width  the width of the rectangle in tiles.
+     * @param height the height of the rectangle in tiles.
+     * @param dstX   the leftmost column of the target rectangle.
+     * @param dstY   the topmost row of the target rectangle.
+     */
+    public void blit(CellBuffer source,
+                     int srcX,
+                     int srcY,
+                     int width,
+                     int height,
+                     int dstX,
+                     int dstY) {
+        model.blit(source, srcX, srcY, width, height, dstX, dstY);
+    }
+    
+    /**
+     * Scrolls the console up by the given number of rows. The top rows are 
+     * moved to the scrollback and the exposed bottom rows are cleared with the
+     * current background color. The cursor stays where it is.
+     * <p>
+     * In the {@link RenderingMode#BACK_BUFFER} mode the back buffer is shifted
+     * and only the exposed rows are rasterized. In the 
+     * {@link RenderingMode#DIRECT} mode the whole console is repainted.
+     * 
+     * @param rows the number of rows to scroll by.
+     */
+    public void scrollUp(int rows) {
+        model.scrollUp(rows);
+    }
+    
+    /**
+     * Begins a frame: the writes until {@link #commitFrame()} are not shown
+     * before the commit. See {@link ConsoleModel#beginFrame()}.
+     */
+    public void beginFrame() {
+        model.beginFrame();
+    }
+    
+    /**
+     * Commits the open frame, repainting only the cells it changed. See
+     * {@link ConsoleModel#commitFrame()}.
+     */
+    public void commitFrame() {
+        model.commitFrame();
+    }
+    
+    /**
+     * Sets the maximum number of rows kept in the scrollback. The current 
+     * scrollback is discarded.
+     * 
+     * @param capacity the number of rows to keep.
+     */
+    public void setScrollbackCapacity(int capacity) {
+        model.setScrollbackCapacity(capacity);
+    }
+    
+    public int getScrollbackCapacity() {
+        return model.getScrollbackCapacity();
+    }
+    
+    /**
+     * Returns the number of rows currently held in the scrollback.
+     * 
+     * @return the number of scrollback rows.
+     */
+    public int getScrollbackSize() {
+        return model.getScrollbackSize();
+    }
+    
+    /**
+     * Returns the text of a scrollback row with the trailing spaces removed.
+     * 
+     * @param index the index of the row, 0 being the oldest row.
+     * @return the text of the row.
+     */
+    public String getScrollbackText(int index) {
+        return model.getScrollbackText(index);
+    }
+    
+    /**
+     * Copies a scrollback row with its colors and attributes into a row of the
+     * given cell buffer.
+     * 
+     * @param index  the index of the row, 0 being the oldest row.
+     * @param target the target cell buffer.
+     * @param y      the target row.
+     */
+    public void copyScrollbackRow(int index, CellBuffer target, int y) {
+        model.copyScrollbackRow(index, target, y);
     }
     
     @Override
     public Dimension getSize() {
-        return new Dimension(width * characterTileWidth, 
-                             height * characterTileHeight);
+        return new Dimension(
+                model.getConsoleWidth() * rasterizer.getTileWidth(), 
+                model.getConsoleHeight() * rasterizer.getTileHeight());
     }
     
     @Override
@@ -299,28 +686,200 @@ public final class ColorfulConsole extends JPanel {
         return getSize();
     }
     
-    public void setBoldText(boolean bold) {
-        this.boldFontOn = bold;
+    /**
+     * Returns the glyph cache used for painting this console. The cache 
+     * exposes hit, miss and eviction counters for tuning its capacity. While
+     * the console is registered with a render engine, the cache is shared by
+     * all the consoles of the engine having the same font size. The console 
+     * paints through the cache while holding its monitor, so the counters are
+     * read consistently while synchronized on the cache.
+     * 
+     * @return the glyph cache.
+     */
+    public GlyphCache getGlyphCache() {
+        return rasterizer.getGlyphCache();
     }
     
-    public void setFontSize(int size) {
-        font = new Font(Font.MONOSPACED,
-                        boldFontOn ? Font.BOLD : Font.PLAIN,
-                        size);
+    /**
+     * Returns the keyboard input of this console. The keys typed into the
+     * console are buffered there until a program reads them.
+     * 
+     * @return the console input.
+     */
+    public ConsoleInput getInput() {
+        return input;
+    }
+    
+    /**
+     * Returns the scheduler deciding when the frames are painted. The 
+     * scheduler allows capping the frame rate and exposes frame statistics.
+     * 
+     * @return the render scheduler.
+     */
+    public RenderScheduler getRenderScheduler() {
+        return renderScheduler;
+    }
+    
+    /**
+     * Returns the runtime metrics of this console. The metrics are registered
+     * as a JMX MBean while the console is displayable.
+     * 
+     * @return the metrics.
+     */
+    public ColorfulConsoleMetrics getMetrics() {
+        return metrics;
+    }
+    
+    /**
+     * Returns the current rendering mode.
+     * 
+     * @return the current rendering mode.
+     */
+    public RenderingMode getRenderingMode() {
+        return renderingMode;
+    }
+    
+    /**
+     * Selects how the character tiles get on screen. In the 
+     * {@link RenderingMode#BACK_BUFFER} mode a daemon render thread 
+     * rasterizes the damaged tiles into a persistent back buffer and painting
+     * only blits the buffer. Switching back to {@link RenderingMode#DIRECT}
+     * stops the render thread and releases the buffer.
+     * 
+     * @param renderingMode the rendering mode to use.
+     */
+    public synchronized void setRenderingMode(RenderingMode renderingMode) {
+        Objects.requireNonNull(renderingMode, "The rendering mode is null.");
         
-        recalculatePanelDimension = true;
-        repaint();
+        if (this.renderingMode == renderingMode) {
+            return;
+        }
+        
+        if (renderEngine != null) {
+            throw new IllegalStateException(
+                    "A console registered with a render engine must use " +
+                    "the DIRECT rendering mode.");
+        }
+        
+        this.renderingMode = renderingMode;
+        RenderThread oldRenderThread = renderThread;
+        
+        if (oldRenderThread != null) {
+            renderThread = null;
+            oldRenderThread.shutdown();
+            backBuffer = null;
+        }
+        
+        if (renderingMode == RenderingMode.BACK_BUFFER) {
+            renderThread = new RenderThread();
+            renderThread.start();
+        }
+        
+        renderScheduler.resetPendingFrame();
+        dirtyRegion.markRectangle(0,
+                                  0,
+                                  model.getConsoleWidth(),
+                                  model.getConsoleHeight());
+        requestRepaint();
+    }
+    
+    public RenderEngine getRenderEngine() {
+        return renderEngine;
     }
     
-    private void updateConsoleSize(Graphics g) {
-        FontMetrics fontMetrics = g.getFontMetrics(font);
-        int charHeight = fontMetrics.getAscent() + fontMetrics.getDescent();
-        int charWidth = fontMetrics.charWidth('A');
-        characterTileWidth = charWidth;
-        characterTileHeight = charHeight;
-        int panelWidth = width * charWidth;
-        int panelHeight = height * charHeight;
-        setSize(panelWidth, panelHeight);
+    /**
+     * Registers this console with a render engine, or unregisters it. The 
+     * engine paints the frames of all its consoles together and shares the 
+     * rasterizers among the consoles of the same font size. The console must
+     * use the {@link RenderingMode#DIRECT} rendering mode while registered.
+     * 
+     * @param renderEngine the engine to register with, or {@code null} to 
+     *                     paint the frames by this console again.
+     */
+    public synchronized void setRenderEngine(RenderEngine renderEngine) {
+        RenderEngine oldRenderEngine = this.renderEngine;
+        
+        if (oldRenderEngine == renderEngine) {
+            return;
+        }
+        
+        if (renderEngine != null && 
+                renderingMode != RenderingMode.DIRECT) {
+            throw new IllegalStateException(
+                    "A console registered with a render engine must use " +
+                    "the DIRECT rendering mode.");
+        }
+        
+        int fontSize = rasterizer.getFontSize();
+        
+        if (oldRenderEngine != null) {
+            oldRenderEngine.releaseRasterizer(fontSize);
+            oldRenderEngine.consoleUnregistered();
+        }
+        
+        this.renderEngine = renderEngine;
+        
+        if (renderEngine != null) {
+            renderEngine.consoleRegistered();
+            rasterizer = renderEngine.acquireRasterizer(fontSize);
+        } else {
+            rasterizer = new CellRasterizer(fontSize);
+        }
+        
+        renderScheduler.setEngine(renderEngine, repaintTask);
+        renderScheduler.resetPendingFrame();
+        dirtyRegion.markRectangle(0,
+                                  0,
+                                  model.getConsoleWidth(),
+                                  model.getConsoleHeight());
+        requestRepaint();
+    }
+    
+    public void setBoldText(boolean bold) {
+        model.setBoldText(bold);
+    }
+    
+    /**
+     * Sets whether the characters printed from now on blink.
+     * 
+     * @param blinking whether the text blinks.
+     */
+    public void setBlinkingText(boolean blinking) {
+        model.setBlinkingText(blinking);
+    }
+    
+    /**
+     * Sets the size of the font. The console grows or shrinks along with the
+     * tiles, unless it is resized automatically; then the number of tiles
+     * fitting in this component changes instead.
+     * 
+     * @param size the font size.
+     */
+    public void setFontSize(int size) {
+        synchronized (this) {
+            RenderEngine currentRenderEngine = renderEngine;
+            
+            if (currentRenderEngine == null) {
+                rasterizer.setFontSize(size);
+            } else {
+                // Do not resize the rasterizer shared with other consoles:
+                int oldSize = rasterizer.getFontSize();
+                rasterizer = currentRenderEngine.acquireRasterizer(size);
+                currentRenderEngine.releaseRasterizer(oldSize);
+            }
+        }
+        
+        if (autoResize && getWidth() > 0 && getHeight() > 0) {
+            fitConsoleSize();
+            revalidate();
+        } else {
+            setSize(getSize());
+        }
+        
+        model.markDirtyRectangle(0,
+                                 0,
+                                 model.getConsoleWidth(),
+                                 model.getConsoleHeight());
     }
     
     /**
@@ -329,7 +888,7 @@ public final class ColorfulConsole extends JPanel {
      * @return the current console cursor position.
      */
     public Point getConsoleCursorPosition() {
-        return new Point(cursorX.get(), cursorY.get());
+        return model.getConsoleCursorPosition();
     }
     
     /**
@@ -339,167 +898,209 @@ public final class ColorfulConsole extends JPanel {
      * @param y the y-coordinate of the cursor.
      */
     public void setConsoleCursorPosition(int x, int y) {
-        checkX(x);
-        checkY(y);
-        repaintRequestQueue.add(new Point(cursorX.get(), cursorY.get()));
-        repaint();
-        cursorX.set(x);
-        cursorY.set(y);
+        model.setConsoleCursorPosition(x, y);
     }
     
     @Override
-    public void paintComponent(Graphics g) {
-        if (recalculatePanelDimension) {
-            recalculatePanelDimension = false;
-            updateConsoleSize(g);
-        }
-        
-        if (initializeGraphics) {
-            initializeGraphics = false;
-            g.clearRect(0, 
-                        0, 
-                        characterTileWidth * width,
-                        characterTileHeight * height);
-        } else {
-            while (!repaintRequestQueue.isEmpty()) {
-                Point point = repaintRequestQueue.poll();
-                
-                if (point != null) {
-                    int x = point.x;
-                    int y = point.y;
-                    CharacterTile tile = characterTiles[y][x];
-                    Font tileFont = new Font(Font.MONOSPACED,
-                                             Font.BOLD,//tile.boldFont ? Font.BOLD : Font.PLAIN,
-                                             font.getSize());
-
-                    // Draw the background:
-                    g.setColor(tile.isBlinking ? 
-                               tile.foregroundColor :
-                               tile.backgroundColor);
-                    g.fillRect(x * characterTileWidth,
-                               y * characterTileHeight,
-                               characterTileWidth,
-                               characterTileHeight);
-                    // Draw the foreground:
-                    g.setColor(tile.isBlinking ? 
-                               tile.backgroundColor :
-                               tile.foregroundColor);
-                    characterArray[0] = tile.character;
-                    g.setFont(tileFont);
-                    g.drawChars(characterArray, 
-                                0, 
-                                1, 
-                                x * characterTileWidth,
-                                y * characterTileHeight + 11);
-                    
-                }
-            }
-        }
+    public void addNotify() {
+        super.addNotify();
+        BlinkScheduler.getInstance().register(this);
+        metrics.registerMBean();
     }
     
     @Override
-    public void setForeground(Color foregroundColor) {
-        if (foregroundColor != null) {
-            super.setForeground(foregroundColor);
-            repaint();
-        }
+    public void removeNotify() {
+        BlinkScheduler.getInstance().unregister(this);
+        metrics.unregisterMBean();
+        model.setBlinkPhaseOn(false);
+        super.removeNotify();
     }
     
-    @Override
-    public void setBackground(Color backgroundColor) {
-        if (backgroundColor != null) {
-            super.setBackground(backgroundColor);
-            repaint();
+    /**
+     * Advances the blink by one phase. Called by the {@link BlinkScheduler} 
+     * on the event dispatch thread. The blink pauses in its "off" phase while
+     * the console is not showing or does not have the keyboard focus; the 
+     * focus counts as well when it is owned by an enclosing component, such 
+     * as a panel listening to the keys on behalf of the console.
+     */
+    void blinkTick() {
+        boolean blinkPhaseOn = model.isBlinkPhaseOn();
+        boolean phase = !blinkPhaseOn && isShowing() && isFocusedWithin();
+        
+        if (phase == blinkPhaseOn) {
+            // Paused and already painted in the "off" phase.
+            return;
         }
+        
+        metrics.blinkTicked();
+        model.setBlinkPhaseOn(phase);
     }
     
-    /**
-     * Populates the character tile matrix with default values.
-     */
-    private void populateCharacterTiles() {
-        for (int y = 0; y < height; y++) {
-            for (int x = 0; x < width; x++) {
-                CharacterTile characterTile = new CharacterTile();
-                characterTile.foregroundColor = getForeground();
-                characterTile.backgroundColor = getBackground();
-                characterTile.character = ' ';
-                // Font boldness and blinking is set to 'false' by the VM.
-                characterTiles[y][x] = characterTile;
+    @Override
+    public void paintComponent(Graphics g) {
+        long startNanos = System.nanoTime();
+        // The cells of a committed frame are not recycled while painted:
+        CellBuffer cells = model.acquireFrontCellBuffer();
+        
+        try {
+            int width = cells.getWidth();
+            int height = cells.getHeight();
+            int tileWidth = rasterizer.getTileWidth();
+            int tileHeight = rasterizer.getTileHeight();
+            clipBounds.setBounds(0, 0, 0, 0);
+            g.getClipBounds(clipBounds);
+            
+            if (clipBounds.isEmpty()) {
+                clipBounds.setBounds(0,
+                                     0,
+                                     width * tileWidth,
+                                     height * tileHeight);
             }
+            
+            int minX = Math.max(0, clipBounds.x / tileWidth);
+            int minY = Math.max(0, clipBounds.y / tileHeight);
+            int maxX = Math.min(width - 1,
+                                (clipBounds.x + clipBounds.width - 1) / 
+                                        tileWidth);
+            int maxY = Math.min(height - 1,
+                                (clipBounds.y + clipBounds.height - 1) / 
+                                        tileHeight);
+            int tiles = minX <= maxX && minY <= maxY ? 
+                        (maxX - minX + 1) * (maxY - minY + 1) :
+                        0;
+            
+            paintMargins(g, width * tileWidth, height * tileHeight);
+            
+            if (renderingMode == RenderingMode.BACK_BUFFER) {
+                BufferedImage image = backBuffer;
+                
+                if (image != null) {
+                    g.drawImage(image, 0, 0, null);
+                }
+            } else if (tiles > 0) {
+                // Repaint every tile intersecting the clip so that exposed
+                // areas are restored as well as the damaged ones:
+                rasterizer.paintCells(g, 
+                                      cells, 
+                                      minX, 
+                                      minY, 
+                                      maxX - minX + 1, 
+                                      maxY - minY + 1,
+                                      model.cursorIndex(),
+                                      model.isBlinkPhaseOn());
+            }
+            
+            metrics.painted(startNanos, tiles);
+        } finally {
+            model.releaseFrontCellBuffer();
         }
     }
     
     /**
-     * Checks the validity of the given <code>x</code>-coordinate. Returns 
-     * silently upon success.
+     * Clears the parts of this component not covered by the tiles, which
+     * appear when the component is larger than the console.
      * 
-     * @param x the <code>x</code>-coordinate to check.
-     * @throws IndexOutOfBoundsException if the check failed.
+     * @param g          the graphics context.
+     * @param gridWidth  the width of the tiles in pixels.
+     * @param gridHeight the height of the tiles in pixels.
      */
-    private void checkX(int x) {
-        if (x < 0) {
-            throw new IndexOutOfBoundsException(
-                    "The x-coordinate is negative: " + x + ".");
-        }
+    private void paintMargins(Graphics g, int gridWidth, int gridHeight) {
+        int componentWidth = getWidth();
+        int componentHeight = getHeight();
         
-        if (x >= width) {
-            throw new IndexOutOfBoundsException(
-                    "The x-coordinate is too large: " + x + ". Must be at " +
-                    "most " + (width - 1) + ".");
+        if (componentWidth <= gridWidth && componentHeight <= gridHeight) {
+            return;
         }
+        
+        g.setColor(model.getBackground());
+        g.fillRect(gridWidth, 0, componentWidth - gridWidth, componentHeight);
+        g.fillRect(0, gridHeight, gridWidth, componentHeight - gridHeight);
+    }
+    
+    /**
+     * Resizes the console to the number of tiles fitting in this component.
+     * Does nothing if the number does not change.
+     */
+    private void fitConsoleSize() {
+        model.setConsoleSize(
+                Math.max(1, getWidth() / rasterizer.getTileWidth()),
+                Math.max(1, getHeight() / rasterizer.getTileHeight()));
     }
     
     /**
-     * Checks the validity of the given <code>y</code>-coordinate. Returns 
-     * silently upon success.
+     * Requests a repaint of the pixels covered by a rectangle of tiles.
      * 
-     * @param y the <code>y</code>-coordinate to check.
-     * @throws IndexOutOfBoundsException if the check failed.
+     * @param x      the leftmost column of the rectangle.
+     * @param y      the topmost row of the rectangle.
+     * @param width  the width of the rectangle in tiles.
+     * @param height the height of the rectangle in tiles.
      */
-    private void checkY(int y) {
-        if (y < 0) {
-            throw new IndexOutOfBoundsException(
-                    "The y-coordinate is negative: " + y + ".");
-        }
-        
-        if (y >= height) {
-            throw new IndexOutOfBoundsException(
-                    "The y-coordinate is too large: " + y + ". Must be at " +
-                    "most " + (height - 1) + ".");
-        }
+    private void repaintTiles(int x, int y, int width, int height) {
+        int tileWidth = rasterizer.getTileWidth();
+        int tileHeight = rasterizer.getTileHeight();
+        repaint(x * tileWidth, 
+                y * tileHeight, 
+                width * tileWidth, 
+                height * tileHeight);
     }
     
     /**
-     * Checks the requested width.
+     * Checks whether this console or one of its ancestors owns the keyboard
+     * focus.
      * 
-     * @param width the requested width.
-     * @return the requested width upon success.
-     * @throws IllegalArgumentException if the requested width is invalid.
+     * @return {@code true} if the console is focused.
      */
-    private int checkWidth(int width) {
-        if (width < MINIMUM_WIDTH) {
-            throw new IllegalArgumentException(
-                    "The console width is too small (" + width + "). Must be " +
-                    "at least " + MINIMUM_WIDTH + ".");
-        }
+    private boolean isFocusedWithin() {
+        Component focusOwner = KeyboardFocusManager
+                .getCurrentKeyboardFocusManager()
+                .getFocusOwner();
         
-        return width;
+        return focusOwner != null 
+                && SwingUtilities.isDescendingFrom(this, focusOwner);
     }
     
     /**
-     * Checks the requested height.
-     * 
-     * @param height the requested height.
-     * @return the requested height upon success.
-     * @throws IllegalArgumentException if the requested height is invalid.
+     * Requests a frame painting all the damage accumulated so far.
      */
-    private int checkHeight(int height) {
-        if (height < MINIMUM_HEIGHT) {
-            throw new IllegalArgumentException(
-                    "The console height is too small (" + height + "). Must " +
-                    "be at least " + MINIMUM_HEIGHT + ".");
+    private void requestRepaint() {
+        metrics.damageMarked();
+        renderScheduler.requestFrame();
+    }
+    
+    @Override
+    public void setForeground(Color foregroundColor) {
+        if (foregroundColor != null) {
+            // Only affects the tiles printed from now on, so nothing needs 
+            // repainting. The model is null while the superclass constructor
+            // installs the look and feel colors.
+            super.setForeground(foregroundColor);
+            
+            if (model != null) {
+                model.setForeground(foregroundColor);
+            }
         }
-        
-        return height;
+    }
+    
+    @Override
+    public Color getForeground() {
+        return model != null ? model.getForeground() : super.getForeground();
+    }
+    
+    @Override
+    public void setBackground(Color backgroundColor) {
+        if (backgroundColor != null) {
+            // Only affects the tiles printed from now on, so nothing needs 
+            // repainting.
+            super.setBackground(backgroundColor);
+            
+            if (model != null) {
+                model.setBackground(backgroundColor);
+            }
+        }
+    }
+    
+    @Override
+    public Color getBackground() {
+        return model != null ? model.getBackground() : super.getBackground();
     }
 }
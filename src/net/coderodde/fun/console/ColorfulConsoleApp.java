@@ -3,6 +3,7 @@ package net.coderodde.fun.console;
 import java.awt.BorderLayout;
 import java.awt.Color;
 import java.awt.GridLayout;
+import java.awt.Point;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import javax.swing.JButton;
@@ -97,17 +98,77 @@ public final class ColorfulConsoleApp extends JFrame {
         mainPanel.setFocusable(true);
         mainPanel.addKeyListener(new ColorfulConsoleKeyListener(console));
         mainPanel.requestFocus();
+        startInputThread();
         
         getContentPane().add(mainPanel);
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         setLocationRelativeTo(null);
         pack();
-        setResizable(false);
+        // Resizing the frame changes the number of tiles from now on:
+        console.setAutoResize(true);
         setVisible(true);
         
         
     }
     
+    /**
+     * Starts a thread reading the keys typed into the console: the cursor 
+     * keys move the cursor and the other keys are printed at it.
+     */
+    private void startInputThread() {
+        final ConsoleInput input = console.getInput();
+        input.setEcho(false);
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    int character;
+                    
+                    while ((character = input.readChar()) 
+                            != ConsoleInput.END_OF_INPUT) {
+                        if (character == '\u001b' 
+                                && input.readChar() == '[') {
+                            moveCursor(input.readChar());
+                        } else if (character >= ' ' || character == '\n') {
+                            console.print((char) character);
+                        }
+                    }
+                } catch (InterruptedException ex) {
+                    // Exiting.
+                }
+            }
+        }, "ColorfulConsoleApp input");
+        
+        thread.setDaemon(true);
+        thread.start();
+    }
+    
+    private void moveCursor(int direction) {
+        Point cursor = console.getConsoleCursorPosition();
+        
+        switch (direction) {
+            case 'A':
+                cursor.y = Math.max(0, cursor.y - 1);
+                break;
+                
+            case 'B':
+                cursor.y = Math.min(console.getConsoleHeight() - 1, 
+                                    cursor.y + 1);
+                break;
+                
+            case 'C':
+                cursor.x = Math.min(console.getConsoleWidth() - 1, 
+                                    cursor.x + 1);
+                break;
+                
+            case 'D':
+                cursor.x = Math.max(0, cursor.x - 1);
+                break;
+        }
+        
+        console.setConsoleCursorPosition(cursor.x, cursor.y);
+    }
+    
     public static void main(String[] args) {
         new ColorfulConsoleApp();
     }
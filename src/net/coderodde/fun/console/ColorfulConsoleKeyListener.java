@@ -1,69 +1,56 @@
 package net.coderodde.fun.console;
 
-import java.awt.Point;
 import java.awt.event.KeyEvent;
 import java.awt.event.KeyListener;
 import java.util.Objects;
 
 /**
- * Implements a keyboard listener.
+ * Implements a keyboard listener feeding the typed keys into the 
+ * {@link ConsoleInput} of a console. The listener only buffers the keys, so 
+ * the event dispatch thread never waits for the program reading them. The 
+ * cursor keys are buffered as the ANSI sequences <code>ESC [ A</code> (up) to
+ * <code>ESC [ D</code> (left).
  * 
  * @author Rodion "rodde" Efremov
  * @version 1.6 (Feb 3, 2018)
  */
 public final class ColorfulConsoleKeyListener implements KeyListener {
 
-    private final ColorfulConsole console;
+    private final ConsoleInput input;
     
     public ColorfulConsoleKeyListener(ColorfulConsole console) {
-        this.console = 
-                Objects.requireNonNull(console, "The input console is null.");
+        this.input = 
+                Objects.requireNonNull(console, "The input console is null.")
+                       .getInput();
     }
     
     @Override
-    public void keyTyped(KeyEvent e) {}
+    public void keyTyped(KeyEvent e) {
+        char character = e.getKeyChar();
+        
+        if (character != KeyEvent.CHAR_UNDEFINED) {
+            input.offer(character);
+        }
+    }
 
     @Override
     public void keyPressed(KeyEvent e) {
         switch (e.getKeyCode()) {
             case KeyEvent.VK_UP:
-                Point cursor = console.getConsoleCursorPosition();
-                
-                if (cursor.y > 0) {
-                    console.setConsoleCursorPosition(cursor.x, cursor.y - 1);
-                }
-                
+                input.offer("\u001b[A");
                 break;
                 
             case KeyEvent.VK_DOWN:
-                cursor = console.getConsoleCursorPosition();
-                
-                if (cursor.y < console.getConsoleHeight() - 1) {
-                    console.setConsoleCursorPosition(cursor.x, cursor.y + 1);
-                }
-                
-                break;
-                
-            case KeyEvent.VK_LEFT:
-                cursor = console.getConsoleCursorPosition();
-                
-                if (cursor.x > 0) {
-                    console.setConsoleCursorPosition(cursor.x - 1, cursor.y);
-                }
-                
+                input.offer("\u001b[B");
                 break;
                 
             case KeyEvent.VK_RIGHT:
-                cursor = console.getConsoleCursorPosition();
-                
-                if (cursor.x < console.getConsoleWidth() - 1) {
-                    console.setConsoleCursorPosition(cursor.x + 1, cursor.y);
-                }
-                
+                input.offer("\u001b[C");
                 break;
                 
-            default:
-                console.print(e.getKeyChar());
+            case KeyEvent.VK_LEFT:
+                input.offer("\u001b[D");
+                break;
         }
     }
 
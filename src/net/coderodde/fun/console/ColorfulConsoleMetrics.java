@@ -0,0 +1,501 @@
+package net.coderodde.fun.console;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * This class collects the runtime metrics of a console: the print rate, the
+ * writes suppressed as changing nothing, the repaint backlog, the tiles
+ * painted per paint, the paint latency, the time from a print to the pixels
+ * on screen and the blink ticks. The counters are
+ * striped, so the print path of the model only adds to a {@link LongAdder}
+ * and never locks.
+ * <p>
+ * The metrics are published as a JMX MBean while the console is displayable
+ * and may be read at any time through {@link #snapshot()}.
+ * 
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 17, 2026)
+ */
+public final class ColorfulConsoleMetrics
+        implements ColorfulConsoleMetricsMBean {
+    
+    /**
+     * The JMX domain of the console MBeans.
+     */
+    public static final String JMX_DOMAIN = "net.coderodde.fun.console";
+    
+    /**
+     * Numbers the MBeans of the consoles.
+     */
+    private static final AtomicInteger MBEAN_ID = new AtomicInteger();
+    
+    /**
+     * The number of paint calls.
+     */
+    private final LongAdder paintCount = new LongAdder();
+    
+    /**
+     * The number of tiles covered by the paint calls.
+     */
+    private final LongAdder tilesPainted = new LongAdder();
+    
+    /**
+     * The number of blink ticks.
+     */
+    private final LongAdder blinkTicks = new LongAdder();
+    
+    /**
+     * The durations of the paint calls.
+     */
+    private final LatencyHistogram paintLatency = new LatencyHistogram();
+    
+    /**
+     * The times from a change of the cells to the paint showing it.
+     */
+    private final LatencyHistogram printToPixels = new LatencyHistogram();
+    
+    /**
+     * The time of the oldest change not handed over to a painter, or 0.
+     */
+    private final AtomicLong firstDamageNanos = new AtomicLong();
+    
+    /**
+     * The time of the oldest change handed over to a painter but not yet on
+     * screen, or 0.
+     */
+    private final AtomicLong drainedDamageNanos = new AtomicLong();
+    
+    /**
+     * The model of the console.
+     */
+    private final ConsoleModel model;
+    
+    /**
+     * The dirty region of the console.
+     */
+    private final DirtyRegion dirtyRegion;
+    
+    /**
+     * The render scheduler of the console.
+     */
+    private final RenderScheduler renderScheduler;
+    
+    /**
+     * The name of the registered MBean, or {@code null}.
+     */
+    private ObjectName objectName;
+    
+    /**
+     * The number of characters printed at the previous rate query.
+     */
+    private long rateCharacters;
+    
+    /**
+     * The time of the previous rate query.
+     */
+    private long rateNanos = System.nanoTime();
+    
+    /**
+     * This class holds the values of the metrics at a point in time.
+     */
+    public static final class Snapshot {
+        
+        /**
+         * The time at which the snapshot was taken.
+         */
+        private final long timeNanos;
+        
+        /**
+         * The number of characters printed.
+         */
+        private final long charactersPrinted;
+        
+        /**
+         * The number of cell writes that changed nothing.
+         */
+        private final long suppressedWrites;
+        
+        /**
+         * The number of damaged tiles waiting to be painted.
+         */
+        private final int repaintBacklogTiles;
+        
+        /**
+         * The number of paint calls.
+         */
+        private final long paintCount;
+        
+        /**
+         * The number of tiles covered by the paint calls.
+         */
+        private final long tilesPainted;
+        
+        /**
+         * The number of blink ticks.
+         */
+        private final long blinkTicks;
+        
+        /**
+         * The number of frames rendered.
+         */
+        private final long framesRendered;
+        
+        /**
+         * The number of frame requests merged into pending frames.
+         */
+        private final long framesSkipped;
+        
+        /**
+         * The bucket counts of the paint latency histogram.
+         */
+        private final long[] paintLatencyCounts;
+        
+        /**
+         * The bucket counts of the print-to-pixels histogram.
+         */
+        private final long[] printToPixelsCounts;
+        
+        Snapshot(ColorfulConsoleMetrics metrics) {
+            this.timeNanos = System.nanoTime();
+            this.charactersPrinted = metrics.model.getCharactersPrinted();
+            this.suppressedWrites = metrics.model.getSuppressedWrites();
+            this.repaintBacklogTiles = metrics.dirtyRegion.countDirtyCells();
+            this.paintCount = metrics.paintCount.sum();
+            this.tilesPainted = metrics.tilesPainted.sum();
+            this.blinkTicks = metrics.blinkTicks.sum();
+            this.framesRendered = metrics.renderScheduler.getFramesRendered();
+            this.framesSkipped = metrics.renderScheduler.getFramesSkipped();
+            this.paintLatencyCounts = metrics.paintLatency.getCounts();
+            this.printToPixelsCounts = metrics.printToPixels.getCounts();
+        }
+        
+        /**
+         * Returns the value of {@link System#nanoTime()} when this snapshot
+         * was taken.
+         * 
+         * @return the time of this snapshot.
+         */
+        public long getTimeNanos() {
+            return timeNanos;
+        }
+        
+        public long getCharactersPrinted() {
+            return charactersPrinted;
+        }
+        
+        /**
+         * Returns the print rate between an earlier snapshot and this one.
+         * 
+         * @param earlier the earlier snapshot.
+         * @return the number of characters printed per second.
+         */
+        public double getCharactersPrintedPerSecond(Snapshot earlier) {
+            return ratePerSecond(charactersPrinted - earlier.charactersPrinted,
+                                 timeNanos - earlier.timeNanos);
+        }
+        
+        public long getSuppressedWrites() {
+            return suppressedWrites;
+        }
+        
+        public int getRepaintBacklogTiles() {
+            return repaintBacklogTiles;
+        }
+        
+        public long getPaintCount() {
+            return paintCount;
+        }
+        
+        public long getTilesPainted() {
+            return tilesPainted;
+        }
+        
+        public double getMeanTilesPerPaint() {
+            return paintCount == 0L ? 0.0 : (double) tilesPainted / paintCount;
+        }
+        
+        public long getBlinkTicks() {
+            return blinkTicks;
+        }
+        
+        public long getFramesRendered() {
+            return framesRendered;
+        }
+        
+        public long getFramesSkipped() {
+            return framesSkipped;
+        }
+        
+        public long[] getPaintLatencyCounts() {
+            return paintLatencyCounts.clone();
+        }
+        
+        public long[] getPrintToPixelsCounts() {
+            return printToPixelsCounts.clone();
+        }
+        
+        /**
+         * Estimates a percentile of the paint latency.
+         * 
+         * @param percentile the percentile within <code>[0, 100]</code>.
+         * @return the latency in nanoseconds.
+         */
+        public long getPaintLatencyPercentile(double percentile) {
+            return LatencyHistogram.percentile(paintLatencyCounts, percentile);
+        }
+        
+        /**
+         * Estimates a percentile of the time from a print to the pixels.
+         * 
+         * @param percentile the percentile within <code>[0, 100]</code>.
+         * @return the latency in nanoseconds.
+         */
+        public long getPrintToPixelsPercentile(double percentile) {
+            return LatencyHistogram.percentile(printToPixelsCounts,
+                                               percentile);
+        }
+    }
+    
+    ColorfulConsoleMetrics(ConsoleModel model,
+                           RenderScheduler renderScheduler) {
+        this.model = model;
+        this.dirtyRegion = model.getDirtyRegion();
+        this.renderScheduler = renderScheduler;
+    }
+    
+    /**
+     * Takes a snapshot of the metrics.
+     * 
+     * @return the snapshot.
+     */
+    public Snapshot snapshot() {
+        return new Snapshot(this);
+    }
+    
+    /**
+     * Registers these metrics with the platform MBean server under a unique
+     * name in the {@link #JMX_DOMAIN} domain. Does nothing if already
+     * registered.
+     * 
+     * @return the name of the MBean.
+     */
+    public synchronized ObjectName registerMBean() {
+        if (objectName != null) {
+            return objectName;
+        }
+        
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        
+        try {
+            ObjectName name = new ObjectName(
+                    JMX_DOMAIN + ":type=ColorfulConsole,id=" +
+                    MBEAN_ID.incrementAndGet());
+            server.registerMBean(this, name);
+            objectName = name;
+            return name;
+        } catch (InstanceAlreadyExistsException ex) {
+            throw new IllegalStateException(
+                    "The console MBean is already registered.", ex);
+        } catch (JMException ex) {
+            throw new IllegalStateException(
+                    "Could not register the console MBean.", ex);
+        }
+    }
+    
+    /**
+     * Unregisters these metrics from the platform MBean server. Does nothing
+     * if not registered.
+     */
+    public synchronized void unregisterMBean() {
+        if (objectName == null) {
+            return;
+        }
+        
+        try {
+            ManagementFactory.getPlatformMBeanServer()
+                             .unregisterMBean(objectName);
+        } catch (InstanceNotFoundException ex) {
+            // Already unregistered by someone else.
+        } catch (JMException ex) {
+            throw new IllegalStateException(
+                    "Could not unregister the console MBean.", ex);
+        } finally {
+            objectName = null;
+        }
+    }
+    
+    @Override
+    public long getCharactersPrinted() {
+        return model.getCharactersPrinted();
+    }
+    
+    @Override
+    public synchronized double getCharactersPrintedPerSecond() {
+        long now = System.nanoTime();
+        long characters = model.getCharactersPrinted();
+        double rate = ratePerSecond(characters - rateCharacters,
+                                    now - rateNanos);
+        rateCharacters = characters;
+        rateNanos = now;
+        return rate;
+    }
+    
+    @Override
+    public long getSuppressedWrites() {
+        return model.getSuppressedWrites();
+    }
+    
+    @Override
+    public int getRepaintBacklogTiles() {
+        return dirtyRegion.countDirtyCells();
+    }
+    
+    @Override
+    public long getPaintCount() {
+        return paintCount.sum();
+    }
+    
+    @Override
+    public long getTilesPainted() {
+        return tilesPainted.sum();
+    }
+    
+    @Override
+    public double getMeanTilesPerPaint() {
+        long paints = paintCount.sum();
+        return paints == 0L ? 0.0 : (double) tilesPainted.sum() / paints;
+    }
+    
+    @Override
+    public long getPaintLatencyMedianMicros() {
+        return toMicros(LatencyHistogram.percentile(paintLatency.getCounts(),
+                                                    50.0));
+    }
+    
+    @Override
+    public long getPaintLatency99thPercentileMicros() {
+        return toMicros(LatencyHistogram.percentile(paintLatency.getCounts(),
+                                                    99.0));
+    }
+    
+    @Override
+    public long[] getPaintLatencyHistogram() {
+        return paintLatency.getCounts();
+    }
+    
+    @Override
+    public long getPrintToPixelsMedianMicros() {
+        return toMicros(LatencyHistogram.percentile(printToPixels.getCounts(),
+                                                    50.0));
+    }
+    
+    @Override
+    public long getPrintToPixels99thPercentileMicros() {
+        return toMicros(LatencyHistogram.percentile(printToPixels.getCounts(),
+                                                    99.0));
+    }
+    
+    @Override
+    public long[] getPrintToPixelsHistogram() {
+        return printToPixels.getCounts();
+    }
+    
+    @Override
+    public long getBlinkTicks() {
+        return blinkTicks.sum();
+    }
+    
+    @Override
+    public long getFramesRendered() {
+        return renderScheduler.getFramesRendered();
+    }
+    
+    @Override
+    public long getFramesSkipped() {
+        return renderScheduler.getFramesSkipped();
+    }
+    
+    @Override
+    public void reset() {
+        model.resetCharactersPrinted();
+        model.resetSuppressedWrites();
+        paintCount.reset();
+        tilesPainted.reset();
+        blinkTicks.reset();
+        paintLatency.reset();
+        printToPixels.reset();
+        
+        synchronized (this) {
+            rateCharacters = 0L;
+            rateNanos = System.nanoTime();
+        }
+    }
+    
+    void blinkTicked() {
+        blinkTicks.increment();
+    }
+    
+    /**
+     * Must be called when clean cells become damaged. Remembers the time of
+     * the oldest change waiting for a frame.
+     */
+    void damageMarked() {
+        if (firstDamageNanos.get() == 0L) {
+            firstDamageNanos.compareAndSet(0L, nonZeroNanoTime());
+        }
+    }
+    
+    /**
+     * Must be called by the painter right before it drains the dirty region.
+     * The changes made so far will be on screen after the next paint.
+     */
+    void damageDrained() {
+        long damageNanos = firstDamageNanos.getAndSet(0L);
+        
+        if (damageNanos != 0L) {
+            drainedDamageNanos.compareAndSet(0L, damageNanos);
+        }
+    }
+    
+    /**
+     * Must be called at the end of each paint call.
+     * 
+     * @param startNanos the time at which the paint started.
+     * @param tiles      the number of tiles covered by the paint.
+     */
+    void painted(long startNanos, int tiles) {
+        long now = System.nanoTime();
+        paintCount.increment();
+        tilesPainted.add(tiles);
+        paintLatency.record(now - startNanos);
+        long damageNanos = drainedDamageNanos.getAndSet(0L);
+        
+        if (damageNanos != 0L) {
+            printToPixels.record(now - damageNanos);
+        }
+    }
+    
+    private static long nonZeroNanoTime() {
+        long now = System.nanoTime();
+        return now == 0L ? 1L : now;
+    }
+    
+    private static double ratePerSecond(long count, long nanos) {
+        return nanos <= 0L
+                ? 0.0
+                : count * (double) TimeUnit.SECONDS.toNanos(1) / nanos;
+    }
+    
+    private static long toMicros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+}
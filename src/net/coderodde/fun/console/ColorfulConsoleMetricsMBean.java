@@ -0,0 +1,72 @@
+package net.coderodde.fun.console;
+
+/**
+ * The management interface of {@link ColorfulConsoleMetrics}. The latencies
+ * are reported in microseconds.
+ * 
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 17, 2026)
+ */
+public interface ColorfulConsoleMetricsMBean {
+
+    long getCharactersPrinted();
+    
+    /**
+     * Returns the print rate since the previous call of this method.
+     * 
+     * @return the number of characters printed per second.
+     */
+    double getCharactersPrintedPerSecond();
+    
+    /**
+     * Returns the number of cell writes that changed nothing and therefore
+     * caused no repaint.
+     * 
+     * @return the number of suppressed writes.
+     */
+    long getSuppressedWrites();
+    
+    /**
+     * Returns the number of damaged tiles waiting to be painted.
+     * 
+     * @return the repaint backlog in tiles.
+     */
+    int getRepaintBacklogTiles();
+    
+    long getPaintCount();
+    
+    long getTilesPainted();
+    
+    double getMeanTilesPerPaint();
+    
+    long getPaintLatencyMedianMicros();
+    
+    long getPaintLatency99thPercentileMicros();
+    
+    /**
+     * Returns the counts of the paint latency histogram. The bucket
+     * <code>i</code> counts the latencies of <code>[2^i, 2^(i + 1))</code>
+     * nanoseconds.
+     * 
+     * @return the bucket counts.
+     */
+    long[] getPaintLatencyHistogram();
+    
+    long getPrintToPixelsMedianMicros();
+    
+    long getPrintToPixels99thPercentileMicros();
+    
+    long[] getPrintToPixelsHistogram();
+    
+    long getBlinkTicks();
+    
+    long getFramesRendered();
+    
+    long getFramesSkipped();
+    
+    /**
+     * Zeroes the counters and the histograms. The frame counters of the
+     * render scheduler are left intact.
+     */
+    void reset();
+}
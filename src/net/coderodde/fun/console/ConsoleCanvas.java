@@ -0,0 +1,611 @@
+package net.coderodde.fun.console;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.Rectangle;
+import java.util.Objects;
+import javax.swing.JComponent;
+import javax.swing.Scrollable;
+import javax.swing.SwingConstants;
+import javax.swing.SwingUtilities;
+
+/**
+ * This class implements a very large character canvas meant to be viewed
+ * through a {@link javax.swing.JScrollPane}, such as a world map or a heat
+ * map of tens of thousands of cells in each direction. Unlike a
+ * {@link ColorfulConsole}, a canvas has no cursor, no scrolling of its own
+ * and no scrollback; the program writes characters at coordinates.
+ * <p>
+ * The cells live in a {@link ChunkedCellBuffer}, so only the chunks written
+ * to take memory. Painting visits the cells inside the clip only and paints
+ * the untouched chunks as plain background. The writes into cells outside
+ * the visible part of the canvas neither mark any damage nor schedule a
+ * frame; they show up when scrolled into view. The writes into visible cells
+ * are collected and painted in frames like those of a console.
+ * 
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 17, 2026)
+ */
+public final class ConsoleCanvas extends JComponent implements Scrollable {
+
+    /**
+     * The serialization version of this class.
+     */
+    private static final long serialVersionUID = 1L;
+    
+    /**
+     * The default foreground color.
+     */
+    private static final Color DEFAULT_FOREGROUND_COLOR = Color.WHITE;
+    
+    /**
+     * The default background color.
+     */
+    private static final Color DEFAULT_BACKGROUND_COLOR = Color.BLACK;
+    
+    private static final int DEFAULT_FONT_SIZE = 12;
+    
+    /**
+     * The number of columns of the preferred viewport.
+     */
+    private static final int VIEWPORT_COLUMNS = 80;
+    
+    /**
+     * The number of rows of the preferred viewport.
+     */
+    private static final int VIEWPORT_ROWS = 24;
+    
+    /**
+     * The cells of this canvas.
+     */
+    private final ChunkedCellBuffer cells;
+    
+    /**
+     * The color of the untouched cells.
+     */
+    private final Color blankBackground;
+    
+    /**
+     * Rasterizes the character tiles.
+     */
+    private final CellRasterizer rasterizer =
+            new CellRasterizer(DEFAULT_FONT_SIZE);
+    
+    /**
+     * Tracks the visible cells that need to be repainted.
+     */
+    private final DirtyRegion dirtyRegion;
+    
+    /**
+     * The cells visible at the last paint. Replaced as a whole, never
+     * modified.
+     */
+    private volatile Rectangle visibleCells = new Rectangle();
+    
+    /**
+     * The bounds of the clip during a paint.
+     */
+    private final Rectangle clipBounds = new Rectangle();
+    
+    /**
+     * The number of tiles repainted in the current frame.
+     */
+    private int frameTileCount;
+    
+    /**
+     * Requests a repaint of each rectangle of damaged tiles.
+     */
+    private final DirtyRegion.RectangleVisitor repaintVisitor =
+            new DirtyRegion.RectangleVisitor() {
+        
+        @Override
+        public void visit(int x, int y, int width, int height) {
+            int tileWidth = rasterizer.getTileWidth();
+            int tileHeight = rasterizer.getTileHeight();
+            frameTileCount += width * height;
+            repaint(x * tileWidth,
+                    y * tileHeight,
+                    width * tileWidth,
+                    height * tileHeight);
+        }
+    };
+    
+    /**
+     * Drains the dirty region on the event dispatch thread.
+     */
+    private final Runnable repaintTask = new Runnable() {
+        
+        @Override
+        public void run() {
+            renderScheduler.frameStarted();
+            frameTileCount = 0;
+            dirtyRegion.drain(repaintVisitor);
+            renderScheduler.frameRendered(frameTileCount);
+        }
+    };
+    
+    /**
+     * Decides when the frames are painted.
+     */
+    private final RenderScheduler renderScheduler =
+            new RenderScheduler(new Runnable() {
+        
+        @Override
+        public void run() {
+            SwingUtilities.invokeLater(repaintTask);
+        }
+    });
+    
+    /**
+     * Constructs a canvas of blank cells in the default colors.
+     * 
+     * @param width  the width of the canvas in cells.
+     * @param height the height of the canvas in cells.
+     */
+    public ConsoleCanvas(int width, int height) {
+        this(width, height, DEFAULT_FOREGROUND_COLOR, DEFAULT_BACKGROUND_COLOR);
+    }
+    
+    /**
+     * Constructs a canvas of blank cells.
+     * 
+     * @param width      the width of the canvas in cells.
+     * @param height     the height of the canvas in cells.
+     * @param foreground the foreground color of the untouched cells.
+     * @param background the background color of the untouched cells.
+     */
+    public ConsoleCanvas(int width,
+                         int height,
+                         Color foreground,
+                         Color background) {
+        if (width < 1 || height < 1) {
+            throw new IllegalArgumentException(
+                    "The canvas size " + width + " x " + height + " is " +
+                    "empty.");
+        }
+        
+        this.blankBackground = checkColor(background);
+        this.cells = new ChunkedCellBuffer(width,
+                                           height,
+                                           checkColor(foreground).getRGB(),
+                                           background.getRGB());
+        this.dirtyRegion = new DirtyRegion(height);
+        setOpaque(true);
+    }
+    
+    /**
+     * Returns the width of the canvas in characters.
+     * 
+     * @return the width of the canvas in characters.
+     */
+    public int getCanvasWidth() {
+        return cells.getWidth();
+    }
+    
+    /**
+     * Returns the height of the canvas in characters.
+     * 
+     * @return the height of the canvas in characters.
+     */
+    public int getCanvasHeight() {
+        return cells.getHeight();
+    }
+    
+    /**
+     * Returns the number of chunks of {@value ChunkedCellBuffer#CHUNK_SIZE}
+     * x {@value ChunkedCellBuffer#CHUNK_SIZE} cells allocated so far. Only
+     * the chunks written to are allocated.
+     * 
+     * @return the number of allocated chunks.
+     */
+    public int getAllocatedChunkCount() {
+        return cells.getAllocatedChunkCount();
+    }
+    
+    /**
+     * Returns the scheduler deciding when the frames are painted.
+     * 
+     * @return the render scheduler.
+     */
+    public RenderScheduler getRenderScheduler() {
+        return renderScheduler;
+    }
+    
+    /**
+     * Returns the code point of a cell.
+     * 
+     * @param x the <code>x</code>-coordinate of the cell.
+     * @param y the <code>y</code>-coordinate of the cell.
+     * @return the code point of the cell.
+     */
+    public int getCodePoint(int x, int y) {
+        checkRectangle(x, y, 1, 1);
+        return cells.getCodePoint(x, y);
+    }
+    
+    /**
+     * Writes a single cell.
+     * 
+     * @param x          the <code>x</code>-coordinate of the cell.
+     * @param y          the <code>y</code>-coordinate of the cell.
+     * @param character  the character to write.
+     * @param foreground the foreground color.
+     * @param background the background color.
+     */
+    public void setCell(int x,
+                        int y,
+                        char character,
+                        Color foreground,
+                        Color background) {
+        checkRectangle(x, y, 1, 1);
+        cells.setCell(x,
+                      y,
+                      character,
+                      checkColor(foreground).getRGB(),
+                      checkColor(background).getRGB(),
+                      (byte) 0);
+        markChanged(x, y, 1, 1);
+    }
+    
+    /**
+     * Writes a run of text starting at the cell <code>(x, y)</code>. The run
+     * is clipped at the right border of the canvas. The double-width
+     * characters take two cells, and the combining marks are composed into
+     * the character before them if possible.
+     * 
+     * @param x          the <code>x</code>-coordinate of the first cell.
+     * @param y          the <code>y</code>-coordinate of the first cell.
+     * @param text       the text to write.
+     * @param foreground the foreground color of the run.
+     * @param background the background color of the run.
+     * @param bold       whether the run is bold.
+     */
+    public void write(int x,
+                      int y,
+                      String text,
+                      Color foreground,
+                      Color background,
+                      boolean bold) {
+        checkRectangle(x, y, 1, 1);
+        int foregroundColor = checkColor(foreground).getRGB();
+        int backgroundColor = checkColor(background).getRGB();
+        byte attributes = bold ? CellBuffer.ATTRIBUTE_BOLD : 0;
+        int width = cells.getWidth();
+        int length = text.length();
+        int column = x;
+        
+        for (int i = 0; i < length && column < width; i++) {
+            int codePoint = text.charAt(i);
+            int cellWidth = 1;
+            
+            if (codePoint >= 0x80) {
+                codePoint = CharacterWidth.codePointAt(text, i, length);
+                i += Character.charCount(codePoint) - 1;
+                cellWidth = CharacterWidth.getWidth(codePoint);
+                
+                if (cellWidth == 0) {
+                    if (column > x) {
+                        combineMark(x, column, y, codePoint);
+                    }
+                    
+                    continue;
+                }
+                
+                if (cellWidth == 2 && column == width - 1) {
+                    break;
+                }
+            }
+            
+            cells.setCell(column++,
+                          y,
+                          codePoint,
+                          foregroundColor,
+                          backgroundColor,
+                          attributes);
+            
+            if (cellWidth == 2) {
+                cells.setCell(column++,
+                              y,
+                              CellBuffer.WIDE_TAIL,
+                              foregroundColor,
+                              backgroundColor,
+                              attributes);
+            }
+        }
+        
+        if (column == x) {
+            return;
+        }
+        
+        // Blank the halves of the double-width characters cut by the run:
+        int minX = x;
+        int maxX = column - 1;
+        
+        if (x > 0 
+                && CharacterWidth.isWide(cells.getCodePoint(x - 1, y))
+                && cells.getCodePoint(x, y) != CellBuffer.WIDE_TAIL) {
+            cells.setCodePoint(--minX, y, ' ');
+        }
+        
+        if (column < width 
+                && cells.getCodePoint(column, y) == CellBuffer.WIDE_TAIL
+                && !CharacterWidth.isWide(cells.getCodePoint(maxX, y))) {
+            cells.setCodePoint(++maxX, y, ' ');
+        }
+        
+        markChanged(minX, y, maxX - minX + 1, 1);
+    }
+    
+    /**
+     * Fills a rectangle of cells with the same character and colors.
+     * Filling untouched cells with blanks of the default colors allocates
+     * nothing.
+     * 
+     * @param x          the leftmost column of the rectangle.
+     * @param y          the topmost row of the rectangle.
+     * @param width      the width of the rectangle in cells.
+     * @param height     the height of the rectangle in cells.
+     * @param character  the character to fill with.
+     * @param foreground the foreground color.
+     * @param background the background color.
+     */
+    public void fill(int x,
+                     int y,
+                     int width,
+                     int height,
+                     char character,
+                     Color foreground,
+                     Color background) {
+        checkRectangle(x, y, width, height);
+        cells.fill(x,
+                   y,
+                   width,
+                   height,
+                   character,
+                   checkColor(foreground).getRGB(),
+                   checkColor(background).getRGB(),
+                   (byte) 0);
+        markChanged(x, y, width, height);
+    }
+    
+    /**
+     * Sets the size of the font. The canvas grows or shrinks along with the
+     * tiles.
+     * 
+     * @param size the font size.
+     */
+    public void setFontSize(int size) {
+        rasterizer.setFontSize(size);
+        revalidate();
+        repaint();
+    }
+    
+    @Override
+    public Dimension getPreferredSize() {
+        return new Dimension(cells.getWidth() * rasterizer.getTileWidth(),
+                             cells.getHeight() * rasterizer.getTileHeight());
+    }
+    
+    @Override
+    public Dimension getPreferredScrollableViewportSize() {
+        return new Dimension(
+                Math.min(cells.getWidth(), VIEWPORT_COLUMNS) *
+                        rasterizer.getTileWidth(),
+                Math.min(cells.getHeight(), VIEWPORT_ROWS) *
+                        rasterizer.getTileHeight());
+    }
+    
+    @Override
+    public int getScrollableUnitIncrement(Rectangle visibleRect,
+                                         int orientation,
+                                         int direction) {
+        return orientation == SwingConstants.HORIZONTAL ?
+               rasterizer.getTileWidth() :
+               rasterizer.getTileHeight();
+    }
+    
+    @Override
+    public int getScrollableBlockIncrement(Rectangle visibleRect,
+                                          int orientation,
+                                          int direction) {
+        // Keep one row or column of the previous page in view:
+        int tile = getScrollableUnitIncrement(visibleRect,
+                                              orientation,
+                                              direction);
+        int extent = orientation == SwingConstants.HORIZONTAL ?
+                     visibleRect.width :
+                     visibleRect.height;
+        return Math.max(tile, extent - tile);
+    }
+    
+    @Override
+    public boolean getScrollableTracksViewportWidth() {
+        return false;
+    }
+    
+    @Override
+    public boolean getScrollableTracksViewportHeight() {
+        return false;
+    }
+    
+    @Override
+    public void paintComponent(Graphics g) {
+        int tileWidth = rasterizer.getTileWidth();
+        int tileHeight = rasterizer.getTileHeight();
+        Rectangle visibleRect = getVisibleRect();
+        // Published before reading the cells, so that the writes racing
+        // with this paint mark their damage:
+        visibleCells = toCells(visibleRect, tileWidth, tileHeight);
+        clipBounds.setBounds(0, 0, 0, 0);
+        g.getClipBounds(clipBounds);
+        
+        if (clipBounds.isEmpty()) {
+            clipBounds.setBounds(visibleRect);
+        }
+        
+        Rectangle clip = toCells(clipBounds, tileWidth, tileHeight);
+        
+        if (clip.isEmpty()) {
+            return;
+        }
+        
+        int maxX = clip.x + clip.width - 1;
+        int maxY = clip.y + clip.height - 1;
+        int shift = ChunkedCellBuffer.CHUNK_SHIFT;
+        
+        for (int chunkY = clip.y >>> shift; chunkY <= maxY >>> shift;
+                chunkY++) {
+            int originY = chunkY << shift;
+            int top = Math.max(clip.y, originY);
+            int bottom = Math.min(maxY, originY + (1 << shift) - 1);
+            
+            for (int chunkX = clip.x >>> shift; chunkX <= maxX >>> shift;
+                    chunkX++) {
+                int originX = chunkX << shift;
+                int left = Math.max(clip.x, originX);
+                int right = Math.min(maxX, originX + (1 << shift) - 1);
+                CellBuffer chunk = cells.getChunk(chunkX, chunkY);
+                
+                if (chunk == null) {
+                    g.setColor(blankBackground);
+                    g.fillRect(left * tileWidth,
+                               top * tileHeight,
+                               (right - left + 1) * tileWidth,
+                               (bottom - top + 1) * tileHeight);
+                    continue;
+                }
+                
+                g.translate(originX * tileWidth, originY * tileHeight);
+                
+                try {
+                    rasterizer.paintCells(g,
+                                          chunk,
+                                          left - originX,
+                                          top - originY,
+                                          right - left + 1,
+                                          bottom - top + 1,
+                                          -1,
+                                          false);
+                } finally {
+                    g.translate(-originX * tileWidth, -originY * tileHeight);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Composes a combining mark into the last character written by a run,
+     * stepping over the right half of a double-width character.
+     * 
+     * @param startX the first column of the run.
+     * @param column the column past the last character of the run.
+     * @param y      the row of the run.
+     * @param mark   the code point of the combining mark.
+     */
+    private void combineMark(int startX, int column, int y, int mark) {
+        column--;
+        
+        if (column > startX 
+                && cells.getCodePoint(column, y) == CellBuffer.WIDE_TAIL) {
+            column--;
+        }
+        
+        int composed = CharacterWidth.compose(cells.getCodePoint(column, y), 
+                                              mark);
+        
+        if (composed >= 0) {
+            cells.setCodePoint(column, y, composed);
+        }
+    }
+    
+    /**
+     * Marks the visible part of a written rectangle of cells as damaged and
+     * requests a frame if needed. The invisible part is painted when it is
+     * scrolled into view.
+     * 
+     * @param x      the leftmost column of the rectangle.
+     * @param y      the topmost row of the rectangle.
+     * @param width  the width of the rectangle in cells.
+     * @param height the height of the rectangle in cells.
+     */
+    private void markChanged(int x, int y, int width, int height) {
+        Rectangle visible = visibleCells;
+        int left = Math.max(x, visible.x);
+        int top = Math.max(y, visible.y);
+        int right = Math.min(x + width, visible.x + visible.width);
+        int bottom = Math.min(y + height, visible.y + visible.height);
+        
+        if (left < right
+                && top < bottom
+                && dirtyRegion.markRectangle(left,
+                                             top,
+                                             right - left,
+                                             bottom - top)) {
+            renderScheduler.requestFrame();
+        }
+    }
+    
+    /**
+     * Converts a rectangle of pixels into the rectangle of the cells it
+     * touches, clipped to the canvas.
+     * 
+     * @param pixels     the rectangle in pixels.
+     * @param tileWidth  the width of a tile in pixels.
+     * @param tileHeight the height of a tile in pixels.
+     * @return the rectangle of cells.
+     */
+    private Rectangle toCells(Rectangle pixels, int tileWidth, int tileHeight) {
+        if (pixels.isEmpty()) {
+            return new Rectangle();
+        }
+        
+        int minX = Math.max(0, pixels.x / tileWidth);
+        int minY = Math.max(0, pixels.y / tileHeight);
+        int maxX = Math.min(cells.getWidth() - 1,
+                            (pixels.x + pixels.width - 1) / tileWidth);
+        int maxY = Math.min(cells.getHeight() - 1,
+                            (pixels.y + pixels.height - 1) / tileHeight);
+        
+        if (minX > maxX || minY > maxY) {
+            return new Rectangle();
+        }
+        
+        return new Rectangle(minX, minY, maxX - minX + 1, maxY - minY + 1);
+    }
+    
+    /**
+     * Checks that the given rectangle of cells lies within the canvas.
+     * Returns silently upon success.
+     * 
+     * @param x      the leftmost column of the rectangle.
+     * @param y      the topmost row of the rectangle.
+     * @param width  the width of the rectangle in cells.
+     * @param height the height of the rectangle in cells.
+     * @throws IndexOutOfBoundsException if the check failed.
+     */
+    private void checkRectangle(int x, int y, int width, int height) {
+        if (x < 0
+                || y < 0
+                || width < 0
+                || height < 0
+                || x + width > cells.getWidth()
+                || y + height > cells.getHeight()) {
+            throw new IndexOutOfBoundsException(
+                    "The rectangle (" + x + ", " + y + ", " + width + ", " +
+                    height + ") does not fit in the canvas of size " +
+                    cells.getWidth() + " x " + cells.getHeight() + ".");
+        }
+    }
+    
+    /**
+     * Checks that the given color is not {@code null}.
+     * 
+     * @param color the color to check.
+     * @return the color upon success.
+     * @throws NullPointerException if the color is {@code null}.
+     */
+    private static Color checkColor(Color color) {
+        return Objects.requireNonNull(color, "The input color is null.");
+    }
+}
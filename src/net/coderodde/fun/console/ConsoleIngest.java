@@ -0,0 +1,471 @@
+package net.coderodde.fun.console;
+
+import java.awt.Color;
+import java.util.ArrayDeque;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class implements a bounded ingest stage in front of a console. The
+ * writes going through an ingest are applied to the model right away, as the
+ * cells and the dirty region of a console take constant memory however fast
+ * they are written; what an ingest bounds is how far its producers may run
+ * ahead of the screen. Each write holds a permit until a frame carrying it
+ * is presented, and a write finding all the permits taken is handled by the
+ * {@link OverflowPolicy} of the ingest.
+ * <p>
+ * The asynchronous variants of the writes return a future completing once
+ * the write is on the screen. All the writes made between two frames share
+ * the same future. The dependent actions that are not asynchronous run on
+ * the event dispatch thread. A producer joining each future, for example a
+ * virtual thread, writes at the pace of the screen.
+ * 
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 17, 2026)
+ */
+public final class ConsoleIngest implements AutoCloseable {
+
+    /**
+     * The minimum capacity of an ingest.
+     */
+    private static final int MINIMUM_CAPACITY = 1;
+    
+    /**
+     * The writes carried by a frame.
+     */
+    private static final class Frame {
+        
+        /**
+         * Completed once the frame is presented.
+         */
+        final CompletableFuture<Void> presented;
+        
+        /**
+         * The number of permits held by the writes of the frame.
+         */
+        final int permits;
+        
+        Frame(CompletableFuture<Void> presented, int permits) {
+            this.presented = presented;
+            this.permits = permits;
+        }
+    }
+    
+    /**
+     * Stands for a frame carrying no write of this ingest.
+     */
+    private static final Frame IDLE_FRAME = new Frame(null, 0);
+    
+    /**
+     * The model written into.
+     */
+    private final ConsoleModel model;
+    
+    /**
+     * The scheduler of the frames of the console.
+     */
+    private final RenderScheduler renderScheduler;
+    
+    /**
+     * The maximum number of writes not yet on the screen.
+     */
+    private final int capacity;
+    
+    /**
+     * What to do with a write arriving when all the permits are taken.
+     */
+    private final OverflowPolicy policy;
+    
+    /**
+     * The permits of the writes not yet on the screen.
+     */
+    private final Semaphore permits;
+    
+    /**
+     * The number of writes that found all the permits taken.
+     */
+    private final LongAdder overflowCount = new LongAdder();
+    
+    /**
+     * The future of the writes made since the last frame started. Guarded by
+     * the monitor of this ingest.
+     */
+    private CompletableFuture<Void> pendingFuture = new CompletableFuture<>();
+    
+    /**
+     * The number of permits held by the writes made since the last frame
+     * started. Guarded by the monitor of this ingest.
+     */
+    private int pendingPermits;
+    
+    /**
+     * Whether a write was made since the last frame started. Guarded by the
+     * monitor of this ingest.
+     */
+    private boolean pendingWrites;
+    
+    /**
+     * The frames started but not yet presented, the oldest first. Guarded by
+     * the monitor of this ingest.
+     */
+    private final ArrayDeque<Frame> startedFrames = new ArrayDeque<>();
+    
+    /**
+     * Whether this ingest is closed.
+     */
+    private volatile boolean closed;
+    
+    /**
+     * Follows the frames of the console.
+     */
+    private final RenderScheduler.FrameListener frameListener =
+            new RenderScheduler.FrameListener() {
+        
+        @Override
+        public void frameStarted() {
+            startFrame();
+        }
+        
+        @Override
+        public void framePresented() {
+            presentFrame();
+        }
+    };
+    
+    /**
+     * Constructs an ingest in front of a console.
+     * 
+     * @param console  the console to write into.
+     * @param capacity the maximum number of writes not yet on the screen.
+     * @param policy   what to do with a write exceeding the capacity.
+     */
+    public ConsoleIngest(ColorfulConsole console,
+                         int capacity,
+                         OverflowPolicy policy) {
+        this(Objects.requireNonNull(console, "The input console is null.")
+                    .getModel(),
+             console.getRenderScheduler(),
+             capacity,
+             policy);
+    }
+    
+    /**
+     * Constructs an ingest in front of a model whose frames are scheduled by
+     * the given scheduler.
+     * 
+     * @param model           the model to write into.
+     * @param renderScheduler the scheduler of the frames of the model.
+     * @param capacity        the maximum number of writes not yet on the 
+     *                        screen.
+     * @param policy          what to do with a write exceeding the capacity.
+     */
+    ConsoleIngest(ConsoleModel model,
+                  RenderScheduler renderScheduler,
+                  int capacity,
+                  OverflowPolicy policy) {
+        this.policy = Objects.requireNonNull(policy,
+                                             "The input policy is null.");
+        
+        if (capacity < MINIMUM_CAPACITY) {
+            throw new IllegalArgumentException(
+                    "The ingest capacity is too small (" + capacity + "). " +
+                    "Must be at least " + MINIMUM_CAPACITY + ".");
+        }
+        
+        this.model = model;
+        this.renderScheduler = renderScheduler;
+        this.capacity = capacity;
+        this.permits = new Semaphore(capacity);
+        renderScheduler.addFrameListener(frameListener);
+    }
+    
+    public int getCapacity() {
+        return capacity;
+    }
+    
+    public OverflowPolicy getPolicy() {
+        return policy;
+    }
+    
+    /**
+     * Returns the number of writes holding a permit, that is, applied to the
+     * model but not yet on the screen.
+     * 
+     * @return the number of writes in flight.
+     */
+    public int getInFlightCount() {
+        return capacity - permits.availablePermits();
+    }
+    
+    /**
+     * Returns the number of writes that found all the permits taken and were
+     * blocked, applied without a permit or rejected, depending on the policy.
+     * 
+     * @return the number of overflowing writes.
+     */
+    public long getOverflowCount() {
+        return overflowCount.sum();
+    }
+    
+    /**
+     * Prints the text starting from the console cursor. See
+     * {@link ConsoleModel#print(String)}.
+     * 
+     * @param text the text to print.
+     * @throws InterruptedException if interrupted while blocked.
+     */
+    public void print(String text) throws InterruptedException {
+        printAsync(text, true);
+    }
+    
+    /**
+     * Prints the text starting from the console cursor and returns a future
+     * completing once the text is on the screen. Under the
+     * {@link OverflowPolicy#FAIL_FAST} policy an overflowing write returns a
+     * future completed exceptionally instead of throwing.
+     * 
+     * @param text the text to print.
+     * @return the future of the write.
+     * @throws InterruptedException if interrupted while blocked.
+     */
+    public CompletableFuture<Void> printAsync(String text)
+            throws InterruptedException {
+        return printAsync(text, false);
+    }
+    
+    /**
+     * Writes an attributed run of text. See
+     * {@link ConsoleModel#write(int, int, String, Color, Color, boolean)}.
+     * 
+     * @param x          the <code>x</code>-coordinate of the first tile.
+     * @param y          the <code>y</code>-coordinate of the first tile.
+     * @param text       the text to write.
+     * @param foreground the foreground color of the run.
+     * @param background the background color of the run.
+     * @param bold       whether the run is bold.
+     * @throws InterruptedException if interrupted while blocked.
+     */
+    public void write(int x,
+                      int y,
+                      String text,
+                      Color foreground,
+                      Color background,
+                      boolean bold) throws InterruptedException {
+        writeAsync(x, y, text, foreground, background, bold, true);
+    }
+    
+    /**
+     * Writes an attributed run of text and returns a future completing once
+     * the run is on the screen. Works like
+     * {@link #printAsync(java.lang.String)} otherwise.
+     * 
+     * @param x          the <code>x</code>-coordinate of the first tile.
+     * @param y          the <code>y</code>-coordinate of the first tile.
+     * @param text       the text to write.
+     * @param foreground the foreground color of the run.
+     * @param background the background color of the run.
+     * @param bold       whether the run is bold.
+     * @return the future of the write.
+     * @throws InterruptedException if interrupted while blocked.
+     */
+    public CompletableFuture<Void> writeAsync(int x,
+                                              int y,
+                                              String text,
+                                              Color foreground,
+                                              Color background,
+                                              boolean bold)
+            throws InterruptedException {
+        return writeAsync(x, y, text, foreground, background, bold, false);
+    }
+    
+    /**
+     * Stops following the frames of the console. The futures of the writes
+     * not yet on the screen complete at once and the blocked producers are
+     * released; the later writes are rejected.
+     */
+    @Override
+    public void close() {
+        renderScheduler.removeFrameListener(frameListener);
+        ArrayDeque<Frame> frames;
+        
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            
+            closed = true;
+            frames = new ArrayDeque<>(startedFrames);
+            frames.add(new Frame(pendingFuture, pendingPermits));
+            startedFrames.clear();
+        }
+        
+        for (Frame frame : frames) {
+            if (frame != IDLE_FRAME) {
+                complete(frame);
+            }
+        }
+    }
+    
+    private CompletableFuture<Void> printAsync(String text, boolean throwing)
+            throws InterruptedException {
+        Objects.requireNonNull(text, "The input text is null.");
+        boolean permit;
+        
+        try {
+            permit = admit();
+        } catch (RejectedExecutionException ex) {
+            return rejected(ex, throwing);
+        }
+        
+        try {
+            model.print(text);
+        } catch (RuntimeException ex) {
+            if (permit) {
+                permits.release();
+            }
+            
+            throw ex;
+        }
+        
+        return attach(permit);
+    }
+    
+    private CompletableFuture<Void> writeAsync(int x,
+                                               int y,
+                                               String text,
+                                               Color foreground,
+                                               Color background,
+                                               boolean bold,
+                                               boolean throwing)
+            throws InterruptedException {
+        Objects.requireNonNull(text, "The input text is null.");
+        boolean permit;
+        
+        try {
+            permit = admit();
+        } catch (RejectedExecutionException ex) {
+            return rejected(ex, throwing);
+        }
+        
+        try {
+            model.write(x, y, text, foreground, background, bold);
+        } catch (RuntimeException ex) {
+            if (permit) {
+                permits.release();
+            }
+            
+            throw ex;
+        }
+        
+        return attach(permit);
+    }
+    
+    /**
+     * Takes a permit for a write, applying the policy if none is left.
+     * 
+     * @return {@code true} if a permit was taken.
+     * @throws InterruptedException if interrupted while blocked.
+     */
+    private boolean admit() throws InterruptedException {
+        if (closed) {
+            throw new IllegalStateException("The ingest is closed.");
+        }
+        
+        if (permits.tryAcquire()) {
+            return true;
+        }
+        
+        overflowCount.increment();
+        
+        switch (policy) {
+            case BLOCK:
+                permits.acquire();
+                return true;
+            
+            case DROP:
+                return false;
+            
+            default:
+                throw new RejectedExecutionException(
+                        "The console is " + capacity + " writes behind.");
+        }
+    }
+    
+    /**
+     * Adds an applied write to the next frame.
+     * 
+     * @param permit whether the write holds a permit.
+     * @return the future of the next frame.
+     */
+    private CompletableFuture<Void> attach(boolean permit) {
+        CompletableFuture<Void> future;
+        boolean first;
+        
+        synchronized (this) {
+            if (closed) {
+                if (permit) {
+                    permits.release();
+                }
+                
+                return CompletableFuture.completedFuture(null);
+            }
+            
+            first = !pendingWrites;
+            pendingWrites = true;
+            pendingPermits += permit ? 1 : 0;
+            future = pendingFuture;
+        }
+        
+        if (first) {
+            // A write changing no cell would not request a frame by itself:
+            renderScheduler.requestFrame();
+        }
+        
+        return future;
+    }
+    
+    private synchronized void startFrame() {
+        if (!pendingWrites) {
+            startedFrames.add(IDLE_FRAME);
+            return;
+        }
+        
+        startedFrames.add(new Frame(pendingFuture, pendingPermits));
+        pendingFuture = new CompletableFuture<>();
+        pendingPermits = 0;
+        pendingWrites = false;
+    }
+    
+    private void presentFrame() {
+        Frame frame;
+        
+        synchronized (this) {
+            // Null if this ingest was created during the frame:
+            frame = startedFrames.poll();
+        }
+        
+        if (frame != null && frame != IDLE_FRAME) {
+            complete(frame);
+        }
+    }
+    
+    private void complete(Frame frame) {
+        permits.release(frame.permits);
+        frame.presented.complete(null);
+    }
+    
+    private static CompletableFuture<Void> rejected(
+            RejectedExecutionException ex,
+            boolean throwing) {
+        if (throwing) {
+            throw ex;
+        }
+        
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        future.completeExceptionally(ex);
+        return future;
+    }
+}
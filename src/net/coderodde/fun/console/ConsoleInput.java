@@ -0,0 +1,826 @@
+package net.coderodde.fun.console;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * This class implements the keyboard input of a console. The keys typed into
+ * the console are offered by the event dispatch thread into a lock-free ring
+ * buffer and read by the consumer threads, so a program reading from the
+ * console runs on a thread of its own and the event dispatch thread never
+ * waits for it. The keys typed before anybody reads them are kept as
+ * typeahead until the buffer is full; the keys offered into a full buffer are
+ * dropped and counted.
+ * <p>
+ * The keys are read either raw, one character at a time with
+ * {@link #readChar()} and {@link #poll()}, or a line at a time with
+ * {@link #readLine()}, {@link #getReader()} and {@link #getInputStream()}.
+ * The lines are edited as in a terminal: backspace erases a character,
+ * <code>Ctrl-W</code> erases a word, <code>Ctrl-U</code> erases the line and
+ * <code>Ctrl-D</code> on an empty line signals the end of input. The cursor
+ * keys arrive as the ANSI sequences <code>ESC [ A</code> to
+ * <code>ESC [ D</code>; the line reads skip them.
+ * <p>
+ * If the local echo is on, the characters read are printed into the console
+ * by the reading thread, and the erased ones are erased from it.
+ * <p>
+ * The reads block by parking the reading thread without holding a monitor,
+ * so virtual threads may block on input too. The readers are served one at a
+ * time.
+ * 
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 17, 2026)
+ */
+public final class ConsoleInput {
+
+    /**
+     * The default capacity of the typeahead buffer in characters.
+     */
+    public static final int DEFAULT_CAPACITY = 4096;
+    
+    /**
+     * The value returned by the reads at the end of input.
+     */
+    public static final int END_OF_INPUT = -1;
+    
+    /**
+     * The escape character opening the cursor key sequences.
+     */
+    private static final char ESCAPE = '\u001b';
+    
+    /**
+     * The character erasing the previous character of a line.
+     */
+    private static final char BACKSPACE = '\b';
+    
+    /**
+     * The delete character, erasing like backspace.
+     */
+    private static final char DELETE = '\u007f';
+    
+    /**
+     * The character signaling the end of input on an empty line.
+     */
+    private static final char END_OF_TRANSMISSION = '\u0004';
+    
+    /**
+     * The character erasing the whole line.
+     */
+    private static final char KILL_LINE = '\u0015';
+    
+    /**
+     * The character erasing the previous word of a line.
+     */
+    private static final char ERASE_WORD = '\u0017';
+    
+    /**
+     * The model echoing the input.
+     */
+    private final ConsoleModel model;
+    
+    /**
+     * The ring buffer of the typed characters.
+     */
+    private final char[] ring;
+    
+    /**
+     * The mask mapping the sequence numbers to the ring indices.
+     */
+    private final int mask;
+    
+    /**
+     * The sequence number of the next character to read. Written only by
+     * the reader holding {@link #readLock}.
+     */
+    private final AtomicLong head = new AtomicLong();
+    
+    /**
+     * The sequence number of the next character to offer. Written only by the
+     * offering thread.
+     */
+    private final AtomicLong tail = new AtomicLong();
+    
+    /**
+     * Serializes the readers.
+     */
+    private final ReentrantLock readLock = new ReentrantLock();
+    
+    /**
+     * The reader waiting for input, or {@code null}.
+     */
+    private volatile Thread waiter;
+    
+    /**
+     * Whether the input is closed.
+     */
+    private volatile boolean closed;
+    
+    /**
+     * Whether the characters read are printed into the console.
+     */
+    private volatile boolean echo = true;
+    
+    /**
+     * The number of characters dropped because the buffer was full.
+     */
+    private final AtomicLong droppedCount = new AtomicLong();
+    
+    /**
+     * The line being edited. Guarded by {@link #readLock}.
+     */
+    private final StringBuilder line = new StringBuilder();
+    
+    /**
+     * The reader of the edited lines.
+     */
+    private final Reader reader = new LineReader();
+    
+    /**
+     * The input stream of the edited lines.
+     */
+    private final InputStream inputStream = new LineInputStream();
+    
+    /**
+     * Constructs an input with the default capacity.
+     * 
+     * @param model the model echoing the input.
+     */
+    public ConsoleInput(ConsoleModel model) {
+        this(model, DEFAULT_CAPACITY);
+    }
+    
+    /**
+     * Constructs an input. The capacity is rounded up to a power of two.
+     * 
+     * @param model    the model echoing the input.
+     * @param capacity the capacity of the typeahead buffer in characters.
+     */
+    public ConsoleInput(ConsoleModel model, int capacity) {
+        this.model = Objects.requireNonNull(model,
+                                            "The input console model is null.");
+        
+        if (capacity < 1 || capacity > 1 << 30) {
+            throw new IllegalArgumentException(
+                    "The input capacity " + capacity + " is not within " +
+                    "[1, " + (1 << 30) + "].");
+        }
+        
+        int size = Integer.highestOneBit(capacity);
+        
+        if (size < capacity) {
+            size <<= 1;
+        }
+        
+        this.ring = new char[size];
+        this.mask = size - 1;
+    }
+    
+    /**
+     * Offers a typed character. Never blocks. Meant to be called by a single
+     * thread, normally the event dispatch thread.
+     * 
+     * @param character the typed character.
+     * @return {@code true} if the character was buffered, {@code false} if
+     *         the buffer is full or the input is closed.
+     */
+    public boolean offer(char character) {
+        long t = tail.get();
+        
+        if (closed || !hasRoom(t, 1)) {
+            return false;
+        }
+        
+        ring[(int) t & mask] = character;
+        publish(t + 1);
+        return true;
+    }
+    
+    /**
+     * Offers a sequence of typed characters, such as the escape sequence of a
+     * cursor key, as a whole: either all of them are buffered or none is.
+     * Never blocks.
+     * 
+     * @param characters the typed characters.
+     * @return {@code true} if the characters were buffered, {@code false} if
+     *         the buffer has no room for them or the input is closed.
+     */
+    public boolean offer(CharSequence characters) {
+        int length = characters.length();
+        long t = tail.get();
+        
+        if (closed || !hasRoom(t, length)) {
+            return false;
+        }
+        
+        for (int i = 0; i < length; i++) {
+            ring[(int)(t + i) & mask] = characters.charAt(i);
+        }
+        
+        publish(t + length);
+        return true;
+    }
+    
+    /**
+     * Returns the next character without waiting.
+     * 
+     * @return the next character, or {@link #END_OF_INPUT} if none is
+     *         available or another thread is reading.
+     */
+    public int poll() {
+        if (!readLock.tryLock()) {
+            return END_OF_INPUT;
+        }
+        
+        try {
+            int character = take();
+            
+            if (character != END_OF_INPUT) {
+                echo((char) character);
+            }
+            
+            return character;
+        } finally {
+            readLock.unlock();
+        }
+    }
+    
+    /**
+     * Returns the next character, waiting at most the given time for it.
+     * 
+     * @param timeout the maximum time to wait.
+     * @param unit    the unit of the timeout.
+     * @return the next character, or {@link #END_OF_INPUT} if none arrived in
+     *         time or the input is closed.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public int poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        
+        if (!readLock.tryLock(timeout, unit)) {
+            return END_OF_INPUT;
+        }
+        
+        try {
+            int character = await(deadline);
+            
+            if (character != END_OF_INPUT) {
+                echo((char) character);
+            }
+            
+            return character;
+        } finally {
+            readLock.unlock();
+        }
+    }
+    
+    /**
+     * Reads the next character as typed, without line editing, waiting for
+     * it if necessary.
+     * 
+     * @return the next character, or {@link #END_OF_INPUT} if the input is
+     *         closed.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public int readChar() throws InterruptedException {
+        readLock.lockInterruptibly();
+        
+        try {
+            int character = await(Long.MAX_VALUE);
+            
+            if (character != END_OF_INPUT) {
+                echo((char) character);
+            }
+            
+            return character;
+        } finally {
+            readLock.unlock();
+        }
+    }
+    
+    /**
+     * Reads and edits a line, waiting for its characters if necessary.
+     * 
+     * @return the line without the line terminator, or {@code null} at the
+     *         end of input.
+     * @throws InterruptedException if interrupted while waiting. The
+     *                              characters of the line read so far are
+     *                              kept for the next read.
+     */
+    public String readLine() throws InterruptedException {
+        readLock.lockInterruptibly();
+        
+        try {
+            return editLine();
+        } finally {
+            readLock.unlock();
+        }
+    }
+    
+    /**
+     * Returns the number of characters buffered and not read yet.
+     * 
+     * @return the number of buffered characters.
+     */
+    public int available() {
+        return (int)(tail.get() - head.get());
+    }
+    
+    /**
+     * Returns the number of characters dropped because the buffer was full.
+     * 
+     * @return the number of dropped characters.
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+    
+    public boolean isEcho() {
+        return echo;
+    }
+    
+    /**
+     * Sets whether the characters read are printed into the console.
+     * 
+     * @param echo whether to echo the input.
+     */
+    public void setEcho(boolean echo) {
+        this.echo = echo;
+    }
+    
+    /**
+     * Returns a reader of the edited lines, each terminated by a newline. The
+     * reader shares the lines with the other reads, so a program should use
+     * one way of reading at a time.
+     * 
+     * @return the reader.
+     */
+    public Reader getReader() {
+        return reader;
+    }
+    
+    /**
+     * Returns an input stream of the edited lines in UTF-8, each terminated
+     * by a newline. Works like {@link #getReader()}.
+     * 
+     * @return the input stream.
+     */
+    public InputStream getInputStream() {
+        return inputStream;
+    }
+    
+    /**
+     * Closes the input. The characters buffered may still be read, after
+     * which the reads report the end of input.
+     */
+    public void close() {
+        closed = true;
+        LockSupport.unpark(waiter);
+    }
+    
+    public boolean isClosed() {
+        return closed;
+    }
+    
+    private boolean hasRoom(long t, int length) {
+        if (t + length - head.get() <= ring.length) {
+            return true;
+        }
+        
+        droppedCount.addAndGet(length);
+        return false;
+    }
+    
+    /**
+     * Publishes the offered characters and wakes up the waiting reader. The
+     * volatile write of the tail followed by the volatile read of the waiter
+     * pairs with the reverse order in {@link #await(long)}, so no wakeup is
+     * lost.
+     * 
+     * @param t the new tail.
+     */
+    private void publish(long t) {
+        tail.set(t);
+        Thread thread = waiter;
+        
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+    
+    /**
+     * Takes the next character without waiting. The caller must hold the
+     * read lock.
+     * 
+     * @return the next character, or {@link #END_OF_INPUT} if none is
+     *         buffered.
+     */
+    private int take() {
+        long h = head.get();
+        
+        if (h == tail.get()) {
+            return END_OF_INPUT;
+        }
+        
+        char character = ring[(int) h & mask];
+        head.lazySet(h + 1);
+        return character;
+    }
+    
+    /**
+     * Takes the next character, waiting for it until the deadline. The
+     * caller must hold the read lock.
+     * 
+     * @param deadline the deadline as a value of {@link System#nanoTime()},
+     *                 or {@link Long#MAX_VALUE} for no deadline.
+     * @return the next character, or {@link #END_OF_INPUT} if the deadline
+     *         passed or the input is closed.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    private int await(long deadline) throws InterruptedException {
+        int character = take();
+        
+        if (character != END_OF_INPUT) {
+            return character;
+        }
+        
+        waiter = Thread.currentThread();
+        
+        try {
+            while ((character = take()) == END_OF_INPUT && !closed) {
+                if (deadline == Long.MAX_VALUE) {
+                    LockSupport.park(this);
+                } else {
+                    long nanos = deadline - System.nanoTime();
+                    
+                    if (nanos <= 0L) {
+                        break;
+                    }
+                    
+                    LockSupport.parkNanos(this, nanos);
+                }
+                
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+            }
+        } finally {
+            waiter = null;
+        }
+        
+        // Closed: read the characters offered before closing.
+        return character == END_OF_INPUT ? take() : character;
+    }
+    
+    /**
+     * Reads a line into {@link #line}, editing it. The caller must hold the
+     * read lock.
+     * 
+     * @return the line, or {@code null} at the end of input.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    private String editLine() throws InterruptedException {
+        while (true) {
+            int character = await(Long.MAX_VALUE);
+            
+            switch (character) {
+                case END_OF_INPUT:
+                    if (line.length() == 0) {
+                        return null;
+                    }
+                    
+                    // The last line of a closed input has no terminator.
+                    return takeLine();
+                
+                case '\n':
+                case '\r':
+                    echo('\n');
+                    return takeLine();
+                
+                case END_OF_TRANSMISSION:
+                    if (line.length() == 0) {
+                        return null;
+                    }
+                    
+                    break;
+                
+                case BACKSPACE:
+                case DELETE:
+                    erase(1);
+                    break;
+                
+                case ERASE_WORD:
+                    eraseWord();
+                    break;
+                
+                case KILL_LINE:
+                    erase(line.length());
+                    break;
+                
+                case ESCAPE:
+                    skipEscapeSequence();
+                    break;
+                
+                default:
+                    if (character >= ' ') {
+                        line.append((char) character);
+                        echo((char) character);
+                    }
+            }
+        }
+    }
+    
+    private String takeLine() {
+        String text = line.toString();
+        line.setLength(0);
+        return text;
+    }
+    
+    /**
+     * Skips the rest of an escape sequence. The sequences of the cursor keys
+     * are offered as a whole, so they are buffered completely.
+     */
+    private void skipEscapeSequence() {
+        if (peek() != '[') {
+            return;
+        }
+        
+        take();
+        
+        while (true) {
+            int character = take();
+            
+            // The final byte of a control sequence is in '@'..'~':
+            if (character == END_OF_INPUT
+                    || (character >= '@' && character <= '~')) {
+                return;
+            }
+        }
+    }
+    
+    private int peek() {
+        long h = head.get();
+        return h == tail.get() ? END_OF_INPUT : ring[(int) h & mask];
+    }
+    
+    /**
+     * Erases the last word of the line being edited and the spaces after it.
+     */
+    private void eraseWord() {
+        int end = line.length();
+        
+        while (end > 0 && line.charAt(end - 1) == ' ') {
+            end--;
+        }
+        
+        while (end > 0 && line.charAt(end - 1) != ' ') {
+            end--;
+        }
+        
+        erase(line.length() - end);
+    }
+    
+    /**
+     * Erases the last characters of the line being edited and, if the echo
+     * is on, from the console. A surrogate pair is erased as a whole, and
+     * each erased code point clears as many cells as it took.
+     * 
+     * @param count the number of characters to erase.
+     */
+    private void erase(int count) {
+        int end = line.length();
+        int start = end - Math.min(count, end);
+        
+        if (start > 0 
+                && Character.isLowSurrogate(line.charAt(start))
+                && Character.isHighSurrogate(line.charAt(start - 1))) {
+            start--;
+        }
+        
+        for (int i = end; echo && i > start; ) {
+            int codePoint = line.codePointBefore(i);
+            i -= Character.charCount(codePoint);
+            
+            if (!eraseCells(CharacterWidth.getWidth(codePoint))) {
+                break;
+            }
+        }
+        
+        line.setLength(start);
+    }
+    
+    /**
+     * Blanks the cells of a character echoed left of the cursor and moves
+     * the cursor onto them.
+     * 
+     * @param width the number of cells the character took.
+     * @return {@code false} if the cursor is at the top left corner.
+     */
+    private boolean eraseCells(int width) {
+        if (width == 0) {
+            // Combined into the character before it.
+            return true;
+        }
+        
+        int x = model.getCursorX();
+        int y = model.getCursorY();
+        
+        if (x >= width) {
+            x -= width;
+        } else if (y > 0) {
+            x = Math.max(0, model.getConsoleWidth() - width);
+            y--;
+        } else {
+            return false;
+        }
+        
+        model.setConsoleCursorPosition(x, y);
+        
+        for (int i = 0; i < width; i++) {
+            model.print(' ');
+        }
+        
+        model.setConsoleCursorPosition(x, y);
+        return true;
+    }
+    
+    /**
+     * Prints a character read if the echo is on. The control characters
+     * other than the newline are not printed.
+     * 
+     * @param character the character read.
+     */
+    private void echo(char character) {
+        if (echo && (character >= ' ' || character == '\n')) {
+            model.print(character);
+        }
+    }
+    
+    private void lockInterruptibly() throws InterruptedIOException {
+        try {
+            readLock.lockInterruptibly();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while reading.");
+        }
+    }
+    
+    private String editLineInterruptibly() throws InterruptedIOException {
+        try {
+            return editLine();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while reading.");
+        }
+    }
+    
+    /**
+     * Implements the reader of the edited lines.
+     */
+    private final class LineReader extends Reader {
+        
+        /**
+         * The rest of the current line.
+         */
+        private String pending = "";
+        
+        /**
+         * The index of the next character of the current line.
+         */
+        private int position;
+        
+        @Override
+        public int read(char[] buffer, int offset, int length)
+                throws IOException {
+            Objects.checkFromIndexSize(offset, length, buffer.length);
+            
+            if (length == 0) {
+                return 0;
+            }
+            
+            lockInterruptibly();
+            
+            try {
+                if (position == pending.length()) {
+                    String text = editLineInterruptibly();
+                    
+                    if (text == null) {
+                        return END_OF_INPUT;
+                    }
+                    
+                    pending = text + '\n';
+                    position = 0;
+                }
+                
+                int count = Math.min(length, pending.length() - position);
+                pending.getChars(position, position + count, buffer, offset);
+                position += count;
+                return count;
+            } finally {
+                readLock.unlock();
+            }
+        }
+        
+        @Override
+        public boolean ready() {
+            return position < pending.length();
+        }
+        
+        @Override
+        public void close() {
+            ConsoleInput.this.close();
+        }
+    }
+    
+    /**
+     * Implements the input stream of the edited lines.
+     */
+    private final class LineInputStream extends InputStream {
+        
+        /**
+         * The rest of the current line in UTF-8.
+         */
+        private byte[] pending = new byte[0];
+        
+        /**
+         * The index of the next byte of the current line.
+         */
+        private int position;
+        
+        @Override
+        public int read() throws IOException {
+            lockInterruptibly();
+            
+            try {
+                return fill() ? pending[position++] & 0xff : END_OF_INPUT;
+            } finally {
+                readLock.unlock();
+            }
+        }
+        
+        @Override
+        public int read(byte[] buffer, int offset, int length)
+                throws IOException {
+            Objects.checkFromIndexSize(offset, length, buffer.length);
+            
+            if (length == 0) {
+                return 0;
+            }
+            
+            lockInterruptibly();
+            
+            try {
+                if (!fill()) {
+                    return END_OF_INPUT;
+                }
+                
+                int count = Math.min(length, pending.length - position);
+                System.arraycopy(pending, position, buffer, offset, count);
+                position += count;
+                return count;
+            } finally {
+                readLock.unlock();
+            }
+        }
+        
+        @Override
+        public int available() {
+            return pending.length - position;
+        }
+        
+        /**
+         * Reads the next line if the current one is consumed. The caller
+         * must hold the read lock.
+         * 
+         * @return {@code false} at the end of input.
+         * @throws IOException if interrupted while waiting.
+         */
+        private boolean fill() throws IOException {
+            if (position < pending.length) {
+                return true;
+            }
+            
+            String text = editLineInterruptibly();
+            
+            if (text == null) {
+                return false;
+            }
+            
+            pending = (text + '\n').getBytes(StandardCharsets.UTF_8);
+            position = 0;
+            return true;
+        }
+        
+        @Override
+        public void close() {
+            ConsoleInput.this.close();
+        }
+    }
+}
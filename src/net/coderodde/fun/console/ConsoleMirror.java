@@ -0,0 +1,688 @@
+package net.coderodde.fun.console;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * This class implements a server mirroring a console to viewers in other
+ * processes, such as a {@link ConsoleMirrorViewer} showing it read-only in a
+ * console of its own. The server listens on the loopback interface only.
+ * <p>
+ * The changes of the screen are broadcast in the binary session format of
+ * {@link SessionEncoder}, at most {@link #MAX_FRAMES_PER_SECOND} times per
+ * second: a broadcaster thread compares the screen with a copy of the screen
+ * last broadcast, encodes the changed spans of the rows, the scrolls and the
+ * cursor moves once and hands the same encoded chunk to every viewer. A new
+ * viewer first receives a keyframe of the whole screen.
+ * <p>
+ * The writers of the console only wake the broadcaster up, so the viewers
+ * never slow them down. Each viewer is fed by a thread of its own through a
+ * bounded queue. If a slow viewer lets its queue fill up, the queued chunks
+ * are dropped and the viewer receives a keyframe of the current screen
+ * instead once it catches up, so the changes it missed are coalesced into
+ * one screen.
+ * <p>
+ * On the wire, the server sends length-prefixed messages: a big-endian
+ * <code>int</code> length followed by that many bytes. The first message is
+ * the session header and each following one holds whole records.
+ * 
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 17, 2026)
+ */
+public final class ConsoleMirror implements Closeable {
+
+    /**
+     * The maximum number of chunks broadcast per second.
+     */
+    public static final int MAX_FRAMES_PER_SECOND = 60;
+    
+    /**
+     * The number of chunks a viewer may lag behind before it is resent the
+     * whole screen instead.
+     */
+    private static final int VIEWER_QUEUE_CAPACITY = 32;
+    
+    /**
+     * The minimum time between two broadcasts in nanoseconds.
+     */
+    private static final long FRAME_PERIOD_NANOS =
+            TimeUnit.SECONDS.toNanos(1) / MAX_FRAMES_PER_SECOND;
+    
+    /**
+     * The initial capacity of the encoders in bytes.
+     */
+    private static final int ENCODER_CAPACITY = 1 << 12;
+    
+    /**
+     * The model being mirrored.
+     */
+    private final ConsoleModel model;
+    
+    /**
+     * Accepts the viewers.
+     */
+    private final ServerSocket serverSocket;
+    
+    /**
+     * Encodes the changes of the screen.
+     */
+    private final SessionEncoder deltaEncoder =
+            new SessionEncoder(ENCODER_CAPACITY);
+    
+    /**
+     * Encodes the keyframes for the new and the lagging viewers.
+     */
+    private final SessionEncoder keyframeEncoder =
+            new SessionEncoder(ENCODER_CAPACITY);
+    
+    /**
+     * Receives the chunks drained from the encoders.
+     */
+    private final ByteArrayOutputStream chunkBuffer =
+            new ByteArrayOutputStream(ENCODER_CAPACITY);
+    
+    /**
+     * The value of {@link System#nanoTime()} at the start of the mirroring.
+     */
+    private final long startNanos;
+    
+    /**
+     * The start time of the mirroring in milliseconds since the epoch.
+     */
+    private final long startMillis;
+    
+    /**
+     * The thread accepting the viewers.
+     */
+    private final Thread acceptThread;
+    
+    /**
+     * The thread broadcasting the changes.
+     */
+    private final Thread broadcastThread;
+    
+    /**
+     * The connected viewers. Replaced as a whole when a viewer connects or
+     * disconnects.
+     */
+    private volatile Viewer[] viewers = new Viewer[0];
+    
+    /**
+     * Set to {@code true} when something is waiting to be broadcast.
+     */
+    private volatile boolean broadcastPending = true;
+    
+    /**
+     * Set to {@code true} when the whole screen must be broadcast, since it
+     * changed in a way the comparison with the shadow does not reveal.
+     */
+    private volatile boolean screenChanged;
+    
+    /**
+     * Set to {@code false} when this mirror is closed.
+     */
+    private volatile boolean running = true;
+    
+    /**
+     * The screen as last broadcast, or {@code null} before the first
+     * broadcast. Used by the broadcaster thread only.
+     */
+    private CellBuffer shadowCells;
+    
+    /**
+     * The cursor as last broadcast, packed as <code>(y &lt;&lt; 32) |
+     * x</code>. Used by the broadcaster thread only.
+     */
+    private long shadowCursor = -1L;
+    
+    /**
+     * The number of rows scrolled since the last broadcast. Guarded by the
+     * scroll lock of the model.
+     */
+    private int pendingScrollRows;
+    
+    /**
+     * The time of the last broadcast record in microseconds since the start.
+     * Used by the broadcaster thread only.
+     */
+    private long lastRecordMicros;
+    
+    /**
+     * The number of keyframes sent to the viewers that fell behind.
+     */
+    private final LongAdder viewerResyncs = new LongAdder();
+    
+    /**
+     * The number of bytes sent to all the viewers.
+     */
+    private final LongAdder bytesSent = new LongAdder();
+    
+    /**
+     * Receives the changes of the model.
+     */
+    private final ConsoleModel.MutationListener mutationListener =
+            new ConsoleModel.MutationListener() {
+        
+        @Override
+        public void cellsChanged(int minX, int maxX, int y) {
+            requestBroadcast();
+        }
+        
+        @Override
+        public void scrolling(int rows) {
+            // Called with the scroll lock held:
+            pendingScrollRows += rows;
+            requestBroadcast();
+        }
+        
+        @Override
+        public void cursorMoved(int x, int y) {
+            requestBroadcast();
+        }
+        
+        @Override
+        public void resized(int width, int height) {
+            requestBroadcast();
+        }
+        
+        @Override
+        public void paletteChanged() {
+            // The shadow holds the same palette indices as the screen:
+            screenChanged = true;
+            requestBroadcast();
+        }
+    };
+    
+    /**
+     * A connected viewer.
+     */
+    private final class Viewer extends Thread {
+        
+        /**
+         * The connection to the viewer.
+         */
+        private final Socket socket;
+        
+        /**
+         * The chunks waiting to be sent.
+         */
+        private final BlockingQueue<byte[]> queue =
+                new ArrayBlockingQueue<>(VIEWER_QUEUE_CAPACITY);
+        
+        /**
+         * The session header sent before the chunks.
+         */
+        private final byte[] header;
+        
+        /**
+         * Set to {@code true} when the viewer must be sent the whole screen
+         * instead of the next changes. Used by the broadcaster thread only.
+         */
+        private boolean resyncPending = true;
+        
+        Viewer(Socket socket, byte[] header) {
+            super("ColorfulConsole mirror viewer " +
+                  socket.getRemoteSocketAddress());
+            setDaemon(true);
+            this.socket = socket;
+            this.header = header;
+        }
+        
+        /**
+         * Queues a chunk for this viewer. If the queue is full, the queued
+         * chunks are dropped and the viewer is resent the whole screen in
+         * the next broadcast, which is requested right away so that the
+         * screen is resent even if it does not change anymore. Called by the
+         * broadcaster thread.
+         * 
+         * @param delta    the changes of the screen.
+         * @param keyframe the whole screen.
+         */
+        void offer(byte[] delta, byte[] keyframe) {
+            if (resyncPending) {
+                if (queue.offer(keyframe)) {
+                    resyncPending = false;
+                } else {
+                    requestBroadcast();
+                }
+            } else if (!queue.offer(delta)) {
+                queue.clear();
+                resyncPending = true;
+                viewerResyncs.increment();
+                requestBroadcast();
+            }
+        }
+        
+        @Override
+        public void run() {
+            try (Socket s = socket) {
+                DataOutputStream out = new DataOutputStream(
+                        new BufferedOutputStream(s.getOutputStream()));
+                writeMessage(out, header);
+                out.flush();
+                
+                while (running) {
+                    byte[] chunk = queue.take();
+                    writeMessage(out, chunk);
+                    
+                    // Write the chunks waiting meanwhile with one flush:
+                    while ((chunk = queue.poll()) != null) {
+                        writeMessage(out, chunk);
+                    }
+                    
+                    out.flush();
+                }
+            } catch (IOException | InterruptedException ex) {
+                // The viewer disconnected or the mirror was closed.
+            } finally {
+                removeViewer(this);
+            }
+        }
+        
+        void shutdown() {
+            interrupt();
+            
+            try {
+                socket.close();
+            } catch (IOException ex) {
+                // The viewer is going away anyway.
+            }
+        }
+        
+        private void writeMessage(DataOutputStream out, byte[] message)
+                throws IOException {
+            out.writeInt(message.length);
+            out.write(message);
+            bytesSent.add(4 + message.length);
+        }
+    }
+    
+    /**
+     * Starts mirroring a console on a loopback port.
+     * 
+     * @param console the console to mirror.
+     * @param port    the port to listen on, or 0 for any free port.
+     * @throws IOException if the port cannot be listened on.
+     */
+    public ConsoleMirror(ColorfulConsole console, int port)
+            throws IOException {
+        this(Objects.requireNonNull(console,
+                                    "The input console is null.").getModel(),
+             port);
+    }
+    
+    /**
+     * Starts mirroring a console model on a loopback port.
+     * 
+     * @param model the model to mirror.
+     * @param port  the port to listen on, or 0 for any free port.
+     * @throws IOException if the port cannot be listened on.
+     */
+    public ConsoleMirror(ConsoleModel model, int port) throws IOException {
+        this.model = Objects.requireNonNull(model,
+                                            "The input console model is null.");
+        this.serverSocket = new ServerSocket(port,
+                                             0,
+                                             InetAddress.getLoopbackAddress());
+        this.startNanos = System.nanoTime();
+        this.startMillis = System.currentTimeMillis();
+        this.acceptThread = new Thread("ColorfulConsole mirror acceptor") {
+            
+            @Override
+            public void run() {
+                acceptViewers();
+            }
+        };
+        this.broadcastThread = new Thread("ColorfulConsole mirror") {
+            
+            @Override
+            public void run() {
+                broadcastChanges();
+            }
+        };
+        
+        acceptThread.setDaemon(true);
+        broadcastThread.setDaemon(true);
+        model.addMutationListener(mutationListener);
+        broadcastThread.start();
+        acceptThread.start();
+    }
+    
+    /**
+     * Returns the loopback port the viewers connect to.
+     * 
+     * @return the port.
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+    
+    /**
+     * Returns the number of connected viewers. A viewer that disconnected is
+     * counted until the mirror tries to send it something.
+     * 
+     * @return the number of viewers.
+     */
+    public int getViewerCount() {
+        return viewers.length;
+    }
+    
+    /**
+     * Returns the number of times a viewer fell too far behind and had its
+     * queued changes replaced by the whole screen.
+     * 
+     * @return the number of resyncs.
+     */
+    public long getViewerResyncs() {
+        return viewerResyncs.sum();
+    }
+    
+    /**
+     * Returns the number of bytes sent to all the viewers so far.
+     * 
+     * @return the number of bytes sent.
+     */
+    public long getBytesSent() {
+        return bytesSent.sum();
+    }
+    
+    /**
+     * Stops mirroring and disconnects all the viewers.
+     * 
+     * @throws IOException if closing the server socket fails.
+     */
+    @Override
+    public void close() throws IOException {
+        model.removeMutationListener(mutationListener);
+        running = false;
+        LockSupport.unpark(broadcastThread);
+        
+        try {
+            serverSocket.close();
+        } finally {
+            for (Viewer viewer : viewers) {
+                viewer.shutdown();
+            }
+        }
+    }
+    
+    private void requestBroadcast() {
+        if (!broadcastPending) {
+            broadcastPending = true;
+            LockSupport.unpark(broadcastThread);
+        }
+    }
+    
+    private void acceptViewers() {
+        while (running) {
+            Socket socket;
+            
+            try {
+                socket = serverSocket.accept();
+            } catch (IOException ex) {
+                // Closed.
+                return;
+            }
+            
+            try {
+                socket.setTcpNoDelay(true);
+            } catch (IOException ex) {
+                // Only the latency suffers.
+            }
+            
+            Viewer viewer = new Viewer(socket, encodeHeader());
+            addViewer(viewer);
+            viewer.start();
+            
+            if (!running) {
+                // Closed while the viewer was being added.
+                viewer.shutdown();
+            }
+        }
+    }
+    
+    private void broadcastChanges() {
+        long lastBroadcastNanos = System.nanoTime() - FRAME_PERIOD_NANOS;
+        
+        while (running) {
+            if (!broadcastPending) {
+                LockSupport.park(this);
+                continue;
+            }
+            
+            long waitNanos =
+                    lastBroadcastNanos + FRAME_PERIOD_NANOS - System.nanoTime();
+            
+            if (waitNanos > 0L) {
+                // Collect the changes of a whole frame period:
+                LockSupport.parkNanos(this, waitNanos);
+                continue;
+            }
+            
+            lastBroadcastNanos = System.nanoTime();
+            broadcastPending = false;
+            broadcast();
+        }
+    }
+    
+    /**
+     * Encodes the changes of the screen since the last broadcast and queues
+     * them for the viewers, and the whole screen for the viewers lagging
+     * behind.
+     */
+    private void broadcast() {
+        Viewer[] currentViewers = viewers;
+        boolean resyncPending = false;
+        
+        for (Viewer viewer : currentViewers) {
+            resyncPending |= viewer.resyncPending;
+        }
+        
+        byte[] delta;
+        byte[] keyframe = null;
+        
+        synchronized (model.getScrollLock()) {
+            CellBuffer cells = model.getFrontCellBuffer();
+            long micros = (System.nanoTime() - startNanos) / 1000L;
+            long deltaMicros = Math.max(0L, micros - lastRecordMicros);
+            lastRecordMicros += deltaMicros;
+            deltaEncoder.resetStyle();
+            
+            if (shadowCells == null
+                    || screenChanged
+                    || shadowCells.getWidth() != cells.getWidth()
+                    || shadowCells.getHeight() != cells.getHeight()
+                    || shadowCells.getPalette() != cells.getPalette()) {
+                screenChanged = false;
+                shadowCells = model.copyCells(cells);
+                shadowCursor = readCursor(shadowCells);
+                writeScreen(deltaEncoder, deltaMicros, lastRecordMicros);
+            } else {
+                encodeChanges(cells, deltaMicros);
+            }
+            
+            pendingScrollRows = 0;
+            delta = drainChunk(deltaEncoder);
+            
+            if (resyncPending) {
+                keyframeEncoder.resetStyle();
+                writeScreen(keyframeEncoder, 0L, lastRecordMicros);
+                keyframe = drainChunk(keyframeEncoder);
+            }
+        }
+        
+        if (delta.length == 0 && keyframe == null) {
+            return;
+        }
+        
+        for (Viewer viewer : currentViewers) {
+            if (delta.length > 0 || viewer.resyncPending) {
+                viewer.offer(delta, keyframe);
+            }
+        }
+    }
+    
+    /**
+     * Encodes the scrolls, the changed cells and the cursor move since the
+     * last broadcast and updates the shadow screen. Called with the scroll
+     * lock held.
+     * <p>
+     * The writers do not take the scroll lock, so the cells may change
+     * meanwhile. Each changed span is therefore copied into the shadow first
+     * and encoded from there: the viewers get exactly what the shadow holds,
+     * and a cell written after its copy differs from the shadow in the next
+     * broadcast.
+     * 
+     * @param cells       the cells of the screen.
+     * @param deltaMicros the time since the previous record.
+     */
+    private void encodeChanges(CellBuffer cells, long deltaMicros) {
+        int height = cells.getHeight();
+        int rows = Math.min(pendingScrollRows, height);
+        
+        if (rows > 0) {
+            int foreground = model.getForeground().getRGB();
+            int background = model.getBackground().getRGB();
+            deltaEncoder.writeScroll(deltaMicros, rows, foreground, background);
+            deltaMicros = 0L;
+            // Scroll the shadow the way the viewers do:
+            shadowCells.scrollUp(rows, ' ', foreground, background);
+        }
+        
+        for (int y = 0; y < height; y++) {
+            long difference = cells.findDifference(shadowCells, y);
+            
+            if (difference >= 0L) {
+                int minX = (int)(difference >>> 32);
+                int maxX = (int) difference;
+                shadowCells.copyRectangle(cells,
+                                          minX,
+                                          y,
+                                          maxX - minX + 1,
+                                          1,
+                                          minX,
+                                          y);
+                deltaEncoder.writeCells(deltaMicros,
+                                        shadowCells,
+                                        minX,
+                                        maxX,
+                                        y);
+                deltaMicros = 0L;
+            }
+        }
+        
+        long cursor = readCursor(shadowCells);
+        
+        if (cursor != shadowCursor) {
+            deltaEncoder.writeCursor(deltaMicros,
+                                     (int) cursor,
+                                     (int)(cursor >>> 32));
+            shadowCursor = cursor;
+        }
+    }
+    
+    /**
+     * Encodes the whole shadow screen and cursor: a resize defining its size
+     * and a keyframe. Called with the scroll lock held.
+     * 
+     * @param encoder     the encoder to use.
+     * @param deltaMicros the time since the previous record.
+     * @param timeMicros  the time since the start.
+     */
+    private void writeScreen(SessionEncoder encoder,
+                             long deltaMicros,
+                             long timeMicros) {
+        encoder.writeResize(deltaMicros,
+                            shadowCells.getWidth(),
+                            shadowCells.getHeight());
+        encoder.writeKeyframe(timeMicros,
+                              shadowCells,
+                              (int) shadowCursor,
+                              (int)(shadowCursor >>> 32));
+    }
+    
+    /**
+     * Reads the cursor of the model, clamped to the given screen.
+     * 
+     * @param cells the screen.
+     * @return the packed cursor.
+     */
+    private long readCursor(CellBuffer cells) {
+        return packCursor(Math.min(model.getCursorX(), cells.getWidth() - 1),
+                          Math.min(model.getCursorY(), cells.getHeight() - 1));
+    }
+    
+    private byte[] drainChunk(SessionEncoder encoder) {
+        chunkBuffer.reset();
+        
+        try {
+            encoder.drainTo(chunkBuffer);
+        } catch (IOException ex) {
+            // Never thrown by a byte array stream.
+            throw new IllegalStateException(ex);
+        }
+        
+        return chunkBuffer.toByteArray();
+    }
+    
+    private byte[] encodeHeader() {
+        SessionEncoder encoder = new SessionEncoder(64);
+        
+        synchronized (model.getScrollLock()) {
+            CellBuffer cells = model.getFrontCellBuffer();
+            encoder.writeHeader(cells.getWidth(),
+                                cells.getHeight(),
+                                startMillis);
+        }
+        
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64);
+        
+        try {
+            encoder.drainTo(out);
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+        
+        return out.toByteArray();
+    }
+    
+    private synchronized void addViewer(Viewer viewer) {
+        Viewer[] newViewers = Arrays.copyOf(viewers, viewers.length + 1);
+        newViewers[newViewers.length - 1] = viewer;
+        viewers = newViewers;
+        requestBroadcast();
+    }
+    
+    private synchronized void removeViewer(Viewer viewer) {
+        for (int i = 0; i < viewers.length; i++) {
+            if (viewers[i] == viewer) {
+                Viewer[] newViewers = new Viewer[viewers.length - 1];
+                System.arraycopy(viewers, 0, newViewers, 0, i);
+                System.arraycopy(viewers,
+                                 i + 1,
+                                 newViewers,
+                                 i,
+                                 viewers.length - i - 1);
+                viewers = newViewers;
+                return;
+            }
+        }
+    }
+    
+    private static long packCursor(int x, int y) {
+        return ((long) y << 32) | (x & 0xffffffffL);
+    }
+}
@@ -0,0 +1,191 @@
+package net.coderodde.fun.console;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class implements a viewer showing a console mirrored by a
+ * {@link ConsoleMirror} on the same machine. The viewer renders into a
+ * console of its own, which it resizes to the size of the mirrored one. The
+ * viewer is read-only: nothing typed into its console is sent back.
+ * <p>
+ * A daemon thread receives the chunks of changes and applies each of them
+ * to the target in one frame (see {@link ConsoleModel#beginFrame()}), so the
+ * target never shows half of a chunk. The target must not be written by
+ * anyone else meanwhile. If the connection fails or the mirror sends
+ * something malformed, the viewer disconnects and the exception is thrown by
+ * {@link #close()}.
+ * 
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 17, 2026)
+ */
+public final class ConsoleMirrorViewer implements Closeable {
+
+    /**
+     * The maximum length of a message in bytes. Guards against allocating
+     * the length of a corrupted message.
+     */
+    private static final int MAXIMUM_MESSAGE_LENGTH = 1 << 30;
+    
+    /**
+     * The model rendering the mirrored console.
+     */
+    private final ConsoleModel target;
+    
+    /**
+     * The connection to the mirror.
+     */
+    private final Socket socket;
+    
+    /**
+     * The thread receiving the changes.
+     */
+    private final Thread receiveThread;
+    
+    /**
+     * The number of chunks applied to the target.
+     */
+    private final LongAdder chunksReceived = new LongAdder();
+    
+    /**
+     * The exception that disconnected the viewer, or {@code null}.
+     */
+    private volatile IOException failure;
+    
+    /**
+     * Set to {@code false} when the viewer is disconnected.
+     */
+    private volatile boolean connected = true;
+    
+    /**
+     * Connects to a mirror on a loopback port and starts showing it in a
+     * console.
+     * 
+     * @param target the console to show the mirrored console in.
+     * @param port   the port of the mirror.
+     * @throws IOException if the connection fails.
+     */
+    public ConsoleMirrorViewer(ColorfulConsole target, int port)
+            throws IOException {
+        this(Objects.requireNonNull(target,
+                                    "The input console is null.").getModel(),
+             port);
+    }
+    
+    /**
+     * Connects to a mirror on a loopback port and starts showing it in a
+     * console model.
+     * 
+     * @param target the model to show the mirrored console in.
+     * @param port   the port of the mirror.
+     * @throws IOException if the connection fails.
+     */
+    public ConsoleMirrorViewer(ConsoleModel target, int port)
+            throws IOException {
+        this.target = Objects.requireNonNull(target,
+                                             "The input console model is " +
+                                             "null.");
+        this.socket = new Socket(InetAddress.getLoopbackAddress(), port);
+        this.receiveThread = new Thread("ColorfulConsole mirror viewer") {
+            
+            @Override
+            public void run() {
+                receiveChanges();
+            }
+        };
+        
+        receiveThread.setDaemon(true);
+        receiveThread.start();
+    }
+    
+    /**
+     * Checks whether this viewer still receives the changes.
+     * 
+     * @return {@code true} if connected.
+     */
+    public boolean isConnected() {
+        return connected;
+    }
+    
+    public long getChunksReceived() {
+        return chunksReceived.sum();
+    }
+    
+    /**
+     * Disconnects from the mirror. The target keeps showing the last
+     * received screen.
+     * 
+     * @throws IOException if the viewer was disconnected by a failure.
+     */
+    @Override
+    public void close() throws IOException {
+        connected = false;
+        
+        try {
+            socket.close();
+        } finally {
+            try {
+                receiveThread.join();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        
+        if (failure != null) {
+            throw failure;
+        }
+    }
+    
+    private void receiveChanges() {
+        try (Socket s = socket) {
+            DataInputStream in = new DataInputStream(
+                    new BufferedInputStream(s.getInputStream()));
+            SessionDecoder decoder =
+                    new SessionDecoder(ByteBuffer.wrap(readMessage(in)));
+            
+            while (connected) {
+                decoder.setRecords(ByteBuffer.wrap(readMessage(in)));
+                target.beginFrame();
+                
+                try {
+                    while (decoder.hasNext()) {
+                        decoder.next(target);
+                    }
+                } finally {
+                    target.commitFrame();
+                }
+                
+                chunksReceived.increment();
+            }
+        } catch (EOFException ex) {
+            // The mirror was closed.
+        } catch (IOException ex) {
+            if (connected) {
+                failure = ex;
+            }
+        } finally {
+            connected = false;
+        }
+    }
+    
+    private static byte[] readMessage(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        
+        if (length < 0 || length > MAXIMUM_MESSAGE_LENGTH) {
+            throw new IOException(
+                    "Invalid mirror message length " + length + ".");
+        }
+        
+        byte[] message = new byte[length];
+        in.readFully(message);
+        return message;
+    }
+}
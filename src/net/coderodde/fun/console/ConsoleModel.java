@@ -0,0 +1,2701 @@
+package net.coderodde.fun.console;
+
+import java.awt.Color;
+import java.awt.Point;
+import java.nio.CharBuffer;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class implements the state of a console independently of any display:
+ * the cells, the cursor, the current colors and attributes, the scrollback
+ * and the damage accumulated since the last frame. It neither creates threads
+ * nor touches the event dispatch thread, so it may be used on headless
+ * servers and rendered with a {@link ConsoleRenderer}. A
+ * {@link ColorfulConsole} is a view over a model.
+ * <p>
+ * A model constructed with a {@link Palette} stores palette indices in its
+ * cells; see {@link CellBuffer}. Remapping a palette entry then re-themes the
+ * whole screen in one repaint. The scrollback keeps the resolved colors, so
+ * it is not affected by later remappings.
+ * <p>
+ * The writers of the default view, that is, of the printing methods of the
+ * model itself, are serialized so that each character claims its own cell.
+ * Threads writing into disjoint regions should use their own
+ * {@link ConsoleWindow}s instead; those need no coordination between each
+ * other. Different models are independent and may be written to in parallel.
+ * <p>
+ * The console may be resized at any time; see
+ * {@link #setConsoleSize(int, int)}. The rows wrapped at the right border
+ * are remembered, so that a resize reflows the wrapped lines to the new
+ * width.
+ * <p>
+ * The text is printed by code points. The double-width characters take two
+ * cells and move to the next row if only one cell is left in the current
+ * one; the combining marks are composed into the character before them when
+ * Unicode has a precomposed form of the pair and are dropped otherwise.
+ * <p>
+ * The writes made between {@link #beginFrame()} and {@link #commitFrame()}
+ * form a frame. They go into a back copy of the cells, which the painters do
+ * not see, and neither mark damage nor notify anyone on the way; the commit
+ * publishes the back cells as a whole and marks as damaged only the cells
+ * that differ from the previous frame. The cells of the previous frame are
+ * recycled as the back cells of the next one.
+ * 
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 17, 2026)
+ */
+public final class ConsoleModel {
+
+    /**
+     * The minimum width of the console in character tiles.
+     */
+    private static final int MINIMUM_WIDTH = 1;
+    
+    /**
+     * The minimum height of the console in character tiles.
+     */
+    private static final int MINIMUM_HEIGHT = 1;
+    
+    /**
+     * The default foreground color.
+     */
+    private static final Color DEFAULT_FOREGROUND_COLOR = Color.WHITE;
+    
+    /**
+     * The default background color.
+     */
+    private static final Color DEFAULT_BACKGROUND_COLOR = Color.BLACK;
+    
+    /**
+     * The default foreground palette index: the bright white of the xterm
+     * palette.
+     */
+    private static final int DEFAULT_FOREGROUND_INDEX = 15;
+    
+    /**
+     * The default background palette index: the black of the xterm palette.
+     */
+    private static final int DEFAULT_BACKGROUND_INDEX = 0;
+    
+    /**
+     * The default number of rows kept in the scrollback.
+     */
+    private static final int DEFAULT_SCROLLBACK_CAPACITY = 1000;
+    
+    /**
+     * The initial value of the <code>x</code>-coordinate of the tile cursor.
+     */
+    private static final int INITIAL_CURSOR_X = 0;
+    
+    /**
+     * The initial value of the <code>y</code>-coordinate of the tile cursor.
+     */
+    private static final int INITIAL_CURSOR_Y = 0;
+    
+    /**
+     * The number of bits the <code>y</code>-coordinate of a packed cursor is
+     * shifted by.
+     */
+    private static final int CURSOR_Y_SHIFT = 32;
+    
+    /**
+     * The bit of a packed cursor set while a writer of the default view owns
+     * the cursor. The coordinates are never negative, so the bit is free.
+     */
+    private static final long CURSOR_LOCKED = 1L << 63;
+    
+    /**
+     * The number of busy-wait rounds before a writer waiting for the cursor
+     * starts yielding.
+     */
+    private static final int CURSOR_SPINS = 64;
+    
+    /**
+     * Receives the notifications of a model. Used by the views.
+     */
+    interface Listener {
+        
+        /**
+         * Called after clean cells became dirty.
+         */
+        void damaged();
+        
+        /**
+         * Called with the scroll lock held after the cells were scrolled up.
+         * Must mark the resulting damage in the dirty region.
+         * 
+         * @param rows the number of rows scrolled by.
+         */
+        void scrolled(int rows);
+        
+        /**
+         * Called with the scroll lock held after the console was resized.
+         * Must mark the resulting damage in the dirty region.
+         */
+        void resized();
+    }
+    
+    /**
+     * Receives every change of the cells and of the console cursor. Used by
+     * the session recorder. The notifications come synchronously from the
+     * writing threads, possibly from several threads at once.
+     */
+    interface MutationListener {
+        
+        /**
+         * Called after a span of cells in a row was written.
+         * 
+         * @param minX the leftmost column of the span.
+         * @param maxX the rightmost column of the span.
+         * @param y    the row of the span.
+         */
+        void cellsChanged(int minX, int maxX, int y);
+        
+        /**
+         * Called with the scroll lock held before the cells are scrolled up.
+         * The exposed bottom rows are cleared with the current colors.
+         * 
+         * @param rows the number of rows to scroll by.
+         */
+        void scrolling(int rows);
+        
+        /**
+         * Called after a writer of the default view released the cursor.
+         * 
+         * @param x the <code>x</code>-coordinate of the cursor.
+         * @param y the <code>y</code>-coordinate of the cursor.
+         */
+        void cursorMoved(int x, int y);
+        
+        /**
+         * Called with the scroll lock held after the console was resized.
+         * The content of the whole screen may have moved.
+         * 
+         * @param width  the new width of the console.
+         * @param height the new height of the console.
+         */
+        void resized(int width, int height);
+        
+        /**
+         * Called after an entry of the palette of the console was remapped.
+         * The colors of any cells may have changed without a write.
+         */
+        void paletteChanged();
+    }
+    
+    /**
+     * The current foreground color.
+     */
+    private volatile Color foreground = DEFAULT_FOREGROUND_COLOR;
+    
+    /**
+     * The current background color.
+     */
+    private volatile Color background = DEFAULT_BACKGROUND_COLOR;
+    
+    /**
+     * The current foreground palette index. Used only in the palette mode.
+     */
+    private volatile int foregroundIndex = DEFAULT_FOREGROUND_INDEX;
+    
+    /**
+     * The current background palette index. Used only in the palette mode.
+     */
+    private volatile int backgroundIndex = DEFAULT_BACKGROUND_INDEX;
+    
+    /**
+     * The palette resolving the color indices of the cells, or {@code null}
+     * if the cells store the colors directly.
+     */
+    private final Palette palette;
+    
+    /**
+     * The current bold font settings.
+     */
+    private boolean boldFontOn;
+    
+    /**
+     * The current blinking text settings.
+     */
+    private boolean blinkingTextOn;
+    
+    /**
+     * Set to {@code true} once a blinking cell is written. Until then the
+     * blink ticks do not look for blinking cells.
+     */
+    private volatile boolean blinkingCellsWritten;
+    
+    /**
+     * Whether the blink is in its "on" phase, in which the cursor cell and
+     * the blinking cells are painted with inverted colors.
+     */
+    private volatile boolean blinkPhaseOn;
+    
+    /**
+     * The cursor in character tiles with the <code>y</code>-coordinate in the
+     * high and the <code>x</code>-coordinate in the low 32 bits, so that both
+     * coordinates are always read and written together. The writers of the
+     * default view own the cursor while they write by setting the
+     * {@link #CURSOR_LOCKED} bit; this costs a single compare-and-set per
+     * write, and the new position is published with a lazy set.
+     */
+    private final AtomicLong cursor =
+            new AtomicLong(packCursor(INITIAL_CURSOR_X, INITIAL_CURSOR_Y));
+    
+    /**
+     * The character tile cells written into. Replaced with the cursor owned
+     * and the scroll lock held when the console is resized and when a frame
+     * begins; the methods not taking either read the field once.
+     */
+    private volatile CellBuffer cells;
+    
+    /**
+     * The cells of the last committed frame, which the painters read. The
+     * same as {@link #cells} unless a frame is open. Replaced with the
+     * cursor owned and the scroll lock held.
+     */
+    private volatile CellBuffer frontCells;
+    
+    /**
+     * The front cells replaced by the last commit, recycled as the back cells
+     * of the next frame, or {@code null}. Guarded by the cursor.
+     */
+    private CellBuffer spareCells;
+    
+    /**
+     * The front cells being painted without the scroll lock, or
+     * {@code null}. Such cells are not recycled.
+     */
+    private volatile CellBuffer paintedCells;
+    
+    /**
+     * Whether a frame is open, that is, whether the writes go into the back
+     * cells. Changed with the cursor owned and the scroll lock held.
+     */
+    private volatile boolean frameOpen;
+    
+    /**
+     * The high surrogate that ended the text printed last, waiting for its
+     * low surrogate, or zero. Written with the cursor owned. Only a single
+     * writer of the default view may split a surrogate pair across two
+     * prints: the halves printed by different threads pair up in the order
+     * in which the threads own the cursor.
+     */
+    private volatile char pendingHighSurrogate;
+    
+    /**
+     * Guards the scrollback and serializes scrolling with the rendering of
+     * the cells.
+     */
+    private final Object scrollLock = new Object();
+    
+    /**
+     * The rows that scrolled off the top of the console. Guarded by
+     * {@code scrollLock}.
+     */
+    private ScrollbackBuffer scrollback;
+    
+    /**
+     * Tracks the character tiles that need to be repainted.
+     */
+    private final DirtyRegion dirtyRegion;
+    
+    /**
+     * The number of characters printed.
+     */
+    private final LongAdder charactersPrinted = new LongAdder();
+    
+    /**
+     * The number of cell writes that changed nothing and marked no damage.
+     */
+    private final LongAdder suppressedWrites = new LongAdder();
+    
+    /**
+     * The view of this model, or {@code null}.
+     */
+    private volatile Listener listener;
+    
+    /**
+     * The mutation listeners. Replaced as a whole on each change.
+     */
+    private volatile MutationListener[] mutationListeners =
+            new MutationListener[0];
+    
+    /**
+     * Constructs a new model.
+     * 
+     * @param width  the width of the console in characters.
+     * @param height the height of the console in characters.
+     */
+    public ConsoleModel(int width, int height) {
+        this(width, height, null);
+    }
+    
+    /**
+     * Constructs a new model in the palette mode if a palette is given. The
+     * palette may be shared by many models.
+     * 
+     * @param width   the width of the console in characters.
+     * @param height  the height of the console in characters.
+     * @param palette the palette, or {@code null} for storing the colors in
+     *                the cells directly.
+     */
+    public ConsoleModel(int width, int height, Palette palette) {
+        checkWidth(width);
+        checkHeight(height);
+        this.palette = palette;
+        this.cells = createCells(width, height);
+        this.frontCells = cells;
+        this.dirtyRegion = new DirtyRegion(height);
+        this.scrollback = new ScrollbackBuffer(width,
+                                               DEFAULT_SCROLLBACK_CAPACITY);
+        
+        if (palette != null) {
+            palette.addModel(this);
+        }
+    }
+    
+    /**
+     * Returns the width of the console in characters.
+     * 
+     * @return the width of the console in characters.
+     */
+    public int getConsoleWidth() {
+        return cells.getWidth();
+    }
+    
+    /**
+     * Returns the height of the console in characters.
+     * 
+     * @return the height of the console in characters.
+     */
+    public int getConsoleHeight() {
+        return cells.getHeight();
+    }
+    
+    /**
+     * Resizes the console, keeping the content and the cursor. The logical
+     * lines, that is, the runs of rows wrapped at the right border, are
+     * reflowed to the new width, and the rows longer than the new width
+     * wrap. If the content does not fit in the new height, the blank rows
+     * below the cursor are dropped first and then the top rows move to the
+     * scrollback, so that the cursor stays on the screen. The scrollback
+     * widens along with the console and keeps its rows; it never narrows, so
+     * the rows already in it are not clipped.
+     * <p>
+     * The work is proportional to the rows kept: a row fitting in the new
+     * width is copied as it is, only the wrapped lines are laid out again,
+     * and a change of the height alone moves no row but those scrolled off.
+     * The view repaints the new screen once.
+     * <p>
+     * The writers of the default view wait for the resize to complete. The
+     * writes of the windows and the bulk writes racing with a resize may be
+     * lost. A resize during a frame publishes the frame built so far, as the
+     * reflow starts from the back cells.
+     * 
+     * @param width  the new width of the console in characters.
+     * @param height the new height of the console in characters.
+     */
+    public void setConsoleSize(int width, int height) {
+        checkWidth(width);
+        checkHeight(height);
+        long lockedCursor = lockCursor();
+        int x = cursorX(lockedCursor);
+        int y = cursorY(lockedCursor);
+        
+        try {
+            synchronized (scrollLock) {
+                if (width == cells.getWidth() && height == cells.getHeight()) {
+                    return;
+                }
+                
+                // Narrower slots would clip the rows scrolled off now:
+                scrollback.ensureWidth(width);
+                
+                CellBuffer newCells = createCells(width, height);
+                long newCursor = reflow(newCells, x, y);
+                x = cursorX(newCursor);
+                y = cursorY(newCursor);
+                // Keep the cursor owned, but in place for the view:
+                cursor.set(newCursor | CURSOR_LOCKED);
+                frontCells = newCells;
+                spareCells = null;
+                cells = frameOpen ? copyCells(newCells) : newCells;
+                dirtyRegion.resize(height);
+                
+                for (MutationListener mutationListener : mutationListeners) {
+                    mutationListener.resized(width, height);
+                }
+                
+                Listener currentListener = listener;
+                
+                if (currentListener != null) {
+                    currentListener.resized();
+                } else {
+                    dirtyRegion.markRectangle(0, 0, width, height);
+                }
+            }
+        } finally {
+            unlockCursor(x, y);
+        }
+        
+        fireDamaged();
+    }
+    
+    /**
+     * Prints a single character at the current console cursor. The newline
+     * character moves the cursor to the beginning of the next row. If the
+     * cursor leaves the bottom row, the console scrolls up by one row. A high
+     * surrogate is held back until the low surrogate is printed after it; if
+     * anything else is printed after it, it is printed as
+     * <code>U+FFFD</code>.
+     * 
+     * @param character the character to print.
+     */
+    public void print(char character) {
+        if (character >= 0x80 || pendingHighSurrogate != 0) {
+            // Surrogates, double-width and combining characters:
+            printUnit(character);
+            return;
+        }
+        
+        charactersPrinted.increment();
+        long lockedCursor = lockCursor();
+        int x = cursorX(lockedCursor);
+        int y = cursorY(lockedCursor);
+        
+        try {
+            CellBuffer cells = this.cells;
+            
+            if (character == '\n') {
+                cells.setRowWrapped(y, false);
+                markCursorDirty(x, y);
+            } else if (setCell(cells,
+                               cells.index(x, y),
+                               character,
+                               currentForeground(),
+                               currentBackground(),
+                               currentAttributes())) {
+                markCellsWritten(cells, x, x, y);
+            } else {
+                suppressedWrites.increment();
+            }
+            
+            if (character != '\n' && x < cells.getWidth() - 1) {
+                x++;
+            } else {
+                cells.setRowWrapped(y, character != '\n');
+                x = 0;
+                y = nextRow(y);
+            }
+            
+            markCursorDirty(x, y);
+        } finally {
+            unlockCursor(x, y);
+        }
+    }
+    
+    /**
+     * Prints the input text starting from the current console cursor. If the
+     * cursor goes outside the console, it is reset to the leftmost tile of the
+     * next row, scrolling the console up if the cursor was on the bottom row.
+     * Newline characters move the cursor to the beginning of the next row.
+     * 
+     * @param text the text to print.
+     */
+    public void print(String text) {
+        printCharacters(text, 0, text.length());
+    }
+    
+    /**
+     * Prints a range of characters starting from the current console cursor.
+     * Works like {@link #print(java.lang.String)}.
+     * 
+     * @param characters the character array.
+     * @param offset     the index of the first character to print.
+     * @param length     the number of characters to print.
+     */
+    public void print(char[] characters, int offset, int length) {
+        printCharacters(CharBuffer.wrap(characters), offset, length);
+    }
+    
+    /**
+     * Writes an attributed run of text starting at the tile
+     * <code>(x, y)</code>. The run continues at the leftmost tile of the next
+     * row when it reaches the right border and is clipped at the bottom-right
+     * tile. Neither the cursor nor the current colors are affected.
+     * 
+     * @param x          the <code>x</code>-coordinate of the first tile.
+     * @param y          the <code>y</code>-coordinate of the first tile.
+     * @param text       the text to write.
+     * @param foreground the foreground color of the run.
+     * @param background the background color of the run.
+     * @param bold       whether the run is bold.
+     */
+    public void write(int x,
+                      int y,
+                      String text,
+                      Color foreground,
+                      Color background,
+                      boolean bold) {
+        CellBuffer cells = this.cells;
+        int width = cells.getWidth();
+        int height = cells.getHeight();
+        checkX(cells, x);
+        checkY(cells, y);
+        int foregroundColor = cellColor(checkColor(foreground));
+        int backgroundColor = cellColor(checkColor(background));
+        byte attributes = bold ? CellBuffer.ATTRIBUTE_BOLD : 0;
+        // The span of the changed cells of the current row:
+        int spanStartX = 0;
+        int spanEndX = -1;
+        int suppressed = 0;
+        int length = text.length();
+        
+        for (int i = 0; i < length && y < height; i++) {
+            int codePoint = text.charAt(i);
+            int cellWidth = 1;
+            
+            if (codePoint >= 0x80) {
+                codePoint = CharacterWidth.codePointAt(text, i, length);
+                i += Character.charCount(codePoint) - 1;
+                cellWidth = Math.min(CharacterWidth.getWidth(codePoint), 
+                                     width);
+                
+                if (cellWidth == 0) {
+                    if (x > 0) {
+                        combineMark(cells, x, y, codePoint);
+                    }
+                    
+                    continue;
+                }
+                
+                if (cellWidth == 2 && x == width - 1) {
+                    // Does not fit; pad the row and continue on the next one.
+                    if (setCell(cells,
+                                cells.index(x, y),
+                                ' ',
+                                foregroundColor,
+                                backgroundColor,
+                                attributes)) {
+                        spanStartX = spanEndX < 0 ? x : spanStartX;
+                        spanEndX = x;
+                    } else {
+                        suppressed++;
+                    }
+                    
+                    if (spanEndX >= 0) {
+                        markCellsWritten(cells, spanStartX, spanEndX, y);
+                    }
+                    
+                    spanEndX = -1;
+                    x = 0;
+                    
+                    if (++y == height) {
+                        addSuppressedWrites(suppressed);
+                        return;
+                    }
+                }
+            }
+            
+            int headX = x;
+            boolean changed = setCell(cells,
+                                      cells.index(x, y),
+                                      codePoint,
+                                      foregroundColor,
+                                      backgroundColor,
+                                      attributes);
+            
+            if (cellWidth == 2) {
+                changed |= setCell(cells,
+                                   cells.index(++x, y),
+                                   CellBuffer.WIDE_TAIL,
+                                   foregroundColor,
+                                   backgroundColor,
+                                   attributes);
+            }
+            
+            if (changed) {
+                spanStartX = spanEndX < 0 ? headX : spanStartX;
+                spanEndX = x;
+            } else {
+                suppressed += cellWidth;
+            }
+            
+            if (++x == width) {
+                if (spanEndX >= 0) {
+                    markCellsWritten(cells, spanStartX, spanEndX, y);
+                }
+                
+                spanEndX = -1;
+                x = 0;
+                y++;
+            }
+        }
+        
+        if (spanEndX >= 0) {
+            markCellsWritten(cells, spanStartX, spanEndX, y);
+        }
+        
+        addSuppressedWrites(suppressed);
+    }
+    
+    /**
+     * Fills a rectangle of tiles with the same character and attributes.
+     * 
+     * @param x          the leftmost column of the rectangle.
+     * @param y          the topmost row of the rectangle.
+     * @param width      the width of the rectangle in tiles.
+     * @param height     the height of the rectangle in tiles.
+     * @param character  the character to fill with.
+     * @param foreground the foreground color.
+     * @param background the background color.
+     * @param bold       whether the character is bold.
+     */
+    public void fill(int x,
+                     int y,
+                     int width,
+                     int height,
+                     char character,
+                     Color foreground,
+                     Color background,
+                     boolean bold) {
+        fillRectangle(x,
+                      y,
+                      width,
+                      height,
+                      character,
+                      cellColor(checkColor(foreground)),
+                      cellColor(checkColor(background)),
+                      bold);
+    }
+    
+    /**
+     * Fills a rectangle of tiles with the same character and attributes,
+     * taking the colors from the palette entries with the given indices.
+     * 
+     * @param x               the leftmost column of the rectangle.
+     * @param y               the topmost row of the rectangle.
+     * @param width           the width of the rectangle in tiles.
+     * @param height          the height of the rectangle in tiles.
+     * @param character       the character to fill with.
+     * @param foregroundIndex the foreground palette index.
+     * @param backgroundIndex the background palette index.
+     * @param bold            whether the character is bold.
+     * @throws IllegalStateException if this model is not in the palette mode.
+     */
+    public void fillIndexed(int x,
+                            int y,
+                            int width,
+                            int height,
+                            char character,
+                            int foregroundIndex,
+                            int backgroundIndex,
+                            boolean bold) {
+        checkPaletteMode();
+        fillRectangle(x,
+                      y,
+                      width,
+                      height,
+                      character,
+                      checkPaletteIndex(foregroundIndex),
+                      checkPaletteIndex(backgroundIndex),
+                      bold);
+    }
+    
+    /**
+     * Fills a rectangle of tiles with the colors given in the representation
+     * of the cells, writing and reporting only the cells that change.
+     * 
+     * @param x               the leftmost column of the rectangle.
+     * @param y               the topmost row of the rectangle.
+     * @param width           the width of the rectangle in tiles.
+     * @param height          the height of the rectangle in tiles.
+     * @param character       the character to fill with.
+     * @param foregroundColor the foreground color.
+     * @param backgroundColor the background color.
+     * @param bold            whether the character is bold.
+     */
+    private void fillRectangle(int x,
+                               int y,
+                               int width,
+                               int height,
+                               char character,
+                               int foregroundColor,
+                               int backgroundColor,
+                               boolean bold) {
+        CellBuffer cells = this.cells;
+        checkRectangle(cells, x, y, width, height);
+        byte attributes = bold ? CellBuffer.ATTRIBUTE_BOLD : 0;
+        // The commit of a frame compares the whole cells anyway:
+        boolean compare = !frameOpen;
+        int lastX = x + width - 1;
+        int suppressed = 0;
+        
+        for (int row = y; row < y + height; row++) {
+            int rowIndex = cells.index(0, row);
+            int minX = compare ? -1 : x;
+            int maxX = compare ? -1 : lastX;
+            
+            for (int column = x; compare && column <= lastX; column++) {
+                if (cells.holdsCell(rowIndex + column,
+                                    character,
+                                    foregroundColor,
+                                    backgroundColor,
+                                    attributes)) {
+                    suppressed++;
+                } else {
+                    if (minX < 0) {
+                        minX = column;
+                    }
+                    
+                    maxX = column;
+                }
+            }
+            
+            if (minX >= 0) {
+                fillCells(cells,
+                          minX,
+                          row,
+                          maxX - minX + 1,
+                          1,
+                          character,
+                          foregroundColor,
+                          backgroundColor,
+                          attributes);
+                markRectangleSpanWritten(cells, x, lastX, minX, maxX, row);
+            }
+        }
+        
+        addSuppressedWrites(suppressed);
+    }
+    
+    /**
+     * Copies a rectangle of tiles to another location of this console. The
+     * rectangles may overlap, so this may be used for moving content around.
+     * 
+     * @param srcX   the leftmost column of the source rectangle.
+     * @param srcY   the topmost row of the source rectangle.
+     * @param width  the width of the rectangle in tiles.
+     * @param height the height of the rectangle in tiles.
+     * @param dstX   the leftmost column of the target rectangle.
+     * @param dstY   the topmost row of the target rectangle.
+     */
+    public void copyRectangle(int srcX,
+                              int srcY,
+                              int width,
+                              int height,
+                              int dstX,
+                              int dstY) {
+        CellBuffer cells = this.cells;
+        checkRectangle(cells, srcX, srcY, width, height);
+        checkRectangle(cells, dstX, dstY, width, height);
+        int suppressed = 0;
+        
+        // Copy the rows in the order of CellBuffer.copyRectangle, so that no
+        // source row is overwritten before it is read:
+        if (srcY < dstY) {
+            for (int row = height - 1; row >= 0; row--) {
+                suppressed += copyRow(cells,
+                                      srcX,
+                                      srcY + row,
+                                      width,
+                                      dstX,
+                                      dstY + row);
+            }
+        } else {
+            for (int row = 0; row < height; row++) {
+                suppressed += copyRow(cells,
+                                      srcX,
+                                      srcY + row,
+                                      width,
+                                      dstX,
+                                      dstY + row);
+            }
+        }
+        
+        addSuppressedWrites(suppressed);
+    }
+    
+    /**
+     * Copies the cells of a row of a rectangle that differ from their targets
+     * and reports them.
+     * 
+     * @param cells the cells of this model.
+     * @param srcX  the leftmost column of the source span.
+     * @param srcY  the row of the source span.
+     * @param width the width of the span in tiles.
+     * @param dstX  the leftmost column of the target span.
+     * @param dstY  the row of the target span.
+     * @return the number of cells left alone as they already held their 
+     *         content.
+     */
+    private int copyRow(CellBuffer cells,
+                        int srcX,
+                        int srcY,
+                        int width,
+                        int dstX,
+                        int dstY) {
+        int lastX = dstX + width - 1;
+        int minX = dstX;
+        int maxX = lastX;
+        int suppressed = 0;
+        
+        // The commit of a frame compares the whole cells anyway:
+        if (!frameOpen) {
+            int srcIndex = cells.index(srcX, srcY);
+            int dstIndex = cells.index(dstX, dstY);
+            minX = -1;
+            
+            for (int column = 0; column < width; column++) {
+                if (cells.holdsSameCell(dstIndex + column,
+                                        srcIndex + column)) {
+                    suppressed++;
+                } else {
+                    if (minX < 0) {
+                        minX = dstX + column;
+                    }
+                    
+                    maxX = dstX + column;
+                }
+            }
+        }
+        
+        if (minX >= 0 && minX <= maxX) {
+            cells.copyRectangle(cells,
+                                srcX + minX - dstX,
+                                srcY,
+                                maxX - minX + 1,
+                                1,
+                                minX,
+                                dstY);
+            markRectangleSpanWritten(cells, dstX, lastX, minX, maxX, dstY);
+        }
+        
+        return suppressed;
+    }
+    
+    /**
+     * Copies a rectangle of cells from a caller-supplied cell buffer into this
+     * console.
+     * 
+     * @param source the source cell buffer.
+     * @param srcX   the leftmost column of the source rectangle.
+     * @param srcY   the topmost row of the source rectangle.
+     * @param width  the width of the rectangle in tiles.
+     * @param height the height of the rectangle in tiles.
+     * @param dstX   the leftmost column of the target rectangle.
+     * @param dstY   the topmost row of the target rectangle.
+     */
+    public void blit(CellBuffer source,
+                     int srcX,
+                     int srcY,
+                     int width,
+                     int height,
+                     int dstX,
+                     int dstY) {
+        Objects.requireNonNull(source, "The source cell buffer is null.");
+        
+        if (srcX < 0
+                || srcY < 0
+                || width < 0
+                || height < 0
+                || srcX + width > source.getWidth()
+                || srcY + height > source.getHeight()) {
+            throw new IndexOutOfBoundsException(
+                    "The source rectangle (" + srcX + ", " + srcY + ", " +
+                    width + ", " + height + ") does not fit in the source " +
+                    "buffer.");
+        }
+        
+        CellBuffer cells = this.cells;
+        checkRectangle(cells, dstX, dstY, width, height);
+        cells.copyRectangle(source, srcX, srcY, width, height, dstX, dstY);
+        blinkingCellsWritten = true;
+        markRectangleWritten(cells, dstX, dstY, width, height);
+    }
+    
+    /**
+     * Scrolls the console up by the given number of rows. The top rows are
+     * moved to the scrollback and the exposed bottom rows are cleared with the
+     * current background color. The cursor stays where it is.
+     * 
+     * @param rows the number of rows to scroll by.
+     */
+    public void scrollUp(int rows) {
+        if (rows < 0) {
+            throw new IllegalArgumentException(
+                    "The number of rows to scroll is negative: " + rows + ".");
+        }
+        
+        if (rows == 0) {
+            return;
+        }
+        
+        synchronized (scrollLock) {
+            rows = Math.min(rows, cells.getHeight());
+            // The commit of a frame compares the cells instead:
+            boolean framed = frameOpen;
+            
+            if (!framed) {
+                for (MutationListener mutationListener : mutationListeners) {
+                    mutationListener.scrolling(rows);
+                }
+            }
+            
+            for (int y = 0; y < rows; y++) {
+                scrollback.pushRow(cells, y);
+            }
+            
+            if (palette == null) {
+                cells.scrollUp(rows,
+                               ' ',
+                               foreground.getRGB(),
+                               background.getRGB());
+            } else {
+                cells.scrollUpIndexed(rows,
+                                      ' ',
+                                      foregroundIndex,
+                                      backgroundIndex);
+            }
+            
+            if (framed) {
+                return;
+            }
+            
+            Listener currentListener = listener;
+            
+            if (currentListener != null) {
+                currentListener.scrolled(rows);
+            } else {
+                dirtyRegion.markRectangle(0,
+                                          0,
+                                          cells.getWidth(),
+                                          cells.getHeight());
+            }
+        }
+        
+        fireDamaged();
+    }
+    
+    /**
+     * Begins a frame. Until the frame is committed, the writes go into a back
+     * copy of the cells: the painters keep showing the last committed frame,
+     * and the writes mark no damage and notify no mutation listener. The
+     * reads through this model see the back cells. The cursor is not part of
+     * the frame and moves as usual.
+     * <p>
+     * A frame is meant to be written by the thread that began it, or by
+     * threads ordered with it. The writes of the windows and the bulk writes
+     * racing with the beginning or the commit of a frame may land in either
+     * frame.
+     * 
+     * @throws IllegalStateException if a frame is already open.
+     */
+    public void beginFrame() {
+        long lockedCursor = lockCursor();
+        
+        try {
+            synchronized (scrollLock) {
+                if (frameOpen) {
+                    throw new IllegalStateException(
+                            "A frame is already open.");
+                }
+                
+                CellBuffer front = frontCells;
+                CellBuffer back = spareCells;
+                spareCells = null;
+                
+                if (back == null 
+                        || back == paintedCells
+                        || back.getWidth() != front.getWidth()
+                        || back.getHeight() != front.getHeight()) {
+                    back = copyCells(front);
+                } else {
+                    back.copyFrom(front);
+                }
+                
+                frameOpen = true;
+                cells = back;
+            }
+        } finally {
+            unlockCursor(cursorX(lockedCursor), cursorY(lockedCursor));
+        }
+    }
+    
+    /**
+     * Commits the open frame. The back cells become the front cells at once,
+     * and only the cells differing between the two are marked as damaged and
+     * reported to the mutation listeners.
+     * 
+     * @throws IllegalStateException if no frame is open.
+     */
+    public void commitFrame() {
+        long lockedCursor = lockCursor();
+        
+        try {
+            CellBuffer previous;
+            CellBuffer committed;
+            
+            synchronized (scrollLock) {
+                if (!frameOpen) {
+                    throw new IllegalStateException("No frame is open.");
+                }
+                
+                previous = frontCells;
+                committed = cells;
+                frontCells = committed;
+                frameOpen = false;
+            }
+            
+            for (int y = 0; y < committed.getHeight(); y++) {
+                long span = committed.findDifference(previous, y);
+                
+                if (span >= 0L) {
+                    markCellsChanged((int) (span >>> 32), (int) span, y);
+                }
+            }
+            
+            spareCells = previous;
+        } finally {
+            unlockCursor(cursorX(lockedCursor), cursorY(lockedCursor));
+        }
+        
+        fireDamaged();
+    }
+    
+    /**
+     * Checks whether a frame is open.
+     * 
+     * @return {@code true} between {@link #beginFrame()} and
+     *         {@link #commitFrame()}.
+     */
+    public boolean isFrameOpen() {
+        return frameOpen;
+    }
+    
+    /**
+     * Sets the maximum number of rows kept in the scrollback. The current
+     * scrollback is discarded.
+     * 
+     * @param capacity the number of rows to keep.
+     */
+    public void setScrollbackCapacity(int capacity) {
+        synchronized (scrollLock) {
+            scrollback = new ScrollbackBuffer(cells.getWidth(), capacity);
+        }
+    }
+    
+    public int getScrollbackCapacity() {
+        synchronized (scrollLock) {
+            return scrollback.getCapacity();
+        }
+    }
+    
+    /**
+     * Returns the number of rows currently held in the scrollback.
+     * 
+     * @return the number of scrollback rows.
+     */
+    public int getScrollbackSize() {
+        synchronized (scrollLock) {
+            return scrollback.size();
+        }
+    }
+    
+    /**
+     * Returns the text of a scrollback row with the trailing spaces removed.
+     * 
+     * @param index the index of the row, 0 being the oldest row.
+     * @return the text of the row.
+     */
+    public String getScrollbackText(int index) {
+        synchronized (scrollLock) {
+            return scrollback.getRowText(index);
+        }
+    }
+    
+    /**
+     * Copies a scrollback row with its colors and attributes into a row of the
+     * given cell buffer.
+     * 
+     * @param index  the index of the row, 0 being the oldest row.
+     * @param target the target cell buffer.
+     * @param y      the target row.
+     */
+    public void copyScrollbackRow(int index, CellBuffer target, int y) {
+        Objects.requireNonNull(target, "The target cell buffer is null.");
+        
+        synchronized (scrollLock) {
+            scrollback.copyRow(index, target, y);
+        }
+    }
+    
+    /**
+     * Returns the palette of this model.
+     * 
+     * @return the palette, or {@code null} if this model is not in the
+     *         palette mode.
+     */
+    public Palette getPalette() {
+        return palette;
+    }
+    
+    /**
+     * Returns the current foreground color. In the palette mode, this is the
+     * current color of the current foreground palette entry.
+     * 
+     * @return the current foreground color.
+     */
+    public Color getForeground() {
+        return palette == null ? foreground : palette.getColor(foregroundIndex);
+    }
+    
+    /**
+     * Sets the foreground color of the characters printed from now on. In the
+     * palette mode, the nearest palette entry is selected.
+     * 
+     * @param foreground the foreground color.
+     */
+    public void setForeground(Color foreground) {
+        this.foreground = checkColor(foreground);
+        
+        if (palette != null) {
+            this.foregroundIndex = palette.nearestIndex(foreground.getRGB());
+        }
+    }
+    
+    /**
+     * Returns the current background color. In the palette mode, this is the
+     * current color of the current background palette entry.
+     * 
+     * @return the current background color.
+     */
+    public Color getBackground() {
+        return palette == null ? background : palette.getColor(backgroundIndex);
+    }
+    
+    /**
+     * Sets the background color of the characters printed from now on and of
+     * the rows exposed by scrolling. In the palette mode, the nearest palette
+     * entry is selected.
+     * 
+     * @param background the background color.
+     */
+    public void setBackground(Color background) {
+        this.background = checkColor(background);
+        
+        if (palette != null) {
+            this.backgroundIndex = palette.nearestIndex(background.getRGB());
+        }
+    }
+    
+    /**
+     * Returns the current foreground palette index.
+     * 
+     * @return the current foreground palette index.
+     * @throws IllegalStateException if this model is not in the palette mode.
+     */
+    public int getForegroundIndex() {
+        checkPaletteMode();
+        return foregroundIndex;
+    }
+    
+    /**
+     * Selects the palette entry of the foreground of the characters printed
+     * from now on.
+     * 
+     * @param index the foreground palette index.
+     * @throws IllegalStateException if this model is not in the palette mode.
+     */
+    public void setForegroundIndex(int index) {
+        checkPaletteMode();
+        this.foregroundIndex = checkPaletteIndex(index);
+    }
+    
+    /**
+     * Returns the current background palette index.
+     * 
+     * @return the current background palette index.
+     * @throws IllegalStateException if this model is not in the palette mode.
+     */
+    public int getBackgroundIndex() {
+        checkPaletteMode();
+        return backgroundIndex;
+    }
+    
+    /**
+     * Selects the palette entry of the background of the characters printed
+     * from now on and of the rows exposed by scrolling.
+     * 
+     * @param index the background palette index.
+     * @throws IllegalStateException if this model is not in the palette mode.
+     */
+    public void setBackgroundIndex(int index) {
+        checkPaletteMode();
+        this.backgroundIndex = checkPaletteIndex(index);
+    }
+    
+    public void setBoldText(boolean bold) {
+        this.boldFontOn = bold;
+    }
+    
+    /**
+     * Sets whether the characters printed from now on blink.
+     * 
+     * @param blinking whether the text blinks.
+     */
+    public void setBlinkingText(boolean blinking) {
+        this.blinkingTextOn = blinking;
+    }
+    
+    /**
+     * Returns the current console cursor position.
+     * 
+     * @return the current console cursor position.
+     */
+    public Point getConsoleCursorPosition() {
+        long cursor = this.cursor.get();
+        return new Point(cursorX(cursor), cursorY(cursor));
+    }
+    
+    /**
+     * Returns the <code>x</code>-coordinate of the cursor without allocating
+     * a point.
+     * 
+     * @return the <code>x</code>-coordinate of the cursor.
+     */
+    int getCursorX() {
+        return cursorX(cursor.get());
+    }
+    
+    /**
+     * Returns the <code>y</code>-coordinate of the cursor without allocating
+     * a point.
+     * 
+     * @return the <code>y</code>-coordinate of the cursor.
+     */
+    int getCursorY() {
+        return cursorY(cursor.get());
+    }
+    
+    /**
+     * Sets the cursor to a requested position.
+     * 
+     * @param x the x-coordinate of the cursor.
+     * @param y the y-coordinate of the cursor.
+     */
+    public void setConsoleCursorPosition(int x, int y) {
+        long lockedCursor = lockCursor();
+        int newX = cursorX(lockedCursor);
+        int newY = cursorY(lockedCursor);
+        
+        try {
+            // Checked with the cursor owned, so that no resize intervenes:
+            checkX(cells, x);
+            checkY(cells, y);
+            markDirty(newX, newY);
+            markDirty(x, y);
+            newX = x;
+            newY = y;
+        } finally {
+            unlockCursor(newX, newY);
+        }
+    }
+    
+    /**
+     * Creates a window view over a rectangle of this console. The window has
+     * its own cursor, colors and attributes.
+     * 
+     * @param x      the leftmost column of the window.
+     * @param y      the topmost row of the window.
+     * @param width  the width of the window in tiles.
+     * @param height the height of the window in tiles.
+     * @return the window.
+     */
+    public ConsoleWindow createWindow(int x, int y, int width, int height) {
+        if (width < 1 || height < 1) {
+            throw new IllegalArgumentException(
+                    "The window size " + width + " x " + height + " is " +
+                    "empty.");
+        }
+        
+        checkRectangle(cells, x, y, width, height);
+        return new ConsoleWindow(this, x, y, width, height);
+    }
+    
+    /**
+     * Returns the number of characters printed so far.
+     * 
+     * @return the number of characters printed.
+     */
+    public long getCharactersPrinted() {
+        return charactersPrinted.sum();
+    }
+    
+    void resetCharactersPrinted() {
+        charactersPrinted.reset();
+    }
+    
+    /**
+     * Returns the number of cell writes suppressed so far because the cell
+     * already held the written character, colors and attributes. Such writes
+     * mark no damage, so they cost no painting.
+     * 
+     * @return the number of suppressed writes.
+     */
+    public long getSuppressedWrites() {
+        return suppressedWrites.sum();
+    }
+    
+    void resetSuppressedWrites() {
+        suppressedWrites.reset();
+    }
+    
+    void addSuppressedWrites(int count) {
+        if (count > 0) {
+            suppressedWrites.add(count);
+        }
+    }
+    
+    /**
+     * Returns the cells written into: the back cells while a frame is open.
+     * 
+     * @return the cells written into.
+     */
+    CellBuffer getCellBuffer() {
+        return cells;
+    }
+    
+    /**
+     * Returns the cells of the last committed frame. The cells are not
+     * replaced or recycled while the scroll lock is held.
+     * 
+     * @return the front cells.
+     */
+    CellBuffer getFrontCellBuffer() {
+        return frontCells;
+    }
+    
+    /**
+     * Returns the cells of the last committed frame for painting them without
+     * the scroll lock. The cells are not recycled until
+     * {@link #releaseFrontCellBuffer()} is called. Only one thread, the event
+     * dispatch thread, may paint this way.
+     * 
+     * @return the front cells.
+     */
+    CellBuffer acquireFrontCellBuffer() {
+        CellBuffer front;
+        
+        do {
+            front = frontCells;
+            paintedCells = front;
+            // A frame beginning in between might have missed the painting:
+        } while (front != frontCells);
+        
+        return front;
+    }
+    
+    void releaseFrontCellBuffer() {
+        paintedCells = null;
+    }
+    
+    DirtyRegion getDirtyRegion() {
+        return dirtyRegion;
+    }
+    
+    Object getScrollLock() {
+        return scrollLock;
+    }
+    
+    void setListener(Listener listener) {
+        this.listener = listener;
+    }
+    
+    synchronized void addMutationListener(MutationListener mutationListener) {
+        MutationListener[] listeners =
+                Arrays.copyOf(mutationListeners, mutationListeners.length + 1);
+        listeners[listeners.length - 1] = mutationListener;
+        mutationListeners = listeners;
+    }
+    
+    synchronized void removeMutationListener(
+            MutationListener mutationListener) {
+        MutationListener[] listeners = mutationListeners;
+        
+        for (int i = 0; i < listeners.length; i++) {
+            if (listeners[i] == mutationListener) {
+                MutationListener[] remaining =
+                        new MutationListener[listeners.length - 1];
+                System.arraycopy(listeners, 0, remaining, 0, i);
+                System.arraycopy(listeners,
+                                 i + 1,
+                                 remaining,
+                                 i,
+                                 listeners.length - i - 1);
+                mutationListeners = remaining;
+                return;
+            }
+        }
+    }
+    
+    /**
+     * Reports the remapping of a palette entry to the mutation listeners and
+     * marks the whole screen as damaged. The remapping re-colors the cells
+     * without changing their palette indices, so the listeners comparing
+     * cells would not notice it otherwise.
+     */
+    void paletteChanged() {
+        for (MutationListener mutationListener : mutationListeners) {
+            mutationListener.paletteChanged();
+        }
+        
+        CellBuffer cells = this.cells;
+        markDirtyRectangle(0, 0, cells.getWidth(), cells.getHeight());
+    }
+    
+    boolean isBlinkPhaseOn() {
+        return blinkPhaseOn;
+    }
+    
+    /**
+     * Switches the blink phase and marks the cursor and the blinking cells as
+     * damaged.
+     * 
+     * @param blinkPhaseOn whether the blink enters its "on" phase.
+     */
+    void setBlinkPhaseOn(boolean blinkPhaseOn) {
+        this.blinkPhaseOn = blinkPhaseOn;
+        markDirty(getCursorX(), getCursorY());
+        
+        if (blinkingCellsWritten) {
+            markBlinkingCells();
+        }
+    }
+    
+    /**
+     * Returns the cell index of the cursor.
+     * 
+     * @return the cell index of the cursor.
+     */
+    int cursorIndex() {
+        CellBuffer cells = this.cells;
+        long cursor = this.cursor.get();
+        return cells.index(cursorX(cursor), cursorY(cursor));
+    }
+    
+    /**
+     * Prints a range of characters starting from the current console cursor
+     * and marks the damage once per row.
+     * 
+     * @param text   the text to print from.
+     * @param offset the index of the first character to print.
+     * @param length the number of characters to print.
+     */
+    void printCharacters(CharSequence text, int offset, int length) {
+        charactersPrinted.add(length);
+        int foreground = currentForeground();
+        int background = currentBackground();
+        byte attributes = currentAttributes();
+        int end = offset + length;
+        long lockedCursor = lockCursor();
+        int x = cursorX(lockedCursor);
+        int y = cursorY(lockedCursor);
+        
+        try {
+            CellBuffer cells = this.cells;
+            int width = cells.getWidth();
+            int height = cells.getHeight();
+            // The span of the changed cells of the current row:
+            int spanStartX = 0;
+            int spanEndX = -1;
+            int suppressed = 0;
+            char highSurrogate = length > 0 ? pendingHighSurrogate : 0;
+            
+            if (highSurrogate != 0) {
+                pendingHighSurrogate = 0;
+            }
+            
+            for (int i = offset; i < end; i++) {
+                char unit = text.charAt(i);
+                int codePoint = unit;
+                int cellWidth = 1;
+                
+                if (codePoint >= 0x80 || highSurrogate != 0) {
+                    if (highSurrogate != 0) {
+                        codePoint = CharacterWidth.pairHeldSurrogate(
+                                highSurrogate,
+                                unit);
+                        
+                        if (!Character.isLowSurrogate(unit)) {
+                            // Print the unit on its own next:
+                            i--;
+                        }
+                        
+                        highSurrogate = 0;
+                    } else if (i == end - 1 
+                            && Character.isHighSurrogate(unit)) {
+                        // Wait for the low surrogate in the next print:
+                        pendingHighSurrogate = unit;
+                        break;
+                    } else if (Character.isSurrogate(unit)) {
+                        codePoint = CharacterWidth.codePointAt(text, i, end);
+                        i += Character.charCount(codePoint) - 1;
+                    }
+                    
+                    cellWidth = Math.min(CharacterWidth.getWidth(codePoint), 
+                                         width);
+                    
+                    if (cellWidth == 0) {
+                        if (x > 0) {
+                            combineMark(cells, x, y, codePoint);
+                        } else if (y > 0 && cells.isRowWrapped(y - 1)) {
+                            combineMark(cells, width, y - 1, codePoint);
+                        }
+                        
+                        continue;
+                    }
+                    
+                    if (cellWidth == 2 && x == width - 1) {
+                        // Does not fit; pad the row and wrap.
+                        if (setCell(cells,
+                                    cells.index(x, y),
+                                    ' ',
+                                    foreground,
+                                    background,
+                                    attributes)) {
+                            spanStartX = spanEndX < 0 ? x : spanStartX;
+                            spanEndX = x;
+                        } else {
+                            suppressed++;
+                        }
+                        
+                        if (spanEndX >= 0) {
+                            markCellsWritten(cells, spanStartX, spanEndX, y);
+                        }
+                        
+                        cells.setRowWrapped(y, true);
+                        spanEndX = -1;
+                        x = 0;
+                        y = nextRow(y);
+                    }
+                }
+                
+                if (codePoint != '\n') {
+                    int headX = x;
+                    boolean changed = setCell(cells,
+                                              cells.index(x, y),
+                                              codePoint,
+                                              foreground,
+                                              background,
+                                              attributes);
+                    
+                    if (cellWidth == 2) {
+                        changed |= setCell(cells,
+                                           cells.index(++x, y),
+                                           CellBuffer.WIDE_TAIL,
+                                           foreground,
+                                           background,
+                                           attributes);
+                    }
+                    
+                    if (changed) {
+                        spanStartX = spanEndX < 0 ? headX : spanStartX;
+                        spanEndX = x;
+                    } else {
+                        suppressed += cellWidth;
+                    }
+                    
+                    if (x < width - 1) {
+                        x++;
+                        continue;
+                    }
+                }
+                
+                // Mark the damage before scrolling so that it moves along:
+                if (spanEndX >= 0) {
+                    markCellsWritten(cells, spanStartX, spanEndX, y);
+                }
+                
+                cells.setRowWrapped(y, codePoint != '\n');
+                spanEndX = -1;
+                x = 0;
+                
+                if (y < height - 1) {
+                    y++;
+                } else {
+                    scrollUp(1);
+                }
+            }
+            
+            if (spanEndX >= 0) {
+                markCellsWritten(cells, spanStartX, spanEndX, y);
+            }
+            
+            addSuppressedWrites(suppressed);
+            markCursorDirty(cursorX(lockedCursor), cursorY(lockedCursor));
+            markCursorDirty(x, y);
+        } finally {
+            unlockCursor(x, y);
+        }
+    }
+    
+    /**
+     * Prints a single UTF-16 unit at the current console cursor without
+     * allocating: a unit that is not ASCII, or any unit following a held
+     * high surrogate. Works like
+     * {@link #printCharacters(java.lang.CharSequence, int, int)} for a text
+     * of one unit.
+     * 
+     * @param unit the unit to print.
+     */
+    private void printUnit(char unit) {
+        charactersPrinted.increment();
+        int foreground = currentForeground();
+        int background = currentBackground();
+        byte attributes = currentAttributes();
+        long lockedCursor = lockCursor();
+        long newCursor = packCursor(cursorX(lockedCursor),
+                                    cursorY(lockedCursor));
+        
+        try {
+            CellBuffer cells = this.cells;
+            char highSurrogate = pendingHighSurrogate;
+            int codePoint = unit;
+            
+            if (highSurrogate != 0) {
+                pendingHighSurrogate = 0;
+                codePoint = CharacterWidth.pairHeldSurrogate(highSurrogate,
+                                                             unit);
+                
+                if (!Character.isLowSurrogate(unit)) {
+                    newCursor = printCodePoint(cells,
+                                               newCursor,
+                                               codePoint,
+                                               foreground,
+                                               background,
+                                               attributes);
+                    codePoint = unit;
+                }
+            }
+            
+            if (Character.isHighSurrogate(unit) && codePoint == unit) {
+                // Wait for the low surrogate in the next print:
+                pendingHighSurrogate = unit;
+            } else {
+                if (Character.isLowSurrogate(unit) && codePoint == unit) {
+                    codePoint = CharacterWidth.REPLACEMENT_CHARACTER;
+                }
+                
+                newCursor = printCodePoint(cells,
+                                           newCursor,
+                                           codePoint,
+                                           foreground,
+                                           background,
+                                           attributes);
+            }
+            
+            markCursorDirty(cursorX(lockedCursor), cursorY(lockedCursor));
+            markCursorDirty(cursorX(newCursor), cursorY(newCursor));
+        } finally {
+            unlockCursor(cursorX(newCursor), cursorY(newCursor));
+        }
+    }
+    
+    /**
+     * Prints a single code point at the given cursor and marks the damage.
+     * Called with the cursor owned.
+     * 
+     * @param cells      the cells to print into.
+     * @param cursor     the packed cursor.
+     * @param codePoint  the code point to print.
+     * @param foreground the foreground color of the cell.
+     * @param background the background color of the cell.
+     * @param attributes the attributes of the cell.
+     * @return the packed cursor past the printed code point.
+     */
+    private long printCodePoint(CellBuffer cells,
+                                long cursor,
+                                int codePoint,
+                                int foreground,
+                                int background,
+                                byte attributes) {
+        int x = cursorX(cursor);
+        int y = cursorY(cursor);
+        int width = cells.getWidth();
+        
+        if (codePoint == '\n') {
+            cells.setRowWrapped(y, false);
+            return packCursor(0, nextRow(y));
+        }
+        
+        int cellWidth = codePoint < 0x80 ?
+                        1 :
+                        Math.min(CharacterWidth.getWidth(codePoint), width);
+        
+        if (cellWidth == 0) {
+            if (x > 0) {
+                combineMark(cells, x, y, codePoint);
+            } else if (y > 0 && cells.isRowWrapped(y - 1)) {
+                combineMark(cells, width, y - 1, codePoint);
+            }
+            
+            return cursor;
+        }
+        
+        if (cellWidth == 2 && x == width - 1) {
+            // Does not fit; pad the row and wrap.
+            if (setCell(cells,
+                        cells.index(x, y),
+                        ' ',
+                        foreground,
+                        background,
+                        attributes)) {
+                markCellsWritten(cells, x, x, y);
+            } else {
+                suppressedWrites.increment();
+            }
+            
+            cells.setRowWrapped(y, true);
+            x = 0;
+            y = nextRow(y);
+        }
+        
+        int headX = x;
+        boolean changed = setCell(cells,
+                                  cells.index(x, y),
+                                  codePoint,
+                                  foreground,
+                                  background,
+                                  attributes);
+        
+        if (cellWidth == 2) {
+            changed |= setCell(cells,
+                               cells.index(++x, y),
+                               CellBuffer.WIDE_TAIL,
+                               foreground,
+                               background,
+                               attributes);
+        }
+        
+        if (changed) {
+            markCellsWritten(cells, headX, x, y);
+        } else {
+            addSuppressedWrites(cellWidth);
+        }
+        
+        if (x < width - 1) {
+            return packCursor(x + 1, y);
+        }
+        
+        cells.setRowWrapped(y, true);
+        return packCursor(0, nextRow(y));
+    }
+    
+    /**
+     * Returns the row below the given one, scrolling the console up if the
+     * given row is the bottom row.
+     * 
+     * @param y the current row of the cursor.
+     * @return the next row of the cursor.
+     */
+    private int nextRow(int y) {
+        if (y < cells.getHeight() - 1) {
+            return y + 1;
+        }
+        
+        scrollUp(1);
+        return y;
+    }
+    
+    /**
+     * Writes a cell with the colors given in the representation of the cells:
+     * palette indices in the palette mode and packed ARGB colors otherwise.
+     * A cell already holding the content is left alone, so that the caller
+     * marks no damage for it; the caller counts it with
+     * {@link #addSuppressedWrites(int)}, once per call rather than per cell.
+     * 
+     * @param cells      the cells of this model.
+     * @param index      the index of the cell.
+     * @param codePoint  the code point to store.
+     * @param foreground the foreground color.
+     * @param background the background color.
+     * @param attributes the attribute bits.
+     * @return {@code true} if the cell changed.
+     */
+    boolean setCell(CellBuffer cells,
+                    int index,
+                    int codePoint,
+                    int foreground,
+                    int background,
+                    byte attributes) {
+        // The commit of a frame compares the whole cells anyway:
+        if (!frameOpen && cells.holdsCell(index,
+                                          codePoint,
+                                          foreground,
+                                          background,
+                                          attributes)) {
+            return false;
+        }
+        
+        if ((attributes & CellBuffer.ATTRIBUTE_BLINK) != 0) {
+            blinkingCellsWritten = true;
+        }
+        
+        if (palette == null) {
+            cells.setCell(index, codePoint, foreground, background, attributes);
+        } else {
+            cells.setIndexedCell(index,
+                                 codePoint,
+                                 foreground,
+                                 background,
+                                 attributes);
+        }
+        
+        return true;
+    }
+    
+    /**
+     * Fills a rectangle of cells with the colors given in the representation
+     * of the cells.
+     * 
+     * @param cells      the cells of this model.
+     * @param x          the leftmost column of the rectangle.
+     * @param y          the topmost row of the rectangle.
+     * @param width      the width of the rectangle in cells.
+     * @param height     the height of the rectangle in cells.
+     * @param codePoint  the code point to store.
+     * @param foreground the foreground color.
+     * @param background the background color.
+     * @param attributes the attribute bits.
+     */
+    void fillCells(CellBuffer cells,
+                   int x,
+                   int y,
+                   int width,
+                   int height,
+                   int codePoint,
+                   int foreground,
+                   int background,
+                   byte attributes) {
+        if (palette == null) {
+            cells.fill(x,
+                       y,
+                       width,
+                       height,
+                       codePoint,
+                       foreground,
+                       background,
+                       attributes);
+        } else {
+            cells.fillIndexed(x,
+                              y,
+                              width,
+                              height,
+                              codePoint,
+                              foreground,
+                              background,
+                              attributes);
+        }
+    }
+    
+    /**
+     * Converts a color to the representation of the cells.
+     * 
+     * @param color the color to convert.
+     * @return the palette index in the palette mode, the packed ARGB color
+     *         otherwise.
+     */
+    int cellColor(Color color) {
+        return cellColor(color.getRGB());
+    }
+    
+    /**
+     * Converts a packed ARGB color to the representation of the cells.
+     * 
+     * @param argb the packed ARGB color to convert.
+     * @return the palette index in the palette mode, the color itself
+     *         otherwise.
+     */
+    int cellColor(int argb) {
+        return palette == null ? argb : palette.nearestIndex(argb);
+    }
+    
+    private int currentForeground() {
+        return palette == null ? foreground.getRGB() : foregroundIndex;
+    }
+    
+    private int currentBackground() {
+        return palette == null ? background.getRGB() : backgroundIndex;
+    }
+    
+    /**
+     * Returns the attributes of the characters printed at the cursor.
+     * 
+     * @return the current attribute bits.
+     */
+    private byte currentAttributes() {
+        byte attributes = boldFontOn ? CellBuffer.ATTRIBUTE_BOLD : 0;
+        
+        if (blinkingTextOn) {
+            attributes |= CellBuffer.ATTRIBUTE_BLINK;
+            blinkingCellsWritten = true;
+        }
+        
+        return attributes;
+    }
+    
+    /**
+     * Marks a character tile as damaged and notifies the view unless the row
+     * of the tile was damaged already.
+     * 
+     * @param x the <code>x</code>-coordinate of the tile.
+     * @param y the <code>y</code>-coordinate of the tile.
+     */
+    private void markDirty(int x, int y) {
+        if (dirtyRegion.mark(x, y)) {
+            fireDamaged();
+        }
+    }
+    
+    /**
+     * Marks a cursor tile as damaged if the cursor is currently painted
+     * inverted.
+     * 
+     * @param x the <code>x</code>-coordinate of the cursor.
+     * @param y the <code>y</code>-coordinate of the cursor.
+     */
+    private void markCursorDirty(int x, int y) {
+        if (blinkPhaseOn) {
+            markDirty(x, y);
+        }
+    }
+    
+    /**
+     * Waits until no other writer of the default view owns the cursor and
+     * takes it over.
+     * 
+     * @return the packed cursor.
+     */
+    private long lockCursor() {
+        for (int spins = 0; ; spins++) {
+            long cursor = this.cursor.get();
+            
+            if ((cursor & CURSOR_LOCKED) == 0L
+                    && this.cursor.compareAndSet(cursor,
+                                                 cursor | CURSOR_LOCKED)) {
+                return cursor;
+            }
+            
+            if (spins < CURSOR_SPINS) {
+                Thread.onSpinWait();
+            } else {
+                Thread.yield();
+            }
+        }
+    }
+    
+    /**
+     * Moves the cursor and releases it to the other writers.
+     * 
+     * @param x the new <code>x</code>-coordinate of the cursor.
+     * @param y the new <code>y</code>-coordinate of the cursor.
+     */
+    private void unlockCursor(int x, int y) {
+        cursor.lazySet(packCursor(x, y));
+        
+        for (MutationListener mutationListener : mutationListeners) {
+            mutationListener.cursorMoved(x, y);
+        }
+    }
+    
+    /**
+     * Notifies the mutation listeners of a written span of cells and marks
+     * it as damaged unless a frame is open.
+     * 
+     * @param minX the leftmost column of the span.
+     * @param maxX the rightmost column of the span.
+     * @param y    the row of the span.
+     */
+    void markCellsChanged(int minX, int maxX, int y) {
+        if (frameOpen) {
+            // Reported by the commit of the frame.
+            return;
+        }
+        
+        for (MutationListener mutationListener : mutationListeners) {
+            mutationListener.cellsChanged(minX, maxX, y);
+        }
+        
+        markDirtySpan(minX, maxX, y);
+    }
+    
+    /**
+     * Reports a span of written cells like
+     * {@link #markCellsChanged(int, int, int)}, after blanking the halves of
+     * the double-width characters the span cut in two, so that no orphaned
+     * half is left on either side of it.
+     * 
+     * @param cells the cells of this model.
+     * @param minX  the leftmost column of the span.
+     * @param maxX  the rightmost column of the span.
+     * @param y     the row of the span.
+     */
+    void markCellsWritten(CellBuffer cells, int minX, int maxX, int y) {
+        int left = blankSplitHalf(cells, minX, y);
+        int right = blankSplitHalf(cells, maxX + 1, y);
+        
+        if (left >= 0) {
+            minX = Math.min(minX, left);
+        }
+        
+        if (right >= 0) {
+            maxX = Math.max(maxX, right);
+        }
+        
+        markCellsChanged(minX, maxX, y);
+    }
+    
+    /**
+     * Reports the changed span of a row of a written rectangle like
+     * {@link #markCellsWritten(CellBuffer, int, int, int)}. Where the span
+     * reaches the edges of the rectangle, a right half in its leftmost and a
+     * left half in its rightmost column are blanked first, since their other
+     * halves were not written with them.
+     * 
+     * @param cells the cells of this model.
+     * @param x     the leftmost column of the rectangle.
+     * @param lastX the rightmost column of the rectangle.
+     * @param minX  the leftmost changed column of the row.
+     * @param maxX  the rightmost changed column of the row.
+     * @param y     the row.
+     */
+    private void markRectangleSpanWritten(CellBuffer cells,
+                                          int x,
+                                          int lastX,
+                                          int minX,
+                                          int maxX,
+                                          int y) {
+        int firstIndex = cells.index(x, y);
+        int lastIndex = cells.index(lastX, y);
+        
+        if (minX == x 
+                && cells.getCodePoint(firstIndex) == CellBuffer.WIDE_TAIL) {
+            cells.setCodePoint(firstIndex, ' ');
+        }
+        
+        if (maxX == lastX 
+                && CharacterWidth.isWide(cells.getCodePoint(lastIndex))) {
+            cells.setCodePoint(lastIndex, ' ');
+        }
+        
+        markCellsWritten(cells, minX, maxX, y);
+    }
+    
+    /**
+     * Reports a written rectangle of cells like
+     * {@link #markRectangleChanged(int, int, int, int)}, after blanking the
+     * halves of the double-width characters its left and right edges cut in
+     * two, on either side of each edge. A right half in the leftmost column
+     * and a left half in the rightmost column of the rectangle are always
+     * blanked, since their other halves were not written with them.
+     * 
+     * @param cells  the cells of this model.
+     * @param x      the leftmost column of the rectangle.
+     * @param y      the topmost row of the rectangle.
+     * @param width  the width of the rectangle in tiles.
+     * @param height the height of the rectangle in tiles.
+     */
+    void markRectangleWritten(CellBuffer cells,
+                              int x,
+                              int y,
+                              int width,
+                              int height) {
+        if (width == 0) {
+            return;
+        }
+        
+        int lastX = x + width - 1;
+        
+        for (int row = y; row < y + height; row++) {
+            int rowIndex = cells.index(0, row);
+            
+            if (cells.getCodePoint(rowIndex + x) == CellBuffer.WIDE_TAIL) {
+                cells.setCodePoint(rowIndex + x, ' ');
+            }
+            
+            if (CharacterWidth.isWide(cells.getCodePoint(rowIndex + lastX))) {
+                cells.setCodePoint(rowIndex + lastX, ' ');
+            }
+            
+            int left = blankSplitHalf(cells, x, row);
+            int right = blankSplitHalf(cells, x + width, row);
+            
+            if (left >= 0 && left < x) {
+                markCellsChanged(left, left, row);
+            }
+            
+            if (right == x + width) {
+                markCellsChanged(right, right, row);
+            }
+        }
+        
+        markRectangleChanged(x, y, width, height);
+    }
+    
+    /**
+     * Blanks the half of a double-width character whose other half is not
+     * next to it across the boundary between two columns.
+     * 
+     * @param cells    the cells of this model.
+     * @param boundary the column right of the boundary, from 0 to the width
+     *                 of the cells.
+     * @param y        the row of the boundary.
+     * @return the blanked column, or -1 if none was blanked.
+     */
+    private int blankSplitHalf(CellBuffer cells, int boundary, int y) {
+        int rowIndex = cells.index(0, y);
+        boolean head = boundary > 0 
+                && CharacterWidth.isWide(
+                        cells.getCodePoint(rowIndex + boundary - 1));
+        boolean tail = boundary < cells.getWidth()
+                && cells.getCodePoint(rowIndex + boundary) 
+                        == CellBuffer.WIDE_TAIL;
+        
+        if (head && !tail) {
+            cells.setCodePoint(rowIndex + boundary - 1, ' ');
+            return boundary - 1;
+        }
+        
+        if (tail && !head) {
+            cells.setCodePoint(rowIndex + boundary, ' ');
+            return boundary;
+        }
+        
+        return -1;
+    }
+    
+    /**
+     * Composes a combining mark into the character left of the given cell,
+     * stepping over the right half of a double-width character. The mark is
+     * dropped if the pair has no precomposed form.
+     * 
+     * @param cells the cells of this model.
+     * @param x     the column right of the character, at least 1.
+     * @param y     the row of the character.
+     * @param mark  the code point of the combining mark.
+     */
+    void combineMark(CellBuffer cells, int x, int y, int mark) {
+        int column = x - 1;
+        
+        if (column > 0 
+                && cells.getCodePoint(cells.index(column, y)) 
+                        == CellBuffer.WIDE_TAIL) {
+            column--;
+        }
+        
+        int index = cells.index(column, y);
+        int composed = CharacterWidth.compose(cells.getCodePoint(index), mark);
+        
+        if (composed >= 0) {
+            cells.setCodePoint(index, composed);
+            markCellsChanged(column, column, y);
+        }
+    }
+    
+    /**
+     * Notifies the mutation listeners of a written rectangle of cells and
+     * marks it as damaged unless a frame is open.
+     * 
+     * @param x      the leftmost column of the rectangle.
+     * @param y      the topmost row of the rectangle.
+     * @param width  the width of the rectangle in tiles.
+     * @param height the height of the rectangle in tiles.
+     */
+    void markRectangleChanged(int x, int y, int width, int height) {
+        if (width == 0 || frameOpen) {
+            return;
+        }
+        
+        for (MutationListener mutationListener : mutationListeners) {
+            for (int row = y; row < y + height; row++) {
+                mutationListener.cellsChanged(x, x + width - 1, row);
+            }
+        }
+        
+        markDirtyRectangle(x, y, width, height);
+    }
+    
+    /**
+     * Marks a span of character tiles in a row as damaged.
+     * 
+     * @param minX the leftmost column of the span.
+     * @param maxX the rightmost column of the span.
+     * @param y    the row of the span.
+     */
+    private void markDirtySpan(int minX, int maxX, int y) {
+        if (dirtyRegion.markSpan(minX, maxX, y)) {
+            fireDamaged();
+        }
+    }
+    
+    /**
+     * Marks a rectangle of character tiles as damaged.
+     * 
+     * @param x      the leftmost column of the rectangle.
+     * @param y      the topmost row of the rectangle.
+     * @param width  the width of the rectangle in tiles.
+     * @param height the height of the rectangle in tiles.
+     */
+    void markDirtyRectangle(int x, int y, int width, int height) {
+        if (width > 0 && dirtyRegion.markRectangle(x, y, width, height)) {
+            fireDamaged();
+        }
+    }
+    
+    /**
+     * Marks the span of blinking cells of each row as damaged.
+     */
+    private void markBlinkingCells() {
+        CellBuffer cells = this.cells;
+        int width = cells.getWidth();
+        int height = cells.getHeight();
+        
+        for (int y = 0; y < height; y++) {
+            int rowStart = cells.index(0, y);
+            int minX = -1;
+            int maxX = -1;
+            
+            for (int x = 0; x < width; x++) {
+                if (cells.hasAttribute(rowStart + x,
+                                       CellBuffer.ATTRIBUTE_BLINK)) {
+                    if (minX < 0) {
+                        minX = x;
+                    }
+                    
+                    maxX = x;
+                }
+            }
+            
+            if (minX >= 0) {
+                markDirtySpan(minX, maxX, y);
+            }
+        }
+    }
+    
+    /**
+     * Creates the cells of the given size filled with blanks of the current
+     * colors.
+     * 
+     * @param width  the width in cells.
+     * @param height the height in cells.
+     * @return the cells.
+     */
+    private CellBuffer createCells(int width, int height) {
+        if (palette == null) {
+            return new CellBuffer(width,
+                                  height,
+                                  ' ',
+                                  foreground.getRGB(),
+                                  background.getRGB());
+        }
+        
+        return new CellBuffer(width,
+                              height,
+                              ' ',
+                              palette,
+                              foregroundIndex,
+                              backgroundIndex);
+    }
+    
+    /**
+     * Creates a copy of the given cells of this model.
+     * 
+     * @param source the cells to copy.
+     * @return the copy.
+     */
+    CellBuffer copyCells(CellBuffer source) {
+        CellBuffer copy = createCells(source.getWidth(), source.getHeight());
+        copy.copyFrom(source);
+        return copy;
+    }
+    
+    /**
+     * Lays the current cells out into the cells of a resized console and
+     * moves the rows that do not fit at the top into the scrollback. Called
+     * with the cursor owned and the scroll lock held.
+     * <p>
+     * The layout works on logical lines: the rows wrapped at the right
+     * border form one line with the next row. The content of a line ends at
+     * its last non-blank cell or at the cursor, whichever is further, and
+     * takes as many rows of the new width as it needs. If the width does not
+     * change, each row is a line of its own and keeps its place.
+     * 
+     * @param newCells the blank cells of the new size.
+     * @param x        the <code>x</code>-coordinate of the cursor.
+     * @param y        the <code>y</code>-coordinate of the cursor.
+     * @return the cursor in the new cells, packed.
+     */
+    private long reflow(CellBuffer newCells, int x, int y) {
+        CellBuffer oldCells = cells;
+        int oldWidth = oldCells.getWidth();
+        int oldHeight = oldCells.getHeight();
+        int newWidth = newCells.getWidth();
+        int newHeight = newCells.getHeight();
+        boolean reflowing = newWidth != oldWidth;
+        // The first row, the copied length and the new rows of each line:
+        int[] lineStarts = new int[oldHeight];
+        int[] lineLengths = new int[oldHeight];
+        int[] lineRows = new int[oldHeight];
+        int lines = 0;
+        int rows = 0;
+        int cursorLine = 0;
+        int cursorRow = 0;
+        int cursorOffset = 0;
+        
+        for (int row = 0; row < oldHeight; lines++) {
+            int start = row;
+            
+            while (reflowing
+                    && row < oldHeight - 1
+                    && oldCells.isRowWrapped(row)) {
+                row++;
+            }
+            
+            row++;
+            int length = oldWidth;
+            int newRows = 1;
+            boolean hasCursor = start <= y && y < row;
+            
+            if (hasCursor) {
+                cursorLine = lines;
+                cursorRow = rows;
+                cursorOffset = (y - start) * oldWidth + x;
+            }
+            
+            if (reflowing) {
+                length = (row - 1 - start) * oldWidth
+                       + contentLength(oldCells, row - 1);
+                newRows = Math.max(1, (length + newWidth - 1) / newWidth);
+                
+                if (hasCursor) {
+                    newRows = Math.max(newRows, cursorOffset / newWidth + 1);
+                }
+                
+                if (row - start == 1 && length <= newWidth) {
+                    // Fits as it is; keep the trailing blanks and colors.
+                    length = Math.min(oldWidth, newWidth);
+                }
+            }
+            
+            lineStarts[lines] = start;
+            lineLengths[lines] = length;
+            lineRows[lines] = newRows;
+            rows += newRows;
+        }
+        
+        cursorRow += cursorOffset / newWidth;
+        
+        // Drop the blank rows below the cursor before scrolling anything off:
+        while (rows > newHeight
+                && lines - 1 > cursorLine
+                && lineRows[lines - 1] == 1
+                && contentLength(oldCells, lineStarts[lines - 1]) == 0) {
+            rows--;
+            lines--;
+        }
+        
+        int skippedRows = Math.max(0, Math.min(rows - newHeight, cursorRow));
+        int keptRows = Math.min(rows - skippedRows, newHeight);
+        
+        if (!reflowing) {
+            for (int row = 0; row < skippedRows; row++) {
+                scrollback.pushRow(oldCells, row);
+            }
+            
+            newCells.copyRectangle(oldCells,
+                                   0,
+                                   skippedRows,
+                                   oldWidth,
+                                   keptRows,
+                                   0,
+                                   0);
+            
+            for (int row = 0; row < keptRows; row++) {
+                newCells.setRowWrapped(row,
+                                       oldCells.isRowWrapped(skippedRows +
+                                                             row));
+            }
+        } else {
+            CellBuffer rowCells = skippedRows > 0 ?
+                                  createCells(newWidth, 1) :
+                                  null;
+            int row = 0;
+            
+            for (int line = 0; line < lines; line++) {
+                for (int i = 0; i < lineRows[line]; i++, row++) {
+                    if (row >= skippedRows + keptRows) {
+                        break;
+                    }
+                    
+                    int offset = i * newWidth;
+                    
+                    if (row < skippedRows) {
+                        fillCells(rowCells,
+                                  0,
+                                  0,
+                                  newWidth,
+                                  1,
+                                  ' ',
+                                  currentForeground(),
+                                  currentBackground(),
+                                  (byte) 0);
+                        copyLineRow(oldCells,
+                                    lineStarts[line],
+                                    lineLengths[line],
+                                    offset,
+                                    rowCells,
+                                    0);
+                        scrollback.pushRow(rowCells, 0);
+                    } else {
+                        copyLineRow(oldCells,
+                                    lineStarts[line],
+                                    lineLengths[line],
+                                    offset,
+                                    newCells,
+                                    row - skippedRows);
+                        newCells.setRowWrapped(row - skippedRows,
+                                               i < lineRows[line] - 1);
+                    }
+                }
+            }
+        }
+        
+        return packCursor(cursorOffset % newWidth, cursorRow - skippedRows);
+    }
+    
+    /**
+     * Copies a row of a logical line laid out to the width of the target.
+     * The double-width characters are not moved to the next row as when
+     * printing; one cut by the right border is blanked instead.
+     * 
+     * @param source    the cells holding the line.
+     * @param lineStart the first row of the line in the source.
+     * @param length    the number of cells of the line to copy.
+     * @param offset    the offset of the row within the line.
+     * @param target    the target cells.
+     * @param targetY   the target row.
+     */
+    private static void copyLineRow(CellBuffer source,
+                                    int lineStart,
+                                    int length,
+                                    int offset,
+                                    CellBuffer target,
+                                    int targetY) {
+        int sourceWidth = source.getWidth();
+        int end = Math.min(length, offset + target.getWidth());
+        
+        for (int position = offset; position < end; ) {
+            int sourceX = position % sourceWidth;
+            int count = Math.min(end - position, sourceWidth - sourceX);
+            target.copyRectangle(source,
+                                 sourceX,
+                                 lineStart + position / sourceWidth,
+                                 count,
+                                 1,
+                                 position - offset,
+                                 targetY);
+            position += count;
+        }
+        
+        // A double-width character cut by the new border loses both halves:
+        int rowStart = target.index(0, targetY);
+        int last = rowStart + target.getWidth() - 1;
+        
+        if (target.getCodePoint(rowStart) == CellBuffer.WIDE_TAIL) {
+            target.setCodePoint(rowStart, ' ');
+        }
+        
+        if (CharacterWidth.isWide(target.getCodePoint(last))) {
+            target.setCodePoint(last, ' ');
+        }
+    }
+    
+    /**
+     * Returns the length of a row up to and including its last non-blank
+     * cell. A blank is a space without attributes in any color.
+     * 
+     * @param cells the cells.
+     * @param y     the row.
+     * @return the length of the content of the row.
+     */
+    private static int contentLength(CellBuffer cells, int y) {
+        int rowStart = cells.index(0, y);
+        
+        for (int x = cells.getWidth(); x > 0; x--) {
+            if (cells.getCodePoint(rowStart + x - 1) != ' '
+                    || cells.getAttributes(rowStart + x - 1) != 0) {
+                return x;
+            }
+        }
+        
+        return 0;
+    }
+    
+    private void fireDamaged() {
+        Listener currentListener = listener;
+        
+        if (currentListener != null) {
+            currentListener.damaged();
+        }
+    }
+    
+    private static long packCursor(int x, int y) {
+        return ((long) y << CURSOR_Y_SHIFT) | (x & 0xffffffffL);
+    }
+    
+    private static int cursorX(long cursor) {
+        return (int) cursor;
+    }
+    
+    private static int cursorY(long cursor) {
+        return (int) ((cursor & ~CURSOR_LOCKED) >>> CURSOR_Y_SHIFT);
+    }
+    
+    /**
+     * Checks the validity of the given <code>x</code>-coordinate. Returns
+     * silently upon success.
+     * 
+     * @param cells the cells of this model.
+     * @param x     the <code>x</code>-coordinate to check.
+     * @throws IndexOutOfBoundsException if the check failed.
+     */
+    private static void checkX(CellBuffer cells, int x) {
+        if (x < 0) {
+            throw new IndexOutOfBoundsException(
+                    "The x-coordinate is negative: " + x + ".");
+        }
+        
+        if (x >= cells.getWidth()) {
+            throw new IndexOutOfBoundsException(
+                    "The x-coordinate is too large: " + x + ". Must be at " +
+                    "most " + (cells.getWidth() - 1) + ".");
+        }
+    }
+    
+    /**
+     * Checks the validity of the given <code>y</code>-coordinate. Returns
+     * silently upon success.
+     * 
+     * @param cells the cells of this model.
+     * @param y     the <code>y</code>-coordinate to check.
+     * @throws IndexOutOfBoundsException if the check failed.
+     */
+    private static void checkY(CellBuffer cells, int y) {
+        if (y < 0) {
+            throw new IndexOutOfBoundsException(
+                    "The y-coordinate is negative: " + y + ".");
+        }
+        
+        if (y >= cells.getHeight()) {
+            throw new IndexOutOfBoundsException(
+                    "The y-coordinate is too large: " + y + ". Must be at " +
+                    "most " + (cells.getHeight() - 1) + ".");
+        }
+    }
+    
+    /**
+     * Checks that the given rectangle of tiles lies within the console.
+     * Returns silently upon success.
+     * 
+     * @param cells  the cells of this model.
+     * @param x      the leftmost column of the rectangle.
+     * @param y      the topmost row of the rectangle.
+     * @param width  the width of the rectangle in tiles.
+     * @param height the height of the rectangle in tiles.
+     * @throws IndexOutOfBoundsException if the check failed.
+     */
+    private static void checkRectangle(CellBuffer cells,
+                                       int x,
+                                       int y,
+                                       int width,
+                                       int height) {
+        if (x < 0
+                || y < 0
+                || width < 0
+                || height < 0
+                || x + width > cells.getWidth()
+                || y + height > cells.getHeight()) {
+            throw new IndexOutOfBoundsException(
+                    "The rectangle (" + x + ", " + y + ", " + width + ", " +
+                    height + ") does not fit in the console of size " +
+                    cells.getWidth() + " x " + cells.getHeight() + ".");
+        }
+    }
+    
+    /**
+     * Checks that the given color is not {@code null}.
+     * 
+     * @param color the color to check.
+     * @return the color upon success.
+     * @throws NullPointerException if the color is {@code null}.
+     */
+    private static Color checkColor(Color color) {
+        return Objects.requireNonNull(color, "The input color is null.");
+    }
+    
+    private void checkPaletteMode() {
+        if (palette == null) {
+            throw new IllegalStateException(
+                    "The console model is not in the palette mode.");
+        }
+    }
+    
+    private static int checkPaletteIndex(int index) {
+        if (index < 0 || index >= Palette.SIZE) {
+            throw new IndexOutOfBoundsException(
+                    "The palette index " + index + " is out of range [0, " +
+                    Palette.SIZE + ").");
+        }
+        
+        return index;
+    }
+    
+    /**
+     * Checks the requested width.
+     * 
+     * @param width the requested width.
+     * @return the requested width upon success.
+     * @throws IllegalArgumentException if the requested width is invalid.
+     */
+    private static int checkWidth(int width) {
+        if (width < MINIMUM_WIDTH) {
+            throw new IllegalArgumentException(
+                    "The console width is too small (" + width + "). Must be " +
+                    "at least " + MINIMUM_WIDTH + ".");
+        }
+        
+        return width;
+    }
+    
+    /**
+     * Checks the requested height.
+     * 
+     * @param height the requested height.
+     * @return the requested height upon success.
+     * @throws IllegalArgumentException if the requested height is invalid.
+     */
+    private static int checkHeight(int height) {
+        if (height < MINIMUM_HEIGHT) {
+            throw new IllegalArgumentException(
+                    "The console height is too small (" + height + "). Must " +
+                    "be at least " + MINIMUM_HEIGHT + ".");
+        }
+        
+        return height;
+    }
+}
@@ -0,0 +1,126 @@
+package net.coderodde.fun.console;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Objects;
+import javax.imageio.ImageIO;
+
+/**
+ * This class renders console models into off-screen images. It needs no
+ * display, no event dispatch thread and no background thread, so it works on
+ * headless servers.
+ * <p>
+ * A renderer owns its fonts and its glyph cache. It is thread-safe, but it
+ * renders one model at a time; for rendering many snapshots in parallel, use
+ * one renderer per thread.
+ * 
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 17, 2026)
+ */
+public final class ConsoleRenderer {
+
+    /**
+     * The default font size.
+     */
+    public static final int DEFAULT_FONT_SIZE = 12;
+    
+    /**
+     * Rasterizes the character tiles.
+     */
+    private final CellRasterizer rasterizer;
+    
+    public ConsoleRenderer() {
+        this(DEFAULT_FONT_SIZE);
+    }
+    
+    public ConsoleRenderer(int fontSize) {
+        this.rasterizer = new CellRasterizer(fontSize);
+    }
+    
+    /**
+     * Returns the width of the images of the given model in pixels.
+     * 
+     * @param model the console model.
+     * @return the image width.
+     */
+    public int getImageWidth(ConsoleModel model) {
+        return model.getConsoleWidth() * rasterizer.getTileWidth();
+    }
+    
+    /**
+     * Returns the height of the images of the given model in pixels.
+     * 
+     * @param model the console model.
+     * @return the image height.
+     */
+    public int getImageHeight(ConsoleModel model) {
+        return model.getConsoleHeight() * rasterizer.getTileHeight();
+    }
+    
+    public GlyphCache getGlyphCache() {
+        return rasterizer.getGlyphCache();
+    }
+    
+    /**
+     * Renders a model into a new image.
+     * 
+     * @param model the console model.
+     * @return the image.
+     */
+    public BufferedImage render(ConsoleModel model) {
+        Objects.requireNonNull(model, "The input console model is null.");
+        BufferedImage image = new BufferedImage(getImageWidth(model),
+                                                getImageHeight(model),
+                                                BufferedImage.TYPE_INT_RGB);
+        render(model, image);
+        return image;
+    }
+    
+    /**
+     * Renders a model into the top-left corner of the given image. Reusing
+     * the image avoids allocating a new one per snapshot.
+     * 
+     * @param model the console model.
+     * @param image the target image.
+     */
+    public void render(ConsoleModel model, BufferedImage image) {
+        Objects.requireNonNull(model, "The input console model is null.");
+        Objects.requireNonNull(image, "The input image is null.");
+        Graphics2D g = image.createGraphics();
+        
+        try {
+            // Do not let a scroll tear the snapshot:
+            synchronized (model.getScrollLock()) {
+                CellBuffer cells = model.getFrontCellBuffer();
+                rasterizer.paintCells(g,
+                                      cells,
+                                      0,
+                                      0,
+                                      cells.getWidth(),
+                                      cells.getHeight(),
+                                      model.cursorIndex(),
+                                      model.isBlinkPhaseOn());
+            }
+        } finally {
+            g.dispose();
+        }
+    }
+    
+    /**
+     * Renders a model and writes the image as PNG.
+     * 
+     * @param model the console model.
+     * @param out   the stream to write to. It is not closed.
+     * @throws IOException if writing fails.
+     */
+    public void writePng(ConsoleModel model, OutputStream out)
+            throws IOException {
+        Objects.requireNonNull(out, "The output stream is null.");
+        
+        if (!ImageIO.write(render(model), "png", out)) {
+            throw new IOException("No PNG image writer is available.");
+        }
+    }
+}
@@ -0,0 +1,606 @@
+package net.coderodde.fun.console;
+
+import java.awt.Color;
+import java.awt.Point;
+import java.util.Objects;
+
+/**
+ * This class implements a window view over a rectangle of a console. A window
+ * has its own cursor, colors and attributes, clips its output to its
+ * rectangle, wraps or truncates long rows and scrolls only its own rows.
+ * <p>
+ * Writing through a window takes no console-wide lock, so threads writing
+ * into disjoint windows do not contend; a status line, a log pane and a
+ * metrics grid may each be fed by a thread of their own. The writers of a
+ * single window are serialized. Overlapping windows, and windows combined
+ * with the scrolling of the whole console, are allowed, but the characters
+ * written concurrently into the shared cells may overwrite each other.
+ * <p>
+ * The cursor of a window is not painted; only the console cursor blinks.
+ * A window keeps its rectangle when the console is resized; the part of it
+ * outside of a shrunk console is clipped.
+ * 
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 17, 2026)
+ */
+public final class ConsoleWindow {
+
+    /**
+     * The model this window writes into.
+     */
+    private final ConsoleModel model;
+    
+    /**
+     * The leftmost column of this window in the console.
+     */
+    private final int x;
+    
+    /**
+     * The topmost row of this window in the console.
+     */
+    private final int y;
+    
+    /**
+     * The width of this window in tiles.
+     */
+    private final int width;
+    
+    /**
+     * The height of this window in tiles.
+     */
+    private final int height;
+    
+    /**
+     * The <code>x</code>-coordinate of the cursor relative to this window.
+     * Equals the width of the window if wrapping is off and the cursor went
+     * past the right border.
+     */
+    private int cursorX;
+    
+    /**
+     * The <code>y</code>-coordinate of the cursor relative to this window.
+     */
+    private int cursorY;
+    
+    /**
+     * The current foreground color.
+     */
+    private Color foreground;
+    
+    /**
+     * The current background color.
+     */
+    private Color background;
+    
+    /**
+     * The current foreground color in the representation of the cells.
+     */
+    private int foregroundCellColor;
+    
+    /**
+     * The current background color in the representation of the cells.
+     */
+    private int backgroundCellColor;
+    
+    /**
+     * The current bold font settings.
+     */
+    private boolean boldFontOn;
+    
+    /**
+     * Whether the rows longer than this window continue on the next row. If
+     * not, they are truncated at the right border.
+     */
+    private boolean wrapping = true;
+    
+    /**
+     * The high surrogate printed last, waiting for its low surrogate, or
+     * zero.
+     */
+    private char pendingHighSurrogate;
+    
+    /**
+     * The writes of the current print that changed no cell, added to the
+     * counter of the model once the print is done.
+     */
+    private int suppressedWrites;
+    
+    /**
+     * The leftmost column of the changed cells of the cursor row in the
+     * current print.
+     */
+    private int spanStartX;
+    
+    /**
+     * The rightmost column of the changed cells of the cursor row in the
+     * current print, or -1 if none changed.
+     */
+    private int spanEndX = -1;
+    
+    ConsoleWindow(ConsoleModel model, int x, int y, int width, int height) {
+        this.model = model;
+        this.x = x;
+        this.y = y;
+        this.width = width;
+        this.height = height;
+        setForeground(model.getForeground());
+        setBackground(model.getBackground());
+    }
+    
+    public int getX() {
+        return x;
+    }
+    
+    public int getY() {
+        return y;
+    }
+    
+    public int getWidth() {
+        return width;
+    }
+    
+    public int getHeight() {
+        return height;
+    }
+    
+    /**
+     * Prints a single character at the cursor of this window. The newline
+     * character moves the cursor to the beginning of the next row. If the
+     * cursor leaves the bottom row, this window scrolls up by one row. A high
+     * surrogate is held back until the low surrogate is printed after it; if
+     * anything else is printed after it, it is printed as
+     * <code>U+FFFD</code>.
+     * 
+     * @param character the character to print.
+     */
+    public synchronized void print(char character) {
+        char highSurrogate = pendingHighSurrogate;
+        
+        if (character >= 0x80 || highSurrogate != 0) {
+            CellBuffer cells = model.getCellBuffer();
+            int codePoint = character;
+            
+            if (highSurrogate != 0) {
+                pendingHighSurrogate = 0;
+                codePoint = CharacterWidth.pairHeldSurrogate(highSurrogate,
+                                                             character);
+                
+                if (!Character.isLowSurrogate(character)) {
+                    printCodePoint(cells, codePoint);
+                    codePoint = character;
+                }
+            }
+            
+            if (Character.isHighSurrogate(character) 
+                    && codePoint == character) {
+                // Wait for the low surrogate in the next print:
+                pendingHighSurrogate = character;
+            } else {
+                if (Character.isLowSurrogate(character) 
+                        && codePoint == character) {
+                    codePoint = CharacterWidth.REPLACEMENT_CHARACTER;
+                }
+                
+                printCodePoint(cells, codePoint);
+            }
+            
+            markSpan(cells);
+            flushSuppressedWrites();
+            return;
+        }
+        
+        if (character == '\n') {
+            newLine();
+            return;
+        }
+        
+        if (cursorX == width) {
+            // Truncated.
+            return;
+        }
+        
+        CellBuffer cells = model.getCellBuffer();
+        
+        if (writeCell(cells, cursorX, character)) {
+            markCellsWritten(cells, cursorX, cursorX);
+        }
+        
+        flushSuppressedWrites();
+        advance();
+    }
+    
+    /**
+     * Prints the input text starting from the cursor of this window and marks
+     * the damage once per row. Works like {@link #print(char)} for each
+     * character.
+     * 
+     * @param text the text to print.
+     */
+    public synchronized void print(String text) {
+        CellBuffer cells = model.getCellBuffer();
+        int start = 0;
+        int end = text.length();
+        
+        if (end == 0) {
+            return;
+        }
+        
+        if (pendingHighSurrogate != 0) {
+            char unit = text.charAt(0);
+            printCodePoint(cells,
+                           CharacterWidth.pairHeldSurrogate(
+                                   pendingHighSurrogate,
+                                   unit));
+            pendingHighSurrogate = 0;
+            start = Character.isLowSurrogate(unit) ? 1 : 0;
+        }
+        
+        if (end > start && Character.isHighSurrogate(text.charAt(end - 1))) {
+            // Wait for the low surrogate in the next print:
+            pendingHighSurrogate = text.charAt(--end);
+        }
+        
+        for (int i = start; i < end; i++) {
+            int codePoint = text.charAt(i);
+            
+            if (codePoint >= 0x80) {
+                codePoint = CharacterWidth.codePointAt(text, i, end);
+                i += Character.charCount(codePoint) - 1;
+            }
+            
+            printCodePoint(cells, codePoint);
+        }
+        
+        markSpan(cells);
+        flushSuppressedWrites();
+    }
+    
+    /**
+     * Fills this window with blanks of the current background color and moves
+     * the cursor to the top-left tile.
+     */
+    public synchronized void clear() {
+        CellBuffer cells = model.getCellBuffer();
+        clearRows(cells, 0, height);
+        markChanged(cells);
+        cursorX = 0;
+        cursorY = 0;
+    }
+    
+    /**
+     * Scrolls the rows of this window up by the given number of rows. The
+     * exposed bottom rows are cleared with the current background color. The
+     * rest of the console and the scrollback are not affected.
+     * 
+     * @param rows the number of rows to scroll by.
+     */
+    public synchronized void scrollUp(int rows) {
+        if (rows < 0) {
+            throw new IllegalArgumentException(
+                    "The number of rows to scroll is negative: " + rows + ".");
+        }
+        
+        rows = Math.min(rows, height);
+        
+        if (rows == 0) {
+            return;
+        }
+        
+        CellBuffer cells = model.getCellBuffer();
+        int visibleWidth = visibleWidth(cells);
+        int visibleHeight = visibleHeight(cells);
+        
+        if (visibleWidth > 0 && visibleHeight > rows) {
+            cells.copyRectangle(cells,
+                                x,
+                                y + rows,
+                                visibleWidth,
+                                visibleHeight - rows,
+                                x,
+                                y);
+        }
+        
+        clearRows(cells, height - rows, rows);
+        markChanged(cells);
+    }
+    
+    /**
+     * Returns the cursor position relative to this window.
+     * 
+     * @return the cursor position.
+     */
+    public synchronized Point getCursorPosition() {
+        return new Point(Math.min(cursorX, width - 1), cursorY);
+    }
+    
+    /**
+     * Sets the cursor position relative to this window.
+     * 
+     * @param x the <code>x</code>-coordinate of the cursor.
+     * @param y the <code>y</code>-coordinate of the cursor.
+     */
+    public synchronized void setCursorPosition(int x, int y) {
+        if (x < 0 || x >= width || y < 0 || y >= height) {
+            throw new IndexOutOfBoundsException(
+                    "The cursor position (" + x + ", " + y + ") is outside " +
+                    "the window of size " + width + " x " + height + ".");
+        }
+        
+        cursorX = x;
+        cursorY = y;
+    }
+    
+    public synchronized Color getForeground() {
+        return foreground;
+    }
+    
+    /**
+     * Sets the foreground color of the characters printed from now on.
+     * 
+     * @param foreground the foreground color.
+     */
+    public synchronized void setForeground(Color foreground) {
+        this.foreground = Objects.requireNonNull(foreground,
+                                                 "The input color is null.");
+        this.foregroundCellColor = model.cellColor(foreground);
+    }
+    
+    public synchronized Color getBackground() {
+        return background;
+    }
+    
+    /**
+     * Sets the background color of the characters printed from now on and of
+     * the rows exposed by scrolling.
+     * 
+     * @param background the background color.
+     */
+    public synchronized void setBackground(Color background) {
+        this.background = Objects.requireNonNull(background,
+                                                 "The input color is null.");
+        this.backgroundCellColor = model.cellColor(background);
+    }
+    
+    public synchronized void setBoldText(boolean bold) {
+        this.boldFontOn = bold;
+    }
+    
+    public synchronized boolean isWrapping() {
+        return wrapping;
+    }
+    
+    /**
+     * Sets whether the rows longer than this window continue on the next row.
+     * If not, the characters past the right border are dropped until the
+     * next newline.
+     * 
+     * @param wrapping whether to wrap long rows.
+     */
+    public synchronized void setWrapping(boolean wrapping) {
+        this.wrapping = wrapping;
+    }
+    
+    /**
+     * Writes a cell in the cursor row unless it lies outside of the console.
+     * 
+     * @param cells     the cells of the model.
+     * @param column    the column of the cell in this window.
+     * @param codePoint the code point to write.
+     * @return {@code true} if the cell changed.
+     */
+    private boolean writeCell(CellBuffer cells, int column, int codePoint) {
+        if (column >= visibleWidth(cells) || cursorY >= visibleHeight(cells)) {
+            return false;
+        }
+        
+        if (model.setCell(cells,
+                          cells.index(x + column, y + cursorY),
+                          codePoint,
+                          foregroundCellColor,
+                          backgroundCellColor,
+                          boldFontOn ? CellBuffer.ATTRIBUTE_BOLD : 0)) {
+            return true;
+        }
+        
+        suppressedWrites++;
+        return false;
+    }
+    
+    /**
+     * Adds the writes suppressed by the last print to the counter of the
+     * model.
+     */
+    private void flushSuppressedWrites() {
+        model.addSuppressedWrites(suppressedWrites);
+        suppressedWrites = 0;
+    }
+    
+    /**
+     * Prints a code point at the cursor of this window. The changed cells of
+     * the cursor row are collected into the span, which is reported before
+     * the cursor leaves the row.
+     * 
+     * @param cells     the cells of the model.
+     * @param codePoint the code point to print.
+     */
+    private void printCodePoint(CellBuffer cells, int codePoint) {
+        int cellWidth = 1;
+        
+        if (codePoint >= 0x80) {
+            cellWidth = Math.min(CharacterWidth.getWidth(codePoint), width);
+            
+            if (cellWidth == 0) {
+                combineMark(cells, codePoint);
+                return;
+            }
+            
+            if (cellWidth == 2 && cursorX == width - 1) {
+                if (!wrapping) {
+                    // Truncated.
+                    cursorX = width;
+                    return;
+                }
+                
+                // Does not fit; pad the row and wrap.
+                if (writeCell(cells, cursorX, ' ')) {
+                    spanStartX = spanEndX < 0 ? cursorX : spanStartX;
+                    spanEndX = cursorX;
+                }
+                
+                markSpan(cells);
+                newLine();
+            }
+        }
+        
+        if (codePoint != '\n') {
+            if (cursorX == width) {
+                return;
+            }
+            
+            int headX = cursorX;
+            boolean changed = writeCell(cells, cursorX, codePoint);
+            
+            if (cellWidth == 2) {
+                changed |= writeCell(cells, ++cursorX, CellBuffer.WIDE_TAIL);
+            }
+            
+            if (changed) {
+                spanStartX = spanEndX < 0 ? headX : spanStartX;
+                spanEndX = cursorX;
+            }
+            
+            if (cursorX < width - 1 || !wrapping) {
+                cursorX++;
+                return;
+            }
+        }
+        
+        // Mark the damage before scrolling so that it moves along:
+        markSpan(cells);
+        newLine();
+    }
+    
+    /**
+     * Reports the span of changed cells of the cursor row, if any, and
+     * empties it.
+     * 
+     * @param cells the cells of the model.
+     */
+    private void markSpan(CellBuffer cells) {
+        if (spanEndX >= 0) {
+            markCellsWritten(cells, spanStartX, spanEndX);
+            spanEndX = -1;
+        }
+    }
+    
+    /**
+     * Reports a written span of the cursor row, clipped to the console.
+     * 
+     * @param cells     the cells of the model.
+     * @param minColumn the leftmost column of the span in this window.
+     * @param maxColumn the rightmost column of the span in this window.
+     */
+    private void markCellsWritten(CellBuffer cells,
+                                  int minColumn,
+                                  int maxColumn) {
+        maxColumn = Math.min(maxColumn, visibleWidth(cells) - 1);
+        
+        if (minColumn <= maxColumn && cursorY < visibleHeight(cells)) {
+            model.markCellsWritten(cells,
+                                   x + minColumn,
+                                   x + maxColumn,
+                                   y + cursorY);
+        }
+    }
+    
+    /**
+     * Composes a combining mark into the character left of the cursor. The
+     * marks printed at the left border of this window are dropped.
+     * 
+     * @param cells the cells of the model.
+     * @param mark  the code point of the combining mark.
+     */
+    private void combineMark(CellBuffer cells, int mark) {
+        int column = Math.min(cursorX, visibleWidth(cells));
+        
+        if (column > 0 && cursorY < visibleHeight(cells)) {
+            model.combineMark(cells, x + column, y + cursorY, mark);
+        }
+    }
+    
+    /**
+     * Clears rows of this window with the current background color, clipped
+     * to the console.
+     * 
+     * @param cells the cells of the model.
+     * @param row   the first row to clear in this window.
+     * @param rows  the number of rows to clear.
+     */
+    private void clearRows(CellBuffer cells, int row, int rows) {
+        int visibleWidth = visibleWidth(cells);
+        int visibleRows = Math.min(rows, visibleHeight(cells) - row);
+        
+        if (visibleWidth > 0 && visibleRows > 0) {
+            model.fillCells(cells,
+                            x,
+                            y + row,
+                            visibleWidth,
+                            visibleRows,
+                            ' ',
+                            foregroundCellColor,
+                            backgroundCellColor,
+                            (byte) 0);
+        }
+    }
+    
+    /**
+     * Reports the whole of this window as written, clipped to the console.
+     * 
+     * @param cells the cells of the model.
+     */
+    private void markChanged(CellBuffer cells) {
+        int visibleWidth = visibleWidth(cells);
+        int visibleHeight = visibleHeight(cells);
+        
+        if (visibleWidth > 0 && visibleHeight > 0) {
+            model.markRectangleWritten(cells,
+                                       x,
+                                       y,
+                                       visibleWidth,
+                                       visibleHeight);
+        }
+    }
+    
+    private int visibleWidth(CellBuffer cells) {
+        return Math.min(width, cells.getWidth() - x);
+    }
+    
+    private int visibleHeight(CellBuffer cells) {
+        return Math.min(height, cells.getHeight() - y);
+    }
+    
+    /**
+     * Moves the cursor past a printed character.
+     */
+    private void advance() {
+        if (cursorX < width - 1 || !wrapping) {
+            cursorX++;
+        } else {
+            newLine();
+        }
+    }
+    
+    /**
+     * Moves the cursor to the beginning of the next row, scrolling this
+     * window up if the cursor is on the bottom row.
+     */
+    private void newLine() {
+        cursorX = 0;
+        
+        if (cursorY < height - 1) {
+            cursorY++;
+        } else {
+            scrollUp(1);
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package net.coderodde.fun.console;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * This class tracks the damaged cells of a console. For each row it keeps the
+ * leftmost and the rightmost dirty column packed into a single atomic long, so
+ * marking a cell is a lock-free, allocation-free operation and marking the
+ * same cell twice costs nothing extra. Draining the region merges the row
+ * spans of vertically adjacent rows with identical spans into rectangles.
+ * <p>
+ * A resized console replaces the spans with a clean array of the new height.
+ * The marks racing with a resize may land in either array, and the marks of
+ * rows past the new bottom are ignored, so the resizing console repaints the
+ * whole new screen once.
+ * 
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 17, 2026)
+ */
+final class DirtyRegion {
+
+    /**
+     * The span value of a row with no dirty cells.
+     */
+    private static final long CLEAN = -1L;
+    
+    /**
+     * Receives the rectangles of dirty cells upon draining.
+     */
+    interface RectangleVisitor {
+        
+        /**
+         * Visits a rectangle of dirty cells.
+         * 
+         * @param x      the leftmost column of the rectangle.
+         * @param y      the topmost row of the rectangle.
+         * @param width  the width of the rectangle in cells.
+         * @param height the height of the rectangle in cells.
+         */
+        void visit(int x, int y, int width, int height);
+    }
+    
+    /**
+     * The packed dirty spans of each row.
+     */
+    private volatile AtomicLongArray rowSpans;
+    
+    DirtyRegion(int height) {
+        this.rowSpans = createSpans(height);
+    }
+    
+    int getHeight() {
+        return rowSpans.length();
+    }
+    
+    /**
+     * Changes the number of rows tracked. All the rows become clean.
+     * 
+     * @param height the new number of rows.
+     */
+    void resize(int height) {
+        rowSpans = createSpans(height);
+    }
+    
+    /**
+     * Marks a single cell as dirty.
+     * 
+     * @param x the <code>x</code>-coordinate of the cell.
+     * @param y the <code>y</code>-coordinate of the cell.
+     * @return {@code true} if the row of the cell was clean before.
+     */
+    boolean mark(int x, int y) {
+        return markSpan(x, x, y);
+    }
+    
+    /**
+     * Marks a span of cells in a row as dirty.
+     * 
+     * @param minX the leftmost column of the span.
+     * @param maxX the rightmost column of the span.
+     * @param y    the row of the span.
+     * @return {@code true} if the row was clean before.
+     */
+    boolean markSpan(int minX, int maxX, int y) {
+        AtomicLongArray rowSpans = this.rowSpans;
+        
+        if (y >= rowSpans.length()) {
+            return false;
+        }
+        
+        while (true) {
+            long span = rowSpans.get(y);
+            long newSpan;
+            
+            if (span == CLEAN) {
+                newSpan = pack(minX, maxX);
+            } else {
+                int spanMinX = unpackMinX(span);
+                int spanMaxX = unpackMaxX(span);
+                
+                if (spanMinX <= minX && maxX <= spanMaxX) {
+                    // Already dirty.
+                    return false;
+                }
+                
+                newSpan = pack(Math.min(spanMinX, minX),
+                               Math.max(spanMaxX, maxX));
+            }
+            
+            if (rowSpans.compareAndSet(y, span, newSpan)) {
+                return span == CLEAN;
+            }
+        }
+    }
+    
+    /**
+     * Marks a rectangle of cells as dirty.
+     * 
+     * @param x      the leftmost column of the rectangle.
+     * @param y      the topmost row of the rectangle.
+     * @param width  the width of the rectangle in cells.
+     * @param height the height of the rectangle in cells.
+     * @return {@code true} if at least one of the rows was clean before.
+     */
+    boolean markRectangle(int x, int y, int width, int height) {
+        boolean wasClean = false;
+        
+        for (int row = y; row < y + height; row++) {
+            wasClean |= markSpan(x, x + width - 1, row);
+        }
+        
+        return wasClean;
+    }
+    
+    /**
+     * Moves the dirty spans up by the given number of rows, following the 
+     * content of a scrolled screen. The spans of the rows scrolled off are 
+     * dropped and the rows exposed at the bottom are left clean.
+     * 
+     * @param rows the number of rows to scroll by.
+     */
+    void scrollUp(int rows) {
+        AtomicLongArray rowSpans = this.rowSpans;
+        int height = rowSpans.length();
+        
+        for (int y = 0; y < height; y++) {
+            long span = y + rows < height ? 
+                        rowSpans.getAndSet(y + rows, CLEAN) : 
+                        CLEAN;
+            rowSpans.set(y, span);
+        }
+    }
+    
+    /**
+     * Clears the region and reports the dirty cells as rectangles. Vertically
+     * adjacent rows with equal spans are merged into a single rectangle.
+     * 
+     * @param visitor the rectangle visitor.
+     */
+    void drain(RectangleVisitor visitor) {
+        AtomicLongArray rowSpans = this.rowSpans;
+        long runSpan = CLEAN;
+        int runStartY = 0;
+        
+        for (int y = 0; y < rowSpans.length(); y++) {
+            long span = rowSpans.get(y) == CLEAN ?
+                        CLEAN :
+                        rowSpans.getAndSet(y, CLEAN);
+            
+            if (span == runSpan) {
+                continue;
+            }
+            
+            if (runSpan != CLEAN) {
+                visitSpan(visitor, runSpan, runStartY, y - runStartY);
+            }
+            
+            runSpan = span;
+            runStartY = y;
+        }
+        
+        if (runSpan != CLEAN) {
+            visitSpan(visitor,
+                      runSpan,
+                      runStartY,
+                      rowSpans.length() - runStartY);
+        }
+    }
+    
+    /**
+     * Checks whether there are no dirty cells.
+     * 
+     * @return {@code true} if no cell is dirty.
+     */
+    boolean isClean() {
+        AtomicLongArray rowSpans = this.rowSpans;
+        
+        for (int y = 0; y < rowSpans.length(); y++) {
+            if (rowSpans.get(y) != CLEAN) {
+                return false;
+            }
+        }
+        
+        return true;
+    }
+    
+    /**
+     * Counts the cells covered by the dirty spans. The count is a snapshot 
+     * and may be stale by the time it is returned.
+     * 
+     * @return the number of dirty cells.
+     */
+    int countDirtyCells() {
+        AtomicLongArray rowSpans = this.rowSpans;
+        int count = 0;
+        
+        for (int y = 0; y < rowSpans.length(); y++) {
+            long span = rowSpans.get(y);
+            
+            if (span != CLEAN) {
+                count += unpackMaxX(span) - unpackMinX(span) + 1;
+            }
+        }
+        
+        return count;
+    }
+    
+    private static AtomicLongArray createSpans(int height) {
+        AtomicLongArray rowSpans = new AtomicLongArray(height);
+        
+        for (int y = 0; y < height; y++) {
+            rowSpans.set(y, CLEAN);
+        }
+        
+        return rowSpans;
+    }
+    
+    private static void visitSpan(RectangleVisitor visitor,
+                                  long span,
+                                  int y,
+                                  int height) {
+        int minX = unpackMinX(span);
+        visitor.visit(minX, y, unpackMaxX(span) - minX + 1, height);
+    }
+    
+    private static long pack(int minX, int maxX) {
+        return ((long) minX << 32) | (maxX & 0xffffffffL);
+    }
+    
+    private static int unpackMinX(long span) {
+        return (int)(span >>> 32);
+    }
+    
+    private static int unpackMaxX(long span) {
+        return (int) span;
+    }
+}
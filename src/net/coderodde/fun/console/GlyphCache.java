@@ -0,0 +1,275 @@
+package net.coderodde.fun.console;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * This class implements a glyph atlas for the colorful console. Each entry is
+ * a pre-rendered image of a single character tile keyed by the code point, the
+ * boldness, the font size and the foreground and background colors, so that
+ * repainting a tile amounts to a single image blit. The cache is a bounded LRU
+ * map; it counts hits, misses and evictions so that its capacity can be tuned
+ * for the color palettes in use.
+ * <p>
+ * This class is not thread-safe. The console rasterizers use a cache only
+ * while holding its monitor, as the cache of a {@link RenderEngine} is shared
+ * by all its consoles of the same font size; other threads must synchronize
+ * on the cache as well, also for reading the counters.
+ * 
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 17, 2026)
+ */
+public final class GlyphCache {
+
+    /**
+     * The default maximum number of cached glyph images.
+     */
+    public static final int DEFAULT_CAPACITY = 4096;
+    
+    /**
+     * The minimum capacity of the cache.
+     */
+    private static final int MINIMUM_CAPACITY = 1;
+    
+    /**
+     * Identifies a single glyph image.
+     */
+    private static final class GlyphKey {
+        
+        private int codePoint;
+        private boolean bold;
+        private int fontSize;
+        private int foreground;
+        private int background;
+        
+        GlyphKey() {}
+        
+        GlyphKey(GlyphKey other) {
+            this.codePoint = other.codePoint;
+            this.bold = other.bold;
+            this.fontSize = other.fontSize;
+            this.foreground = other.foreground;
+            this.background = other.background;
+        }
+        
+        @Override
+        public int hashCode() {
+            int hash = codePoint;
+            hash = 31 * hash + (bold ? 1 : 0);
+            hash = 31 * hash + fontSize;
+            hash = 31 * hash + foreground;
+            hash = 31 * hash + background;
+            return hash;
+        }
+        
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof GlyphKey)) {
+                return false;
+            }
+            
+            GlyphKey other = (GlyphKey) o;
+            return codePoint == other.codePoint
+                    && bold == other.bold
+                    && fontSize == other.fontSize
+                    && foreground == other.foreground
+                    && background == other.background;
+        }
+    }
+    
+    /**
+     * Maps glyph keys to glyph images in access order.
+     */
+    private final LinkedHashMap<GlyphKey, BufferedImage> glyphMap =
+            new LinkedHashMap<>(16, 0.75f, true);
+    
+    /**
+     * The reusable key for lookups. Lets cache hits run without allocation.
+     */
+    private final GlyphKey probeKey = new GlyphKey();
+    
+    /**
+     * Used for rendering a glyph into an image.
+     */
+    private final char[] characterArray = new char[2];
+    
+    /**
+     * The maximum number of cached glyph images.
+     */
+    private int capacity;
+    
+    /**
+     * The number of lookups that found a cached glyph.
+     */
+    private long hitCount;
+    
+    /**
+     * The number of lookups that had to render a glyph.
+     */
+    private long missCount;
+    
+    /**
+     * The number of glyphs evicted due to the capacity limit.
+     */
+    private long evictionCount;
+    
+    public GlyphCache() {
+        this(DEFAULT_CAPACITY);
+    }
+    
+    public GlyphCache(int capacity) {
+        this.capacity = checkCapacity(capacity);
+    }
+    
+    /**
+     * Returns the image of a character tile, rendering and caching it if
+     * needed.
+     * 
+     * @param codePoint  the code point of the character.
+     * @param bold       whether the character is bold.
+     * @param font       the font to render with.
+     * @param foreground the packed ARGB foreground color.
+     * @param background the packed ARGB background color.
+     * @param tileWidth  the width of the tile in pixels.
+     * @param tileHeight the height of the tile in pixels.
+     * @param baseline   the baseline offset from the top of the tile.
+     * @return the tile image.
+     */
+    public BufferedImage getGlyph(int codePoint,
+                                  boolean bold,
+                                  Font font,
+                                  int foreground,
+                                  int background,
+                                  int tileWidth,
+                                  int tileHeight,
+                                  int baseline) {
+        probeKey.codePoint = codePoint;
+        probeKey.bold = bold;
+        probeKey.fontSize = font.getSize();
+        probeKey.foreground = foreground;
+        probeKey.background = background;
+        BufferedImage image = glyphMap.get(probeKey);
+        
+        if (image != null
+                && image.getWidth() == tileWidth
+                && image.getHeight() == tileHeight) {
+            hitCount++;
+            return image;
+        }
+        
+        missCount++;
+        image = renderGlyph(codePoint,
+                            font,
+                            foreground,
+                            background,
+                            tileWidth,
+                            tileHeight,
+                            baseline);
+        glyphMap.put(new GlyphKey(probeKey), image);
+        evictOverflow();
+        return image;
+    }
+    
+    /**
+     * Drops all the cached glyphs. Must be called whenever the font changes.
+     */
+    public void invalidate() {
+        glyphMap.clear();
+    }
+    
+    /**
+     * Sets the maximum number of cached glyphs, evicting the least recently
+     * used glyphs if needed.
+     * 
+     * @param capacity the new capacity.
+     */
+    public void setCapacity(int capacity) {
+        this.capacity = checkCapacity(capacity);
+        evictOverflow();
+    }
+    
+    public int getCapacity() {
+        return capacity;
+    }
+    
+    public int size() {
+        return glyphMap.size();
+    }
+    
+    public long getHitCount() {
+        return hitCount;
+    }
+    
+    public long getMissCount() {
+        return missCount;
+    }
+    
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+    
+    /**
+     * Resets the hit, miss and eviction counters.
+     */
+    public void resetStatistics() {
+        hitCount = 0L;
+        missCount = 0L;
+        evictionCount = 0L;
+    }
+    
+    private void evictOverflow() {
+        Iterator<Map.Entry<GlyphKey, BufferedImage>> iterator =
+                glyphMap.entrySet().iterator();
+        
+        while (glyphMap.size() > capacity) {
+            iterator.next();
+            iterator.remove();
+            evictionCount++;
+        }
+    }
+    
+    private BufferedImage renderGlyph(int codePoint,
+                                      Font font,
+                                      int foreground,
+                                      int background,
+                                      int tileWidth,
+                                      int tileHeight,
+                                      int baseline) {
+        // Opaque tiles are blitted without alpha compositing:
+        int imageType = (background >>> 24) == 0xff ?
+                        BufferedImage.TYPE_INT_RGB :
+                        BufferedImage.TYPE_INT_ARGB;
+        BufferedImage image = new BufferedImage(tileWidth,
+                                                tileHeight,
+                                                imageType);
+        Graphics2D g = image.createGraphics();
+        
+        try {
+            g.setColor(new Color(background, true));
+            g.fillRect(0, 0, tileWidth, tileHeight);
+            g.setColor(new Color(foreground, true));
+            g.setFont(font);
+            int length = Character.toChars(codePoint, characterArray, 0);
+            g.drawChars(characterArray, 0, length, 0, baseline);
+        } finally {
+            g.dispose();
+        }
+        
+        return image;
+    }
+    
+    private static int checkCapacity(int capacity) {
+        if (capacity < MINIMUM_CAPACITY) {
+            throw new IllegalArgumentException(
+                    "The glyph cache capacity is too small (" + capacity +
+                    "). Must be at least " + MINIMUM_CAPACITY + ".");
+        }
+        
+        return capacity;
+    }
+}
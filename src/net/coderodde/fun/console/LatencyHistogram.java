@@ -0,0 +1,103 @@
+package net.coderodde.fun.console;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * This class implements a lock-free histogram of latencies in nanoseconds.
+ * The bucket <code>i</code> counts the latencies in the range
+ * <code>[2^i, 2^(i + 1))</code>, so recording is a single atomic increment and
+ * the relative error of a reported percentile is at most a factor of two.
+ * 
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 17, 2026)
+ */
+public final class LatencyHistogram {
+
+    /**
+     * The number of buckets; enough for any non-negative long.
+     */
+    public static final int BUCKET_COUNT = 64;
+    
+    /**
+     * The number of latencies recorded in each bucket.
+     */
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    
+    /**
+     * Records a latency. Negative latencies are counted as zero.
+     * 
+     * @param nanos the latency in nanoseconds.
+     */
+    public void record(long nanos) {
+        buckets.incrementAndGet(bucketOf(nanos));
+    }
+    
+    /**
+     * Returns a copy of the bucket counts.
+     * 
+     * @return the bucket counts.
+     */
+    public long[] getCounts() {
+        long[] counts = new long[BUCKET_COUNT];
+        
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] = buckets.get(i);
+        }
+        
+        return counts;
+    }
+    
+    /**
+     * Removes all the recorded latencies.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            buckets.set(i, 0L);
+        }
+    }
+    
+    /**
+     * Estimates a percentile of the latencies described by the given bucket
+     * counts. The upper bound of the bucket holding the percentile is
+     * returned.
+     * 
+     * @param counts     the bucket counts.
+     * @param percentile the percentile within <code>[0, 100]</code>.
+     * @return the estimated latency in nanoseconds, or 0 if the counts are
+     *         empty.
+     */
+    public static long percentile(long[] counts, double percentile) {
+        if (percentile < 0.0 || percentile > 100.0) {
+            throw new IllegalArgumentException(
+                    "The percentile is out of range [0, 100]: " + percentile +
+                    ".");
+        }
+        
+        long total = 0L;
+        
+        for (long count : counts) {
+            total += count;
+        }
+        
+        if (total == 0L) {
+            return 0L;
+        }
+        
+        long rank = Math.max(1L, (long) Math.ceil(total * percentile / 100.0));
+        long seen = 0L;
+        
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            
+            if (seen >= rank) {
+                return i == BUCKET_COUNT - 1 ? Long.MAX_VALUE : (2L << i) - 1;
+            }
+        }
+        
+        return Long.MAX_VALUE;
+    }
+    
+    private static int bucketOf(long nanos) {
+        return nanos <= 1L ? 0 : 63 - Long.numberOfLeadingZeros(nanos);
+    }
+}
@@ -0,0 +1,30 @@
+package net.coderodde.fun.console;
+
+/**
+ * Enumerates what a {@link ConsoleIngest} does with a write arriving while
+ * its producers are as far ahead of the screen as it allows.
+ * 
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 17, 2026)
+ */
+public enum OverflowPolicy {
+
+    /**
+     * The producer waits until a frame carrying the earlier writes is on
+     * the screen.
+     */
+    BLOCK,
+    
+    /**
+     * The write is applied at once. The cells always hold the latest state,
+     * and the frames that would have shown the intermediate states are
+     * merged into the next one, so the screen skips them.
+     */
+    DROP,
+    
+    /**
+     * The write is rejected with a
+     * {@link java.util.concurrent.RejectedExecutionException}.
+     */
+    FAIL_FAST
+}
@@ -0,0 +1,204 @@
+package net.coderodde.fun.console;
+
+import java.awt.Color;
+import java.lang.ref.WeakReference;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * This class implements a table of 256 ARGB colors shared by the consoles in
+ * the palette mode. The cells of such consoles store palette indices instead
+ * of colors, so remapping an entry re-themes every console using the palette
+ * in a single repaint. A new palette holds the xterm 256-color palette.
+ * <p>
+ * The palette is thread-safe. It references its consoles weakly, so sharing a
+ * long-lived palette does not keep discarded consoles alive.
+ * 
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 17, 2026)
+ */
+public final class Palette {
+
+    /**
+     * The number of entries in a palette.
+     */
+    public static final int SIZE = 256;
+    
+    /**
+     * The xterm 256-color palette in packed ARGB form.
+     */
+    private static final int[] XTERM_ARGB = createXtermPalette();
+    
+    /**
+     * The packed ARGB colors of the entries.
+     */
+    private final AtomicIntegerArray entries = new AtomicIntegerArray(SIZE);
+    
+    /**
+     * The models using this palette.
+     */
+    private final List<WeakReference<ConsoleModel>> models =
+            new CopyOnWriteArrayList<>();
+    
+    /**
+     * Constructs a new palette holding the xterm 256-color palette.
+     */
+    public Palette() {
+        for (int i = 0; i < SIZE; i++) {
+            entries.set(i, XTERM_ARGB[i]);
+        }
+    }
+    
+    /**
+     * Returns the packed ARGB color of an entry.
+     * 
+     * @param index the index of the entry.
+     * @return the packed ARGB color.
+     */
+    public int getArgb(int index) {
+        return entries.get(index);
+    }
+    
+    /**
+     * Returns the color of an entry.
+     * 
+     * @param index the index of the entry.
+     * @return the color.
+     */
+    public Color getColor(int index) {
+        return new Color(entries.get(checkIndex(index)), true);
+    }
+    
+    /**
+     * Remaps an entry. All the consoles using this palette are repainted.
+     * 
+     * @param index the index of the entry.
+     * @param color the new color of the entry.
+     */
+    public void setColor(int index, Color color) {
+        Objects.requireNonNull(color, "The input color is null.");
+        setArgb(index, color.getRGB());
+    }
+    
+    /**
+     * Remaps an entry to a packed ARGB color. All the consoles using this
+     * palette are repainted.
+     * 
+     * @param index the index of the entry.
+     * @param argb  the new packed ARGB color of the entry.
+     */
+    public void setArgb(int index, int argb) {
+        entries.set(checkIndex(index), argb);
+        
+        for (WeakReference<ConsoleModel> reference : models) {
+            ConsoleModel model = reference.get();
+            
+            if (model == null) {
+                models.remove(reference);
+            } else {
+                model.paletteChanged();
+            }
+        }
+    }
+    
+    /**
+     * Returns the index of the entry closest to the given color. An exact
+     * match is preferred; otherwise the distance is measured in the RGB
+     * space.
+     * 
+     * @param argb the packed ARGB color.
+     * @return the index of the closest entry.
+     */
+    public int nearestIndex(int argb) {
+        int red = (argb >>> 16) & 0xff;
+        int green = (argb >>> 8) & 0xff;
+        int blue = argb & 0xff;
+        int bestIndex = 0;
+        int bestDistance = Integer.MAX_VALUE;
+        
+        for (int i = 0; i < SIZE; i++) {
+            int entry = entries.get(i);
+            
+            if (entry == argb) {
+                return i;
+            }
+            
+            int dr = ((entry >>> 16) & 0xff) - red;
+            int dg = ((entry >>> 8) & 0xff) - green;
+            int db = (entry & 0xff) - blue;
+            int distance = dr * dr + dg * dg + db * db;
+            
+            if (distance < bestDistance) {
+                bestDistance = distance;
+                bestIndex = i;
+            }
+        }
+        
+        return bestIndex;
+    }
+    
+    /**
+     * Returns the packed ARGB color of an entry of the xterm 256-color
+     * palette.
+     * 
+     * @param index the index of the entry.
+     * @return the packed ARGB color.
+     */
+    static int xtermArgb(int index) {
+        return XTERM_ARGB[index];
+    }
+    
+    void addModel(ConsoleModel model) {
+        models.add(new WeakReference<>(model));
+    }
+    
+    private static int checkIndex(int index) {
+        if (index < 0 || index >= SIZE) {
+            throw new IndexOutOfBoundsException(
+                    "The palette index " + index + " is out of range [0, " +
+                    SIZE + ").");
+        }
+        
+        return index;
+    }
+    
+    private static int[] createXtermPalette() {
+        int[] basicColors = {
+            0x000000, 0xcd0000, 0x00cd00, 0xcdcd00,
+            0x0000ee, 0xcd00cd, 0x00cdcd, 0xe5e5e5,
+            0x7f7f7f, 0xff0000, 0x00ff00, 0xffff00,
+            0x5c5cff, 0xff00ff, 0x00ffff, 0xffffff
+        };
+        
+        int[] palette = new int[SIZE];
+        
+        for (int i = 0; i < basicColors.length; i++) {
+            palette[i] = 0xff000000 | basicColors[i];
+        }
+        
+        // The 6 x 6 x 6 color cube:
+        for (int i = 0; i < 216; i++) {
+            palette[16 + i] = argb(cubeLevel(i / 36),
+                                   cubeLevel(i / 6 % 6),
+                                   cubeLevel(i % 6));
+        }
+        
+        // The grayscale ramp:
+        for (int i = 0; i < 24; i++) {
+            int level = 8 + 10 * i;
+            palette[232 + i] = argb(level, level, level);
+        }
+        
+        return palette;
+    }
+    
+    private static int cubeLevel(int level) {
+        return level == 0 ? 0 : 55 + 40 * level;
+    }
+    
+    private static int argb(int red, int green, int blue) {
+        return 0xff000000 | (red << 16) | (green << 8) | blue;
+    }
+}
@@ -0,0 +1,272 @@
+package net.coderodde.fun.console;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import javax.swing.SwingUtilities;
+
+/**
+ * This class implements a render engine shared by many consoles, such as the
+ * hundreds of small panels of a monitoring dashboard. Instead of each console
+ * scheduling and painting its own frames, the registered consoles hand their
+ * frames over to the engine:
+ * <ul>
+ * <li>One frame loop serves all the consoles. A console with damage queues
+ * itself once per frame, and each frame drains the damage of the queued
+ * consoles in a single task on the event dispatch thread, so that Swing
+ * paints all of it in one pass. The consoles without damage cost nothing,
+ * so the cost of a frame follows the number of changed cells rather than
+ * the number of consoles.</li>
+ * <li>The consoles with the same font size share one rasterizer: the fonts,
+ * the tile metrics and the glyph cache.</li>
+ * </ul>
+ * The blinking of all the consoles is driven by a single timer anyway.
+ * <p>
+ * The registered consoles paint on the event dispatch thread only, so they
+ * must use the {@link RenderingMode#DIRECT} rendering mode.
+ * 
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 17, 2026)
+ */
+public final class RenderEngine {
+
+    /**
+     * The minimum allowed frame rate cap.
+     */
+    private static final int MINIMUM_MAX_FRAMES_PER_SECOND = 1;
+    
+    /**
+     * The schedulers of the consoles waiting for the next frame, each at
+     * most once.
+     */
+    private final ConcurrentLinkedQueue<RenderScheduler> queuedSchedulers =
+            new ConcurrentLinkedQueue<>();
+    
+    /**
+     * The number of schedulers queued since the last frame started.
+     */
+    private final AtomicInteger queuedCount = new AtomicInteger();
+    
+    /**
+     * Set to {@code true} while a frame is scheduled but did not start yet.
+     */
+    private final AtomicBoolean framePending = new AtomicBoolean();
+    
+    /**
+     * The rasterizers by the font size. Guarded by the monitor of this
+     * engine.
+     */
+    private final Map<Integer, CellRasterizer> rasterizers = new HashMap<>();
+    
+    /**
+     * The number of consoles using each rasterizer, by the font size. A
+     * rasterizer is dropped along with its count when its last console
+     * releases it. Guarded by the monitor of this engine.
+     */
+    private final Map<Integer, Integer> rasterizerUsers = new HashMap<>();
+    
+    /**
+     * The number of registered consoles. Guarded by the monitor of this
+     * engine.
+     */
+    private int consoleCount;
+    
+    /**
+     * The number of frames painted.
+     */
+    private final LongAdder framesRendered = new LongAdder();
+    
+    /**
+     * The total number of console frames painted in all the frames.
+     */
+    private final LongAdder consoleFramesRendered = new LongAdder();
+    
+    /**
+     * The frame period in nanoseconds.
+     */
+    private volatile long framePeriodNanos;
+    
+    /**
+     * The time at which the last frame was started.
+     */
+    private volatile long lastFrameNanos;
+    
+    /**
+     * Posts a frame to the event dispatch thread. Runs on the timer thread.
+     */
+    private final Runnable timerTask = new Runnable() {
+        
+        @Override
+        public void run() {
+            SwingUtilities.invokeLater(frameTask);
+        }
+    };
+    
+    /**
+     * Paints the frames of the queued consoles on the event dispatch thread.
+     */
+    private final Runnable frameTask = new Runnable() {
+        
+        @Override
+        public void run() {
+            paintFrame();
+        }
+    };
+    
+    /**
+     * Constructs an engine painting at most
+     * {@link RenderScheduler#DEFAULT_MAX_FRAMES_PER_SECOND} frames per
+     * second.
+     */
+    public RenderEngine() {
+        setMaxFramesPerSecond(RenderScheduler.DEFAULT_MAX_FRAMES_PER_SECOND);
+        this.lastFrameNanos = System.nanoTime() - framePeriodNanos;
+    }
+    
+    /**
+     * Sets the maximum number of frames painted per second.
+     * 
+     * @param maxFramesPerSecond the frame rate cap.
+     */
+    public void setMaxFramesPerSecond(int maxFramesPerSecond) {
+        if (maxFramesPerSecond < MINIMUM_MAX_FRAMES_PER_SECOND) {
+            throw new IllegalArgumentException(
+                    "The frame rate cap is too small (" + maxFramesPerSecond +
+                    "). Must be at least " + MINIMUM_MAX_FRAMES_PER_SECOND +
+                    ".");
+        }
+        
+        framePeriodNanos = TimeUnit.SECONDS.toNanos(1) / maxFramesPerSecond;
+    }
+    
+    public int getMaxFramesPerSecond() {
+        return (int)(TimeUnit.SECONDS.toNanos(1) / framePeriodNanos);
+    }
+    
+    public synchronized int getConsoleCount() {
+        return consoleCount;
+    }
+    
+    public long getFramesRendered() {
+        return framesRendered.sum();
+    }
+    
+    /**
+     * Returns the mean number of consoles painted per frame.
+     * 
+     * @return the mean number of consoles per frame.
+     */
+    public double getMeanConsolesPerFrame() {
+        long frames = framesRendered.sum();
+        return frames == 0L ?
+               0.0 :
+               (double) consoleFramesRendered.sum() / frames;
+    }
+    
+    /**
+     * Returns the rasterizer shared by the consoles of the given font size,
+     * creating it on the first request. Each call must be paired with a
+     * {@link #releaseRasterizer(int)} once the console stops using the
+     * rasterizer.
+     * 
+     * @param fontSize the font size.
+     * @return the rasterizer.
+     */
+    synchronized CellRasterizer acquireRasterizer(int fontSize) {
+        CellRasterizer rasterizer = rasterizers.get(fontSize);
+        Integer users = rasterizerUsers.get(fontSize);
+        
+        if (rasterizer == null) {
+            rasterizer = new CellRasterizer(fontSize);
+            rasterizers.put(fontSize, rasterizer);
+            users = 0;
+        }
+        
+        rasterizerUsers.put(fontSize, users + 1);
+        return rasterizer;
+    }
+    
+    /**
+     * Releases the rasterizer of the given font size acquired by a console,
+     * dropping it along with its glyph cache if no other console uses it.
+     * 
+     * @param fontSize the font size of the rasterizer.
+     */
+    synchronized void releaseRasterizer(int fontSize) {
+        Integer users = rasterizerUsers.get(fontSize);
+        
+        if (users == null) {
+            throw new IllegalStateException(
+                    "No rasterizer of font size " + fontSize + 
+                    " was acquired.");
+        }
+        
+        if (users == 1) {
+            rasterizerUsers.remove(fontSize);
+            rasterizers.remove(fontSize);
+        } else {
+            rasterizerUsers.put(fontSize, users - 1);
+        }
+    }
+    
+    /**
+     * Returns the number of rasterizers held for the font sizes of the 
+     * registered consoles.
+     * 
+     * @return the number of rasterizers.
+     */
+    synchronized int getRasterizerCount() {
+        return rasterizers.size();
+    }
+    
+    synchronized void consoleRegistered() {
+        consoleCount++;
+    }
+    
+    synchronized void consoleUnregistered() {
+        consoleCount--;
+    }
+    
+    /**
+     * Queues the frame of a console for the next frame of this engine. The
+     * scheduler calls this at most once per frame of its own.
+     * 
+     * @param scheduler the scheduler of the console.
+     */
+    void requestFrame(RenderScheduler scheduler) {
+        queuedSchedulers.add(scheduler);
+        queuedCount.incrementAndGet();
+        
+        if (framePending.get() || !framePending.compareAndSet(false, true)) {
+            return;
+        }
+        
+        // Collect the changes of all the consoles for a whole frame period:
+        long now = System.nanoTime();
+        long period = framePeriodNanos;
+        long delay = Math.max(period, lastFrameNanos + period - now);
+        RenderScheduler.TIMER.schedule(timerTask,
+                                       delay,
+                                       TimeUnit.NANOSECONDS);
+    }
+    
+    private void paintFrame() {
+        lastFrameNanos = System.nanoTime();
+        framePending.set(false);
+        // The consoles queued from now on go to the next frame:
+        int count = queuedCount.getAndSet(0);
+        
+        for (int i = 0; i < count; i++) {
+            queuedSchedulers.poll().paintEngineFrame();
+        }
+        
+        if (count > 0) {
+            framesRendered.increment();
+            consoleFramesRendered.add(count);
+        }
+    }
+}
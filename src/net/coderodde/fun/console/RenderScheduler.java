@@ -0,0 +1,340 @@
+package net.coderodde.fun.console;
+
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import javax.swing.SwingUtilities;
+
+/**
+ * This class decouples the paint rate of a console from the write rate of its
+ * producers. All the changes between two frames are collected by the dirty
+ * region of the console, and at most one frame is scheduled at a time, no
+ * sooner than one frame period after the previous one. In the low-latency
+ * mode an idle console paints the very first change immediately instead of
+ * waiting for the frame period to elapse.
+ * <p>
+ * The timing is done by a single daemon thread shared by all the schedulers.
+ * A scheduler of a console registered with a {@link RenderEngine} hands its
+ * frames over to the engine instead, which paints the frames of all its
+ * consoles together.
+ * <p>
+ * The painter reports the start and the end of each frame back to the
+ * scheduler, so that the frame listeners may tell which changes reached the
+ * screen. A frame counts as presented once the repaints it requested have
+ * been processed on the event dispatch thread.
+ * 
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 17, 2026)
+ */
+public final class RenderScheduler {
+
+    /**
+     * Receives the progress of the frames. The calls for the frames come in
+     * the order the frames were started in.
+     */
+    interface FrameListener {
+        
+        /**
+         * Called right before a frame drains the dirty region. The changes
+         * made before this call are a part of the frame.
+         */
+        void frameStarted();
+        
+        /**
+         * Called once the oldest frame started but not yet presented is on
+         * the screen.
+         */
+        void framePresented();
+    }
+    
+    /**
+     * The default maximum number of frames per second.
+     */
+    public static final int DEFAULT_MAX_FRAMES_PER_SECOND = 60;
+    
+    /**
+     * The minimum allowed frame rate cap.
+     */
+    private static final int MINIMUM_MAX_FRAMES_PER_SECOND = 1;
+    
+    /**
+     * The timer thread shared by all the schedulers and the render engines.
+     */
+    static final ScheduledExecutorService TIMER =
+            Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+        
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread =
+                    new Thread(runnable, "ColorfulConsole render scheduler");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+    
+    /**
+     * Dispatches a frame: hands the dirty region over to whoever paints it.
+     */
+    private final Runnable frameTask;
+    
+    /**
+     * Runs the frame task on the timer thread.
+     */
+    private final Runnable timerTask = new Runnable() {
+        
+        @Override
+        public void run() {
+            dispatchFrame();
+        }
+    };
+    
+    /**
+     * Tells the frame listeners that a frame is on the screen.
+     */
+    private final Runnable presentTask = new Runnable() {
+        
+        @Override
+        public void run() {
+            for (FrameListener frameListener : frameListeners) {
+                frameListener.framePresented();
+            }
+        }
+    };
+    
+    /**
+     * Set to {@code true} while a frame is requested but did not start yet.
+     */
+    private final AtomicBoolean framePending = new AtomicBoolean();
+    
+    /**
+     * The number of frames rendered.
+     */
+    private final LongAdder framesRendered = new LongAdder();
+    
+    /**
+     * The number of frame requests merged into an already pending frame.
+     */
+    private final LongAdder framesSkipped = new LongAdder();
+    
+    /**
+     * The total number of cells rendered in all the frames.
+     */
+    private final LongAdder cellsRendered = new LongAdder();
+    
+    /**
+     * The frame period in nanoseconds.
+     */
+    private volatile long framePeriodNanos;
+    
+    /**
+     * The time at which the last frame was dispatched.
+     */
+    private volatile long lastFrameNanos;
+    
+    /**
+     * Whether an idle console paints immediately.
+     */
+    private volatile boolean lowLatency;
+    
+    /**
+     * The frame listeners. Replaced as a whole on each change.
+     */
+    private volatile FrameListener[] frameListeners = new FrameListener[0];
+    
+    /**
+     * The engine dispatching the frames, or {@code null} if this scheduler
+     * dispatches them by itself.
+     */
+    private volatile RenderEngine engine;
+    
+    /**
+     * Paints a frame on the event dispatch thread when called by the engine.
+     */
+    private volatile Runnable enginePaintTask;
+    
+    RenderScheduler(Runnable frameTask) {
+        this.frameTask = frameTask;
+        setMaxFramesPerSecond(DEFAULT_MAX_FRAMES_PER_SECOND);
+        this.lastFrameNanos = System.nanoTime() - framePeriodNanos;
+    }
+    
+    /**
+     * Sets the maximum number of frames painted per second.
+     * 
+     * @param maxFramesPerSecond the frame rate cap.
+     */
+    public void setMaxFramesPerSecond(int maxFramesPerSecond) {
+        if (maxFramesPerSecond < MINIMUM_MAX_FRAMES_PER_SECOND) {
+            throw new IllegalArgumentException(
+                    "The frame rate cap is too small (" + maxFramesPerSecond +
+                    "). Must be at least " + MINIMUM_MAX_FRAMES_PER_SECOND +
+                    ".");
+        }
+        
+        framePeriodNanos = TimeUnit.SECONDS.toNanos(1) / maxFramesPerSecond;
+    }
+    
+    public int getMaxFramesPerSecond() {
+        return (int)(TimeUnit.SECONDS.toNanos(1) / framePeriodNanos);
+    }
+    
+    /**
+     * Turns the low-latency mode on or off. In the low-latency mode, a change
+     * arriving when no frame was painted within the last frame period is
+     * painted immediately. Has no effect while the frames are dispatched by
+     * a {@link RenderEngine}.
+     * 
+     * @param lowLatency whether to use the low-latency mode.
+     */
+    public void setLowLatency(boolean lowLatency) {
+        this.lowLatency = lowLatency;
+    }
+    
+    public boolean isLowLatency() {
+        return lowLatency;
+    }
+    
+    public long getFramesRendered() {
+        return framesRendered.sum();
+    }
+    
+    public long getFramesSkipped() {
+        return framesSkipped.sum();
+    }
+    
+    /**
+     * Returns the mean number of cells rendered per frame.
+     * 
+     * @return the mean number of cells per frame.
+     */
+    public double getMeanCellsPerFrame() {
+        long frames = framesRendered.sum();
+        return frames == 0L ? 0.0 : (double) cellsRendered.sum() / frames;
+    }
+    
+    /**
+     * Requests a frame. If a frame is already pending, the request is merged
+     * into it.
+     */
+    void requestFrame() {
+        if (framePending.get() || !framePending.compareAndSet(false, true)) {
+            framesSkipped.increment();
+            return;
+        }
+        
+        RenderEngine currentEngine = engine;
+        
+        if (currentEngine != null) {
+            currentEngine.requestFrame(this);
+            return;
+        }
+        
+        long now = System.nanoTime();
+        long period = framePeriodNanos;
+        long earliest = lastFrameNanos + period;
+        
+        if (lowLatency) {
+            if (now - earliest >= 0L) {
+                dispatchFrame();
+            } else {
+                TIMER.schedule(timerTask, earliest - now, TimeUnit.NANOSECONDS);
+            }
+        } else {
+            // Collect the changes for a whole frame period:
+            long delay = Math.max(period, earliest - now);
+            TIMER.schedule(timerTask, delay, TimeUnit.NANOSECONDS);
+        }
+    }
+    
+    /**
+     * Forces a new frame to be requested even if one is marked as pending.
+     */
+    void resetPendingFrame() {
+        framePending.set(false);
+    }
+    
+    /**
+     * Must be called by the painter right before it drains the dirty region.
+     * Changes made after this call are collected for the next frame.
+     */
+    void frameStarted() {
+        framePending.set(false);
+        
+        for (FrameListener frameListener : frameListeners) {
+            frameListener.frameStarted();
+        }
+    }
+    
+    /**
+     * Must be called by the painter after a frame.
+     * 
+     * @param cells the number of cells rendered in the frame.
+     */
+    void frameRendered(int cells) {
+        if (cells > 0) {
+            framesRendered.increment();
+            cellsRendered.add(cells);
+        }
+        
+        if (frameListeners.length > 0) {
+            // Runs after the paint events posted by the repaints requested:
+            SwingUtilities.invokeLater(presentTask);
+        }
+    }
+    
+    synchronized void addFrameListener(FrameListener frameListener) {
+        FrameListener[] listeners =
+                Arrays.copyOf(frameListeners, frameListeners.length + 1);
+        listeners[listeners.length - 1] = frameListener;
+        frameListeners = listeners;
+    }
+    
+    synchronized void removeFrameListener(FrameListener frameListener) {
+        FrameListener[] listeners = frameListeners;
+        
+        for (int i = 0; i < listeners.length; i++) {
+            if (listeners[i] == frameListener) {
+                FrameListener[] remaining = 
+                        new FrameListener[listeners.length - 1];
+                System.arraycopy(listeners, 0, remaining, 0, i);
+                System.arraycopy(listeners,
+                                 i + 1,
+                                 remaining,
+                                 i,
+                                 listeners.length - i - 1);
+                frameListeners = remaining;
+                return;
+            }
+        }
+    }
+    
+    /**
+     * Hands the frames over to an engine or takes them back.
+     * 
+     * @param engine    the engine, or {@code null} to dispatch the frames
+     *                  by this scheduler again.
+     * @param paintTask paints a frame on the event dispatch thread.
+     */
+    void setEngine(RenderEngine engine, Runnable paintTask) {
+        enginePaintTask = paintTask;
+        this.engine = engine;
+    }
+    
+    /**
+     * Paints a frame requested through the engine. Called by the engine on
+     * the event dispatch thread.
+     */
+    void paintEngineFrame() {
+        lastFrameNanos = System.nanoTime();
+        enginePaintTask.run();
+    }
+    
+    private void dispatchFrame() {
+        lastFrameNanos = System.nanoTime();
+        frameTask.run();
+    }
+}
@@ -0,0 +1,23 @@
+package net.coderodde.fun.console;
+
+/**
+ * Enumerates the ways a {@link ColorfulConsole} may get its tiles on screen.
+ * 
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 17, 2026)
+ */
+public enum RenderingMode {
+
+    /**
+     * The tiles intersecting the clip are rasterized straight onto the
+     * graphics context of the event dispatch thread.
+     */
+    DIRECT,
+    
+    /**
+     * The damaged tiles are rasterized into a persistent back buffer on a
+     * dedicated render thread. Painting on the event dispatch thread only
+     * blits the back buffer, so its cost does not depend on the write rate.
+     */
+    BACK_BUFFER
+}
@@ -0,0 +1,305 @@
+package net.coderodde.fun.console;
+
+/**
+ * This class implements the scrollback of a console: a ring buffer of the rows
+ * that scrolled off the top of the screen. The rows are kept in packed
+ * primitive arrays; each cell takes twelve bytes (the code point and the
+ * attribute bits share an integer), so the memory footprint is fixed at
+ * <code>12 * width * capacity</code> bytes regardless of the content. When
+ * the buffer is full, the oldest row is overwritten.
+ * <p>
+ * Each row keeps the width it was pushed with and is padded with blanks in
+ * the colors of its last cell only when it is read. A wider console widens
+ * the slots of the rows geometrically, so widening one column at a time
+ * copies the rows held only a logarithmic number of times.
+ * 
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 17, 2026)
+ */
+public final class ScrollbackBuffer {
+
+    /**
+     * The number of bits the attributes are shifted by in a packed glyph.
+     */
+    private static final int ATTRIBUTE_SHIFT = 24;
+    
+    /**
+     * Masks the code point out of a packed glyph.
+     */
+    private static final int CODE_POINT_MASK = (1 << ATTRIBUTE_SHIFT) - 1;
+    
+    /**
+     * The number of cells in the slot of each row.
+     */
+    private int width;
+    
+    /**
+     * The maximum number of rows held.
+     */
+    private final int capacity;
+    
+    /**
+     * The code points and attributes of the cells packed into integers.
+     */
+    private int[] glyphs;
+    
+    /**
+     * The packed ARGB foreground colors of the cells.
+     */
+    private int[] foregrounds;
+    
+    /**
+     * The packed ARGB background colors of the cells.
+     */
+    private int[] backgrounds;
+    
+    /**
+     * The number of cells stored in each slot.
+     */
+    private final int[] rowWidths;
+    
+    /**
+     * The slot of the oldest row.
+     */
+    private int head;
+    
+    /**
+     * The number of rows held.
+     */
+    private int size;
+    
+    /**
+     * Constructs a new scrollback buffer.
+     * 
+     * @param width    the width of each row in cells.
+     * @param capacity the maximum number of rows held.
+     */
+    public ScrollbackBuffer(int width, int capacity) {
+        if (width < 1) {
+            throw new IllegalArgumentException(
+                    "The row width is too small (" + width + "). Must be at " +
+                    "least 1.");
+        }
+        
+        if (capacity < 0) {
+            throw new IllegalArgumentException(
+                    "The scrollback capacity is negative: " + capacity + ".");
+        }
+        
+        int cells = countCells(width, capacity);
+        this.width = width;
+        this.capacity = capacity;
+        this.glyphs = new int[cells];
+        this.foregrounds = new int[cells];
+        this.backgrounds = new int[cells];
+        this.rowWidths = new int[capacity];
+    }
+    
+    /**
+     * Returns the number of cells in the slot of each row, which is the
+     * widest row this buffer holds without clipping.
+     * 
+     * @return the width of the slots.
+     */
+    public int getWidth() {
+        return width;
+    }
+    
+    public int getCapacity() {
+        return capacity;
+    }
+    
+    /**
+     * Returns the number of rows held.
+     * 
+     * @return the number of rows.
+     */
+    public int size() {
+        return size;
+    }
+    
+    /**
+     * Removes all the rows.
+     */
+    public void clear() {
+        head = 0;
+        size = 0;
+    }
+    
+    /**
+     * Appends a row of the given cell buffer as the newest row. If the buffer
+     * is full, the oldest row is dropped.
+     * 
+     * @param cells the cells to copy from.
+     * @param y     the row of the cells to copy.
+     */
+    void pushRow(CellBuffer cells, int y) {
+        if (capacity == 0) {
+            return;
+        }
+        
+        int slot;
+        
+        if (size < capacity) {
+            slot = (head + size) % capacity;
+            size++;
+        } else {
+            slot = head;
+            head = (head + 1) % capacity;
+        }
+        
+        int length = Math.min(width, cells.getWidth());
+        int target = slot * width;
+        int source = cells.index(0, y);
+        rowWidths[slot] = length;
+        
+        for (int x = 0; x < length; x++) {
+            glyphs[target + x] = pack(cells.getCodePoint(source + x),
+                                      cells.getAttributes(source + x));
+            foregrounds[target + x] = cells.getForeground(source + x);
+            backgrounds[target + x] = cells.getBackground(source + x);
+        }
+    }
+    
+    /**
+     * Makes the slots at least as wide as the given width, so that rows of
+     * that width are held without clipping. The slots grow by at least a
+     * half at a time; the rows held are copied without padding.
+     * 
+     * @param minimumWidth the minimum width of the slots.
+     */
+    void ensureWidth(int minimumWidth) {
+        if (minimumWidth <= width) {
+            return;
+        }
+        
+        int newWidth = minimumWidth;
+        int grownWidth = width + width / 2;
+        
+        if (grownWidth > newWidth
+                && (long) grownWidth * capacity <= Integer.MAX_VALUE) {
+            newWidth = grownWidth;
+        }
+        
+        int cells = countCells(newWidth, capacity);
+        int[] newGlyphs = new int[cells];
+        int[] newForegrounds = new int[cells];
+        int[] newBackgrounds = new int[cells];
+        
+        for (int index = 0; index < size; index++) {
+            int slot = slotOf(index);
+            int source = slot * width;
+            int target = slot * newWidth;
+            int length = rowWidths[slot];
+            System.arraycopy(glyphs, source, newGlyphs, target, length);
+            System.arraycopy(foregrounds,
+                             source,
+                             newForegrounds,
+                             target,
+                             length);
+            System.arraycopy(backgrounds,
+                             source,
+                             newBackgrounds,
+                             target,
+                             length);
+        }
+        
+        width = newWidth;
+        glyphs = newGlyphs;
+        foregrounds = newForegrounds;
+        backgrounds = newBackgrounds;
+    }
+    
+    /**
+     * Copies a row into a row of a cell buffer. The cells past the end of
+     * the row are blanked in the colors of its last cell, up to the width of
+     * the slots; the cells beyond are left intact.
+     * 
+     * @param index the index of the row, 0 being the oldest row.
+     * @param cells the target cell buffer.
+     * @param y     the target row.
+     */
+    public void copyRow(int index, CellBuffer cells, int y) {
+        int slot = slotOf(index);
+        int source = slot * width;
+        int target = cells.index(0, y);
+        int rowWidth = rowWidths[slot];
+        int length = Math.min(rowWidth, cells.getWidth());
+        
+        for (int x = 0; x < length; x++) {
+            int glyph = glyphs[source + x];
+            cells.setCell(target + x,
+                          glyph & CODE_POINT_MASK,
+                          foregrounds[source + x],
+                          backgrounds[source + x],
+                          (byte)(glyph >>> ATTRIBUTE_SHIFT));
+        }
+        
+        int paddedLength = Math.min(width, cells.getWidth());
+        
+        for (int x = length; x < paddedLength; x++) {
+            cells.setCell(target + x,
+                          ' ',
+                          foregrounds[source + rowWidth - 1],
+                          backgrounds[source + rowWidth - 1],
+                          (byte) 0);
+        }
+    }
+    
+    /**
+     * Returns the text of a row with the trailing spaces removed.
+     * 
+     * @param index the index of the row, 0 being the oldest row.
+     * @return the text of the row.
+     */
+    public String getRowText(int index) {
+        int slot = slotOf(index);
+        int source = slot * width;
+        int length = rowWidths[slot];
+        
+        while (length > 0
+                && (glyphs[source + length - 1] & CODE_POINT_MASK) == ' ') {
+            length--;
+        }
+        
+        StringBuilder stringBuilder = new StringBuilder(length);
+        
+        for (int x = 0; x < length; x++) {
+            int codePoint = glyphs[source + x] & CODE_POINT_MASK;
+            
+            // The right halves of the double-width characters are no text:
+            if (codePoint != CellBuffer.WIDE_TAIL) {
+                stringBuilder.appendCodePoint(codePoint);
+            }
+        }
+        
+        return stringBuilder.toString();
+    }
+    
+    private int slotOf(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(
+                    "The scrollback row index " + index + " is out of " +
+                    "range [0, " + size + ").");
+        }
+        
+        return (head + index) % capacity;
+    }
+    
+    private static int countCells(int width, int capacity) {
+        long cells = (long) width * capacity;
+        
+        if (cells > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(
+                    "The scrollback is too large: " + width + " x " +
+                    capacity + " cells.");
+        }
+        
+        return (int) cells;
+    }
+    
+    private static int pack(int codePoint, byte attributes) {
+        return (codePoint & CODE_POINT_MASK)
+                | ((attributes & 0xff) << ATTRIBUTE_SHIFT);
+    }
+}
@@ -0,0 +1,425 @@
+package net.coderodde.fun.console;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * This class implements the decoder of the binary session format described
+ * in {@link SessionEncoder}. The records are either applied to a console
+ * model or only validated and skipped. The model is resized to the size of
+ * the session by the resizes and the keyframes.
+ * 
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 17, 2026)
+ */
+final class SessionDecoder {
+
+    /**
+     * The encoded session. Its position is the read position.
+     */
+    private ByteBuffer data;
+    
+    /**
+     * The current width of the session in cells.
+     */
+    private int width;
+    
+    /**
+     * The current height of the session in cells.
+     */
+    private int height;
+    
+    /**
+     * The start time of the session in milliseconds since the epoch.
+     */
+    private final long startMillis;
+    
+    /**
+     * The time of the last decoded record in microseconds since the start.
+     */
+    private long timeMicros;
+    
+    /**
+     * Whether the style fields hold the style of the previous run.
+     */
+    private boolean styleValid;
+    
+    /**
+     * The foreground color of the previous run.
+     */
+    private int styleForeground;
+    
+    /**
+     * The background color of the previous run.
+     */
+    private int styleBackground;
+    
+    /**
+     * The attributes of the previous run.
+     */
+    private byte styleAttributes;
+    
+    /**
+     * Decodes the header of a session. The records follow at the position of
+     * the data.
+     * 
+     * @param data the encoded session.
+     * @throws IOException if the header is malformed.
+     */
+    SessionDecoder(ByteBuffer data) throws IOException {
+        this.data = data.duplicate();
+        
+        try {
+            if (this.data.getInt() != SessionEncoder.MAGIC) {
+                throw new IOException("Not a console session recording.");
+            }
+            
+            long version = readVarLong();
+            
+            if (version != SessionEncoder.VERSION) {
+                throw new IOException(
+                        "Unsupported session format version " + version +
+                        ".");
+            }
+            
+            this.width = readCount();
+            this.height = readCount();
+            this.startMillis = this.data.getLong();
+        } catch (BufferUnderflowException ex) {
+            throw new IOException("The session header is truncated.", ex);
+        }
+        
+        if (!isValidSize(width, height)) {
+            throw new IOException(
+                    "Invalid session size " + width + " x " + height + ".");
+        }
+    }
+    
+    int getWidth() {
+        return width;
+    }
+    
+    int getHeight() {
+        return height;
+    }
+    
+    long getStartMillis() {
+        return startMillis;
+    }
+    
+    long getTimeMicros() {
+        return timeMicros;
+    }
+    
+    boolean hasNext() {
+        return data.hasRemaining();
+    }
+    
+    int getPosition() {
+        return data.position();
+    }
+    
+    /**
+     * Continues decoding with the given records as if they followed the 
+     * records decoded so far. Used for sessions received in chunks.
+     * 
+     * @param records the encoded records.
+     */
+    void setRecords(ByteBuffer records) {
+        data = records.duplicate();
+    }
+    
+    /**
+     * Moves to the given record. The record must be a keyframe, since the
+     * decoding state is not restored.
+     * 
+     * @param position   the position of the record.
+     * @param timeMicros the time of the record.
+     * @param width      the width of the session at the record.
+     * @param height     the height of the session at the record.
+     */
+    void seek(int position, long timeMicros, int width, int height) {
+        data.position(position);
+        this.timeMicros = timeMicros;
+        this.width = width;
+        this.height = height;
+    }
+    
+    /**
+     * Checks whether the next record is a keyframe.
+     * 
+     * @return {@code true} if the next record is a keyframe.
+     */
+    boolean isKeyframeNext() {
+        return data.get(data.position()) == SessionEncoder.OP_KEYFRAME;
+    }
+    
+    /**
+     * Returns the time of the next record without decoding it.
+     * 
+     * @return the time of the next record in microseconds since the start.
+     * @throws IOException if the record is malformed.
+     */
+    long peekTimeMicros() throws IOException {
+        int position = data.position();
+        
+        try {
+            int opcode = data.get();
+            long time = readVarLong();
+            return opcode == SessionEncoder.OP_KEYFRAME ?
+                    time :
+                    timeMicros + time;
+        } catch (BufferUnderflowException ex) {
+            throw malformed(position);
+        } finally {
+            data.position(position);
+        }
+    }
+    
+    /**
+     * Decodes the next record.
+     * 
+     * @param target the model to apply the record to, or {@code null} for
+     *               only validating the record.
+     * @throws IOException if the record is malformed.
+     */
+    void next(ConsoleModel target) throws IOException {
+        int position = data.position();
+        
+        try {
+            decode(target, position);
+        } catch (BufferUnderflowException ex) {
+            throw malformed(position);
+        }
+    }
+    
+    private void decode(ConsoleModel target, int position)
+            throws IOException {
+        int opcode = data.get();
+        long time = readVarLong();
+        
+        switch (opcode) {
+            case SessionEncoder.OP_KEYFRAME: {
+                timeMicros = time;
+                int cursorX = readCoordinate(width, position);
+                int cursorY = readCoordinate(height, position);
+                styleValid = false;
+                
+                if (target != null) {
+                    target.setConsoleSize(width, height);
+                }
+                
+                CellBuffer cells = targetCells(target);
+                readCells(target, cells, 0, width * height, position);
+                
+                if (cells != null) {
+                    target.markRectangleChanged(0, 0, width, height);
+                    target.setConsoleCursorPosition(cursorX, cursorY);
+                }
+                
+                break;
+            }
+            
+            case SessionEncoder.OP_CELLS: {
+                timeMicros += time;
+                int y = readCoordinate(height, position);
+                int minX = readCoordinate(width, position);
+                int count = readCount();
+                
+                if (count < 1 || count > width - minX) {
+                    throw malformed(position);
+                }
+                
+                CellBuffer cells = targetCells(target);
+                readCells(target, cells, y * width + minX, count, position);
+                
+                if (cells != null) {
+                    target.markCellsChanged(minX, minX + count - 1, y);
+                }
+                
+                break;
+            }
+            
+            case SessionEncoder.OP_SCROLL: {
+                timeMicros += time;
+                int rows = readCount();
+                int foreground = data.getInt();
+                int background = data.getInt();
+                
+                if (rows < 1 || rows > height) {
+                    throw malformed(position);
+                }
+                
+                CellBuffer cells = targetCells(target);
+                
+                if (cells != null) {
+                    target.scrollUp(rows);
+                    target.fillCells(cells,
+                                     0,
+                                     height - rows,
+                                     width,
+                                     rows,
+                                     ' ',
+                                     target.cellColor(foreground),
+                                     target.cellColor(background),
+                                     (byte) 0);
+                    target.markRectangleChanged(0, height - rows, width, rows);
+                }
+                
+                break;
+            }
+            
+            case SessionEncoder.OP_CURSOR: {
+                timeMicros += time;
+                int x = readCoordinate(width, position);
+                int y = readCoordinate(height, position);
+                
+                if (targetCells(target) != null) {
+                    target.setConsoleCursorPosition(x, y);
+                }
+                
+                break;
+            }
+            
+            case SessionEncoder.OP_RESIZE: {
+                timeMicros += time;
+                int newWidth = readCount();
+                int newHeight = readCount();
+                
+                if (!isValidSize(newWidth, newHeight)) {
+                    throw malformed(position);
+                }
+                
+                width = newWidth;
+                height = newHeight;
+                
+                if (target != null) {
+                    target.setConsoleSize(width, height);
+                }
+                
+                break;
+            }
+            
+            default:
+                throw malformed(position);
+        }
+    }
+    
+    /**
+     * Decodes cells and writes them into the target cells.
+     * 
+     * @param target   the model to write into.
+     * @param cells    the cells of the model, or {@code null} for only
+     *                 validating the cells.
+     * @param index    the index of the first cell.
+     * @param count    the number of cells.
+     * @param position the position of the record.
+     * @throws IOException if the cells are malformed.
+     */
+    private void readCells(ConsoleModel target,
+                           CellBuffer cells,
+                           int index,
+                           int count,
+                           int position) throws IOException {
+        int end = index + count;
+        
+        while (index < end) {
+            long header = readVarLong();
+            long runLength = header >>> 1;
+            
+            if (runLength < 1 || runLength > end - index) {
+                throw malformed(position);
+            }
+            
+            if ((header & 1) != 0) {
+                styleForeground = data.getInt();
+                styleBackground = data.getInt();
+                styleAttributes = data.get();
+                styleValid = true;
+            } else if (!styleValid) {
+                throw malformed(position);
+            }
+            
+            int runEnd = index + (int) runLength;
+            
+            if (cells == null) {
+                for (; index < runEnd; index++) {
+                    readVarLong();
+                }
+                
+                continue;
+            }
+            
+            int foreground = target.cellColor(styleForeground);
+            int background = target.cellColor(styleBackground);
+            
+            for (; index < runEnd; index++) {
+                target.setCell(cells,
+                               index,
+                               (int) readVarLong(),
+                               foreground,
+                               background,
+                               styleAttributes);
+            }
+        }
+    }
+    
+    /**
+     * Returns the cells of the target if they have the size of the session.
+     * They do not if the target was resized by someone else meanwhile; the
+     * records are then skipped until the next keyframe.
+     * 
+     * @param target the model to write into, or {@code null}.
+     * @return the cells of the target, or {@code null}.
+     */
+    private CellBuffer targetCells(ConsoleModel target) {
+        if (target == null) {
+            return null;
+        }
+        
+        CellBuffer cells = target.getCellBuffer();
+        return cells.getWidth() == width && cells.getHeight() == height ?
+               cells :
+               null;
+    }
+    
+    private static boolean isValidSize(int width, int height) {
+        return width >= 1 && height >= 1 && (long) width * height <= 1 << 30;
+    }
+    
+    private int readCoordinate(int limit, int position) throws IOException {
+        long value = readVarLong();
+        
+        if (value >= limit) {
+            throw malformed(position);
+        }
+        
+        return (int) value;
+    }
+    
+    private int readCount() throws IOException {
+        long value = readVarLong();
+        return value > Integer.MAX_VALUE ? -1 : (int) value;
+    }
+    
+    private long readVarLong() throws IOException {
+        long value = 0L;
+        
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = data.get();
+            value |= (long)(b & 0x7f) << shift;
+            
+            if (b >= 0) {
+                return value;
+            }
+        }
+        
+        throw malformed(data.position());
+    }
+    
+    private static IOException malformed(int position) {
+        return new IOException(
+                "Malformed session record at byte " + position + ".");
+    }
+}
@@ -0,0 +1,303 @@
+package net.coderodde.fun.console;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * This class implements the encoder of the binary session format. A session
+ * starts with a header:
+ * <pre>
+ *   int     magic "CCR1"
+ *   varint  version
+ *   varint  width
+ *   varint  height
+ *   long    start time in milliseconds since the epoch
+ * </pre>
+ * followed by records. Each record starts with its opcode byte and a varint
+ * time: the absolute time in microseconds since the start for keyframes and
+ * the microseconds since the previous record otherwise.
+ * <pre>
+ *   KEYFRAME  varint cursorX, varint cursorY, cells of the whole screen
+ *   CELLS     varint y, varint minX, varint count, cells of the span
+ *   SCROLL    varint rows, int foreground, int background
+ *   CURSOR    varint x, varint y
+ *   RESIZE    varint width, varint height
+ * </pre>
+ * A resize is followed by a keyframe, which defines the new screen.
+ * The cells are encoded in runs of a common style: a varint
+ * <code>(length &lt;&lt; 1) | changed</code>, then the packed ARGB foreground
+ * and background colors and the attribute byte if the style differs from
+ * the style of the previous run, then the code point of each cell as a
+ * varint. A keyframe forgets the previous style, so that decoding may start
+ * at any keyframe. The varints are unsigned LEB128 and the ints and longs are
+ * big-endian.
+ * <p>
+ * The encoder appends into a growable array and does not allocate once the
+ * array is large enough.
+ * 
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 17, 2026)
+ */
+final class SessionEncoder {
+
+    /**
+     * The magic number opening a session: "CCR1" in ASCII.
+     */
+    static final int MAGIC = 0x43435231;
+    
+    /**
+     * The version of the format.
+     */
+    static final int VERSION = 1;
+    
+    /**
+     * The opcode of a keyframe.
+     */
+    static final int OP_KEYFRAME = 1;
+    
+    /**
+     * The opcode of a span of cells.
+     */
+    static final int OP_CELLS = 2;
+    
+    /**
+     * The opcode of a scroll.
+     */
+    static final int OP_SCROLL = 3;
+    
+    /**
+     * The opcode of a cursor move.
+     */
+    static final int OP_CURSOR = 4;
+    
+    /**
+     * The opcode of a resize.
+     */
+    static final int OP_RESIZE = 5;
+    
+    /**
+     * The maximum number of bytes a single cell takes: the run header, the
+     * style and the code point.
+     */
+    private static final int MAXIMUM_CELL_BYTES = 5 + 9 + 5;
+    
+    /**
+     * The maximum number of bytes a record takes besides its cells.
+     */
+    private static final int MAXIMUM_RECORD_BYTES = 1 + 10 + 3 * 5 + 8;
+    
+    /**
+     * The encoded bytes.
+     */
+    private byte[] buffer;
+    
+    /**
+     * The number of encoded bytes.
+     */
+    private int size;
+    
+    /**
+     * Whether the style fields hold the style of the previous run.
+     */
+    private boolean styleValid;
+    
+    /**
+     * The foreground color of the previous run.
+     */
+    private int styleForeground;
+    
+    /**
+     * The background color of the previous run.
+     */
+    private int styleBackground;
+    
+    /**
+     * The attributes of the previous run.
+     */
+    private byte styleAttributes;
+    
+    SessionEncoder(int initialCapacity) {
+        this.buffer = new byte[initialCapacity];
+    }
+    
+    int size() {
+        return size;
+    }
+    
+    /**
+     * Writes the encoded bytes into the given stream and empties this
+     * encoder.
+     * 
+     * @param out the stream to write to.
+     * @throws IOException if writing fails.
+     */
+    void drainTo(OutputStream out) throws IOException {
+        int length = size;
+        size = 0;
+        out.write(buffer, 0, length);
+    }
+    
+    /**
+     * Forgets the style of the previous run, so that the records encoded
+     * from now on may be decoded without the ones encoded so far.
+     */
+    void resetStyle() {
+        styleValid = false;
+    }
+    
+    void writeHeader(int width, int height, long startMillis) {
+        ensureCapacity(4 + 3 * 5 + 8);
+        writeInt(MAGIC);
+        writeVarLong(VERSION);
+        writeVarLong(width);
+        writeVarLong(height);
+        writeLong(startMillis);
+    }
+    
+    /**
+     * Encodes a keyframe holding the whole screen.
+     * 
+     * @param timeMicros the time since the start in microseconds.
+     * @param cells      the cells of the screen.
+     * @param cursorX    the <code>x</code>-coordinate of the cursor.
+     * @param cursorY    the <code>y</code>-coordinate of the cursor.
+     */
+    void writeKeyframe(long timeMicros,
+                       CellBuffer cells,
+                       int cursorX,
+                       int cursorY) {
+        int count = cells.getWidth() * cells.getHeight();
+        ensureCapacity(MAXIMUM_RECORD_BYTES + count * MAXIMUM_CELL_BYTES);
+        writeByte(OP_KEYFRAME);
+        writeVarLong(timeMicros);
+        writeVarLong(cursorX);
+        writeVarLong(cursorY);
+        styleValid = false;
+        writeCells(cells, 0, count);
+    }
+    
+    /**
+     * Encodes a span of cells of a row.
+     * 
+     * @param deltaMicros the time since the previous record in microseconds.
+     * @param cells       the cells of the screen.
+     * @param minX        the leftmost column of the span.
+     * @param maxX        the rightmost column of the span.
+     * @param y           the row of the span.
+     */
+    void writeCells(long deltaMicros,
+                    CellBuffer cells,
+                    int minX,
+                    int maxX,
+                    int y) {
+        int count = maxX - minX + 1;
+        ensureCapacity(MAXIMUM_RECORD_BYTES + count * MAXIMUM_CELL_BYTES);
+        writeByte(OP_CELLS);
+        writeVarLong(deltaMicros);
+        writeVarLong(y);
+        writeVarLong(minX);
+        writeVarLong(count);
+        writeCells(cells, cells.index(minX, y), count);
+    }
+    
+    void writeResize(long deltaMicros, int width, int height) {
+        ensureCapacity(MAXIMUM_RECORD_BYTES);
+        writeByte(OP_RESIZE);
+        writeVarLong(deltaMicros);
+        writeVarLong(width);
+        writeVarLong(height);
+    }
+    
+    void writeScroll(long deltaMicros,
+                     int rows,
+                     int foreground,
+                     int background) {
+        ensureCapacity(MAXIMUM_RECORD_BYTES);
+        writeByte(OP_SCROLL);
+        writeVarLong(deltaMicros);
+        writeVarLong(rows);
+        writeInt(foreground);
+        writeInt(background);
+    }
+    
+    void writeCursor(long deltaMicros, int x, int y) {
+        ensureCapacity(MAXIMUM_RECORD_BYTES);
+        writeByte(OP_CURSOR);
+        writeVarLong(deltaMicros);
+        writeVarLong(x);
+        writeVarLong(y);
+    }
+    
+    private void writeCells(CellBuffer cells, int index, int count) {
+        int end = index + count;
+        
+        while (index < end) {
+            int foreground = cells.getForeground(index);
+            int background = cells.getBackground(index);
+            byte attributes = cells.getAttributes(index);
+            int runEnd = index + 1;
+            
+            while (runEnd < end
+                    && cells.getForeground(runEnd) == foreground
+                    && cells.getBackground(runEnd) == background
+                    && cells.getAttributes(runEnd) == attributes) {
+                runEnd++;
+            }
+            
+            boolean styleChanged = !styleValid
+                    || foreground != styleForeground
+                    || background != styleBackground
+                    || attributes != styleAttributes;
+            
+            long runLength = runEnd - index;
+            writeVarLong((runLength << 1) | (styleChanged ? 1 : 0));
+            
+            if (styleChanged) {
+                writeInt(foreground);
+                writeInt(background);
+                writeByte(attributes);
+                styleForeground = foreground;
+                styleBackground = background;
+                styleAttributes = attributes;
+                styleValid = true;
+            }
+            
+            for (; index < runEnd; index++) {
+                writeVarLong(cells.getCodePoint(index) & 0xffffffffL);
+            }
+        }
+    }
+    
+    private void ensureCapacity(int bytes) {
+        if (buffer.length - size < bytes) {
+            buffer = Arrays.copyOf(buffer,
+                                   Math.max(2 * buffer.length, size + bytes));
+        }
+    }
+    
+    private void writeByte(int value) {
+        buffer[size++] = (byte) value;
+    }
+    
+    private void writeInt(int value) {
+        buffer[size++] = (byte)(value >>> 24);
+        buffer[size++] = (byte)(value >>> 16);
+        buffer[size++] = (byte)(value >>> 8);
+        buffer[size++] = (byte) value;
+    }
+    
+    private void writeLong(long value) {
+        writeInt((int)(value >>> 32));
+        writeInt((int) value);
+    }
+    
+    private void writeVarLong(long value) {
+        while ((value & ~0x7fL) != 0L) {
+            buffer[size++] = (byte)((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        
+        buffer[size++] = (byte) value;
+    }
+}
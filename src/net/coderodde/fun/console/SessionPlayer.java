@@ -0,0 +1,267 @@
+package net.coderodde.fun.console;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * This class implements a player of the sessions written by a
+ * {@link SessionRecorder}. A session is replayed into a console model, either
+ * a {@link ColorfulConsole} on the screen or a headless one, in real time or
+ * as fast as possible. The model is resized to the size of the recording
+ * and follows the resizes recorded.
+ * <p>
+ * Opening a session validates it and indexes its keyframes, so that a seek
+ * applies the last keyframe before the requested time and decodes only the
+ * records after it. The files are memory-mapped and decoded in place.
+ * 
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 17, 2026)
+ */
+public final class SessionPlayer {
+
+    /**
+     * Decodes the session.
+     */
+    private final SessionDecoder decoder;
+    
+    /**
+     * The positions of the keyframes in the session.
+     */
+    private final int[] keyframePositions;
+    
+    /**
+     * The times of the keyframes in microseconds since the start.
+     */
+    private final long[] keyframeTimes;
+    
+    /**
+     * The session width at each keyframe.
+     */
+    private final int[] keyframeWidths;
+    
+    /**
+     * The session height at each keyframe.
+     */
+    private final int[] keyframeHeights;
+    
+    /**
+     * The time of the last record in microseconds since the start.
+     */
+    private final long durationMicros;
+    
+    /**
+     * Opens a session.
+     * 
+     * @param data the encoded session, from its position to its limit.
+     * @throws IOException if the session is malformed.
+     */
+    public SessionPlayer(ByteBuffer data) throws IOException {
+        Objects.requireNonNull(data, "The input session data is null.");
+        SessionDecoder indexer = new SessionDecoder(data);
+        int[] positions = new int[8];
+        long[] times = new long[8];
+        int[] widths = new int[8];
+        int[] heights = new int[8];
+        int keyframes = 0;
+        
+        while (indexer.hasNext()) {
+            if (indexer.isKeyframeNext()) {
+                if (keyframes == positions.length) {
+                    positions = Arrays.copyOf(positions, 2 * keyframes);
+                    times = Arrays.copyOf(times, 2 * keyframes);
+                    widths = Arrays.copyOf(widths, 2 * keyframes);
+                    heights = Arrays.copyOf(heights, 2 * keyframes);
+                }
+                
+                positions[keyframes] = indexer.getPosition();
+                times[keyframes] = indexer.peekTimeMicros();
+                widths[keyframes] = indexer.getWidth();
+                heights[keyframes] = indexer.getHeight();
+                keyframes++;
+            }
+            
+            indexer.next(null);
+        }
+        
+        if (keyframes == 0) {
+            throw new IOException("The session has no keyframe.");
+        }
+        
+        this.decoder = new SessionDecoder(data);
+        this.keyframePositions = Arrays.copyOf(positions, keyframes);
+        this.keyframeTimes = Arrays.copyOf(times, keyframes);
+        this.keyframeWidths = Arrays.copyOf(widths, keyframes);
+        this.keyframeHeights = Arrays.copyOf(heights, keyframes);
+        this.durationMicros = indexer.getTimeMicros();
+    }
+    
+    /**
+     * Opens a session file by mapping it into memory.
+     * 
+     * @param file the session file.
+     * @return the player of the session.
+     * @throws IOException if the file cannot be read or is malformed.
+     */
+    public static SessionPlayer open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file,
+                                                    StandardOpenOption.READ)) {
+            return new SessionPlayer(
+                    channel.map(FileChannel.MapMode.READ_ONLY,
+                                0L,
+                                channel.size()));
+        }
+    }
+    
+    /**
+     * Returns the width of the recording at the replay position.
+     * 
+     * @return the current width of the session in characters.
+     */
+    public synchronized int getConsoleWidth() {
+        return decoder.getWidth();
+    }
+    
+    /**
+     * Returns the height of the recording at the replay position.
+     * 
+     * @return the current height of the session in characters.
+     */
+    public synchronized int getConsoleHeight() {
+        return decoder.getHeight();
+    }
+    
+    /**
+     * Returns the start time of the recording.
+     * 
+     * @return the start time in milliseconds since the epoch.
+     */
+    public long getStartTimeMillis() {
+        return decoder.getStartMillis();
+    }
+    
+    /**
+     * Returns the time of the last record of the session.
+     * 
+     * @return the duration of the session in microseconds.
+     */
+    public long getDurationMicros() {
+        return durationMicros;
+    }
+    
+    /**
+     * Returns the time of the last record replayed.
+     * 
+     * @return the replay position in microseconds since the start.
+     */
+    public synchronized long getPositionMicros() {
+        return decoder.getTimeMicros();
+    }
+    
+    /**
+     * Brings the target console to its state at the given time of the
+     * session. The following {@link #play(ColorfulConsole, boolean)}
+     * continues from there.
+     * 
+     * @param target     the console to replay into.
+     * @param timeMicros the time in microseconds since the start.
+     * @throws IOException if the session is malformed.
+     */
+    public void seek(ColorfulConsole target, long timeMicros)
+            throws IOException {
+        seek(target.getModel(), timeMicros);
+    }
+    
+    /**
+     * Brings the target model to its state at the given time of the session.
+     * 
+     * @param target     the model to replay into.
+     * @param timeMicros the time in microseconds since the start.
+     * @throws IOException if the session is malformed.
+     */
+    public synchronized void seek(ConsoleModel target, long timeMicros)
+            throws IOException {
+        checkTarget(target);
+        int keyframe = Arrays.binarySearch(keyframeTimes, timeMicros);
+        
+        if (keyframe < 0) {
+            keyframe = Math.max(0, -keyframe - 2);
+        } else {
+            // Equal times: take the last of them.
+            while (keyframe < keyframeTimes.length - 1
+                    && keyframeTimes[keyframe + 1] == timeMicros) {
+                keyframe++;
+            }
+        }
+        
+        decoder.seek(keyframePositions[keyframe],
+                     keyframeTimes[keyframe],
+                     keyframeWidths[keyframe],
+                     keyframeHeights[keyframe]);
+        decoder.next(target);
+        
+        while (decoder.hasNext() && decoder.peekTimeMicros() <= timeMicros) {
+            decoder.next(target);
+        }
+    }
+    
+    /**
+     * Replays the rest of the session into the target console.
+     * 
+     * @param target   the console to replay into.
+     * @param realTime whether to keep the recorded pace. If not, the records
+     *                 are applied as fast as possible.
+     * @throws IOException          if the session is malformed.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public void play(ColorfulConsole target, boolean realTime)
+            throws IOException, InterruptedException {
+        play(target.getModel(), realTime);
+    }
+    
+    /**
+     * Replays the rest of the session into the target model.
+     * 
+     * @param target   the model to replay into.
+     * @param realTime whether to keep the recorded pace. If not, the records
+     *                 are applied as fast as possible.
+     * @throws IOException          if the session is malformed.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public synchronized void play(ConsoleModel target, boolean realTime)
+            throws IOException, InterruptedException {
+        checkTarget(target);
+        // Replays started in the middle continue in the size of the session:
+        target.setConsoleSize(decoder.getWidth(), decoder.getHeight());
+        long startNanos = System.nanoTime();
+        long startMicros = decoder.getTimeMicros();
+        
+        while (decoder.hasNext()) {
+            if (realTime) {
+                long dueNanos = startNanos + TimeUnit.MICROSECONDS.toNanos(
+                        decoder.peekTimeMicros() - startMicros);
+                long waitNanos;
+                
+                while ((waitNanos = dueNanos - System.nanoTime()) > 0L) {
+                    LockSupport.parkNanos(waitNanos);
+                    
+                    if (Thread.interrupted()) {
+                        throw new InterruptedException();
+                    }
+                }
+            }
+            
+            decoder.next(target);
+        }
+    }
+    
+    private static void checkTarget(ConsoleModel target) {
+        Objects.requireNonNull(target, "The input console model is null.");
+    }
+}
@@ -0,0 +1,549 @@
+package net.coderodde.fun.console;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * This class implements a recorder streaming the changes of a console model
+ * into a compact binary session, which a {@link SessionPlayer} replays. The
+ * format is described in {@link SessionEncoder}: timestamped spans of
+ * changed cells, scrolls and cursor moves, with a keyframe of the whole
+ * screen every few seconds so that seeking never decodes much.
+ * <p>
+ * The recorder hooks the cell mutation paths of the model, so the output of
+ * the printing methods, the windows, the ANSI adapters and the bulk writes
+ * is all recorded. The colors are recorded resolved per cell; changing the
+ * current colors is captured through the cells printed with them. A resize
+ * of the model and a remapping of an entry of its palette are recorded with
+ * a keyframe of the new screen.
+ * <p>
+ * Recording is cheap at high write rates: the writers of the model only
+ * widen the dirty span of the changed row (see {@link DirtyRegion}), which
+ * takes no lock, and wake a recorder thread up once per batch of changes.
+ * The recorder thread collects the changes for a millisecond and then
+ * encodes the dirty spans into a reused buffer without allocation. The
+ * buffer is written to the stream only when 64 KiB have accumulated. If the
+ * stream fails, the recording stops and the exception is thrown by
+ * {@link #flush()} and {@link #close()}.
+ * 
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 17, 2026)
+ */
+public final class SessionRecorder implements Closeable {
+
+    /**
+     * The default interval between two keyframes in milliseconds.
+     */
+    public static final long DEFAULT_KEYFRAME_INTERVAL_MILLIS = 5000L;
+    
+    /**
+     * The number of bytes after which a keyframe is written regardless of
+     * the interval, bounding the work of a seek.
+     */
+    private static final long KEYFRAME_BYTES = 1L << 20;
+    
+    /**
+     * The number of encoded bytes buffered before they are written.
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
+    
+    /**
+     * The time window in nanoseconds within which the changes of a row are
+     * coalesced into one span.
+     */
+    private static final long COALESCE_NANOS = 1_000_000L;
+    
+    /**
+     * The model being recorded.
+     */
+    private final ConsoleModel model;
+    
+    /**
+     * The stream receiving the session.
+     */
+    private final OutputStream out;
+    
+    /**
+     * Encodes the records.
+     */
+    private final SessionEncoder encoder =
+            new SessionEncoder(2 * BUFFER_SIZE);
+    
+    /**
+     * The interval between two keyframes in nanoseconds.
+     */
+    private final long keyframeIntervalNanos;
+    
+    /**
+     * The value of {@link System#nanoTime()} at the start of the recording.
+     */
+    private final long startNanos;
+    
+    /**
+     * The time of the last record in microseconds since the start.
+     */
+    private long lastRecordMicros;
+    
+    /**
+     * The value of {@link System#nanoTime()} at the last keyframe.
+     */
+    private long lastKeyframeNanos;
+    
+    /**
+     * The number of bytes written into the stream.
+     */
+    private long bytesWritten;
+    
+    /**
+     * The value of {@link #recordedBytes()} at the end of the last keyframe.
+     */
+    private long keyframeEndBytes;
+    
+    /**
+     * The spans of changed cells not recorded yet. Marked by the writers
+     * without the lock of this recorder.
+     */
+    private final DirtyRegion changes;
+    
+    /**
+     * The thread encoding the changed cells.
+     */
+    private final Thread captureThread;
+    
+    /**
+     * Set to {@code true} when changed cells are waiting to be encoded.
+     */
+    private volatile boolean capturePending;
+    
+    /**
+     * Set to {@code false} when this recorder is closed.
+     */
+    private volatile boolean running = true;
+    
+    /**
+     * The value of {@link System#nanoTime()} stamped on the spans being
+     * encoded.
+     */
+    private long captureNanos;
+    
+    /**
+     * The latest cursor of the model, packed as <code>(y &lt;&lt; 32) |
+     * x</code>. Written without the lock of this recorder.
+     */
+    private volatile long cursor;
+    
+    /**
+     * The last recorded cursor, packed like {@link #cursor}.
+     */
+    private long recordedCursor;
+    
+    /**
+     * The exception that stopped the recording, or {@code null}.
+     */
+    private IOException failure;
+    
+    /**
+     * Whether this recorder is closed.
+     */
+    private boolean closed;
+    
+    /**
+     * Encodes the drained spans of changed cells.
+     */
+    private final DirtyRegion.RectangleVisitor spanEncoder =
+            new DirtyRegion.RectangleVisitor() {
+        
+        @Override
+        public void visit(int x, int y, int width, int height) {
+            encodeCells(x, y, width, height);
+        }
+    };
+    
+    /**
+     * Receives the changes of the model.
+     */
+    private final ConsoleModel.MutationListener mutationListener =
+            new ConsoleModel.MutationListener() {
+        
+        @Override
+        public void cellsChanged(int minX, int maxX, int y) {
+            recordCells(minX, maxX, y);
+        }
+        
+        @Override
+        public void scrolling(int rows) {
+            recordScroll(rows);
+        }
+        
+        @Override
+        public void cursorMoved(int x, int y) {
+            cursor = packCursor(x, y);
+        }
+        
+        @Override
+        public void resized(int width, int height) {
+            recordResize(width, height);
+        }
+        
+        @Override
+        public void paletteChanged() {
+            // The records carry the resolved colors of the cells:
+            writeKeyframe();
+        }
+    };
+    
+    /**
+     * Starts recording a model with the default keyframe interval.
+     * 
+     * @param model the model to record.
+     * @param out   the stream receiving the session.
+     * @throws IOException if writing the header fails.
+     */
+    public SessionRecorder(ConsoleModel model, OutputStream out)
+            throws IOException {
+        this(model, out, DEFAULT_KEYFRAME_INTERVAL_MILLIS);
+    }
+    
+    /**
+     * Starts recording a model. The header and the first keyframe are
+     * written immediately.
+     * 
+     * @param model                  the model to record.
+     * @param out                    the stream receiving the session.
+     * @param keyframeIntervalMillis the interval between two keyframes.
+     * @throws IOException if writing the header fails.
+     */
+    public SessionRecorder(ConsoleModel model,
+                           OutputStream out,
+                           long keyframeIntervalMillis) throws IOException {
+        this.model = Objects.requireNonNull(model,
+                                            "The input console model is null.");
+        this.out = Objects.requireNonNull(out, "The output stream is null.");
+        
+        if (keyframeIntervalMillis < 1L) {
+            throw new IllegalArgumentException(
+                    "The keyframe interval is too small (" +
+                    keyframeIntervalMillis + "). Must be at least 1.");
+        }
+        
+        this.keyframeIntervalNanos = keyframeIntervalMillis * 1_000_000L;
+        this.startNanos = System.nanoTime();
+        this.cursor = packCursor(model.getCursorX(), model.getCursorY());
+        this.changes = new DirtyRegion(model.getConsoleHeight());
+        this.captureThread = new Thread("ColorfulConsole session recorder") {
+            
+            @Override
+            public void run() {
+                captureChanges();
+            }
+        };
+        
+        encoder.writeHeader(model.getConsoleWidth(),
+                            model.getConsoleHeight(),
+                            System.currentTimeMillis());
+        model.addMutationListener(mutationListener);
+        writeKeyframe();
+        captureThread.setDaemon(true);
+        captureThread.start();
+        flush();
+    }
+    
+    /**
+     * Starts recording a model into a file with the default keyframe
+     * interval. The file is replaced if it exists.
+     * 
+     * @param model the model to record.
+     * @param file  the file receiving the session.
+     * @return the recorder.
+     * @throws IOException if the file cannot be written.
+     */
+    public static SessionRecorder create(ConsoleModel model, Path file)
+            throws IOException {
+        OutputStream out = Files.newOutputStream(file);
+        
+        try {
+            return new SessionRecorder(model, out);
+        } catch (IOException | RuntimeException ex) {
+            out.close();
+            throw ex;
+        }
+    }
+    
+    /**
+     * Returns the number of bytes recorded so far, including the buffered
+     * ones.
+     * 
+     * @return the number of bytes recorded.
+     */
+    public synchronized long getBytesRecorded() {
+        return recordedBytes();
+    }
+    
+    /**
+     * Writes the buffered records into the stream and flushes it.
+     * 
+     * @throws IOException if the recording failed.
+     */
+    public synchronized void flush() throws IOException {
+        if (!closed) {
+            flushPending(System.nanoTime());
+            drain();
+        }
+        
+        if (failure != null) {
+            throw failure;
+        }
+        
+        out.flush();
+    }
+    
+    /**
+     * Stops recording, writes the buffered records and closes the stream.
+     * 
+     * @throws IOException if the recording failed.
+     */
+    @Override
+    public void close() throws IOException {
+        model.removeMutationListener(mutationListener);
+        running = false;
+        LockSupport.unpark(captureThread);
+        
+        try {
+            captureThread.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            
+            try {
+                flushPending(System.nanoTime());
+                drain();
+                closed = true;
+                
+                if (failure != null) {
+                    throw failure;
+                }
+            } finally {
+                closed = true;
+                out.close();
+            }
+        }
+    }
+    
+    /**
+     * Marks a span of changed cells. Called by the writers of the model, so
+     * it takes no lock: the thread marking a clean row wakes the recorder
+     * thread up, the others only widen the dirty span of their row.
+     * 
+     * @param minX the leftmost changed column.
+     * @param maxX the rightmost changed column.
+     * @param y    the row of the changed cells.
+     */
+    private void recordCells(int minX, int maxX, int y) {
+        if (changes.markSpan(minX, maxX, y) && !capturePending) {
+            capturePending = true;
+            LockSupport.unpark(captureThread);
+        }
+    }
+    
+    private void captureChanges() {
+        while (running) {
+            if (!capturePending) {
+                LockSupport.park(this);
+                continue;
+            }
+            
+            long nanos = System.nanoTime();
+            // Collect the changes of a whole coalescing window:
+            LockSupport.parkNanos(this, COALESCE_NANOS);
+            // The rows marked from now on wake this thread up again:
+            capturePending = false;
+            capture(nanos);
+        }
+    }
+    
+    /**
+     * Encodes the changed cells and writes a keyframe if one is due. The
+     * scroll lock keeps the screen from moving meanwhile.
+     * 
+     * @param nanos the value of {@link System#nanoTime()} at the first
+     *              change.
+     */
+    private void capture(long nanos) {
+        boolean keyframeDue;
+        
+        synchronized (model.getScrollLock()) {
+            synchronized (this) {
+                if (closed || failure != null) {
+                    return;
+                }
+                
+                flushPending(nanos);
+                long now = System.nanoTime();
+                keyframeDue = now - lastKeyframeNanos >= keyframeIntervalNanos
+                        || recordedBytes() - keyframeEndBytes >= KEYFRAME_BYTES;
+            }
+        }
+        
+        if (keyframeDue) {
+            writeKeyframe();
+        }
+    }
+    
+    private synchronized void recordScroll(int rows) {
+        if (closed || failure != null) {
+            return;
+        }
+        
+        // The changed cells must be read before they move:
+        long now = System.nanoTime();
+        flushPending(now);
+        encoder.writeScroll(deltaMicros(now),
+                            rows,
+                            model.getForeground().getRGB(),
+                            model.getBackground().getRGB());
+        drainIfFull();
+    }
+    
+    /**
+     * Records a resize followed by a keyframe of the new screen. Called with
+     * the scroll lock held. The changed spans belong to the old screen and
+     * are covered by the keyframe, so they are dropped.
+     * 
+     * @param width  the new width of the model.
+     * @param height the new height of the model.
+     */
+    private void recordResize(int width, int height) {
+        synchronized (this) {
+            if (closed || failure != null) {
+                return;
+            }
+            
+            changes.resize(height);
+            encoder.writeResize(deltaMicros(System.nanoTime()), width, height);
+        }
+        
+        writeKeyframe();
+    }
+    
+    /**
+     * Writes a keyframe of the whole screen. The scroll lock keeps the
+     * screen from moving meanwhile; it is taken before the lock of this
+     * recorder, as on the scrolling path.
+     */
+    private void writeKeyframe() {
+        synchronized (model.getScrollLock()) {
+            synchronized (this) {
+                if (closed || failure != null) {
+                    return;
+                }
+                
+                long now = System.nanoTime();
+                flushPending(now);
+                // Keyframes carry the absolute time:
+                deltaMicros(now);
+                long micros = lastRecordMicros;
+                encoder.writeKeyframe(micros,
+                                      model.getFrontCellBuffer(),
+                                      model.getCursorX(),
+                                      model.getCursorY());
+                recordedCursor = packCursor(model.getCursorX(),
+                                            model.getCursorY());
+                lastKeyframeNanos = now;
+                keyframeEndBytes = recordedBytes();
+                drainIfFull();
+            }
+        }
+    }
+    
+    /**
+     * Encodes the changed cells and the cursor if it moved.
+     * 
+     * @param nanos the value of {@link System#nanoTime()} stamped on the
+     *              changed cells.
+     */
+    private void flushPending(long nanos) {
+        captureNanos = nanos;
+        changes.drain(spanEncoder);
+        
+        long currentCursor = cursor;
+        
+        if (currentCursor != recordedCursor) {
+            encoder.writeCursor(deltaMicros(nanos),
+                                (int) currentCursor,
+                                (int)(currentCursor >>> 32));
+            recordedCursor = currentCursor;
+        }
+        
+        drainIfFull();
+    }
+    
+    private void encodeCells(int x, int y, int width, int height) {
+        CellBuffer cells = model.getFrontCellBuffer();
+        
+        // The spans racing with a resize may lie outside of the screen:
+        if (x >= cells.getWidth()) {
+            return;
+        }
+        
+        int maxX = Math.min(x + width, cells.getWidth()) - 1;
+        int maxY = Math.min(y + height, cells.getHeight()) - 1;
+        
+        for (int row = y; row <= maxY; row++) {
+            encoder.writeCells(deltaMicros(captureNanos), cells, x, maxX, row);
+            drainIfFull();
+        }
+    }
+    
+    /**
+     * Returns the microseconds elapsed since the last record, advancing the
+     * time of the last record. The time never goes backwards.
+     * 
+     * @param nanos the value of {@link System#nanoTime()} of the record.
+     * @return the microseconds since the last record.
+     */
+    private long deltaMicros(long nanos) {
+        long micros = (nanos - startNanos) / 1000L;
+        long delta = Math.max(0L, micros - lastRecordMicros);
+        lastRecordMicros += delta;
+        return delta;
+    }
+    
+    private long recordedBytes() {
+        return bytesWritten + encoder.size();
+    }
+    
+    private void drainIfFull() {
+        if (encoder.size() >= BUFFER_SIZE) {
+            drain();
+        }
+    }
+    
+    private void drain() {
+        if (failure != null) {
+            return;
+        }
+        
+        int size = encoder.size();
+        
+        try {
+            encoder.drainTo(out);
+            bytesWritten += size;
+        } catch (IOException ex) {
+            failure = ex;
+        }
+    }
+    
+    private static long packCursor(int x, int y) {
+        return ((long) y << 32) | (x & 0xffffffffL);
+    }
+}
@@ -0,0 +1,149 @@
+package net.coderodde.fun.console;
+
+import static net.coderodde.fun.console.ConsoleAssertions.assertSameScreen;
+import static net.coderodde.fun.console.ConsoleAssertions.assertSameScrollback;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class tests that the batched write path of the ANSI parser gives the
+ * same screen as feeding the same stream one character or one byte at a
+ * time.
+ * 
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 17, 2026)
+ */
+public class AnsiParserTest {
+    
+    /**
+     * The width of the tested consoles.
+     */
+    private static final int WIDTH = 40;
+    
+    /**
+     * The height of the tested consoles.
+     */
+    private static final int HEIGHT = 12;
+    
+    /**
+     * A recorded log mixing plain text, colors, cursor movement, erasing,
+     * scrolling and non-ASCII characters.
+     */
+    private static final String LOG = createLog();
+    
+    @Test
+    public void wholeAndCharacterAtATimeWritesAgree() throws IOException {
+        ConsoleModel whole = new ConsoleModel(WIDTH, HEIGHT);
+        ConsoleModel single = new ConsoleModel(WIDTH, HEIGHT);
+        
+        try (AnsiWriter writer = new AnsiWriter(whole)) {
+            writer.write(LOG);
+        }
+        
+        try (AnsiWriter writer = new AnsiWriter(single)) {
+            for (int i = 0; i < LOG.length(); i++) {
+                writer.write(LOG.charAt(i));
+            }
+        }
+        
+        assertSameScreen(whole, single);
+        assertSameScrollback(whole, single);
+    }
+    
+    @Test
+    public void wholeAndByteAtATimeWritesAgree() throws IOException {
+        byte[] bytes = LOG.getBytes(StandardCharsets.UTF_8);
+        ConsoleModel whole = new ConsoleModel(WIDTH, HEIGHT);
+        ConsoleModel single = new ConsoleModel(WIDTH, HEIGHT);
+        
+        try (AnsiOutputStream out = new AnsiOutputStream(whole)) {
+            out.write(bytes);
+        }
+        
+        try (AnsiOutputStream out = new AnsiOutputStream(single)) {
+            for (byte b : bytes) {
+                out.write(b);
+            }
+        }
+        
+        assertSameScreen(whole, single);
+        assertSameScrollback(whole, single);
+    }
+    
+    @Test
+    public void streamAndWriterAgree() throws IOException {
+        ConsoleModel written = new ConsoleModel(WIDTH, HEIGHT);
+        ConsoleModel streamed = new ConsoleModel(WIDTH, HEIGHT);
+        
+        try (AnsiWriter writer = new AnsiWriter(written)) {
+            writer.write(LOG);
+        }
+        
+        try (AnsiOutputStream out = new AnsiOutputStream(streamed)) {
+            out.write(LOG.getBytes(StandardCharsets.UTF_8));
+        }
+        
+        assertSameScreen(written, streamed);
+    }
+    
+    @Test
+    public void colorsAndCursorMovesApply() throws IOException {
+        ConsoleModel model = new ConsoleModel(WIDTH, HEIGHT);
+        
+        try (AnsiWriter writer = new AnsiWriter(model)) {
+            writer.write("\u001b[31mR\u001b[0m\u001b[3;5HX");
+        }
+        
+        CellBuffer cells = model.getFrontCellBuffer();
+        assertEquals('R', cells.getCodePoint(cells.index(0, 0)));
+        assertEquals(AnsiParser.XTERM_COLORS[1].getRGB(),
+                     cells.getForeground(cells.index(0, 0)));
+        assertEquals('X', cells.getCodePoint(cells.index(4, 2)));
+        assertNotEquals(AnsiParser.XTERM_COLORS[1].getRGB(),
+                        cells.getForeground(cells.index(4, 2)));
+    }
+    
+    @Test
+    public void erasingKeepsThePaletteIndices() throws IOException {
+        ConsoleModel model = new ConsoleModel(WIDTH, HEIGHT, new Palette());
+        
+        // Entry 16 is black like entry 0:
+        try (AnsiWriter writer = new AnsiWriter(model)) {
+            writer.write("\u001b[38;5;231;48;5;16m\u001b[2Jab\u001b[2;1H"
+                         + "\u001b[K");
+        }
+        
+        CellBuffer cells = model.getFrontCellBuffer();
+        
+        for (int y = 0; y < 2; y++) {
+            assertEquals(231, cells.getForegroundIndex(cells.index(5, y)));
+            assertEquals(16, cells.getBackgroundIndex(cells.index(5, y)));
+        }
+    }
+    
+    private static String createLog() {
+        StringBuilder sb = new StringBuilder();
+        String[] levels = { "\u001b[32mINFO", 
+                            "\u001b[1;33mWARN", 
+                            "\u001b[38;5;196mFAIL",
+                            "\u001b[38;2;10;200;30mTRACE" };
+        
+        for (int i = 0; i < 60; i++) {
+            sb.append("\u001b[90m12:00:").append(i % 60).append(' ')
+              .append(levels[i % levels.length]).append("\u001b[0m ")
+              .append("worker-").append(i % 7).append('\t')
+              .append(i % 5 == 0 ? "na\u00efve caf\u00e9 \u2603" : "ok")
+              .append(i % 9 == 0 ? " \ud83d\ude00" : "")
+              .append(i % 11 == 0 ? "\u001b[2K\rrewritten" : "")
+              .append(i % 13 == 0 ? "\u001b[5;3H\u001b[44mboxed\u001b[0K" 
+                                  : "")
+              .append("\r\n");
+        }
+        
+        return sb.toString();
+    }
+}
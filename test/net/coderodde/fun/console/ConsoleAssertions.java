@@ -0,0 +1,112 @@
+package net.coderodde.fun.console;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * This class implements the assertions comparing the screens of consoles.
+ * 
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 17, 2026)
+ */
+final class ConsoleAssertions {
+    
+    private ConsoleAssertions() {}
+    
+    /**
+     * Asserts that two models show the same cells and the same cursor.
+     * 
+     * @param expected the expected model.
+     * @param actual   the actual model.
+     */
+    static void assertSameScreen(ConsoleModel expected, ConsoleModel actual) {
+        String difference = findScreenDifference(expected, actual);
+        
+        if (difference != null) {
+            fail(difference);
+        }
+    }
+    
+    /**
+     * Asserts that two models hold the same rows in their scrollbacks.
+     * 
+     * @param expected the expected model.
+     * @param actual   the actual model.
+     */
+    static void assertSameScrollback(ConsoleModel expected,
+                                     ConsoleModel actual) {
+        assertEquals(expected.getScrollbackSize(),
+                     actual.getScrollbackSize(),
+                     "The scrollback sizes differ.");
+        
+        for (int i = 0; i < expected.getScrollbackSize(); i++) {
+            assertEquals(expected.getScrollbackText(i),
+                         actual.getScrollbackText(i),
+                         "The scrollback row " + i + " differs.");
+        }
+    }
+    
+    /**
+     * Asserts that a row of a model starts with the given text.
+     * 
+     * @param model the model.
+     * @param y     the row.
+     * @param text  the expected characters of the row, one per cell.
+     */
+    static void assertRowText(ConsoleModel model, int y, String text) {
+        CellBuffer cells = model.getFrontCellBuffer();
+        StringBuilder sb = new StringBuilder();
+        
+        for (int x = 0; x < text.length(); x++) {
+            sb.appendCodePoint(cells.getCodePoint(cells.index(x, y)));
+        }
+        
+        assertEquals(text, sb.toString(), "The row " + y + " differs.");
+    }
+    
+    /**
+     * Describes the first difference between the screens of two models.
+     * 
+     * @param expected the expected model.
+     * @param actual   the actual model.
+     * @return the description, or {@code null} if the screens are the same.
+     */
+    static String findScreenDifference(ConsoleModel expected,
+                                       ConsoleModel actual) {
+        synchronized (expected.getScrollLock()) {
+            synchronized (actual.getScrollLock()) {
+                CellBuffer expectedCells = expected.getFrontCellBuffer();
+                CellBuffer actualCells = actual.getFrontCellBuffer();
+                
+                if (expectedCells.getWidth() != actualCells.getWidth()
+                        || expectedCells.getHeight() 
+                        != actualCells.getHeight()) {
+                    return "Expected a " + expectedCells.getWidth() + " x " +
+                           expectedCells.getHeight() + " screen, got " +
+                           actualCells.getWidth() + " x " +
+                           actualCells.getHeight() + ".";
+                }
+                
+                for (int y = 0; y < expectedCells.getHeight(); y++) {
+                    long difference = 
+                            expectedCells.findDifference(actualCells, y);
+                    
+                    if (difference >= 0L) {
+                        return "The row " + y + " differs in the columns " +
+                               (difference >>> 32) + " to " + 
+                               (int) difference + ".";
+                    }
+                }
+                
+                if (!expected.getConsoleCursorPosition().equals(
+                        actual.getConsoleCursorPosition())) {
+                    return "Expected the cursor at " +
+                           expected.getConsoleCursorPosition() + ", got " +
+                           actual.getConsoleCursorPosition() + ".";
+                }
+                
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package net.coderodde.fun.console;
+
+import static net.coderodde.fun.console.ConsoleAssertions.assertRowText;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Color;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class tests that a painter never sees a frame half-written.
+ * 
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 17, 2026)
+ */
+public class ConsoleFrameTest {
+
+    /**
+     * The width of the tested console.
+     */
+    private static final int WIDTH = 40;
+    
+    /**
+     * The height of the tested console.
+     */
+    private static final int HEIGHT = 10;
+    
+    /**
+     * The number of frames written.
+     */
+    private static final int FRAMES = 2000;
+    
+    @Test
+    public void painterSeesOnlyWholeFrames() throws Exception {
+        final ConsoleModel model = new ConsoleModel(WIDTH, HEIGHT);
+        final AtomicBoolean done = new AtomicBoolean();
+        final AtomicInteger paintedFrames = new AtomicInteger();
+        final AtomicReference<String> tornFrame = new AtomicReference<>();
+        Thread painter = new Thread(new Runnable() {
+            
+            @Override
+            public void run() {
+                while (!done.get() && tornFrame.get() == null) {
+                    CellBuffer cells = model.acquireFrontCellBuffer();
+                    
+                    try {
+                        checkFrame(cells);
+                    } finally {
+                        model.releaseFrontCellBuffer();
+                    }
+                    
+                    paintedFrames.incrementAndGet();
+                }
+            }
+            
+            private void checkFrame(CellBuffer cells) {
+                int expected = cells.getCodePoint(0);
+                
+                for (int i = 1; i < WIDTH * HEIGHT; i++) {
+                    if (cells.getCodePoint(i) != expected) {
+                        tornFrame.set("Cell " + i + " holds " + 
+                                      (char) cells.getCodePoint(i) + 
+                                      " in a frame of " + (char) expected +
+                                      ".");
+                        return;
+                    }
+                }
+            }
+        });
+        model.fill(0, 0, WIDTH, HEIGHT, 'a', Color.WHITE, Color.BLACK, false);
+        painter.start();
+        char[] row = new char[WIDTH];
+        
+        try {
+            for (int frame = 0; frame < FRAMES; frame++) {
+                Arrays.fill(row, (char) ('a' + frame % 26));
+                String text = new String(row);
+                model.beginFrame();
+                
+                for (int y = 0; y < HEIGHT; y++) {
+                    model.write(0, y, text, Color.WHITE, Color.BLACK, false);
+                    Thread.yield();
+                }
+                
+                model.commitFrame();
+            }
+        } finally {
+            done.set(true);
+            painter.join();
+        }
+        
+        assertNull(tornFrame.get());
+        assertTrue(paintedFrames.get() > 0);
+        assertRowText(model, HEIGHT - 1, new String(row));
+    }
+    
+    @Test
+    public void commitReportsOnlyTheChangedCells() {
+        ConsoleModel model = new ConsoleModel(WIDTH, HEIGHT);
+        DirtyRegion dirtyRegion = model.getDirtyRegion();
+        drain(dirtyRegion);
+        
+        model.beginFrame();
+        model.write(0, 2, "abc", Color.WHITE, Color.BLACK, false);
+        model.write(0, 2, "   ", Color.WHITE, Color.BLACK, false);
+        model.write(5, 4, "x", Color.WHITE, Color.BLACK, false);
+        assertEquals(0, drain(dirtyRegion));
+        model.commitFrame();
+        
+        assertEquals(1, drain(dirtyRegion));
+        assertRowText(model, 4, "     x");
+    }
+    
+    /**
+     * Drains a dirty region.
+     * 
+     * @param dirtyRegion the dirty region.
+     * @return the number of damaged cells.
+     */
+    private static int drain(DirtyRegion dirtyRegion) {
+        final int[] cells = new int[1];
+        dirtyRegion.drain(new DirtyRegion.RectangleVisitor() {
+            
+            @Override
+            public void visit(int x, int y, int width, int height) {
+                cells[0] += width * height;
+            }
+        });
+        return cells[0];
+    }
+}
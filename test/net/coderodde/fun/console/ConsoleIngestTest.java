@@ -0,0 +1,170 @@
+package net.coderodde.fun.console;
+
+import static net.coderodde.fun.console.ConsoleAssertions.assertRowText;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import javax.swing.SwingUtilities;
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class tests the overflow policies of the console ingest and the
+ * completion of its futures. The frames of the tested models are started
+ * and presented by the tests rather than by a painter.
+ * 
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 17, 2026)
+ */
+public class ConsoleIngestTest {
+
+    /**
+     * Does nothing. Stands for the painting of the frames.
+     */
+    private static final Runnable NOTHING = new Runnable() {
+        
+        @Override
+        public void run() {}
+    };
+    
+    @Test
+    public void blockingWriteWaitsForTheFrame() throws Exception {
+        ConsoleModel model = new ConsoleModel(10, 2);
+        RenderScheduler scheduler = new RenderScheduler(NOTHING);
+        final ConsoleIngest ingest = 
+                new ConsoleIngest(model, scheduler, 1, OverflowPolicy.BLOCK);
+        final CompletableFuture<CompletableFuture<Void>> second =
+                new CompletableFuture<>();
+        CompletableFuture<Void> first = ingest.printAsync("a");
+        Thread producer = new Thread(new Runnable() {
+            
+            @Override
+            public void run() {
+                try {
+                    second.complete(ingest.printAsync("b"));
+                } catch (InterruptedException ex) {
+                    second.completeExceptionally(ex);
+                }
+            }
+        });
+        producer.start();
+        
+        while (producer.getState() != Thread.State.WAITING) {
+            Thread.sleep(1L);
+        }
+        
+        assertFalse(first.isDone());
+        assertFalse(second.isDone());
+        assertEquals(1, ingest.getInFlightCount());
+        assertEquals(1L, ingest.getOverflowCount());
+        assertRowText(model, 0, "a ");
+        
+        presentFrame(scheduler);
+        assertTrue(first.isDone());
+        CompletableFuture<Void> secondFuture = second.get(5L, TimeUnit.SECONDS);
+        assertFalse(secondFuture.isDone());
+        assertRowText(model, 0, "ab");
+        
+        presentFrame(scheduler);
+        assertTrue(secondFuture.isDone());
+        assertEquals(0, ingest.getInFlightCount());
+    }
+    
+    @Test
+    public void droppingWriteIsMergedIntoTheFrame() throws Exception {
+        ConsoleModel model = new ConsoleModel(10, 2);
+        RenderScheduler scheduler = new RenderScheduler(NOTHING);
+        ConsoleIngest ingest = 
+                new ConsoleIngest(model, scheduler, 1, OverflowPolicy.DROP);
+        CompletableFuture<Void> first = ingest.printAsync("a");
+        CompletableFuture<Void> second = ingest.printAsync("b");
+        
+        assertSame(first, second);
+        assertEquals(1, ingest.getInFlightCount());
+        assertEquals(1L, ingest.getOverflowCount());
+        assertRowText(model, 0, "ab");
+        
+        presentFrame(scheduler);
+        assertTrue(first.isDone());
+        assertEquals(0, ingest.getInFlightCount());
+    }
+    
+    @Test
+    public void failingFastWriteIsRejected() throws Exception {
+        ConsoleModel model = new ConsoleModel(10, 2);
+        RenderScheduler scheduler = new RenderScheduler(NOTHING);
+        ConsoleIngest ingest = new ConsoleIngest(model, 
+                                                 scheduler, 
+                                                 1, 
+                                                 OverflowPolicy.FAIL_FAST);
+        CompletableFuture<Void> first = ingest.printAsync("a");
+        CompletableFuture<Void> second = ingest.printAsync("b");
+        
+        try {
+            second.get();
+            fail("The overflowing write was not rejected.");
+        } catch (ExecutionException ex) {
+            assertTrue(ex.getCause() instanceof RejectedExecutionException);
+        }
+        
+        try {
+            ingest.print("c");
+            fail("The overflowing write was not rejected.");
+        } catch (RejectedExecutionException ex) {
+            // Expected.
+        }
+        
+        assertEquals(2L, ingest.getOverflowCount());
+        assertRowText(model, 0, "a  ");
+        
+        presentFrame(scheduler);
+        assertTrue(first.isDone());
+        assertFalse(first.isCompletedExceptionally());
+        ingest.print("d");
+        assertRowText(model, 0, "ad ");
+    }
+    
+    @Test
+    public void closingCompletesThePendingFutures() throws Exception {
+        ConsoleModel model = new ConsoleModel(10, 2);
+        RenderScheduler scheduler = new RenderScheduler(NOTHING);
+        ConsoleIngest ingest = 
+                new ConsoleIngest(model, scheduler, 2, OverflowPolicy.BLOCK);
+        CompletableFuture<Void> first = ingest.printAsync("a");
+        scheduler.frameStarted();
+        CompletableFuture<Void> second = ingest.printAsync("b");
+        
+        assertEquals(2, ingest.getInFlightCount());
+        ingest.close();
+        assertTrue(first.isDone());
+        assertTrue(second.isDone());
+        assertEquals(0, ingest.getInFlightCount());
+        
+        try {
+            ingest.print("c");
+            fail("A closed ingest accepted a write.");
+        } catch (IllegalStateException ex) {
+            // Expected.
+        }
+    }
+    
+    /**
+     * Starts and presents a frame of a scheduler.
+     * 
+     * @param scheduler the scheduler.
+     * @throws Exception if waiting for the presentation fails.
+     */
+    private static void presentFrame(RenderScheduler scheduler) 
+            throws Exception {
+        scheduler.frameStarted();
+        scheduler.frameRendered(1);
+        // The frame is presented on the event dispatch thread:
+        SwingUtilities.invokeAndWait(NOTHING);
+    }
+}
@@ -0,0 +1,38 @@
+package net.coderodde.fun.console;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class tests the line editing of the console input.
+ * 
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 17, 2026)
+ */
+public class ConsoleInputTest {
+
+    @Test
+    public void backspaceErasesWholeWideCharacters() throws IOException {
+        ConsoleModel model = new ConsoleModel(20, 3);
+        ConsoleInput input = new ConsoleInput(model);
+        input.setEcho(true);
+        // A double-width character and a supplementary double-width one:
+        assertTrue(input.offer("a\u4e2d\ud83d\ude00\b\bb\n"));
+        BufferedReader reader = new BufferedReader(input.getReader());
+        
+        assertEquals("ab", reader.readLine());
+        
+        CellBuffer cells = model.getFrontCellBuffer();
+        String row = "ab   ";
+        
+        for (int x = 0; x < row.length(); x++) {
+            assertEquals(row.charAt(x), 
+                         cells.getCodePoint(cells.index(x, 0)),
+                         "Column " + x + ".");
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package net.coderodde.fun.console;
+
+import static net.coderodde.fun.console.ConsoleAssertions.assertSameScreen;
+import static net.coderodde.fun.console.ConsoleAssertions.findScreenDifference;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Color;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class tests mirroring a console to a viewer over the loopback
+ * interface.
+ * 
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 17, 2026)
+ */
+public class ConsoleMirrorTest {
+
+    /**
+     * The time in nanoseconds to wait for the viewer to catch up.
+     */
+    private static final long TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(20L);
+    
+    /**
+     * The colors the mirrored text is printed with.
+     */
+    private static final Color[] COLORS = {
+        Color.RED, Color.GREEN, Color.CYAN, Color.YELLOW
+    };
+    
+    @Test
+    public void viewerShowsTheMirroredScreen() throws Exception {
+        ConsoleModel model = new ConsoleModel(40, 10);
+        ConsoleModel target = new ConsoleModel(1, 1);
+        
+        try (ConsoleMirror mirror = new ConsoleMirror(model, 0);
+             ConsoleMirrorViewer viewer =
+                     new ConsoleMirrorViewer(target, mirror.getPort())) {
+            awaitSameScreen(model, target);
+            
+            for (int i = 0; i < 50; i++) {
+                model.setForeground(COLORS[i % COLORS.length]);
+                model.print("line " + i + " of the mirrored console\n");
+            }
+            
+            model.setConsoleCursorPosition(5, 3);
+            awaitSameScreen(model, target);
+        }
+    }
+    
+    @Test
+    public void viewerFollowsResizes() throws Exception {
+        ConsoleModel model = new ConsoleModel(40, 10);
+        ConsoleModel target = new ConsoleModel(1, 1);
+        
+        try (ConsoleMirror mirror = new ConsoleMirror(model, 0);
+             ConsoleMirrorViewer viewer =
+                     new ConsoleMirrorViewer(target, mirror.getPort())) {
+            model.print("before the resize\n");
+            awaitSameScreen(model, target);
+            model.setConsoleSize(25, 6);
+            model.print("after the resize, long enough to wrap\n");
+            awaitSameScreen(model, target);
+        }
+    }
+    
+    @Test
+    public void viewerFollowsPaletteRemappings() throws Exception {
+        Palette palette = new Palette();
+        ConsoleModel model = new ConsoleModel(20, 4, palette);
+        ConsoleModel target = new ConsoleModel(1, 1);
+        
+        try (ConsoleMirror mirror = new ConsoleMirror(model, 0);
+             ConsoleMirrorViewer viewer =
+                     new ConsoleMirrorViewer(target, mirror.getPort())) {
+            model.setForegroundIndex(9);
+            model.print("themed");
+            awaitForeground(target, palette.getArgb(9));
+            palette.setArgb(9, 0xff123456);
+            awaitForeground(target, 0xff123456);
+        }
+    }
+    
+    @Test
+    public void slowViewerIsResynced() throws Exception {
+        ConsoleModel model = new ConsoleModel(400, 100);
+        ConsoleModel target = new ConsoleModel(1, 1);
+        
+        try (ConsoleMirror mirror = new ConsoleMirror(model, 0);
+             ConsoleMirrorViewer viewer =
+                     new ConsoleMirrorViewer(target, mirror.getPort())) {
+            awaitSameScreen(model, target);
+            long deadline = System.nanoTime() + TIMEOUT_NANOS;
+            
+            // The viewer cannot open a frame, so the socket and then its
+            // queue fill up. Each fill is committed as one frame and gets
+            // broadcast before the next one:
+            synchronized (target.getScrollLock()) {
+                for (int i = 0; mirror.getViewerResyncs() == 0L; i++) {
+                    assertTrue(System.nanoTime() < deadline,
+                               "The viewer never fell behind.");
+                    fillScreen(model, i);
+                    Thread.sleep(50L);
+                }
+            }
+            
+            // The console stays idle from now on, so only the overflow
+            // itself may bring the whole screen to the viewer:
+            awaitSameScreen(model, target);
+            assertTrue(viewer.isConnected());
+        }
+    }
+    
+    private static void fillScreen(ConsoleModel model, int round) {
+        model.beginFrame();
+        
+        try {
+            for (int y = 0; y < model.getConsoleHeight(); y++) {
+                for (int x = 0; x < model.getConsoleWidth(); x++) {
+                    int i = round + x + y;
+                    // A color per cell makes the changes large:
+                    model.write(x,
+                                y,
+                                String.valueOf((char)('a' + i % 26)),
+                                COLORS[i % COLORS.length],
+                                Color.BLACK,
+                                false);
+                }
+            }
+        } finally {
+            model.commitFrame();
+        }
+    }
+    
+    private static void awaitSameScreen(ConsoleModel expected,
+                                        ConsoleModel actual)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + TIMEOUT_NANOS;
+        
+        while (findScreenDifference(expected, actual) != null
+                && System.nanoTime() < deadline) {
+            Thread.sleep(10L);
+        }
+        
+        assertSameScreen(expected, actual);
+    }
+    
+    private static void awaitForeground(ConsoleModel model, int foreground)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + TIMEOUT_NANOS;
+        
+        while (readForeground(model) != foreground
+                && System.nanoTime() < deadline) {
+            Thread.sleep(10L);
+        }
+        
+        assertEquals(foreground, readForeground(model));
+    }
+    
+    private static int readForeground(ConsoleModel model) {
+        synchronized (model.getScrollLock()) {
+            CellBuffer cells = model.getFrontCellBuffer();
+            return cells.getForeground(cells.index(0, 0));
+        }
+    }
+}
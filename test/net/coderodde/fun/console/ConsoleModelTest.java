@@ -0,0 +1,268 @@
+package net.coderodde.fun.console;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Color;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class tests resizing a console model and printing surrogate pairs
+ * split across prints.
+ * 
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 17, 2026)
+ */
+public class ConsoleModelTest {
+
+    /**
+     * A line wider than the console before the widening.
+     */
+    private static final String LINE = "ABCDEFGHIJKLMNOPQ";
+    
+    /**
+     * The high surrogate of the grinning face.
+     */
+    private static final char HIGH = '\ud83d';
+    
+    /**
+     * The low surrogate of the grinning face.
+     */
+    private static final char LOW = '\ude00';
+    
+    /**
+     * The code point of the grinning face.
+     */
+    private static final int FACE = 0x1f600;
+    
+    /**
+     * A double-width character.
+     */
+    private static final String WIDE = "\u4e2d";
+    
+    /**
+     * The code point replacing an unpaired surrogate.
+     */
+    private static final int REPLACEMENT = 0xfffd;
+    
+    @Test
+    public void widenedConsoleScrollsFullRowsOff() {
+        ConsoleModel model = new ConsoleModel(10, 3);
+        model.setConsoleSize(20, 3);
+        
+        for (int i = 0; i < 5; i++) {
+            model.print(LINE + "\n");
+        }
+        
+        assertTrue(model.getScrollbackSize() > 0);
+        
+        for (int i = 0; i < model.getScrollbackSize(); i++) {
+            assertEquals(LINE, model.getScrollbackText(i));
+        }
+    }
+    
+    @Test
+    public void narrowedConsoleKeepsTheScrollback() {
+        ConsoleModel model = new ConsoleModel(20, 3);
+        
+        for (int i = 0; i < 5; i++) {
+            model.print(LINE + "\n");
+        }
+        
+        int size = model.getScrollbackSize();
+        assertTrue(size > 0);
+        model.setConsoleSize(10, 3);
+        model.setConsoleSize(30, 3);
+        
+        for (int i = 0; i < size; i++) {
+            assertEquals(LINE, model.getScrollbackText(i));
+        }
+    }
+    
+    @Test
+    public void scrollbackWidensGeometrically() {
+        ScrollbackBuffer scrollback = new ScrollbackBuffer(10, 4);
+        scrollback.ensureWidth(11);
+        int width = scrollback.getWidth();
+        assertTrue(width >= 15, "Widened to " + width + " cells only.");
+        scrollback.ensureWidth(width);
+        assertEquals(width, scrollback.getWidth());
+    }
+    
+    @Test
+    public void scrollbackRowsArePaddedWhenRead() {
+        CellBuffer row = new CellBuffer(10, 1, 'x', 0xff112233, 0xff445566);
+        ScrollbackBuffer scrollback = new ScrollbackBuffer(10, 4);
+        scrollback.pushRow(row, 0);
+        scrollback.ensureWidth(20);
+        CellBuffer target = new CellBuffer(20, 1, '?', 0, 0);
+        scrollback.copyRow(0, target, 0);
+        assertEquals("xxxxxxxxxx", scrollback.getRowText(0));
+        
+        for (int x = 0; x < 20; x++) {
+            int index = target.index(x, 0);
+            assertEquals(x < 10 ? 'x' : ' ', target.getCodePoint(index));
+            assertEquals(0xff445566, target.getBackground(index));
+        }
+    }
+    
+    @Test
+    public void splitSurrogatePairIsJoined() {
+        ConsoleModel model = new ConsoleModel(10, 2);
+        model.print(HIGH);
+        model.print(LOW);
+        model.print("x" + HIGH);
+        model.print(LOW + "y");
+        assertRow(model, FACE, CellBuffer.WIDE_TAIL, 'x', FACE);
+    }
+    
+    @Test
+    public void staleHighSurrogateIsReplaced() {
+        ConsoleModel model = new ConsoleModel(10, 2);
+        model.print(HIGH);
+        model.print('a');
+        model.print(HIGH);
+        model.print("\u00e9");
+        model.print("b" + HIGH);
+        model.print(HIGH);
+        model.print(LOW);
+        assertRow(model, REPLACEMENT, 'a', REPLACEMENT, 0xe9, 'b',
+                  REPLACEMENT, FACE);
+    }
+    
+    @Test
+    public void staleHighSurrogateIsReplacedInWindows() {
+        ConsoleModel model = new ConsoleModel(10, 2);
+        ConsoleWindow window = model.createWindow(0, 0, 10, 2);
+        window.print(HIGH);
+        window.print('a');
+        window.print(HIGH);
+        window.print("b");
+        window.print(HIGH);
+        window.print(LOW);
+        assertRow(model, REPLACEMENT, 'a', REPLACEMENT, 'b', FACE);
+    }
+    
+    @Test
+    public void splitSurrogatePairIsJoinedInWindows() {
+        ConsoleModel model = new ConsoleModel(10, 2);
+        ConsoleWindow window = model.createWindow(0, 0, 10, 2);
+        window.print("x" + HIGH);
+        window.print(LOW + "y");
+        window.print(String.valueOf(HIGH));
+        window.print(LOW);
+        assertRow(model, 'x', FACE, CellBuffer.WIDE_TAIL, 'y', FACE);
+    }
+    
+    @Test
+    public void nonAsciiCharactersArePrintedWithoutAllocation() {
+        ConsoleModel model = new ConsoleModel(80, 25);
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean)
+                ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        // Warm up the class loading and the scrolling first:
+        printNonAscii(model, 10_000);
+        long allocated = threads.getThreadAllocatedBytes(threadId);
+        printNonAscii(model, 100_000);
+        allocated = threads.getThreadAllocatedBytes(threadId) - allocated;
+        assertTrue(allocated < 100_000L,
+                   allocated + " bytes allocated by 100000 prints.");
+    }
+    
+    @Test
+    public void fillBlanksTheHalvesOfCutWideCharacters() {
+        ConsoleModel model = new ConsoleModel(10, 2);
+        model.print(WIDE + WIDE + WIDE);
+        model.fill(1, 0, 2, 1, '-', Color.WHITE, Color.BLACK, false);
+        assertRow(model, ' ', '-', '-', ' ', WIDE.charAt(0),
+                  CellBuffer.WIDE_TAIL);
+    }
+    
+    @Test
+    public void copyBlanksTheHalvesOfCutWideCharacters() {
+        ConsoleModel model = new ConsoleModel(10, 2);
+        model.print("ab" + WIDE + "cd\nxy" + WIDE + WIDE);
+        // Copies the right half of the first wide character only:
+        model.copyRectangle(3, 0, 2, 1, 1, 1);
+        assertCells(model, 1, 'x', ' ', 'c', ' ', WIDE.charAt(0),
+                    CellBuffer.WIDE_TAIL);
+    }
+    
+    @Test
+    public void unchangedCellsOfFillsAndCopiesAreSuppressed() {
+        ConsoleModel model = new ConsoleModel(10, 2);
+        model.fill(0, 0, 10, 2, 'a', Color.WHITE, Color.BLACK, false);
+        final List<String> spans = new ArrayList<>();
+        model.addMutationListener(new ConsoleModel.MutationListener() {
+            
+            @Override
+            public void cellsChanged(int minX, int maxX, int y) {
+                spans.add(minX + "-" + maxX + "@" + y);
+            }
+            
+            @Override
+            public void scrolling(int rows) {}
+            
+            @Override
+            public void cursorMoved(int x, int y) {}
+            
+            @Override
+            public void resized(int width, int height) {}
+            
+            @Override
+            public void paletteChanged() {}
+        });
+        long suppressed = model.getSuppressedWrites();
+        
+        model.fill(0, 0, 10, 2, 'a', Color.WHITE, Color.BLACK, false);
+        assertEquals(suppressed + 20, model.getSuppressedWrites());
+        assertEquals(new ArrayList<String>(), spans);
+        
+        model.fill(0, 0, 10, 1, 'b', Color.WHITE, Color.BLACK, false);
+        model.fill(3, 0, 2, 1, 'a', Color.WHITE, Color.BLACK, false);
+        model.fill(7, 0, 1, 1, 'a', Color.WHITE, Color.BLACK, false);
+        suppressed = model.getSuppressedWrites();
+        spans.clear();
+        
+        // Row 1 differs from row 0 in columns 0-2, 5-6 and 8-9:
+        model.copyRectangle(0, 1, 10, 1, 0, 0);
+        assertEquals(suppressed + 3, model.getSuppressedWrites());
+        assertEquals(Arrays.asList("0-9@0"), spans);
+        assertRow(model, 'a', 'a', 'a', 'a', 'a', 'a', 'a', 'a', 'a', 'a');
+        
+        spans.clear();
+        model.fill(2, 0, 6, 1, 'a', Color.WHITE, Color.BLACK, false);
+        model.fill(4, 0, 2, 1, 'b', Color.WHITE, Color.BLACK, false);
+        assertEquals(suppressed + 9, model.getSuppressedWrites());
+        assertEquals(Arrays.asList("4-5@0"), spans);
+    }
+    
+    private static void printNonAscii(ConsoleModel model, int count) {
+        for (int i = 0; i < count; i++) {
+            model.print((char)(i % 2 == 0 ? '\u00e9' : '\u4e2d'));
+            model.print(HIGH);
+            model.print(LOW);
+        }
+    }
+    
+    private static void assertRow(ConsoleModel model, int... codePoints) {
+        assertCells(model, 0, codePoints);
+    }
+    
+    private static void assertCells(ConsoleModel model,
+                                    int y,
+                                    int... codePoints) {
+        CellBuffer cells = model.getFrontCellBuffer();
+        
+        for (int x = 0; x < codePoints.length; x++) {
+            assertEquals(codePoints[x],
+                         cells.getCodePoint(cells.index(x, y)),
+                         "Column " + x + " of row " + y + ".");
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package net.coderodde.fun.console;
+
+import static net.coderodde.fun.console.ConsoleAssertions.assertSameScreen;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.awt.Color;
+import java.util.concurrent.CountDownLatch;
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class tests that concurrent writers of the windows of a console keep
+ * their own cursors and colors.
+ * 
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 17, 2026)
+ */
+public class ConsoleWindowTest {
+
+    /**
+     * The number of windows written concurrently.
+     */
+    private static final int WINDOWS = 4;
+    
+    /**
+     * The width of each window.
+     */
+    private static final int WINDOW_WIDTH = 10;
+    
+    /**
+     * The height of each window.
+     */
+    private static final int WINDOW_HEIGHT = 6;
+    
+    /**
+     * The number of lines printed to each window.
+     */
+    private static final int LINES = 500;
+    
+    /**
+     * The foreground colors of the windows.
+     */
+    private static final Color[] COLORS = {
+        Color.RED, Color.GREEN, Color.CYAN, Color.YELLOW
+    };
+    
+    @Test
+    public void concurrentWritersKeepTheirOwnCursors() throws Exception {
+        ConsoleModel model = 
+                new ConsoleModel(WINDOWS * WINDOW_WIDTH, WINDOW_HEIGHT);
+        ConsoleModel expected = 
+                new ConsoleModel(WINDOWS * WINDOW_WIDTH, WINDOW_HEIGHT);
+        final ConsoleWindow[] windows = createWindows(model);
+        ConsoleWindow[] expectedWindows = createWindows(expected);
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] writers = new Thread[WINDOWS];
+        
+        for (int i = 0; i < WINDOWS; i++) {
+            final int window = i;
+            writers[i] = new Thread(new Runnable() {
+                
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException ex) {
+                        return;
+                    }
+                    
+                    writeWindow(windows[window], window);
+                }
+            });
+            writers[i].start();
+        }
+        
+        start.countDown();
+        
+        for (int i = 0; i < WINDOWS; i++) {
+            writeWindow(expectedWindows[i], i);
+            writers[i].join();
+        }
+        
+        assertSameScreen(expected, model);
+        
+        for (int i = 0; i < WINDOWS; i++) {
+            assertEquals(expectedWindows[i].getCursorPosition(),
+                         windows[i].getCursorPosition(),
+                         "The cursor of the window " + i + " differs.");
+        }
+        
+        assertEquals(expected.getConsoleCursorPosition(),
+                     model.getConsoleCursorPosition());
+    }
+    
+    private static ConsoleWindow[] createWindows(ConsoleModel model) {
+        ConsoleWindow[] windows = new ConsoleWindow[WINDOWS];
+        
+        for (int i = 0; i < WINDOWS; i++) {
+            windows[i] = model.createWindow(i * WINDOW_WIDTH,
+                                            0,
+                                            WINDOW_WIDTH,
+                                            WINDOW_HEIGHT);
+            windows[i].setForeground(COLORS[i]);
+        }
+        
+        return windows;
+    }
+    
+    /**
+     * Prints numbered lines to a window, alternating between printing whole
+     * strings and single characters.
+     * 
+     * @param window the window.
+     * @param number the number of the window.
+     */
+    private static void writeWindow(ConsoleWindow window, int number) {
+        for (int line = 0; line < LINES; line++) {
+            String text = number + ":" + line + "\n";
+            
+            if (line % 2 == 0) {
+                window.print(text);
+            } else {
+                for (int i = 0; i < text.length(); i++) {
+                    window.print(text.charAt(i));
+                }
+            }
+        }
+        
+        window.print("end " + number);
+    }
+}
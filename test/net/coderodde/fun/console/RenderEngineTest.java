@@ -0,0 +1,44 @@
+package net.coderodde.fun.console;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class tests that a render engine shares the rasterizers among the
+ * consoles of the same font size and drops them with their last console.
+ * 
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 17, 2026)
+ */
+public class RenderEngineTest {
+
+    @Test
+    public void rasterizersAreSharedAndDroppedWithTheirLastConsole() {
+        RenderEngine engine = new RenderEngine();
+        ColorfulConsole first = new ColorfulConsole(10, 5);
+        ColorfulConsole second = new ColorfulConsole(10, 5);
+        first.setRenderEngine(engine);
+        second.setRenderEngine(engine);
+        
+        assertEquals(2, engine.getConsoleCount());
+        assertEquals(1, engine.getRasterizerCount());
+        assertSame(first.getGlyphCache(), second.getGlyphCache());
+        
+        second.setFontSize(20);
+        assertEquals(2, engine.getRasterizerCount());
+        assertNotSame(first.getGlyphCache(), second.getGlyphCache());
+        
+        first.setFontSize(20);
+        assertEquals(1, engine.getRasterizerCount());
+        assertSame(first.getGlyphCache(), second.getGlyphCache());
+        
+        first.setRenderEngine(null);
+        assertEquals(1, engine.getRasterizerCount());
+        second.setRenderEngine(null);
+        assertEquals(0, engine.getConsoleCount());
+        assertEquals(0, engine.getRasterizerCount());
+    }
+}
@@ -0,0 +1,136 @@
+package net.coderodde.fun.console;
+
+import static net.coderodde.fun.console.ConsoleAssertions.assertSameScreen;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Color;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class tests recording a console into a session and replaying it.
+ * 
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 17, 2026)
+ */
+public class SessionRecorderTest {
+    
+    /**
+     * The colors the recorded text is printed with.
+     */
+    private static final Color[] COLORS = {
+        Color.RED, Color.GREEN, Color.CYAN, Color.YELLOW
+    };
+    
+    @Test
+    public void replayReproducesTheScreen() throws Exception {
+        ConsoleModel model = new ConsoleModel(40, 10);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        
+        try (SessionRecorder recorder = new SessionRecorder(model, out, 1L)) {
+            printLines(model, 200);
+        }
+        
+        ConsoleModel replayed = new ConsoleModel(1, 1);
+        new SessionPlayer(ByteBuffer.wrap(out.toByteArray()))
+                .play(replayed, false);
+        assertSameScreen(model, replayed);
+    }
+    
+    @Test
+    public void concurrentWritesAreRecorded() throws Exception {
+        ConsoleModel model = new ConsoleModel(40, 8);
+        int width = model.getConsoleWidth();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Thread[] writers = new Thread[4];
+        
+        try (SessionRecorder recorder = new SessionRecorder(model, out)) {
+            for (int i = 0; i < writers.length; i++) {
+                final ConsoleWindow window =
+                        model.createWindow(0, 2 * i, width, 2);
+                final char base = (char)('a' + 4 * i);
+                writers[i] = new Thread() {
+                    
+                    @Override
+                    public void run() {
+                        for (int j = 0; j < 5000; j++) {
+                            window.print((char)(base + j % 4));
+                        }
+                    }
+                };
+                writers[i].start();
+            }
+            
+            for (Thread writer : writers) {
+                writer.join();
+            }
+        }
+        
+        ConsoleModel replayed = new ConsoleModel(1, 1);
+        new SessionPlayer(ByteBuffer.wrap(out.toByteArray()))
+                .play(replayed, false);
+        assertSameScreen(model, replayed);
+    }
+    
+    @Test
+    public void recordTimesNeverGoBackwards() throws Exception {
+        ConsoleModel model = new ConsoleModel(40, 10);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        
+        // Keyframes every millisecond, interleaved with the other records:
+        try (SessionRecorder recorder = new SessionRecorder(model, out, 1L)) {
+            for (int i = 0; i < 50; i++) {
+                printLines(model, 2);
+                Thread.sleep(1L);
+            }
+        }
+        
+        SessionDecoder decoder =
+                new SessionDecoder(ByteBuffer.wrap(out.toByteArray()));
+        long previousMicros = 0L;
+        int keyframes = 0;
+        
+        while (decoder.hasNext()) {
+            keyframes += decoder.isKeyframeNext() ? 1 : 0;
+            long micros = decoder.peekTimeMicros();
+            assertTrue(micros >= previousMicros,
+                       "The record at " + micros + " us follows one at " +
+                       previousMicros + " us.");
+            decoder.next(null);
+            previousMicros = micros;
+        }
+        
+        assertTrue(keyframes > 2, "Only " + keyframes + " keyframes.");
+    }
+    
+    @Test
+    public void paletteRemappingIsRecorded() throws Exception {
+        Palette palette = new Palette();
+        ConsoleModel model = new ConsoleModel(20, 4, palette);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        
+        try (SessionRecorder recorder = new SessionRecorder(model, out)) {
+            model.setForegroundIndex(9);
+            model.print("themed");
+            // The printed cells are recorded with the old color:
+            recorder.flush();
+            palette.setArgb(9, 0xff123456);
+        }
+        
+        ConsoleModel replayed = new ConsoleModel(1, 1);
+        new SessionPlayer(ByteBuffer.wrap(out.toByteArray()))
+                .play(replayed, false);
+        CellBuffer cells = replayed.getFrontCellBuffer();
+        assertEquals(0xff123456, cells.getForeground(cells.index(0, 0)));
+    }
+    
+    private static void printLines(ConsoleModel model, int lines) {
+        for (int i = 0; i < lines; i++) {
+            model.setForeground(COLORS[i % COLORS.length]);
+            model.print("line " + i + " of the recorded session\n");
+        }
+    }
+}